@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.auth.basic;
+
+import de.fraunhofer.iosb.ilt.frostserver.util.LruCache;
+import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Caches the results of credential and role checks. Entries are keyed by a
+ * hash of the user name, password and role, so no passwords are kept in
+ * memory. Both positive and negative results are cached, and expire after a
+ * configurable time.
+ *
+ * @author scf
+ */
+public class AuthCache {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final LruCache<String, Decision> decisions;
+    private final long ttlMillis;
+
+    /**
+     * @param maxSize The maximum number of decisions to cache. If 0, nothing
+     * is cached.
+     * @param ttlSeconds The time decisions are valid, in seconds.
+     */
+    public AuthCache(int maxSize, int ttlSeconds) {
+        decisions = new LruCache<>(maxSize);
+        ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * Create the cache key for the given user name, password and role.
+     *
+     * @param userName The user name.
+     * @param userPass The password, or null if the password is not checked.
+     * @param roleName The role, or null if no role is checked.
+     * @return The key to use for the cache.
+     */
+    public String createKey(String userName, String userPass, String roleName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            update(digest, userName);
+            update(digest, userPass);
+            update(digest, roleName);
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Every Java platform must support " + HASH_ALGORITHM, ex);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        digest.update((byte) 1);
+        digest.update(value.getBytes(StringHelper.UTF8));
+        // Separator, so that "ab"+"c" and "a"+"bc" differ.
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Get the cached decision for the given key.
+     *
+     * @param key The key, created with
+     * {@link #createKey(String, String, String)}.
+     * @return The cached decision, or null if there is no valid decision.
+     */
+    public Boolean get(String key) {
+        Decision decision = decisions.get(key);
+        if (decision == null || decision.expires <= System.currentTimeMillis()) {
+            return null;
+        }
+        return decision.allowed;
+    }
+
+    public void put(String key, boolean allowed) {
+        decisions.put(key, new Decision(allowed, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void clear() {
+        decisions.clear();
+    }
+
+    @Override
+    public String toString() {
+        return decisions.toString();
+    }
+
+    /**
+     * A cached decision.
+     */
+    private static class Decision {
+
+        private final boolean allowed;
+        private final long expires;
+
+        private Decision(boolean allowed, long expires) {
+            this.allowed = allowed;
+            this.expires = expires;
+        }
+    }
+}
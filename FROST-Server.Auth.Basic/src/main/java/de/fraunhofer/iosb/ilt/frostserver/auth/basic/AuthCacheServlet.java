@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.auth.basic;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shows the state of the cache of credential and role checks on GET, and
+ * clears it on POST. Only accessible with the admin role.
+ *
+ * @author scf
+ */
+public class AuthCacheServlet extends HttpServlet {
+
+    public static final String PATH = "/AuthCache";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthCacheServlet.class);
+    private static final String DESCRIPTION = "Auth cache status and invalidation servlet.";
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        writeStatus(response, "");
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+        LOGGER.info("Clearing the auth cache.");
+        DatabaseHandler.getInstance().getAuthCache().clear();
+        writeStatus(response, "Cache cleared. ");
+    }
+
+    private void writeStatus(HttpServletResponse response, String prefix) {
+        response.setContentType("text/plain;charset=UTF-8");
+        try (PrintWriter out = response.getWriter()) {
+            out.print(prefix);
+            out.println(DatabaseHandler.getInstance().getAuthCache());
+        } catch (IOException exc) {
+            LOGGER.error("Error writing output to client", exc);
+        }
+    }
+
+    @Override
+    public String getServletInfo() {
+        return DESCRIPTION;
+    }
+
+}
@@ -32,6 +32,7 @@ import java.util.Map;
 import javax.servlet.DispatcherType;
 import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContext;
+import javax.servlet.ServletRegistration;
 
 /**
  *
@@ -71,6 +72,9 @@ public class BasicAuthFilterHelper {
         authFilterAdmin.setInitParameter(TAG_ROLE_POST, adminRoleString);
         authFilterAdmin.setInitParameter(TAG_ROLE_PUT, adminRoleString);
         authFilterAdmin.setInitParameter(TAG_ROLE_DELETE, adminRoleString);
-        authFilterAdmin.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD), true, "/DatabaseStatus");
+        authFilterAdmin.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD), true, "/DatabaseStatus", AuthCacheServlet.PATH);
+
+        ServletRegistration.Dynamic authCacheServlet = servletContext.addServlet("AuthCache", AuthCacheServlet.class.getName());
+        authCacheServlet.addMapping(AuthCacheServlet.PATH);
     }
 }
@@ -19,6 +19,8 @@ package de.fraunhofer.iosb.ilt.frostserver.auth.basic;
 
 import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.LIQUIBASE_CHANGELOG_FILENAME;
 import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_AUTO_UPDATE_DATABASE;
+import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_CACHE_SIZE;
+import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_CACHE_TTL;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.ConnectionUtils;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.LiquibaseHelper;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
@@ -29,10 +31,10 @@ import java.io.IOException;
 import java.io.Writer;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.function.Function;
 import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.SQLDialect;
-import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,9 +51,11 @@ public class DatabaseHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseHandler.class);
     private static DatabaseHandler instance;
 
+    private static final String SOURCE_NAME = "FROST-BasicAuth";
+
     private final CoreSettings coreSettings;
-    private final ConnectionUtils.ConnectionWrapper connectionProvider;
-    private DSLContext dslContext;
+    private final Settings authSettings;
+    private final AuthCache authCache;
     private boolean maybeUpdateDatabase;
 
     public static void init(CoreSettings coreSettings) {
@@ -76,41 +80,37 @@ public class DatabaseHandler {
 
     private DatabaseHandler(CoreSettings coreSettings) {
         this.coreSettings = coreSettings;
-        Settings authSettings = coreSettings.getAuthSettings();
+        authSettings = coreSettings.getAuthSettings();
 
         maybeUpdateDatabase = authSettings.getBoolean(TAG_AUTO_UPDATE_DATABASE, BasicAuthProvider.class);
-        connectionProvider = new ConnectionUtils.ConnectionWrapper(authSettings);
+        authCache = new AuthCache(
+                authSettings.getInt(TAG_CACHE_SIZE, BasicAuthProvider.class),
+                authSettings.getInt(TAG_CACHE_TTL, BasicAuthProvider.class));
     }
 
-    private synchronized DSLContext createDslContext() {
-        if (dslContext == null) {
-            dslContext = DSL.using(connectionProvider.get(), SQLDialect.POSTGRES);
-        }
-        return dslContext;
-    }
-
-    public DSLContext getDslContext() {
-        if (dslContext == null) {
-            createDslContext();
-        }
-        return dslContext;
+    /**
+     * The cache of the results of credential and role checks.
+     *
+     * @return The cache of the results of credential and role checks.
+     */
+    public AuthCache getAuthCache() {
+        return authCache;
     }
 
     public boolean isValidUser(String userName, String password) {
-        maybeUpdateDatabase();
-        try {
-            Record1<Integer> one = getDslContext()
-                    .selectOne()
-                    .from(TableUsers.USERS)
-                    .where(
-                            TableUsers.USERS.userName.eq(userName)
-                                    .and(TableUsers.USERS.userPass.eq(password))
-                    ).fetchOne();
-            return one != null;
-        } catch (DataAccessException exc) {
-            LOGGER.error("Failed to check user credentials.", exc);
-            return false;
+        String key = authCache.createKey(userName, password, null);
+        Boolean cached = authCache.get(key);
+        if (cached != null) {
+            return cached;
         }
+        maybeUpdateDatabase();
+        return checkAndCache(key, "Failed to check user credentials.", dslContext -> dslContext
+                .selectOne()
+                .from(TableUsers.USERS)
+                .where(
+                        TableUsers.USERS.userName.eq(userName)
+                                .and(TableUsers.USERS.userPass.eq(password))
+                ).fetchOne());
     }
 
     /**
@@ -123,39 +123,54 @@ public class DatabaseHandler {
      * given role.
      */
     public boolean userHasRole(String userName, String userPass, String roleName) {
-        maybeUpdateDatabase();
-        try {
-            Record1<Integer> one = getDslContext()
-                    .selectOne()
-                    .from(TableUsers.USERS)
-                    .leftJoin(TableUsersRoles.USER_ROLES)
-                    .on(TableUsers.USERS.userName.eq(TableUsersRoles.USER_ROLES.userName))
-                    .where(
-                            TableUsers.USERS.userName.eq(userName)
-                                    .and(TableUsers.USERS.userPass.eq(userPass))
-                                    .and(TableUsersRoles.USER_ROLES.roleName.eq(roleName))
-                    ).fetchOne();
-            return one != null;
-        } catch (DataAccessException exc) {
-            LOGGER.error("Failed to check user rights.", exc);
-            return false;
-        } finally {
-            connectionProvider.doRollback();
+        String key = authCache.createKey(userName, userPass, roleName);
+        Boolean cached = authCache.get(key);
+        if (cached != null) {
+            return cached;
         }
+        maybeUpdateDatabase();
+        return checkAndCache(key, "Failed to check user rights.", dslContext -> dslContext
+                .selectOne()
+                .from(TableUsers.USERS)
+                .leftJoin(TableUsersRoles.USER_ROLES)
+                .on(TableUsers.USERS.userName.eq(TableUsersRoles.USER_ROLES.userName))
+                .where(
+                        TableUsers.USERS.userName.eq(userName)
+                                .and(TableUsers.USERS.userPass.eq(userPass))
+                                .and(TableUsersRoles.USER_ROLES.roleName.eq(roleName))
+                ).fetchOne());
     }
 
     public boolean userHasRole(String userName, String roleName) {
-        try {
-            Record1<Integer> one = createDslContext()
-                    .selectOne()
-                    .from(TableUsersRoles.USER_ROLES)
-                    .where(
-                            TableUsersRoles.USER_ROLES.userName.eq(userName)
-                                    .and(TableUsersRoles.USER_ROLES.roleName.eq(roleName))
-                    ).fetchOne();
-            return one != null;
-        } catch (RuntimeException exc) {
-            LOGGER.error("Failed to check user rights.", exc);
+        String key = authCache.createKey(userName, null, roleName);
+        Boolean cached = authCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return checkAndCache(key, "Failed to check user rights.", dslContext -> dslContext
+                .selectOne()
+                .from(TableUsersRoles.USER_ROLES)
+                .where(
+                        TableUsersRoles.USER_ROLES.userName.eq(userName)
+                                .and(TableUsersRoles.USER_ROLES.roleName.eq(roleName))
+                ).fetchOne());
+    }
+
+    /**
+     * Runs the given query on a pooled connection, and caches whether it
+     * returned a row. Failed queries are not cached.
+     */
+    private boolean checkAndCache(String key, String errorMessage, Function<DSLContext, Record1<Integer>> query) {
+        try (Connection connection = ConnectionUtils.getConnection(SOURCE_NAME, authSettings)) {
+            try {
+                boolean allowed = query.apply(DSL.using(connection, SQLDialect.POSTGRES)) != null;
+                authCache.put(key, allowed);
+                return allowed;
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | RuntimeException exc) {
+            LOGGER.error(errorMessage, exc);
             return false;
         }
     }
@@ -169,8 +184,7 @@ public class DatabaseHandler {
     }
 
     public String checkForUpgrades() {
-        Settings customSettings = coreSettings.getAuthSettings();
-        try (Connection connection = ConnectionUtils.getConnection("FROST-BasicAuth", customSettings)) {
+        try (Connection connection = ConnectionUtils.getConnection(SOURCE_NAME, authSettings)) {
             return LiquibaseHelper.checkForUpgrades(connection, LIQUIBASE_CHANGELOG_FILENAME);
         } catch (SQLException ex) {
             LOGGER.error("Could not initialise database.", ex);
@@ -181,8 +195,7 @@ public class DatabaseHandler {
     }
 
     public boolean doUpgrades(Writer out) throws UpgradeFailedException, IOException {
-        Settings customSettings = coreSettings.getAuthSettings();
-        try (Connection connection = ConnectionUtils.getConnection("FROST-BasicAuth", customSettings)) {
+        try (Connection connection = ConnectionUtils.getConnection(SOURCE_NAME, authSettings)) {
             return LiquibaseHelper.doUpgrades(connection, LIQUIBASE_CHANGELOG_FILENAME, out);
         } catch (SQLException ex) {
             LOGGER.error("Could not initialise database.", ex);
@@ -22,7 +22,8 @@ import org.keycloak.adapters.KeycloakDeployment;
 import org.keycloak.adapters.jaas.BearerTokenLoginModule;
 
 /**
- * Creates its KeycloakDeployment from the CoreSettings instead of a file.
+ * Uses the KeycloakDeployment for the CoreSettings instead of loading one
+ * from a file.
  *
  * @author scf
  */
@@ -36,7 +37,7 @@ public class BearerTokenLoginModuleFrost extends BearerTokenLoginModule {
 
     @Override
     protected KeycloakDeployment resolveDeployment(String keycloakConfigFile) {
-        return Utils.resolveDeployment(coreSettings);
+        return Utils.getDeployment(coreSettings);
     }
 
 }
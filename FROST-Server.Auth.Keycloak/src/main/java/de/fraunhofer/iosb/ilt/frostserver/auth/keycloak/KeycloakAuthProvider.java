@@ -19,7 +19,9 @@ package de.fraunhofer.iosb.ilt.frostserver.auth.keycloak;
 
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import de.fraunhofer.iosb.ilt.frostserver.util.AuthProvider;
 import de.fraunhofer.iosb.ilt.frostserver.util.LiquibaseUser;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.UpgradeFailedException;
@@ -31,6 +33,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.security.auth.Subject;
 import javax.security.auth.callback.Callback;
 import javax.security.auth.callback.NameCallback;
@@ -69,6 +74,18 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
     @DefaultValue("")
     public static final String TAG_KEYCLOAK_CONFIG_SECRET = "keycloakConfigSecret";
 
+    /**
+     * The maximum number of successful logins to cache.
+     */
+    @DefaultValueInt(1000)
+    public static final String TAG_CACHE_SIZE = "cacheSize";
+    /**
+     * The maximum time, in seconds, that a cached login is used, even if its
+     * token is valid longer.
+     */
+    @DefaultValueInt(300)
+    public static final String TAG_CACHE_MAX_TTL = "cacheMaxTtl";
+
     /**
      * The logger for this class.
      */
@@ -81,6 +98,7 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
     private static final String FROST_SERVER_KEYCLOAKJSON = "FROST-Server-Keycloak.json";
 
     private static final int CUTOFF_HOURS = 24;
+    private static final int CLEANUP_INTERVAL_MINUTES = 10;
 
     private CoreSettings coreSettings;
 
@@ -90,11 +108,30 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
     private static final Map<String, Client> CLIENTMAP = new ConcurrentHashMap<>();
     private static final Map<String, Object> SHARED_STATE = new ConcurrentHashMap<>();
     private static final Map<String, Object> OPTIONS = new HashMap<>();
+    private static final TokenCache TOKEN_CACHE = new TokenCache();
+    private static ScheduledExecutorService cleanupService;
 
     @Override
     public void init(CoreSettings coreSettings) {
         this.coreSettings = coreSettings;
         OPTIONS.put("keycloak-config-file", FROST_SERVER_KEYCLOAKJSON);
+        Settings authSettings = coreSettings.getAuthSettings();
+        TOKEN_CACHE.configure(
+                authSettings.getInt(TAG_CACHE_SIZE, getClass()),
+                authSettings.getInt(TAG_CACHE_MAX_TTL, getClass()));
+        startCleanup();
+    }
+
+    private static synchronized void startCleanup() {
+        if (cleanupService != null) {
+            return;
+        }
+        cleanupService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KeycloakClientCleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupService.scheduleWithFixedDelay(KeycloakAuthProvider::clientMapCleanup, CLEANUP_INTERVAL_MINUTES, CLEANUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
     }
 
     @Override
@@ -104,6 +141,14 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
 
     @Override
     public boolean isValidUser(String clientId, String username, String password) {
+        String key = TOKEN_CACHE.createKey(username, password);
+        Subject cached = TOKEN_CACHE.get(key);
+        if (cached != null) {
+            LOGGER.debug("Using cached login for user {} ({})", username, clientId);
+            registerClient(clientId, username, cached);
+            return true;
+        }
+
         AbstractKeycloakLoginModule loginModule;
         if (password.length() > 50) {
             LOGGER.debug("Using BearerTokenLoginModule...");
@@ -113,12 +158,10 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
             loginModule = new DirectAccessGrantsLoginModuleFrost(coreSettings);
         }
 
-        clientMapCleanup();
-
-        return checkLogin(loginModule, username, password, clientId);
+        return checkLogin(loginModule, username, password, clientId, key);
     }
 
-    private boolean checkLogin(AbstractKeycloakLoginModule loginModule, String username, String password, String clientId) {
+    private boolean checkLogin(AbstractKeycloakLoginModule loginModule, String username, String password, String clientId, String cacheKey) {
         try {
             LOGGER.debug("Login for user {} ({})", username, clientId);
             Subject subject = new Subject();
@@ -133,10 +176,8 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
             boolean login = loginModule.login();
             if (login) {
                 loginModule.commit();
-                Client client = new Client(username);
-                client.setLastSeen(Instant.now());
-                client.setSubject(subject);
-                CLIENTMAP.put(clientId, client);
+                registerClient(clientId, username, subject);
+                TOKEN_CACHE.put(cacheKey, subject);
             }
             return login;
         } catch (LoginException ex) {
@@ -146,6 +187,13 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
         }
     }
 
+    private static void registerClient(String clientId, String username, Subject subject) {
+        Client client = new Client(username);
+        client.setLastSeen(Instant.now());
+        client.setSubject(subject);
+        CLIENTMAP.put(clientId, client);
+    }
+
     @Override
     public boolean userHasRole(String clientId, String userName, String roleName) {
         Client client = CLIENTMAP.get(clientId);
@@ -168,7 +216,7 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
         return true;
     }
 
-    private void clientMapCleanup() {
+    private static void clientMapCleanup() {
         try {
             Instant cutoff = Instant.now();
 
@@ -187,7 +235,7 @@ public class KeycloakAuthProvider implements AuthProvider, LiquibaseUser, Config
         }
     }
 
-    private class Client {
+    private static class Client {
 
         public final String userName;
         private Instant lastSeen;
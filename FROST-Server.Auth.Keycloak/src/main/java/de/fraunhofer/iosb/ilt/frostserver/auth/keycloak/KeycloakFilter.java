@@ -121,7 +121,7 @@ public class KeycloakFilter implements Filter {
                     }
                 });
         try {
-            deploymentContext = new AdapterDeploymentContext(Utils.resolveDeployment(coreSettings));
+            deploymentContext = new AdapterDeploymentContext(Utils.getDeployment(coreSettings));
         } catch (RuntimeException exc) {
             LOGGER.error("Failed to initialise Keycloak. There is a problem with the configuration.");
             throw new IllegalArgumentException("Exception initialising keycloak.", exc);
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.auth.keycloak;
+
+import de.fraunhofer.iosb.ilt.frostserver.util.LruCache;
+import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import javax.security.auth.Subject;
+import org.keycloak.KeycloakPrincipal;
+import org.keycloak.KeycloakSecurityContext;
+import org.keycloak.representations.AccessToken;
+
+/**
+ * Caches the Subjects of successful logins, keyed by a hash of the user name
+ * and password or token, so that repeated requests with the same credentials
+ * do not need a new login. An entry expires when its access token expires, or
+ * after a configurable maximum time, whichever comes first.
+ *
+ * @author scf
+ */
+public class TokenCache {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final LruCache<String, CachedLogin> logins = new LruCache<>(0);
+    private volatile long maxTtlMillis;
+
+    /**
+     * Set the maximum number of logins to cache and the maximum time they are
+     * valid.
+     *
+     * @param maxSize The maximum number of logins to cache. If 0, nothing is
+     * cached.
+     * @param maxTtlSeconds The maximum time logins are valid, in seconds.
+     */
+    public void configure(int maxSize, int maxTtlSeconds) {
+        maxTtlMillis = maxTtlSeconds * 1000L;
+        logins.setMaxSize(maxSize);
+    }
+
+    /**
+     * Create the cache key for the given user name and password or token.
+     *
+     * @param userName The user name.
+     * @param password The password or token.
+     * @return The key to use for the cache.
+     */
+    public String createKey(String userName, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(userName.getBytes(StringHelper.UTF8));
+            // Separator, so that "ab"+"c" and "a"+"bc" differ.
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StringHelper.UTF8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Every Java platform must support " + HASH_ALGORITHM, ex);
+        }
+    }
+
+    /**
+     * Get the Subject of the cached login for the given key.
+     *
+     * @param key The key, created with {@link #createKey(String, String)}.
+     * @return The Subject of the login, or null if there is no valid login.
+     */
+    public Subject get(String key) {
+        CachedLogin login = logins.get(key);
+        if (login == null || login.expires <= System.currentTimeMillis()) {
+            return null;
+        }
+        return login.subject;
+    }
+
+    /**
+     * Cache the Subject of a successful login.
+     *
+     * @param key The key, created with {@link #createKey(String, String)}.
+     * @param subject The Subject of the login.
+     */
+    public void put(String key, Subject subject) {
+        long expires = Math.min(
+                System.currentTimeMillis() + maxTtlMillis,
+                getTokenExpiry(subject));
+        logins.put(key, new CachedLogin(subject, expires));
+    }
+
+    public void clear() {
+        logins.clear();
+    }
+
+    /**
+     * Find the expiry time of the access token of the given Subject.
+     *
+     * @param subject The subject to find the token expiry for.
+     * @return The expiry time in milliseconds since the epoch, or
+     * Long.MAX_VALUE if the Subject has no token with an expiry time.
+     */
+    private static long getTokenExpiry(Subject subject) {
+        for (KeycloakPrincipal<?> principal : subject.getPrincipals(KeycloakPrincipal.class)) {
+            KeycloakSecurityContext context = principal.getKeycloakSecurityContext();
+            AccessToken token = context == null ? null : context.getToken();
+            if (token != null && token.getExp() != null) {
+                return token.getExp() * 1000L;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return logins.toString();
+    }
+
+    private static class CachedLogin {
+
+        private final Subject subject;
+        private final long expires;
+
+        private CachedLogin(Subject subject, long expires) {
+            this.subject = subject;
+            this.expires = expires;
+        }
+    }
+}
@@ -29,6 +29,8 @@ import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.FileUtils;
 import org.apache.http.HttpResponse;
@@ -51,6 +53,8 @@ public class Utils {
      */
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(Utils.class);
 
+    private static final Map<CoreSettings, KeycloakDeployment> DEPLOYMENTS = new WeakHashMap<>();
+
     private Utils() {
         // Utility class.
     }
@@ -143,6 +147,20 @@ public class Utils {
         }
     }
 
+    /**
+     * Get the KeycloakDeployment for the given CoreSettings, creating it if
+     * needed. The deployment caches the public keys of the realm, so that
+     * bearer tokens can be verified without contacting the Keycloak server.
+     *
+     * @param coreSettings The CoreSettings to get the KeycloakDeployment for.
+     * @return the cached or new KeycloakDeployment.
+     */
+    public static KeycloakDeployment getDeployment(CoreSettings coreSettings) {
+        synchronized (DEPLOYMENTS) {
+            return DEPLOYMENTS.computeIfAbsent(coreSettings, Utils::resolveDeployment);
+        }
+    }
+
     /**
      * Create a new KeycloakDeployment from settings loaded from the given
      * CoreSettings.
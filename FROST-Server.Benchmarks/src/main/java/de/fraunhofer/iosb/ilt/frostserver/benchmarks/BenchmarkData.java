@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.FeatureOfInterest;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.geojson.Point;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+/**
+ * Synthetic data shared by the benchmarks. Nothing in here needs a database.
+ *
+ * @author scf
+ */
+public class BenchmarkData {
+
+    public static final String SERVICE_ROOT_URL = "http://localhost:8080/FROST-Server/v1.1";
+    public static final long START_TIME = 1577836800000L;
+
+    public static final String OBSERVATION_JSON = "{"
+            + "\"phenomenonTime\":\"2020-01-01T00:00:00.000Z\","
+            + "\"resultTime\":\"2020-01-01T00:00:00.000Z\","
+            + "\"result\":21.5,"
+            + "\"parameters\":{\"quality\":\"good\",\"run\":7},"
+            + "\"Datastream\":{\"@iot.id\":3},"
+            + "\"FeatureOfInterest\":{\"@iot.id\":5}"
+            + "}";
+
+    public static final String THING_JSON = "{"
+            + "\"name\":\"Thing 1\","
+            + "\"description\":\"A thing with a location and a datastream\","
+            + "\"properties\":{\"building\":\"A\",\"floor\":2},"
+            + "\"Locations\":[{"
+            + "\"name\":\"Location 1\","
+            + "\"description\":\"The location of Thing 1\","
+            + "\"encodingType\":\"application/vnd.geo+json\","
+            + "\"location\":{\"type\":\"Point\",\"coordinates\":[8.42,49.01]}"
+            + "}],"
+            + "\"Datastreams\":[{"
+            + "\"name\":\"Temperature\","
+            + "\"description\":\"The temperature at Thing 1\","
+            + "\"observationType\":\"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement\","
+            + "\"unitOfMeasurement\":{\"name\":\"degree Celsius\",\"symbol\":\"degC\",\"definition\":\"http://unitsofmeasure.org/ucum.html#para-30\"},"
+            + "\"Sensor\":{\"@iot.id\":1},"
+            + "\"ObservedProperty\":{\"@iot.id\":1}"
+            + "}]"
+            + "}";
+
+    private BenchmarkData() {
+        // Utility class.
+    }
+
+    /**
+     * Create a PersistenceManager that can build queries, but has no
+     * database connection.
+     *
+     * @param settings The settings to initialise the PersistenceManager with.
+     * @return The PersistenceManager.
+     */
+    public static BenchmarkPersistenceManager createPersistenceManager(CoreSettings settings) {
+        BenchmarkPersistenceManager pm = new BenchmarkPersistenceManager();
+        pm.init(settings);
+        return pm;
+    }
+
+    /**
+     * Create Observations in the given number of Datastreams, with numeric
+     * results, parameters and a FeatureOfInterest.
+     *
+     * @param count The number of Observations to create.
+     * @param datastreams The number of Datastreams to spread the Observations
+     * over.
+     * @return The Observations.
+     */
+    public static EntitySet<Observation> createObservations(int count, int datastreams) {
+        List<Observation> observations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Observation observation = new Observation(new IdLong(i + 1L));
+            TimeInstant time = TimeInstant.create(START_TIME + i * 60_000L);
+            observation.setPhenomenonTime(time);
+            observation.setResultTime(time);
+            observation.setResult(20.0 + (i % 100) / 10.0);
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("run", i % 10);
+            observation.setParameters(parameters);
+            observation.setDatastream(new Datastream(new IdLong(1L + i % datastreams)));
+            observation.setFeatureOfInterest(new FeatureOfInterest(new IdLong(1L + i % datastreams)));
+            observations.add(observation);
+        }
+        EntitySetImpl<Observation> set = new EntitySetImpl<>(EntityType.OBSERVATION, observations);
+        set.setCount(count);
+        return set;
+    }
+
+    /**
+     * Create Locations with Point geometries.
+     *
+     * @param count The number of Locations to create.
+     * @return The Locations.
+     */
+    public static EntitySet<Location> createLocations(int count) {
+        List<Location> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Location location = new Location(new IdLong(i + 1L));
+            location.setName("Location " + i);
+            location.setDescription("Synthetic location " + i);
+            location.setEncodingType("application/vnd.geo+json");
+            location.setLocation(new Point(8.0 + i * 0.001, 49.0 + i * 0.001));
+            locations.add(location);
+        }
+        return new EntitySetImpl<>(EntityType.LOCATION, locations);
+    }
+
+    /**
+     * A PersistenceManager that renders SQL without a database connection.
+     */
+    public static class BenchmarkPersistenceManager extends PostgresPersistenceManagerLong {
+
+        private final DSLContext dslContext = DSL.using(SQLDialect.POSTGRES);
+
+        @Override
+        public DSLContext getDslContext() {
+            return dslContext;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.csv.ResultFormatterCsv;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.ResultFormatterDataArray;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.geojson.ResultFormatterGeoJson;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialising entity sets in the default JSON format and the CSV, dataArray
+ * and GeoJSON result formats.
+ *
+ * @author scf
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatterBenchmark {
+
+    /**
+     * The number of entities in the set.
+     */
+    @Param({"100", "1000"})
+    public int size;
+
+    private final ResultFormatterCsv csvFormatter = new ResultFormatterCsv();
+    private final ResultFormatterDataArray dataArrayFormatter = new ResultFormatterDataArray();
+    private final ResultFormatterGeoJson geoJsonFormatter = new ResultFormatterGeoJson();
+
+    private ResourcePath observationsPath;
+    private ResourcePath locationsPath;
+    private Query query;
+    private EntitySet<Observation> observations;
+    private EntitySet<Location> locations;
+
+    @Setup
+    public void setup() {
+        CoreSettings settings = new CoreSettings();
+        IdManagerLong idManager = new IdManagerLong();
+        observationsPath = PathParser.parsePath(idManager, BenchmarkData.SERVICE_ROOT_URL, "/Observations");
+        locationsPath = PathParser.parsePath(idManager, BenchmarkData.SERVICE_ROOT_URL, "/Locations");
+        query = new Query(settings);
+        observations = BenchmarkData.createObservations(size, 10);
+        locations = BenchmarkData.createLocations(size);
+    }
+
+    @Benchmark
+    public String jsonObservations() throws IOException {
+        return EntityFormatter.writeEntityCollection(observations);
+    }
+
+    @Benchmark
+    public String jsonLocations() throws IOException {
+        return EntityFormatter.writeEntityCollection(locations);
+    }
+
+    @Benchmark
+    public String csvObservations() {
+        return csvFormatter.format(observationsPath, query, observations, true);
+    }
+
+    @Benchmark
+    public String dataArrayObservations() {
+        return dataArrayFormatter.format(observationsPath, query, observations, true);
+    }
+
+    @Benchmark
+    public String geoJsonLocations() {
+        return geoJsonFormatter.format(locationsPath, query, locations, true);
+    }
+
+}
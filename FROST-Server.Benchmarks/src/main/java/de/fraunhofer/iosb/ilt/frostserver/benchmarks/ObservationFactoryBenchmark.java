@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.benchmarks.BenchmarkData.BenchmarkPersistenceManager;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.DataSize;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.ResultType;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.ObservationFactory;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableObservations;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Materialising Observations from jOOQ Records, as they come from the
+ * database.
+ *
+ * @author scf
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservationFactoryBenchmark {
+
+    private static final int RECORD_COUNT = 1000;
+
+    /**
+     * The type of the results in the Records.
+     */
+    @Param({"NUMBER", "STRING", "OBJECT_ARRAY"})
+    public ResultType resultType;
+
+    /**
+     * If true, only the result and phenomenonTime are selected, otherwise all
+     * properties.
+     */
+    @Param({"false", "true"})
+    public boolean selectResult;
+
+    private ObservationFactory<Long> factory;
+    private Query query;
+    private Record[] records;
+
+    @Setup
+    public void setup() {
+        CoreSettings settings = new CoreSettings();
+        BenchmarkPersistenceManager pm = BenchmarkData.createPersistenceManager(settings);
+        factory = pm.getEntityFactories().observationFactory;
+        AbstractTableObservations<Long> table = pm.getEntityFactories().getTableCollection().getTableObservations();
+        query = selectResult ? QueryParser.parseQuery("$select=result,phenomenonTime", settings) : null;
+
+        DSLContext dslContext = pm.getDslContext();
+        OffsetDateTime start = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        records = new Record[RECORD_COUNT];
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            Record record = dslContext.newRecord(table.fields());
+            record.set(table.getId(), i + 1L);
+            record.set(table.getDatastreamId(), 1L + i % 10);
+            record.set(table.getFeatureId(), 1L + i % 10);
+            OffsetDateTime time = start.plusMinutes(i);
+            record.set(table.colPhenomenonTimeStart, time);
+            record.set(table.colPhenomenonTimeEnd, time);
+            record.set(table.colResultTime, time);
+            record.set(table.colParameters, "{\"run\":" + (i % 10) + "}");
+            record.set(table.colResultType, resultType.sqlValue());
+            double value = 20.0 + (i % 100) / 10.0;
+            switch (resultType) {
+                case NUMBER:
+                    record.set(table.colResultNumber, value);
+                    record.set(table.colResultString, Double.toString(value));
+                    break;
+
+                case STRING:
+                    record.set(table.colResultString, "value " + value);
+                    break;
+
+                default:
+                    record.set(table.colResultJson, "[" + value + "," + (value + 1) + "," + (value + 2) + "]");
+                    break;
+            }
+            records[i] = record;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void create(Blackhole blackhole) {
+        DataSize dataSize = new DataSize();
+        for (Record record : records) {
+            Observation observation = factory.create(record, query, dataSize);
+            blackhole.consume(observation);
+        }
+    }
+
+}
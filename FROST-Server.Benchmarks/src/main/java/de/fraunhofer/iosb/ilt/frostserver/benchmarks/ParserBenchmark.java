@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of request paths and query options, with and without the syntax
+ * tree caches of the parsers.
+ *
+ * @author scf
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    private static final String[] PATHS = {
+        "/Things(1)/Datastreams(2)/Observations",
+        "/Datastreams(3)/Observations(4)/result"
+    };
+    private static final String[] QUERIES = {
+        "$top=100&$orderby=phenomenonTime desc&$select=result,phenomenonTime",
+        "$filter=result gt 20 and phenomenonTime ge 2020-01-01T00:00:00Z&$expand=FeatureOfInterest($select=name,feature)&$count=true"
+    };
+
+    /**
+     * Index into the paths and queries, the second ones are more complex.
+     */
+    @Param({"0", "1"})
+    public int variant;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private final IdManagerLong idManager = new IdManagerLong();
+    private CoreSettings settings;
+    private String path;
+    private String query;
+
+    @Setup
+    public void setup() {
+        settings = new CoreSettings();
+        path = PATHS[variant];
+        query = QUERIES[variant];
+        int cacheSize = cached ? 1000 : 0;
+        PathParser.getCache().setMaxSize(cacheSize);
+        QueryParser.getCache().setMaxSize(cacheSize);
+    }
+
+    @Benchmark
+    public ResourcePath parsePath() {
+        return PathParser.parsePath(idManager, BenchmarkData.SERVICE_ROOT_URL, path);
+    }
+
+    @Benchmark
+    public Query parseQuery() {
+        return QueryParser.parseQuery(query, settings);
+    }
+
+}
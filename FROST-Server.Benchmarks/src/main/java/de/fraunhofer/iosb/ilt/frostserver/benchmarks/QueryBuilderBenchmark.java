@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.benchmarks.BenchmarkData.BenchmarkPersistenceManager;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.QueryBuilder;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.concurrent.TimeUnit;
+import org.jooq.conf.ParamType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and rendering the SQL for parsed requests, without executing it.
+ *
+ * @author scf
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+    private static final String[] PATHS = {
+        "/Datastreams(3)/Observations",
+        "/Things(1)/Datastreams",
+        "/Locations"
+    };
+    private static final String[] QUERIES = {
+        "$top=100&$orderby=phenomenonTime desc&$select=result,phenomenonTime",
+        "$filter=ObservedProperty/name eq 'Temperature' and Observations/result gt 20&$expand=Sensor",
+        "$filter=st_within(location, geography'POLYGON((8 49, 9 49, 9 50, 8 50, 8 49))')&$count=true"
+    };
+
+    /**
+     * Index into the paths and queries: an ordered Observation page, a
+     * filter over joins, and a spatial filter.
+     */
+    @Param({"0", "1", "2"})
+    public int variant;
+
+    private CoreSettings settings;
+    private BenchmarkPersistenceManager pm;
+    private ResourcePath path;
+    private Query query;
+
+    @Setup
+    public void setup() {
+        settings = new CoreSettings();
+        pm = BenchmarkData.createPersistenceManager(settings);
+        path = PathParser.parsePath(new IdManagerLong(), BenchmarkData.SERVICE_ROOT_URL, PATHS[variant]);
+        query = QueryParser.parseQuery(QUERIES[variant], settings);
+    }
+
+    @Benchmark
+    public String buildSelect() {
+        return new QueryBuilder<>(pm, settings, pm.getPropertyResolver())
+                .forPath(path)
+                .usingQuery(query)
+                .buildSelect()
+                .getSQL(ParamType.INDEXED);
+    }
+
+    @Benchmark
+    public String buildCount() {
+        return new QueryBuilder<>(pm, settings, pm.getPropertyResolver())
+                .forPath(path)
+                .usingQuery(query)
+                .buildCount()
+                .getSQL(ParamType.INDEXED);
+    }
+
+}
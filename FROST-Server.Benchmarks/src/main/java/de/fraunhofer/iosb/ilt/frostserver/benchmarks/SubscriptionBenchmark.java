@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.EntitySetSubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.EntitySubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.Subscription;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching new Observations against MQTT subscriptions that do not need the
+ * database: the Observations collection, single Observations and the
+ * Observations of a Datastream.
+ *
+ * @author scf
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionBenchmark {
+
+    private static final int OBSERVATION_COUNT = 100;
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private Observation[] observations;
+
+    @Setup
+    public void setup() {
+        CoreSettings settings = new CoreSettings();
+        IdManagerLong idManager = new IdManagerLong();
+        subscriptions.add(createSetSubscription(settings, idManager, "Observations"));
+        for (int i = 1; i <= 10; i++) {
+            subscriptions.add(createSetSubscription(settings, idManager, "Datastreams(" + i + ")/Observations"));
+            String topic = "Observations(" + i + ")";
+            ResourcePath path = PathParser.parsePath(idManager, "", "/" + topic);
+            path.compress();
+            subscriptions.add(new EntitySubscription(settings, "v1.0/" + topic, path));
+        }
+        EntitySet<Observation> set = BenchmarkData.createObservations(OBSERVATION_COUNT, 20);
+        observations = new Observation[OBSERVATION_COUNT];
+        int i = 0;
+        for (Observation observation : set) {
+            observations[i++] = observation;
+        }
+    }
+
+    private static Subscription createSetSubscription(CoreSettings settings, IdManagerLong idManager, String topic) {
+        ResourcePath path = PathParser.parsePath(idManager, "", "/" + topic);
+        path.compress();
+        return new EntitySetSubscription(settings, "v1.0/" + topic, path);
+    }
+
+    /**
+     * Match each Observation against all subscriptions.
+     *
+     * @return The number of matches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(OBSERVATION_COUNT)
+    public int matches() {
+        int matches = 0;
+        for (Observation observation : observations) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.matches(null, observation, null)) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+}
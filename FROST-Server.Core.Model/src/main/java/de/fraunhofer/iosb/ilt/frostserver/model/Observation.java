@@ -28,6 +28,8 @@ import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -47,6 +49,13 @@ public class Observation extends AbstractEntity<Observation> {
     private TimeValue phenomenonTime;
     private TimeInstant resultTime;
     private Object result;
+    /**
+     * Primitive storage for numeric results, used instead of the boxed
+     * {@link #result} when {@link #resultPrimitive} is not NONE.
+     */
+    private double resultDouble;
+    private long resultLong;
+    private PrimitiveResult resultPrimitive = PrimitiveResult.NONE;
     private Object resultQuality;
     private TimeInterval validTime;
     private Map<String, Object> parameters;
@@ -168,7 +177,7 @@ public class Observation extends AbstractEntity<Observation> {
             setResultTime = true;
             message.addEpField(EntityProperty.RESULTTIME);
         }
-        if (!Objects.equals(result, comparedTo.getResult())) {
+        if (!resultEquals(getResult(), comparedTo.getResult())) {
             setResult = true;
             message.addEpField(EntityProperty.RESULT);
         }
@@ -214,16 +223,139 @@ public class Observation extends AbstractEntity<Observation> {
         return setResultTime;
     }
 
+    /**
+     * Get the result. If the result is held in a primitive slot, it is boxed
+     * on each call. Serialisers should use {@link #getResultPrimitive()} to
+     * avoid this.
+     *
+     * @return the result.
+     */
+    /**
+     * Checks if two results are equal. Numbers are compared by value, since a
+     * result read from the database can be held in a different type than the
+     * same result parsed from JSON.
+     *
+     * @param one The first result.
+     * @param two The second result.
+     * @return true if the results are equal.
+     */
+    public static boolean resultEquals(Object one, Object two) {
+        if (one instanceof Number && two instanceof Number) {
+            BigDecimal first = toBigDecimal((Number) one);
+            BigDecimal second = toBigDecimal((Number) two);
+            if (first == null || second == null) {
+                // NaN or infinity.
+                return Double.compare(((Number) one).doubleValue(), ((Number) two).doubleValue()) == 0;
+            }
+            return first.compareTo(second) == 0;
+        }
+        return Objects.equals(one, two);
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        double value = number.doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value);
+    }
+
     public Object getResult() {
-        return result;
+        switch (resultPrimitive) {
+            case DOUBLE:
+                return resultDouble;
+
+            case LONG:
+                return resultLong;
+
+            default:
+                return result;
+        }
     }
 
     public Observation setResult(Object result) {
         this.result = result;
+        resultPrimitive = PrimitiveResult.NONE;
         setResult = true;
         return this;
     }
 
+    /**
+     * Set a numeric result without boxing it. Only use this for numbers that
+     * {@link #formatResultDouble(double)} writes the way they should appear
+     * in the output, since all writers use that to write the double slot.
+     *
+     * @param result the result.
+     * @return this.
+     */
+    public Observation setResultDouble(double result) {
+        this.result = null;
+        resultDouble = result;
+        resultPrimitive = PrimitiveResult.DOUBLE;
+        setResult = true;
+        return this;
+    }
+
+    /**
+     * Set an integer result without boxing it.
+     *
+     * @param result the result.
+     * @return this.
+     */
+    public Observation setResultLong(long result) {
+        this.result = null;
+        resultLong = result;
+        resultPrimitive = PrimitiveResult.LONG;
+        setResult = true;
+        return this;
+    }
+
+    /**
+     * Formats a result that is held in the double slot. This is
+     * Double.toString, which switches to exponent notation outside of
+     * 1e-3 &lt;= |x| &lt; 1e7 and drops trailing zeros. Numbers for which
+     * that changes the text are kept as a BigDecimal instead.
+     *
+     * @param result The result to format.
+     * @return The result as JSON number text.
+     */
+    public static String formatResultDouble(double result) {
+        return Double.toString(result);
+    }
+
+    /**
+     * Which primitive slot, if any, holds the result.
+     *
+     * @return The primitive type of the result, NONE if the result is an
+     * Object.
+     */
+    public PrimitiveResult getResultPrimitive() {
+        return resultPrimitive;
+    }
+
+    /**
+     * @return the result, if it is held as a primitive double.
+     */
+    public double getResultDouble() {
+        return resultDouble;
+    }
+
+    /**
+     * @return the result, if it is held as a primitive long.
+     */
+    public long getResultLong() {
+        return resultLong;
+    }
+
     public boolean isSetResult() {
         return setResult;
     }
@@ -324,6 +456,15 @@ public class Observation extends AbstractEntity<Observation> {
         return setFeatureOfInterest;
     }
 
+    /**
+     * The primitive slots a result can be held in.
+     */
+    public enum PrimitiveResult {
+        NONE,
+        DOUBLE,
+        LONG
+    }
+
     @Override
     protected Observation getThis() {
         return this;
@@ -335,7 +476,7 @@ public class Observation extends AbstractEntity<Observation> {
                 super.hashCode(),
                 phenomenonTime,
                 resultTime,
-                result,
+                getResult(),
                 resultQuality,
                 validTime,
                 parameters,
@@ -360,7 +501,7 @@ public class Observation extends AbstractEntity<Observation> {
         return super.equals(other)
                 && Objects.equals(phenomenonTime, other.phenomenonTime)
                 && Objects.equals(resultTime, other.resultTime)
-                && Objects.equals(result, other.result)
+                && Objects.equals(getResult(), other.getResult())
                 && Objects.equals(resultQuality, other.resultQuality)
                 && Objects.equals(validTime, other.validTime)
                 && Objects.equals(parameters, other.parameters)
@@ -0,0 +1,672 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.model;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation.PrimitiveResult;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInterval;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import de.fraunhofer.iosb.ilt.frostserver.util.IsoTimeHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An EntitySet of Observations that holds the selected properties in parallel
+ * arrays, instead of as Observation objects. Times are held as epoch
+ * microseconds, numeric results as primitives and the ids of the
+ * (Multi)Datastreams are dictionary-encoded.
+ *
+ * Formatters that know this class can read the columns directly, as long as
+ * {@link #isColumnar()} returns true. All other methods turn the rows into
+ * Observations first, after which the set behaves like a normal
+ * EntitySetImpl.
+ *
+ * @author scf
+ */
+public class ObservationSetColumnar extends EntitySetImpl<Observation> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean hasId;
+    private final boolean hasPhenomenonTime;
+    private final boolean hasResultTime;
+    private final boolean hasResult;
+    private final boolean hasStreams;
+
+    private int rowCount;
+    private boolean columnar = true;
+
+    private long[] ids;
+    private long[] phenomenonTimeStart;
+    private long[] phenomenonTimeEnd;
+    private final BitSet phenomenonTimeNull = new BitSet();
+    private long[] resultTime;
+    private final BitSet resultTimeNull = new BitSet();
+    private double[] resultDouble;
+    private long[] resultLong;
+    private Object[] resultObject;
+    private PrimitiveResult[] resultType;
+    private int[] streamCodes;
+
+    /**
+     * The dictionary of (Multi)Datastream ids. Datastreams have even codes,
+     * MultiDatastreams odd codes.
+     */
+    private final List<Id> streamIds = new ArrayList<>();
+    private final Map<Object, Integer> datastreamCodes = new HashMap<>();
+    private final Map<Object, Integer> multiDatastreamCodes = new HashMap<>();
+
+    /**
+     * Create a new set for the given selected properties. The properties must
+     * be supported, see {@link #supports(java.util.Set)}.
+     *
+     * @param select The selected properties.
+     */
+    public ObservationSetColumnar(Set<Property> select) {
+        super(EntityType.OBSERVATION);
+        hasId = select.contains(EntityProperty.ID);
+        hasPhenomenonTime = select.contains(EntityProperty.PHENOMENONTIME);
+        hasResultTime = select.contains(EntityProperty.RESULTTIME);
+        hasResult = select.contains(EntityProperty.RESULT);
+        hasStreams = select.contains(NavigationPropertyMain.DATASTREAM) || select.contains(NavigationPropertyMain.MULTIDATASTREAM);
+        ids = hasId ? new long[INITIAL_CAPACITY] : null;
+        phenomenonTimeStart = hasPhenomenonTime ? new long[INITIAL_CAPACITY] : null;
+        phenomenonTimeEnd = hasPhenomenonTime ? new long[INITIAL_CAPACITY] : null;
+        resultTime = hasResultTime ? new long[INITIAL_CAPACITY] : null;
+        resultDouble = hasResult ? new double[INITIAL_CAPACITY] : null;
+        resultType = hasResult ? new PrimitiveResult[INITIAL_CAPACITY] : null;
+        streamCodes = hasStreams ? new int[INITIAL_CAPACITY] : null;
+    }
+
+    /**
+     * Checks if the given selected properties can be held in columns. Only
+     * the id, the times, the result and the links to the (Multi)Datastream
+     * are supported. An empty select selects all properties, and is thus not
+     * supported.
+     *
+     * @param select The selected properties.
+     * @return true if an ObservationSetColumnar can hold the properties.
+     */
+    public static boolean supports(Set<Property> select) {
+        if (select.isEmpty()) {
+            return false;
+        }
+        for (Property property : select) {
+            if (property != EntityProperty.ID
+                    && property != EntityProperty.PHENOMENONTIME
+                    && property != EntityProperty.RESULTTIME
+                    && property != EntityProperty.RESULT
+                    && property != NavigationPropertyMain.DATASTREAM
+                    && property != NavigationPropertyMain.MULTIDATASTREAM) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the given epoch microseconds to an ISO 8601 String with
+     * millisecond precision, in UTC.
+     *
+     * @param micros The epoch microseconds.
+     * @return The ISO 8601 String.
+     */
+    public static String formatMicros(long micros) {
+        return IsoTimeHelper.formatMillis(Math.floorDiv(micros, 1000));
+    }
+
+    /**
+     * Adds a new row, with all its values null.
+     *
+     * @return The index of the new row.
+     */
+    public int addRow() {
+        if (!columnar) {
+            throw new IllegalStateException("Rows can not be added after the set has been materialised.");
+        }
+        int row = rowCount;
+        if (row == capacity()) {
+            grow();
+        }
+        if (hasPhenomenonTime) {
+            phenomenonTimeNull.set(row);
+        }
+        if (hasResultTime) {
+            resultTimeNull.set(row);
+        }
+        if (hasResult) {
+            resultType[row] = PrimitiveResult.NONE;
+        }
+        if (hasStreams) {
+            streamCodes[row] = -1;
+        }
+        rowCount++;
+        return row;
+    }
+
+    private int capacity() {
+        if (hasId) {
+            return ids.length;
+        }
+        if (hasPhenomenonTime) {
+            return phenomenonTimeStart.length;
+        }
+        if (hasResultTime) {
+            return resultTime.length;
+        }
+        if (hasResult) {
+            return resultType.length;
+        }
+        if (hasStreams) {
+            return streamCodes.length;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private void grow() {
+        int newCapacity = capacity() * 2;
+        if (hasId) {
+            ids = Arrays.copyOf(ids, newCapacity);
+        }
+        if (hasPhenomenonTime) {
+            phenomenonTimeStart = Arrays.copyOf(phenomenonTimeStart, newCapacity);
+            phenomenonTimeEnd = Arrays.copyOf(phenomenonTimeEnd, newCapacity);
+        }
+        if (hasResultTime) {
+            resultTime = Arrays.copyOf(resultTime, newCapacity);
+        }
+        if (hasResult) {
+            resultDouble = Arrays.copyOf(resultDouble, newCapacity);
+            resultType = Arrays.copyOf(resultType, newCapacity);
+            if (resultLong != null) {
+                resultLong = Arrays.copyOf(resultLong, newCapacity);
+            }
+            if (resultObject != null) {
+                resultObject = Arrays.copyOf(resultObject, newCapacity);
+            }
+        }
+        if (hasStreams) {
+            streamCodes = Arrays.copyOf(streamCodes, newCapacity);
+        }
+    }
+
+    public void setId(int row, long id) {
+        ids[row] = id;
+    }
+
+    /**
+     * Set the phenomenonTime of the given row. If start and end are the same,
+     * the phenomenonTime is an instant, otherwise an interval.
+     *
+     * @param row The row to set the time for.
+     * @param startMicros The start of the time, in epoch microseconds.
+     * @param endMicros The end of the time, in epoch microseconds.
+     */
+    public void setPhenomenonTime(int row, long startMicros, long endMicros) {
+        phenomenonTimeStart[row] = startMicros;
+        phenomenonTimeEnd[row] = endMicros;
+        phenomenonTimeNull.clear(row);
+    }
+
+    public void setResultTime(int row, long micros) {
+        resultTime[row] = micros;
+        resultTimeNull.clear(row);
+    }
+
+    public void setResultDouble(int row, double result) {
+        resultDouble[row] = result;
+        resultType[row] = PrimitiveResult.DOUBLE;
+    }
+
+    public void setResultLong(int row, long result) {
+        if (resultLong == null) {
+            resultLong = new long[resultType.length];
+        }
+        resultLong[row] = result;
+        resultType[row] = PrimitiveResult.LONG;
+    }
+
+    /**
+     * Set a result that can not be held in a primitive, like a String, a
+     * boolean, a BigDecimal or a JSON structure.
+     *
+     * @param row The row to set the result for.
+     * @param result The result.
+     */
+    public void setResultObject(int row, Object result) {
+        if (result == null && resultObject == null) {
+            return;
+        }
+        if (resultObject == null) {
+            resultObject = new Object[resultType.length];
+        }
+        resultObject[row] = result;
+        resultType[row] = PrimitiveResult.NONE;
+    }
+
+    public void setDatastream(int row, Id datastreamId) {
+        streamCodes[row] = datastreamCodes.computeIfAbsent(datastreamId.getValue(), k -> addStream(datastreamId, 0));
+    }
+
+    public void setMultiDatastream(int row, Id multiDatastreamId) {
+        streamCodes[row] = multiDatastreamCodes.computeIfAbsent(multiDatastreamId.getValue(), k -> addStream(multiDatastreamId, 1));
+    }
+
+    private int addStream(Id id, int type) {
+        streamIds.add(id);
+        return (streamIds.size() - 1) * 2 + type;
+    }
+
+    /**
+     * Check if the rows of this set are still held in columns. After any of
+     * the Collection methods is used, the rows are turned into Observations,
+     * and the columns must no longer be used.
+     *
+     * @return true if the columns can be read.
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    /**
+     * Check if the columns can be written as JSON without further processing,
+     * meaning that no navigationLinks have to be generated.
+     *
+     * @return true if no links to (Multi)Datastreams are selected.
+     */
+    public boolean isJsonWritable() {
+        return columnar && !hasStreams;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public boolean hasId() {
+        return hasId;
+    }
+
+    public boolean hasPhenomenonTime() {
+        return hasPhenomenonTime;
+    }
+
+    public boolean hasResultTime() {
+        return hasResultTime;
+    }
+
+    public boolean hasResult() {
+        return hasResult;
+    }
+
+    public boolean hasStreams() {
+        return hasStreams;
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    public boolean isPhenomenonTimeNull(int row) {
+        return phenomenonTimeNull.get(row);
+    }
+
+    public boolean isPhenomenonTimeInterval(int row) {
+        return phenomenonTimeStart[row] != phenomenonTimeEnd[row];
+    }
+
+    public long getPhenomenonTimeStart(int row) {
+        return phenomenonTimeStart[row];
+    }
+
+    public long getPhenomenonTimeEnd(int row) {
+        return phenomenonTimeEnd[row];
+    }
+
+    /**
+     * Get the phenomenonTime of the given row as ISO 8601 String.
+     *
+     * @param row The row.
+     * @return The phenomenonTime, or null.
+     */
+    public String formatPhenomenonTime(int row) {
+        if (phenomenonTimeNull.get(row)) {
+            return null;
+        }
+        if (isPhenomenonTimeInterval(row)) {
+            return IsoTimeHelper.formatMillis(Math.floorDiv(phenomenonTimeStart[row], 1000), Math.floorDiv(phenomenonTimeEnd[row], 1000));
+        }
+        return formatMicros(phenomenonTimeStart[row]);
+    }
+
+    /**
+     * Write the phenomenonTime of the given row as ISO 8601 into the given
+     * buffer, which must be at least
+     * {@link IsoTimeHelper#MAX_INTERVAL_LENGTH} long.
+     *
+     * @param row The row.
+     * @param buffer The buffer to write into.
+     * @return The number of characters written, or -1 if the phenomenonTime
+     * is null.
+     */
+    public int writePhenomenonTime(int row, char[] buffer) {
+        if (phenomenonTimeNull.get(row)) {
+            return -1;
+        }
+        long start = Math.floorDiv(phenomenonTimeStart[row], 1000);
+        if (isPhenomenonTimeInterval(row)) {
+            return IsoTimeHelper.writeMillis(start, Math.floorDiv(phenomenonTimeEnd[row], 1000), buffer, 0);
+        }
+        return IsoTimeHelper.writeMillis(start, buffer, 0);
+    }
+
+    public boolean isResultTimeNull(int row) {
+        return resultTimeNull.get(row);
+    }
+
+    public long getResultTime(int row) {
+        return resultTime[row];
+    }
+
+    /**
+     * Get the resultTime of the given row as ISO 8601 String.
+     *
+     * @param row The row.
+     * @return The resultTime, or null.
+     */
+    public String formatResultTime(int row) {
+        if (resultTimeNull.get(row)) {
+            return null;
+        }
+        return formatMicros(resultTime[row]);
+    }
+
+    /**
+     * Write the resultTime of the given row as ISO 8601 into the given
+     * buffer, which must be at least {@link IsoTimeHelper#MAX_INSTANT_LENGTH}
+     * long.
+     *
+     * @param row The row.
+     * @param buffer The buffer to write into.
+     * @return The number of characters written, or -1 if the resultTime is
+     * null.
+     */
+    public int writeResultTime(int row, char[] buffer) {
+        if (resultTimeNull.get(row)) {
+            return -1;
+        }
+        return IsoTimeHelper.writeMillis(Math.floorDiv(resultTime[row], 1000), buffer, 0);
+    }
+
+    /**
+     * Get the type of the result in the given row. If NONE, the result must
+     * be read with {@link #getResultObject(int)}.
+     *
+     * @param row The row.
+     * @return The primitive type of the result.
+     */
+    public PrimitiveResult getResultType(int row) {
+        return resultType[row];
+    }
+
+    public double getResultDouble(int row) {
+        return resultDouble[row];
+    }
+
+    public long getResultLong(int row) {
+        return resultLong[row];
+    }
+
+    public Object getResultObject(int row) {
+        return resultObject == null ? null : resultObject[row];
+    }
+
+    /**
+     * Get the code of the (Multi)Datastream of the given row.
+     *
+     * @param row The row.
+     * @return The code of the (Multi)Datastream, or -1 if it has none.
+     */
+    public int getStreamCode(int row) {
+        return streamCodes[row];
+    }
+
+    /**
+     * Check if the given code is that of a MultiDatastream.
+     *
+     * @param code The code, as returned by {@link #getStreamCode(int)}.
+     * @return true if the code is that of a MultiDatastream.
+     */
+    public static boolean isMultiDatastreamCode(int code) {
+        return (code & 1) == 1;
+    }
+
+    /**
+     * Create a new (Multi)Datastream with only the id set, for the given code.
+     *
+     * @param code The code, as returned by {@link #getStreamCode(int)}.
+     * @return A new Datastream or MultiDatastream, or null if the code is -1.
+     */
+    public Entity<?> createStream(int code) {
+        if (code < 0) {
+            return null;
+        }
+        Id id = streamIds.get(code / 2);
+        if (isMultiDatastreamCode(code)) {
+            MultiDatastream mds = new MultiDatastream(id);
+            mds.setExportObject(false);
+            return mds;
+        }
+        Datastream ds = new Datastream(true, id);
+        ds.setExportObject(false);
+        return ds;
+    }
+
+    /**
+     * Create an Observation from the given row.
+     *
+     * @param row The row.
+     * @return A new Observation holding the values of the row.
+     */
+    public Observation createObservation(int row) {
+        Observation observation = new Observation();
+        if (hasId) {
+            observation.setId(new IdLong(ids[row]));
+        }
+        if (hasPhenomenonTime) {
+            observation.setPhenomenonTime(createPhenomenonTime(row));
+        }
+        if (hasResultTime) {
+            observation.setResultTime(resultTimeNull.get(row) ? new TimeInstant(null) : TimeInstant.create(Math.floorDiv(resultTime[row], 1000)));
+        }
+        if (hasResult) {
+            switch (resultType[row]) {
+                case DOUBLE:
+                    observation.setResultDouble(resultDouble[row]);
+                    break;
+
+                case LONG:
+                    observation.setResultLong(resultLong[row]);
+                    break;
+
+                default:
+                    observation.setResult(getResultObject(row));
+            }
+        }
+        if (hasStreams) {
+            int code = streamCodes[row];
+            if (code >= 0 && isMultiDatastreamCode(code)) {
+                observation.setMultiDatastream((MultiDatastream) createStream(code));
+            } else if (code >= 0) {
+                observation.setDatastream((Datastream) createStream(code));
+            }
+        }
+        return observation;
+    }
+
+    private TimeValue createPhenomenonTime(int row) {
+        if (phenomenonTimeNull.get(row)) {
+            return new TimeInstant(null);
+        }
+        long start = Math.floorDiv(phenomenonTimeStart[row], 1000);
+        if (isPhenomenonTimeInterval(row)) {
+            return TimeInterval.create(start, Math.floorDiv(phenomenonTimeEnd[row], 1000));
+        }
+        return TimeInstant.create(start);
+    }
+
+    /**
+     * Turns all rows into Observations, and adds them to the list of the
+     * parent class.
+     */
+    private void materialise() {
+        if (!columnar) {
+            return;
+        }
+        columnar = false;
+        List<Observation> list = super.asList();
+        for (int row = 0; row < rowCount; row++) {
+            list.add(createObservation(row));
+        }
+        if (rowCount > 0) {
+            super.setExportObject(true);
+        }
+        ids = null;
+        phenomenonTimeStart = null;
+        phenomenonTimeEnd = null;
+        resultTime = null;
+        resultDouble = null;
+        resultLong = null;
+        resultObject = null;
+        resultType = null;
+        streamCodes = null;
+    }
+
+    @Override
+    public int size() {
+        return columnar ? rowCount : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return columnar ? rowCount == 0 : super.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        materialise();
+        return super.contains(o);
+    }
+
+    @Override
+    public Iterator<Observation> iterator() {
+        materialise();
+        return super.iterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        materialise();
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        materialise();
+        return super.toArray(a);
+    }
+
+    @Override
+    public boolean add(Observation e) {
+        materialise();
+        return super.add(e);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        materialise();
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        materialise();
+        return super.containsAll(c);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Observation> c) {
+        materialise();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        materialise();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        materialise();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public void clear() {
+        materialise();
+        super.clear();
+    }
+
+    @Override
+    public List<Observation> asList() {
+        materialise();
+        return super.asList();
+    }
+
+    @Override
+    public boolean isExportObject() {
+        return columnar ? rowCount > 0 || super.isExportObject() : super.isExportObject();
+    }
+
+    @Override
+    public int hashCode() {
+        materialise();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        materialise();
+        return super.equals(obj);
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.model.core;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An EntitySet that loads its entities from a source iterator, while they are
+ * being consumed. A streaming consumer can call {@link #streamingIterator()}
+ * once to get the entities without keeping them in memory. All other methods
+ * load the remaining entities into the set first, so the set can also be used
+ * like a normal EntitySetImpl.
+ *
+ * The nextLink is only known after the source is exhausted.
+ *
+ * @author scf
+ * @param <T> Type of collection elements.
+ */
+public class EntitySetStreaming<T extends Entity<T>> extends EntitySetImpl<T> {
+
+    private Iterator<T> source;
+
+    public EntitySetStreaming(EntityType type, Iterator<T> source) {
+        super(type);
+        this.source = source;
+    }
+
+    /**
+     * Check if the entities of this set can still be streamed, meaning they
+     * have not been loaded or streamed yet.
+     *
+     * @return true if {@link #streamingIterator()} will stream the entities.
+     */
+    public boolean isStreamable() {
+        return source != null;
+    }
+
+    /**
+     * Returns an iterator over the entities of this set. If the entities have
+     * not been loaded yet, they are taken directly from the source and not
+     * stored in the set. This can only be done once.
+     *
+     * @return An iterator over the entities of this set.
+     */
+    public Iterator<T> streamingIterator() {
+        if (source == null) {
+            return super.iterator();
+        }
+        Iterator<T> result = source;
+        source = null;
+        return result;
+    }
+
+    private void loadAll() {
+        if (source == null) {
+            return;
+        }
+        Iterator<T> remaining = source;
+        source = null;
+        while (remaining.hasNext()) {
+            super.add(remaining.next());
+        }
+    }
+
+    @Override
+    public int size() {
+        loadAll();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        loadAll();
+        return super.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        loadAll();
+        return super.contains(o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        loadAll();
+        return super.iterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        loadAll();
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        loadAll();
+        return super.toArray(a);
+    }
+
+    @Override
+    public boolean add(T e) {
+        loadAll();
+        return super.add(e);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        loadAll();
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        loadAll();
+        return super.containsAll(c);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        loadAll();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        loadAll();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        loadAll();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public void clear() {
+        loadAll();
+        super.clear();
+    }
+
+    @Override
+    public List<T> asList() {
+        loadAll();
+        return super.asList();
+    }
+
+    @Override
+    public String getNextLink() {
+        loadAll();
+        return super.getNextLink();
+    }
+
+    @Override
+    public int hashCode() {
+        loadAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        loadAll();
+        return super.equals(obj);
+    }
+
+}
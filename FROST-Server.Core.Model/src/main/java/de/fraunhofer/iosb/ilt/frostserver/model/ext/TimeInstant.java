@@ -18,44 +18,51 @@
 package de.fraunhofer.iosb.ilt.frostserver.model.ext;
 
 import static de.fraunhofer.iosb.ilt.frostserver.util.Constants.UTC;
+import de.fraunhofer.iosb.ilt.frostserver.util.IsoTimeHelper;
 import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.util.Objects;
 import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
 
 /**
- * Represents ISO8601 Instant.
+ * Represents ISO8601 Instant. The instant is held as epoch milliseconds.
  *
  * @author jab
  */
 public class TimeInstant implements TimeValue {
 
     /**
-     * TODO: Convert to java.time.OffsetDateTime
+     * The instant, in epoch milliseconds. Only valid if not empty.
      */
-    private DateTime dateTime;
+    private final long millis;
+    private final boolean empty;
 
     private TimeInstant() {
+        this.millis = 0;
+        this.empty = true;
     }
 
-    public TimeInstant(DateTime dateTime) {
-        this.dateTime = dateTime;
+    private TimeInstant(long millis) {
+        this.millis = millis;
+        this.empty = false;
     }
 
-    public static TimeInstant now() {
-        return new TimeInstant(DateTime.now());
+    /**
+     * Create a TimeInstant for the given Instant.
+     *
+     * @param instant The instant, if null, the TimeInstant is empty.
+     */
+    public TimeInstant(Instant instant) {
+        this.empty = instant == null;
+        this.millis = empty ? 0 : instant.toEpochMilli();
     }
 
-    public static TimeInstant now(DateTimeZone timeZone) {
-        return new TimeInstant(DateTime.now(timeZone));
+    public static TimeInstant now() {
+        return new TimeInstant(System.currentTimeMillis());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(dateTime);
+        return empty ? 0 : Long.hashCode(millis);
     }
 
     @Override
@@ -70,50 +77,83 @@ public class TimeInstant implements TimeValue {
             return false;
         }
         final TimeInstant other = (TimeInstant) obj;
-        if (this.dateTime == null && other.dateTime == null) {
-            return true;
+        if (this.empty || other.empty) {
+            return this.empty == other.empty;
         }
-        if (this.dateTime == null || other.dateTime == null) {
-            return false;
-        }
-        return this.dateTime.isEqual(other.dateTime);
-    }
-
-    public static TimeInstant parse(String value) {
-        return new TimeInstant(DateTime.parse(value));
+        return this.millis == other.millis;
     }
 
-    public static TimeInstant create(Long value) {
-        return new TimeInstant(new DateTime(value));
+    /**
+     * Parse the given ISO8601 String. The common extended form is parsed
+     * directly, other forms are handed to Joda-Time.
+     *
+     * @param value The String to parse.
+     * @return The parsed TimeInstant.
+     */
+    public static TimeInstant parse(CharSequence value) {
+        long parsed = IsoTimeHelper.parseMillis(value);
+        if (parsed == IsoTimeHelper.NOT_PARSED) {
+            parsed = DateTime.parse(value.toString()).getMillis();
+        }
+        return new TimeInstant(parsed);
     }
 
-    public static TimeInstant create(Long value, DateTimeZone timeZone) {
-        return new TimeInstant(new DateTime(value, timeZone));
+    public static TimeInstant create(long value) {
+        return new TimeInstant(value);
     }
 
-    public static TimeInstant parse(String value, DateTimeFormatter dtf) {
-        return new TimeInstant(DateTime.parse(value, dtf));
+    /**
+     * The instant in epoch milliseconds. Only valid if the instant is not
+     * empty.
+     *
+     * @return The instant in epoch milliseconds.
+     */
+    public long getMillis() {
+        return millis;
     }
 
-    public DateTime getDateTime() {
-        return dateTime;
+    public Instant getInstant() {
+        if (empty) {
+            return null;
+        }
+        return Instant.ofEpochMilli(millis);
     }
 
     public OffsetDateTime getOffsetDateTime() {
-        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(dateTime.getMillis()), UTC);
+        if (empty) {
+            return null;
+        }
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), UTC);
     }
 
     @Override
     public boolean isEmpty() {
-        return dateTime == null;
+        return empty;
     }
 
     @Override
     public String asISO8601() {
-        if (dateTime == null) {
+        if (empty) {
             return "";
         }
-        return ISODateTimeFormat.dateTime().withZone(DateTimeZone.UTC).print(dateTime);
+        return IsoTimeHelper.formatMillis(millis);
+    }
+
+    /**
+     * Writes the instant as ISO8601 into the given buffer, without
+     * allocating. The buffer must have at least
+     * {@link IsoTimeHelper#MAX_INSTANT_LENGTH} characters available after the
+     * offset.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The position to start writing at.
+     * @return The position after the last written character.
+     */
+    public int writeISO8601(char[] buffer, int offset) {
+        if (empty) {
+            return offset;
+        }
+        return IsoTimeHelper.writeMillis(millis, buffer, offset);
     }
 
     @Override
@@ -17,35 +17,43 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.model.ext;
 
-import java.util.Objects;
-import org.joda.time.DateTimeZone;
+import de.fraunhofer.iosb.ilt.frostserver.util.IsoTimeHelper;
+import java.time.Instant;
 import org.joda.time.Interval;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
 
 /**
- * Represent an ISO8601 time interval.
+ * Represent an ISO8601 time interval. The start and end are held as epoch
+ * milliseconds.
  *
  * @author jab
  */
 public class TimeInterval implements TimeValue {
 
-    /**
-     * TODO: Convert to java.time.Period
-     */
-    private Interval interval;
+    private final long startMillis;
+    private final long endMillis;
+    private final boolean empty;
 
     private TimeInterval() {
+        this.startMillis = 0;
+        this.endMillis = 0;
+        this.empty = true;
     }
 
-    private TimeInterval(Interval interval) {
-        assert (interval != null);
-        this.interval = interval;
+    private TimeInterval(long startMillis, long endMillis) {
+        if (endMillis < startMillis) {
+            throw new IllegalArgumentException("The end of an interval must not be before its start.");
+        }
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.empty = false;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(interval);
+        if (empty) {
+            return 0;
+        }
+        return 31 * Long.hashCode(startMillis) + Long.hashCode(endMillis);
     }
 
     @Override
@@ -60,39 +68,103 @@ public class TimeInterval implements TimeValue {
             return false;
         }
         final TimeInterval other = (TimeInterval) obj;
-        return Objects.equals(this.interval, other.interval);
+        if (this.empty || other.empty) {
+            return this.empty == other.empty;
+        }
+        return this.startMillis == other.startMillis
+                && this.endMillis == other.endMillis;
     }
 
     public static TimeInterval create(long start, long end) {
-        return new TimeInterval(new Interval(start, end));
+        return new TimeInterval(start, end);
+    }
+
+    /**
+     * Parse the given ISO8601 interval. Intervals of two instants in the
+     * common extended form are parsed directly, other forms, like those using
+     * periods, are handed to Joda-Time.
+     *
+     * @param value The String to parse.
+     * @return The parsed TimeInterval.
+     */
+    public static TimeInterval parse(CharSequence value) {
+        int length = value.length();
+        for (int slash = 0; slash < length; slash++) {
+            if (value.charAt(slash) == '/') {
+                long start = IsoTimeHelper.parseMillis(value, 0, slash);
+                long end = IsoTimeHelper.parseMillis(value, slash + 1, length);
+                if (start != IsoTimeHelper.NOT_PARSED && end != IsoTimeHelper.NOT_PARSED) {
+                    return new TimeInterval(start, end);
+                }
+                break;
+            }
+        }
+        Interval interval = Interval.parse(value.toString());
+        return new TimeInterval(interval.getStartMillis(), interval.getEndMillis());
+    }
+
+    /**
+     * The start of the interval in epoch milliseconds. Only valid if the
+     * interval is not empty.
+     *
+     * @return The start of the interval in epoch milliseconds.
+     */
+    public long getStartMillis() {
+        return startMillis;
     }
 
-    public static TimeInterval create(long start, long end, DateTimeZone timeZone) {
-        return new TimeInterval(new Interval(start, end, timeZone));
+    /**
+     * The end of the interval in epoch milliseconds. Only valid if the
+     * interval is not empty.
+     *
+     * @return The end of the interval in epoch milliseconds.
+     */
+    public long getEndMillis() {
+        return endMillis;
     }
 
-    public static TimeInterval parse(String value) {
-        return new TimeInterval(Interval.parse(value));
+    public Instant getStart() {
+        if (empty) {
+            return null;
+        }
+        return Instant.ofEpochMilli(startMillis);
     }
 
-    public Interval getInterval() {
-        return interval;
+    public Instant getEnd() {
+        if (empty) {
+            return null;
+        }
+        return Instant.ofEpochMilli(endMillis);
     }
 
     @Override
     public boolean isEmpty() {
-        return interval == null;
+        return empty;
     }
 
     @Override
     public String asISO8601() {
-        DateTimeFormatter printer = ISODateTimeFormat.dateTime().withZone(DateTimeZone.UTC);
-        printer = printer.withChronology(interval.getChronology());
-        StringBuilder timeString = new StringBuilder(48);
-        printer.printTo(timeString, interval.getStartMillis());
-        timeString.append('/');
-        printer.printTo(timeString, interval.getEndMillis());
-        return timeString.toString();
+        if (empty) {
+            return "";
+        }
+        return IsoTimeHelper.formatMillis(startMillis, endMillis);
+    }
+
+    /**
+     * Writes the interval as ISO8601 into the given buffer, without
+     * allocating. The buffer must have at least
+     * {@link IsoTimeHelper#MAX_INTERVAL_LENGTH} characters available after
+     * the offset.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The position to start writing at.
+     * @return The position after the last written character.
+     */
+    public int writeISO8601(char[] buffer, int offset) {
+        if (empty) {
+            return offset;
+        }
+        return IsoTimeHelper.writeMillis(startMillis, endMillis, buffer, offset);
     }
 
     @Override
@@ -29,6 +29,7 @@ import de.fraunhofer.iosb.ilt.frostserver.model.ext.UnitOfMeasurement;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -397,6 +398,30 @@ public class TestIsSetProperty {
         testIsSetPropertyObservation(true, true, entity);
     }
 
+    @Test
+    public void testObservationNumericResultChanged() {
+        Observation stored = new Observation().setResultLong(42);
+        assertResultChanged(false, stored, new Observation().setResult(new BigDecimal("42.0")));
+        assertResultChanged(false, stored, new Observation().setResult(42));
+        assertResultChanged(true, stored, new Observation().setResult(43));
+
+        stored = new Observation().setResultDouble(0.1);
+        assertResultChanged(false, stored, new Observation().setResult(new BigDecimal("0.1")));
+        assertResultChanged(true, stored, new Observation().setResult(new BigDecimal("0.2")));
+        assertResultChanged(true, stored, new Observation().setResult("0.1"));
+
+        stored = new Observation().setResultDouble(Double.NaN);
+        assertResultChanged(false, stored, new Observation().setResult(Double.NaN));
+        assertResultChanged(true, stored, new Observation().setResult(1));
+    }
+
+    private void assertResultChanged(boolean shouldBeChanged, Observation stored, Observation updated) {
+        EntityChangedMessage message = new EntityChangedMessage();
+        updated.setEntityPropertiesSet(stored, message);
+        Assert.assertEquals(shouldBeChanged, updated.isSetResult());
+        Assert.assertEquals(shouldBeChanged, message.getFields().contains(EntityProperty.RESULT));
+    }
+
     private void testIsSetPropertyObservation(boolean shouldBeSet, boolean shouldIdBeSet, Observation o) {
         testIsSetPropertyAbstractEntity(shouldBeSet, shouldIdBeSet, o);
         Assert.assertEquals(shouldBeSet, o.isSetDatastream());
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.model.ext;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class TimeValueTest {
+
+    @Test
+    public void testParseTimeInstant() {
+        String[] inputs = {
+            "2015-04-13T00:00:05Z",
+            "2015-04-13T00:00:05.123Z",
+            "2015-04-13T00:00:05.123456Z",
+            "2015-04-13T02:00:05+02:00",
+            "2015-04-13T02:00+02:00",
+            "2015-04-13T02:00:05+0200",
+            "2015-04-13T02:00:05,5+02",
+            "+2015-04-13T00:00:05Z",
+            "2015-04-13T00:00:05z"
+        };
+        for (String input : inputs) {
+            TimeInstant instant = TimeInstant.parse(input);
+            Assert.assertEquals(input, DateTime.parse(input).getMillis(), instant.getMillis());
+            Assert.assertFalse(instant.isEmpty());
+        }
+    }
+
+    @Test
+    public void testParseTimeInterval() {
+        String[] inputs = {
+            "2014-03-01T13:00:00Z/2015-05-11T15:30:00Z",
+            "2014-03-01T13:00:00.5+01:00/2015-05-11T15:30:00Z",
+            "2014-03-01T13:00:00Z/P1D",
+            "P1D/2014-03-01T13:00:00Z"
+        };
+        for (String input : inputs) {
+            TimeInterval interval = TimeInterval.parse(input);
+            Interval expected = Interval.parse(input);
+            Assert.assertEquals(input, expected.getStartMillis(), interval.getStartMillis());
+            Assert.assertEquals(input, expected.getEndMillis(), interval.getEndMillis());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseTimeIntervalReversed() {
+        TimeInterval.parse("2015-05-11T15:30:00Z/2014-03-01T13:00:00Z");
+    }
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("2015-04-13T00:00:05.123Z", TimeInstant.parse("2015-04-13T02:00:05.123+02:00").asISO8601());
+        Assert.assertEquals(
+                "2014-03-01T13:00:00.000Z/2015-05-11T15:30:00.000Z",
+                TimeInterval.parse("2014-03-01T13:00:00Z/2015-05-11T15:30:00Z").asISO8601());
+        Assert.assertEquals("", new TimeInstant(null).asISO8601());
+        Assert.assertTrue(new TimeInstant(null).isEmpty());
+    }
+
+    @Test
+    public void testEquals() {
+        TimeInstant utc = TimeInstant.parse("2015-04-13T00:00:05Z");
+        TimeInstant offset = TimeInstant.parse("2015-04-13T02:00:05+02:00");
+        Assert.assertEquals(utc, offset);
+        Assert.assertEquals(utc.hashCode(), offset.hashCode());
+        Assert.assertNotEquals(utc, new TimeInstant(null));
+        Assert.assertEquals(new TimeInstant(null), new TimeInstant(null));
+    }
+
+}
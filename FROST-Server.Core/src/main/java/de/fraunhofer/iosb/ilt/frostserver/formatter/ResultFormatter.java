@@ -20,6 +20,9 @@ package de.fraunhofer.iosb.ilt.frostserver.formatter;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  *
@@ -51,6 +54,25 @@ public interface ResultFormatter {
      */
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks);
 
+    /**
+     * Format the result object, writing it to the given stream. The default
+     * implementation writes the output of
+     * {@link #format(ResourcePath, Query, Object, boolean)} in UTF-8.
+     * Implementations that can write directly to the stream should override
+     * this, so the result does not need to be kept in memory completely.
+     *
+     * @param path The path that was requested.
+     * @param query The query parameters of the request.
+     * @param result The result to format.
+     * @param useAbsoluteNavigationLinks Flag indicating absolute navigation
+     * links should be used.
+     * @param out The stream to write the formatted result to.
+     * @throws IOException If writing to the stream fails.
+     */
+    public default void format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks, OutputStream out) throws IOException {
+        out.write(format(path, query, result, useAbsoluteNavigationLinks).getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Get the content type of the result, when formatted by this
      * ResultFormatter.
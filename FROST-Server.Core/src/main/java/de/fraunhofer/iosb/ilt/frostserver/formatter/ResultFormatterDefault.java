@@ -18,15 +18,22 @@
 package de.fraunhofer.iosb.ilt.frostserver.formatter;
 
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetStreaming;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.EntitySetResult;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.VisibilityHelper;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.geojson.GeoJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,33 +57,48 @@ public class ResultFormatterDefault implements ResultFormatter {
 
     @Override
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
-        String entityJsonString = "";
         try {
-            if (Entity.class.isAssignableFrom(result.getClass())) {
-                Entity<?> entity = (Entity) result;
-                visibilityHelper.applyVisibility(entity, path, query, useAbsoluteNavigationLinks);
-                entityJsonString = EntityFormatter.writeEntity(entity);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            format(path, query, result, useAbsoluteNavigationLinks, out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to format response.", ex);
+        }
+        return "";
+    }
+
+    @Override
+    public void format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks, OutputStream out) throws IOException {
+        if (result instanceof EntitySetStreaming && ((EntitySetStreaming) result).isStreamable()) {
+            EntitySetStreaming<?> entitySet = (EntitySetStreaming) result;
+            Consumer<Entity<?>> visibilityApplier = visibilityHelper.createVisibilityApplier(entitySet.getEntityType(), path, query, useAbsoluteNavigationLinks);
+            EntityFormatter.writeEntityStream(out, entitySet, visibilityApplier);
+
+        } else if (result instanceof ObservationSetColumnar && ((ObservationSetColumnar) result).isJsonWritable()) {
+            // The columns only hold the selected properties, and need no links.
+            EntityFormatter.writeObject(out, new EntitySetResult((ObservationSetColumnar) result));
+
+        } else if (Entity.class.isAssignableFrom(result.getClass())) {
+            Entity<?> entity = (Entity) result;
+            visibilityHelper.applyVisibility(entity, path, query, useAbsoluteNavigationLinks);
+            EntityFormatter.writeObject(out, entity);
 
-            } else if (EntitySet.class.isAssignableFrom(result.getClass())) {
-                EntitySet<?> entitySet = (EntitySet) result;
-                visibilityHelper.applyVisibility(entitySet, path, query, useAbsoluteNavigationLinks);
-                entityJsonString = EntityFormatter.writeEntityCollection(entitySet);
+        } else if (EntitySet.class.isAssignableFrom(result.getClass())) {
+            EntitySet<?> entitySet = (EntitySet) result;
+            visibilityHelper.applyVisibility(entitySet, path, query, useAbsoluteNavigationLinks);
+            EntityFormatter.writeObject(out, new EntitySetResult(entitySet));
 
-            } else if (path != null && path.isValue()) {
-                if (result instanceof Map || result instanceof GeoJsonObject) {
-                    entityJsonString = EntityFormatter.writeObject(result);
-                } else if (result instanceof Id) {
-                    entityJsonString = ((Id) result).getValue().toString();
-                } else {
-                    entityJsonString = result.toString();
-                }
+        } else if (path != null && path.isValue()) {
+            if (result instanceof Map || result instanceof GeoJsonObject) {
+                EntityFormatter.writeObject(out, result);
+            } else if (result instanceof Id) {
+                out.write(((Id) result).getValue().toString().getBytes(StandardCharsets.UTF_8));
             } else {
-                entityJsonString = EntityFormatter.writeObject(result);
+                out.write(result.toString().getBytes(StandardCharsets.UTF_8));
             }
-        } catch (IOException ex) {
-            LOGGER.error("Failed to format response.", ex);
+        } else {
+            EntityFormatter.writeObject(out, result);
         }
-        return entityJsonString;
     }
 
     @Override
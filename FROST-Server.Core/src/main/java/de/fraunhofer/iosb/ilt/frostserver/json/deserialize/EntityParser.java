@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.json.deserialize;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -72,7 +73,7 @@ public class EntityParser {
      * @param idClass The id class to use for this mapper.
      * @return The cached or created object mapper.
      */
-    private static ObjectMapper getObjectMapper(Class<? extends Id> idClass) {
+    public static ObjectMapper getObjectMapper(Class<? extends Id> idClass) {
         if (mainMapper == null) {
             initMainObjectMapper(idClass);
         }
@@ -103,11 +104,25 @@ public class EntityParser {
      * @return The created object mapper.
      */
     private static ObjectMapper createObjectMapper(Class<? extends Id> idClass) {
+        return createObjectMapper(idClass, null);
+    }
+
+    /**
+     * Create a new object mapper for the given id Class, that reads using the
+     * given JsonFactory. This allows parsing entities from binary formats like
+     * Smile or CBOR, if the respective Jackson dataformat is available.
+     *
+     * @param idClass The id class to use for this mapper.
+     * @param factory The JsonFactory to use, or null for the default (JSON)
+     * factory.
+     * @return The created object mapper.
+     */
+    public static ObjectMapper createObjectMapper(Class<? extends Id> idClass, JsonFactory factory) {
         GeoJsonDeserializier geoJsonDeserializier = new GeoJsonDeserializier();
         for (String encodingType : GeoJsonDeserializier.ENCODINGS) {
             CustomDeserializationManager.getInstance().registerDeserializer(encodingType, geoJsonDeserializier);
         }
-        ObjectMapper mapper = new ObjectMapper()
+        ObjectMapper mapper = new ObjectMapper(factory)
                 .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
                 .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
 
@@ -19,7 +19,6 @@ package de.fraunhofer.iosb.ilt.frostserver.json.deserialize;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
 import java.io.IOException;
@@ -37,7 +36,7 @@ public class TimeInstantDeserializer extends StdDeserializer<TimeInstant> {
 
     @Override
     public TimeInstant deserialize(JsonParser jp, DeserializationContext dc) throws IOException {
-        return TimeInstant.parse(((JsonNode) jp.getCodec().readTree(jp)).asText());
+        return TimeInstant.parse(TimeValueDeserializer.getText(jp));
     }
 
 }
@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.json.deserialize;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
@@ -25,11 +26,11 @@ import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInterval;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
 import java.io.IOException;
+import java.nio.CharBuffer;
 
 /**
- * Helper for deserialization of TimeValue objects from JSON. May not work
- * properly in every case as deciding wether input is a TimeInstant or a
- * TimeInterval is based on exceptions while parsing
+ * Helper for deserialization of TimeValue objects from JSON. Values containing
+ * a '/' are parsed as TimeInterval, all others as TimeInstant.
  *
  * @author jab
  */
@@ -41,14 +42,29 @@ public class TimeValueDeserializer extends StdDeserializer<TimeValue> {
 
     @Override
     public TimeValue deserialize(JsonParser jp, DeserializationContext dc) throws IOException {
-        TimeValue result;
-        JsonNode node = jp.getCodec().readTree(jp);
-        try {
-            result = TimeInstant.parse(node.asText());
-        } catch (Exception e) {
-            result = TimeInterval.parse(node.asText());
+        CharSequence text = getText(jp);
+        for (int i = text.length() - 1; i >= 0; i--) {
+            if (text.charAt(i) == '/') {
+                return TimeInterval.parse(text);
+            }
         }
-        return result;
+        return TimeInstant.parse(text);
+    }
+
+    /**
+     * Returns the text of the current token. For String tokens this is a view
+     * on the buffer of the parser, that is only valid until the parser is
+     * advanced.
+     *
+     * @param jp The parser to get the text from.
+     * @return The text of the current token.
+     * @throws IOException If reading fails.
+     */
+    public static CharSequence getText(JsonParser jp) throws IOException {
+        if (jp.currentToken() == JsonToken.VALUE_STRING) {
+            return CharBuffer.wrap(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+        return ((JsonNode) jp.getCodec().readTree(jp)).asText();
     }
 
 }
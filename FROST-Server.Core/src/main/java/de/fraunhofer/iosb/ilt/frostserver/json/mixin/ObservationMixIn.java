@@ -19,6 +19,7 @@ package de.fraunhofer.iosb.ilt.frostserver.json.mixin;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
 
 /**
  * MixIn for serialisation.
@@ -30,6 +31,15 @@ public interface ObservationMixIn extends AbstractEntityMixIn {
     @JsonInclude(value = JsonInclude.Include.ALWAYS)
     public abstract Object getResult();
 
+    @JsonIgnore
+    public abstract Observation.PrimitiveResult getResultPrimitive();
+
+    @JsonIgnore
+    public abstract double getResultDouble();
+
+    @JsonIgnore
+    public abstract long getResultLong();
+
     @JsonIgnore
     public abstract boolean isSetPhenomenonTime();
 
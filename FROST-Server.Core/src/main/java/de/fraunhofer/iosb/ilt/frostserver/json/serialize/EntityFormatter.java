@@ -18,17 +18,27 @@
 package de.fraunhofer.iosb.ilt.frostserver.json.serialize;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.custom.GeoJsonDeserializier;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.custom.CustomSerializationManager;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetStreaming;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.EntitySetResult;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
 import de.fraunhofer.iosb.ilt.frostserver.json.mixin.MixinUtils;
+import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_COUNT;
+import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_NEXT_LINK;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
 /**
  * Enables serialization of entities as JSON.
@@ -53,7 +63,20 @@ public class EntityFormatter {
     }
 
     private static ObjectMapper createObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
+        return createObjectMapper(null);
+    }
+
+    /**
+     * Create a new object mapper that writes entities using the given
+     * JsonFactory. This allows writing entities in binary formats like Smile
+     * or CBOR, if the respective Jackson dataformat is available.
+     *
+     * @param factory The JsonFactory to use, or null for the default (JSON)
+     * factory.
+     * @return The created object mapper.
+     */
+    public static ObjectMapper createObjectMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
@@ -69,6 +92,7 @@ public class EntityFormatter {
 
         module.addSerializer(Entity.class, new EntitySerializer());
         module.addSerializer(EntitySetResult.class, new EntitySetResultSerializer());
+        module.addSerializer(ObservationSetColumnar.class, new ObservationSetColumnarSerializer());
         module.addSerializer(TimeValue.class, new TimeValueSerializer());
         mapper.registerModule(module);
         return mapper;
@@ -88,4 +112,65 @@ public class EntityFormatter {
     public static String writeObject(Object object) throws IOException {
         return getObjectMapper().writeValueAsString(object);
     }
+
+    /**
+     * Write the given object as JSON to the given stream. The stream is not
+     * closed.
+     *
+     * @param out The stream to write to.
+     * @param object The object to write.
+     * @throws IOException If writing fails.
+     */
+    public static void writeObject(OutputStream out, Object object) throws IOException {
+        ObjectWriter writer = getStreamWriter();
+        try (JsonGenerator gen = createGenerator(writer, out)) {
+            writer.writeValue(gen, object);
+        }
+    }
+
+    /**
+     * Write the entities of the given EntitySet to the given stream, while they
+     * are streamed from the set. The nextLink is only known after the last
+     * entity, and is thus written after the value array. The stream is not
+     * closed.
+     *
+     * @param out The stream to write to.
+     * @param entitySet The set to write.
+     * @param processor Called for each entity, before it is written.
+     * @throws IOException If writing fails.
+     */
+    public static void writeEntityStream(OutputStream out, EntitySetStreaming<?> entitySet, Consumer<Entity<?>> processor) throws IOException {
+        ObjectWriter writer = getStreamWriter();
+        try (JsonGenerator gen = createGenerator(writer, out)) {
+            gen.writeStartObject();
+            long count = entitySet.getCount();
+            if (count >= 0) {
+                gen.writeNumberField(AT_IOT_COUNT, count);
+            }
+            gen.writeFieldName("value");
+            gen.writeStartArray();
+            Iterator<? extends Entity<?>> it = entitySet.streamingIterator();
+            while (it.hasNext()) {
+                Entity<?> entity = it.next();
+                processor.accept(entity);
+                writer.writeValue(gen, entity);
+            }
+            gen.writeEndArray();
+            String nextLink = entitySet.getNextLink();
+            if (nextLink != null) {
+                gen.writeStringField(AT_IOT_NEXT_LINK, nextLink);
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static ObjectWriter getStreamWriter() {
+        return getObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private static JsonGenerator createGenerator(ObjectWriter writer, OutputStream out) throws IOException {
+        JsonGenerator gen = writer.createGenerator(out);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return gen;
+    }
 }
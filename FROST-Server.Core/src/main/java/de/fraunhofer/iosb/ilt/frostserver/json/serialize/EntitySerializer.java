@@ -31,9 +31,11 @@ import static com.fasterxml.jackson.databind.ser.BeanPropertyWriter.MARKER_FOR_E
 import com.fasterxml.jackson.databind.ser.std.NullSerializer;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.custom.CustomSerialization;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.custom.CustomSerializationManager;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.NavigableElement;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_COUNT;
 import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_NAVIGATION_LINK;
 import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_NEXT_LINK;
@@ -102,7 +104,13 @@ public class EntitySerializer extends JsonSerializer<Entity> {
         if (!selected) {
             return;
         }
-        // 2. check if property has CustomSerialization annotation -> use custom serializer
+        // 2. primitive Observation results are written without boxing.
+        if (entity instanceof Observation
+                && EntityProperty.RESULT.jsonName.equals(property.getName())
+                && serializePrimitiveResult((Observation) entity, gen)) {
+            return;
+        }
+        // 3. check if property has CustomSerialization annotation -> use custom serializer
         Annotation annotation = property.getAccessor().getAnnotation(CustomSerialization.class);
         if (annotation != null) {
             serializeFieldCustomized(
@@ -114,12 +122,29 @@ public class EntitySerializer extends JsonSerializer<Entity> {
         } else {
             serializeField(entity, gen, serializers, beanDescription, property);
         }
-        // 3. check if property is EntitySet than write count if needed.
+        // 4. check if property is EntitySet than write count if needed.
         if (EntitySet.class.isAssignableFrom(property.getAccessor().getRawType())) {
             writeCountNextlinkForSet(property, entity, gen);
         }
     }
 
+    private boolean serializePrimitiveResult(Observation observation, JsonGenerator gen) throws IOException {
+        switch (observation.getResultPrimitive()) {
+            case DOUBLE:
+                gen.writeFieldName(EntityProperty.RESULT.jsonName);
+                gen.writeNumber(Observation.formatResultDouble(observation.getResultDouble()));
+                return true;
+
+            case LONG:
+                gen.writeFieldName(EntityProperty.RESULT.jsonName);
+                gen.writeNumber(observation.getResultLong());
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
     private void writeCountNextlinkForSet(BeanPropertyDefinition property, Entity entity, JsonGenerator gen) throws IOException {
         Object rawValue = property.getAccessor().getValue(entity);
         if (rawValue == null) {
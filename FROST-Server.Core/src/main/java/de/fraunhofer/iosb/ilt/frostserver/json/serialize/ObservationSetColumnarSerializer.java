@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.json.serialize;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import de.fraunhofer.iosb.ilt.frostserver.util.IsoTimeHelper;
+import java.io.IOException;
+
+/**
+ * Writes the rows of an ObservationSetColumnar directly from its columns. If
+ * the set is no longer columnar, or navigationLinks are needed, the
+ * Observations are written normally.
+ *
+ * @author scf
+ */
+public class ObservationSetColumnarSerializer extends JsonSerializer<ObservationSetColumnar> {
+
+    @Override
+    public void serialize(ObservationSetColumnar value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (!value.isJsonWritable()) {
+            gen.writeObject(value.asList());
+            return;
+        }
+        gen.writeStartArray();
+        char[] buffer = new char[IsoTimeHelper.MAX_INTERVAL_LENGTH];
+        int rowCount = value.getRowCount();
+        for (int row = 0; row < rowCount; row++) {
+            writeRow(value, row, buffer, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeRow(ObservationSetColumnar value, int row, char[] buffer, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        if (value.hasId()) {
+            gen.writeNumberField(EntityProperty.ID.jsonName, value.getId(row));
+        }
+        if (value.hasPhenomenonTime()) {
+            writeTimeOrNull(EntityProperty.PHENOMENONTIME.jsonName, buffer, value.writePhenomenonTime(row, buffer), gen);
+        }
+        if (value.hasResultTime()) {
+            writeTimeOrNull(EntityProperty.RESULTTIME.jsonName, buffer, value.writeResultTime(row, buffer), gen);
+        }
+        if (value.hasResult()) {
+            gen.writeFieldName(EntityProperty.RESULT.jsonName);
+            switch (value.getResultType(row)) {
+                case DOUBLE:
+                    gen.writeNumber(Observation.formatResultDouble(value.getResultDouble(row)));
+                    break;
+
+                case LONG:
+                    gen.writeNumber(value.getResultLong(row));
+                    break;
+
+                default:
+                    gen.writeObject(value.getResultObject(row));
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeTimeOrNull(String name, char[] buffer, int length, JsonGenerator gen) throws IOException {
+        gen.writeFieldName(name);
+        if (length < 0) {
+            gen.writeNull();
+        } else {
+            gen.writeString(buffer, 0, length);
+        }
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, ObservationSetColumnar value) {
+        return value == null || value.isEmpty();
+    }
+
+}
@@ -20,20 +20,32 @@ package de.fraunhofer.iosb.ilt.frostserver.json.serialize;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInterval;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
+import de.fraunhofer.iosb.ilt.frostserver.util.IsoTimeHelper;
 import java.io.IOException;
 
 /**
- * Serializer for TimeValue objects.
+ * Serializer for TimeValue objects. TimeInstants and TimeIntervals are written
+ * through a per-thread buffer, so no Strings are created for them.
  *
  * @author jab
  */
 public class TimeValueSerializer extends JsonSerializer<TimeValue> {
 
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[IsoTimeHelper.MAX_INTERVAL_LENGTH]);
+
     @Override
     public void serialize(TimeValue value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
         if (value.isEmpty()) {
             gen.writeNull();
+        } else if (value instanceof TimeInstant) {
+            char[] buffer = BUFFER.get();
+            gen.writeString(buffer, 0, ((TimeInstant) value).writeISO8601(buffer, 0));
+        } else if (value instanceof TimeInterval) {
+            char[] buffer = BUFFER.get();
+            gen.writeString(buffer, 0, ((TimeInterval) value).writeISO8601(buffer, 0));
         } else {
             gen.writeString(value.asISO8601());
         }
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.messagebus;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.EntityParser;
+import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encodes EntityChangedMessages for sending over a message bus, and decodes
+ * them again.
+ *
+ * Messages are written either as plain JSON, or prefixed with a header byte
+ * that describes the format of the rest of the message. Plain JSON messages
+ * start with '{' and are understood by older versions. The lower nibble of the
+ * header byte holds the format, {@link #FORMAT_JSON} or
+ * {@link #FORMAT_BINARY}. If the {@link #FLAG_DEFLATE} bit is set the rest of
+ * the message is Deflate compressed. If the {@link #FLAG_ENVELOPE} bit is set
+ * the message is an envelope, holding a list of messages.
+ *
+ * The binary format uses a Jackson JsonFactory that is configured by class
+ * name, like the SmileFactory or CBORFactory. All nodes on the bus must use the
+ * same binary factory. Decoding always accepts JSON, compressed or not.
+ *
+ * @author scf
+ */
+public class BusMessageCodec {
+
+    /**
+     * The codec name for plain JSON.
+     */
+    public static final String CODEC_JSON = "JSON";
+
+    public static final byte FORMAT_JSON = 0x01;
+    public static final byte FORMAT_BINARY = 0x02;
+    public static final byte FLAG_DEFLATE = 0x10;
+    public static final byte FLAG_ENVELOPE = 0x20;
+
+    private static final byte FORMAT_MASK = 0x0F;
+    private static final TypeReference<List<EntityChangedMessage>> TYPE_LIST = new TypeReference<List<EntityChangedMessage>>() {
+        // Empty by design.
+    };
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BusMessageCodec.class);
+
+    private final Format json;
+    private final Format binary;
+    private final int compressionThreshold;
+
+    /**
+     * Create a new codec.
+     *
+     * @param idClass The class of the entity ids.
+     * @param codec The name of the codec to use for encoding: "JSON" or the
+     * fully qualified class name of a Jackson JsonFactory.
+     * @param compressionThreshold Messages larger than this number of bytes
+     * are compressed. 0 or less disables compression.
+     */
+    public BusMessageCodec(Class<? extends Id> idClass, String codec, int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        json = new Format(FORMAT_JSON, EntityFormatter.getObjectMapper(), EntityParser.getObjectMapper(idClass));
+        if (codec == null || codec.isEmpty() || CODEC_JSON.equalsIgnoreCase(codec)) {
+            binary = null;
+        } else {
+            // A JsonFactory is bound to the first mapper it is used with, so
+            // the formatter and the parser each need their own instance.
+            binary = new Format(
+                    FORMAT_BINARY,
+                    EntityFormatter.createObjectMapper(createFactory(codec)),
+                    EntityParser.createObjectMapper(idClass, createFactory(codec)));
+        }
+    }
+
+    private static JsonFactory createFactory(String className) {
+        try {
+            Class<?> factoryClass = Class.forName(className);
+            return (JsonFactory) factoryClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            LOGGER.error("Could not create JsonFactory {} for the message bus codec.", className, ex);
+            throw new IllegalArgumentException("Could not create JsonFactory " + className, ex);
+        }
+    }
+
+    private Format getWriteFormat() {
+        return binary == null ? json : binary;
+    }
+
+    /**
+     * Encode the given message.
+     *
+     * @param message The message to encode.
+     * @return The encoded message.
+     * @throws IOException If the message could not be serialised.
+     */
+    public byte[] encode(EntityChangedMessage message) throws IOException {
+        Format format = getWriteFormat();
+        return wrap(format.id, format.writer.writeValueAsBytes(message));
+    }
+
+    /**
+     * Encode the given messages into one envelope.
+     *
+     * @param messages The messages to encode.
+     * @return The encoded envelope.
+     * @throws IOException If the messages could not be serialised.
+     */
+    public byte[] encode(List<EntityChangedMessage> messages) throws IOException {
+        Format format = getWriteFormat();
+        return wrap((byte) (format.id | FLAG_ENVELOPE), format.listWriter.writeValueAsBytes(messages));
+    }
+
+    private byte[] wrap(byte header, byte[] data) throws IOException {
+        boolean compress = compressionThreshold > 0 && data.length > compressionThreshold;
+        if (header == FORMAT_JSON && !compress) {
+            return data;
+        }
+        if (!compress) {
+            byte[] result = new byte[data.length + 1];
+            result[0] = header;
+            System.arraycopy(data, 0, result, 1, data.length);
+            return result;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+        out.write(header | FLAG_DEFLATE);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(data);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode the given message. Fails if the message is an envelope.
+     *
+     * @param data The encoded message.
+     * @return The decoded message.
+     * @throws IOException If the message could not be decoded.
+     */
+    public EntityChangedMessage decode(byte[] data) throws IOException {
+        if (data.length > 0 && data[0] != '{' && (data[0] & FLAG_ENVELOPE) != 0) {
+            throw new IOException("Received an envelope where a single message was expected.");
+        }
+        return decodeAll(data).get(0);
+    }
+
+    /**
+     * Decode the given message or envelope.
+     *
+     * @param data The encoded message or envelope.
+     * @return The decoded messages.
+     * @throws IOException If the data could not be decoded.
+     */
+    public List<EntityChangedMessage> decodeAll(byte[] data) throws IOException {
+        if (data.length == 0) {
+            throw new IOException("Received an empty message.");
+        }
+        byte header = data[0];
+        if (header == '{') {
+            return Collections.singletonList(json.reader.readValue(data));
+        }
+        Format format;
+        switch (header & FORMAT_MASK) {
+            case FORMAT_JSON:
+                format = json;
+                break;
+
+            case FORMAT_BINARY:
+                if (binary == null) {
+                    throw new IOException("Received a binary message, but no binary codec is configured.");
+                }
+                format = binary;
+                break;
+
+            default:
+                throw new IOException("Received a message with an unknown header: " + header);
+        }
+        ObjectReader reader = (header & FLAG_ENVELOPE) == 0 ? format.reader : format.listReader;
+        Object result;
+        if ((header & FLAG_DEFLATE) == 0) {
+            result = reader.readValue(data, 1, data.length - 1);
+        } else {
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+                result = reader.readValue(in);
+            }
+        }
+        if (result instanceof EntityChangedMessage) {
+            return Collections.singletonList((EntityChangedMessage) result);
+        }
+        return (List<EntityChangedMessage>) result;
+    }
+
+    /**
+     * The readers and writers for one format.
+     */
+    private static class Format {
+
+        private final byte id;
+        private final ObjectWriter writer;
+        private final ObjectWriter listWriter;
+        private final ObjectReader reader;
+        private final ObjectReader listReader;
+
+        public Format(byte id, ObjectMapper formatter, ObjectMapper parser) {
+            this.id = id;
+            writer = formatter.writerFor(EntityChangedMessage.class)
+                    .without(SerializationFeature.INDENT_OUTPUT);
+            listWriter = formatter.writerFor(TYPE_LIST)
+                    .without(SerializationFeature.INDENT_OUTPUT);
+            reader = parser.readerFor(EntityChangedMessage.class);
+            listReader = parser.readerFor(TYPE_LIST);
+        }
+    }
+
+}
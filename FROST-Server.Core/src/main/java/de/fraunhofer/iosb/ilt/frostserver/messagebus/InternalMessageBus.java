@@ -25,11 +25,12 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.BusSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorHelper;
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue;
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue.OverflowPolicy;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -47,13 +48,15 @@ public class InternalMessageBus implements MessageBus, ConfigDefaults {
     public static final String TAG_WORKER_COUNT = "workerPoolSize";
     @DefaultValueInt(100)
     public static final String TAG_QUEUE_SIZE = "queueSize";
+    @DefaultValue("DROP_NEWEST")
+    public static final String TAG_QUEUE_OVERFLOW_POLICY = "queueOverflowPolicy";
 
     /**
      * The logger for this class.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(InternalMessageBus.class);
 
-    private BlockingQueue<EntityChangedMessage> entityChangedMessageQueue;
+    private ProcessorQueue<EntityChangedMessage> entityChangedMessageQueue;
     private ExecutorService entityChangedExecutorService;
     private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -64,7 +67,8 @@ public class InternalMessageBus implements MessageBus, ConfigDefaults {
         int poolSize = customSettings.getInt(TAG_WORKER_COUNT, defaultValueInt(TAG_WORKER_COUNT));
         int queueSize = customSettings.getInt(TAG_QUEUE_SIZE, defaultValueInt(TAG_QUEUE_SIZE));
 
-        entityChangedMessageQueue = new ArrayBlockingQueue<>(queueSize);
+        OverflowPolicy overflowPolicy = OverflowPolicy.fromString(customSettings.get(TAG_QUEUE_OVERFLOW_POLICY, defaultValue(TAG_QUEUE_OVERFLOW_POLICY)));
+        entityChangedMessageQueue = new ProcessorQueue<>("IntBusPrc", queueSize, overflowPolicy);
         entityChangedExecutorService = ProcessorHelper.createProcessors(
                 poolSize,
                 entityChangedMessageQueue,
@@ -74,6 +78,7 @@ public class InternalMessageBus implements MessageBus, ConfigDefaults {
 
     @Override
     public void stop() {
+        entityChangedMessageQueue.close();
         entityChangedExecutorService.shutdown();
         try {
             if (entityChangedExecutorService.awaitTermination(2, TimeUnit.SECONDS)) {
@@ -115,6 +120,16 @@ public class InternalMessageBus implements MessageBus, ConfigDefaults {
         listeners.remove(listener);
     }
 
+    @Override
+    public boolean isEntityContentNeeded(EntityType entityType) {
+        for (MessageListener listener : listeners) {
+            if (listener.isEntityContentNeeded(entityType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void handleMessage(EntityChangedMessage message) {
         for (MessageListener listener : listeners) {
             try {
@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.messagebus;
 
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 
 /**
@@ -44,4 +45,18 @@ public interface MessageBus {
     public void addMessageListener(MessageListener listener);
 
     public void removeMessageListener(MessageListener listener);
+
+    /**
+     * Check if any of the receivers of messages about changed entities of the
+     * given type uses the content of the entities. If not, messages about
+     * created entities can hold the entity as it was inserted, instead of the
+     * entity as it was stored.
+     *
+     * @param entityType The type of the changed entities.
+     * @return true if a receiver of the messages uses the content of the
+     * entities.
+     */
+    public default boolean isEntityContentNeeded(EntityType entityType) {
+        return true;
+    }
 }
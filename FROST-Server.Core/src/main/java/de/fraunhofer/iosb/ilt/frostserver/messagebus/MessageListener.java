@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.messagebus;
 
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 
 /**
  *
@@ -32,4 +33,17 @@ public interface MessageListener {
      * @param message The message that was received.
      */
     public void messageReceived(EntityChangedMessage message);
+
+    /**
+     * Check if this listener uses the content of changed entities of the given
+     * type, or only their type and id. Listeners that only use the type and id
+     * should return false, so that the stored entity does not have to be loaded
+     * for the messages.
+     *
+     * @param entityType The type of the changed entities.
+     * @return true if the listener uses the content of changed entities.
+     */
+    public default boolean isEntityContentNeeded(EntityType entityType) {
+        return true;
+    }
 }
@@ -18,11 +18,9 @@
 package de.fraunhofer.iosb.ilt.frostserver.messagebus;
 
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.EntityParser;
-import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
+import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.settings.BusSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
@@ -31,12 +29,15 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorHelper;
-import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue;
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue.OverflowPolicy;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -65,6 +66,12 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     public static final String TAG_SEND_QUEUE_SIZE = "sendQueueSize";
     @DefaultValueInt(100)
     public static final String TAG_RECV_QUEUE_SIZE = "recvQueueSize";
+    @DefaultValueInt(1)
+    public static final String TAG_SEND_BATCH_SIZE = "sendBatchSize";
+    @DefaultValueInt(5)
+    public static final String TAG_SEND_BATCH_DELAY = "sendBatchDelay";
+    @DefaultValue("DROP_NEWEST")
+    public static final String TAG_QUEUE_OVERFLOW_POLICY = "queueOverflowPolicy";
     @DefaultValue("tcp://127.0.0.1:1884")
     public static final String TAG_MQTT_BROKER = "mqttBroker";
     @DefaultValue("FROST-Bus")
@@ -73,6 +80,10 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     public static final String TAG_QOS_LEVEL = "qosLevel";
     @DefaultValueInt(50)
     public static final String TAG_MAX_IN_FLIGHT = "maxInFlight";
+    @DefaultValue(BusMessageCodec.CODEC_JSON)
+    public static final String TAG_CODEC = "codec";
+    @DefaultValueInt(0)
+    public static final String TAG_COMPRESSION_THRESHOLD = "compressionThreshold";
 
     /**
      * The logger for this class.
@@ -83,9 +94,9 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     private int sendQueueSize;
     private int recvPoolSize;
     private int recvQueueSize;
-    private BlockingQueue<EntityChangedMessage> sendQueue;
+    private ProcessorQueue<EntityChangedMessage> sendQueue;
     private ExecutorService sendService;
-    private BlockingQueue<EntityChangedMessage> recvQueue;
+    private ProcessorQueue<EntityChangedMessage> recvQueue;
     private ExecutorService recvService;
     private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -97,8 +108,7 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     private int maxInFlight;
     private boolean listening = false;
 
-    private ObjectMapper formatter;
-    private EntityParser parser;
+    private BusMessageCodec codec;
 
     @Override
     public void init(CoreSettings settings) {
@@ -109,14 +119,26 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
         recvPoolSize = customSettings.getInt(TAG_RECV_WORKER_COUNT, getClass());
         recvQueueSize = customSettings.getInt(TAG_RECV_QUEUE_SIZE, getClass());
 
-        sendQueue = new ArrayBlockingQueue<>(sendQueueSize);
-        sendService = ProcessorHelper.createProcessors(
-                sendPoolSize,
-                sendQueue,
-                this::handleMessageSent,
-                "mqtt-BusS");
+        OverflowPolicy overflowPolicy = OverflowPolicy.fromString(customSettings.get(TAG_QUEUE_OVERFLOW_POLICY, getClass()));
+        sendQueue = new ProcessorQueue<>("mqtt-BusS", sendQueueSize, overflowPolicy);
+        int sendBatchSize = customSettings.getInt(TAG_SEND_BATCH_SIZE, getClass());
+        if (sendBatchSize > 1) {
+            sendService = ProcessorHelper.createBatchProcessors(
+                    sendPoolSize,
+                    sendQueue,
+                    this::handleMessagesSent,
+                    sendBatchSize,
+                    customSettings.getInt(TAG_SEND_BATCH_DELAY, getClass()),
+                    "mqtt-BusS");
+        } else {
+            sendService = ProcessorHelper.createProcessors(
+                    sendPoolSize,
+                    sendQueue,
+                    this::handleMessageSent,
+                    "mqtt-BusS");
+        }
 
-        recvQueue = new ArrayBlockingQueue<>(recvQueueSize);
+        recvQueue = new ProcessorQueue<>("mqtt-BusR", recvQueueSize, overflowPolicy);
         recvService = ProcessorHelper.createProcessors(
                 recvPoolSize,
                 recvQueue,
@@ -127,10 +149,11 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
         topicName = customSettings.get(TAG_TOPIC_NAME, getClass());
         qosLevel = customSettings.getInt(TAG_QOS_LEVEL, getClass());
         maxInFlight = customSettings.getInt(TAG_MAX_IN_FLIGHT, getClass());
+        codec = new BusMessageCodec(
+                PersistenceManagerFactory.getInstance().getIdManager().getIdClass(),
+                customSettings.get(TAG_CODEC, getClass()),
+                customSettings.getInt(TAG_COMPRESSION_THRESHOLD, getClass()));
         connect();
-
-        formatter = EntityFormatter.getObjectMapper();
-        parser = new EntityParser(PersistenceManagerFactory.getInstance().getIdManager().getIdClass());
     }
 
     private synchronized void connect() {
@@ -246,17 +269,88 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
 
     private void handleMessageSent(EntityChangedMessage message) {
         try {
-            String serialisedMessage = formatter.writeValueAsString(message);
-            byte[] bytes = serialisedMessage.getBytes(StringHelper.UTF8);
-            if (!client.isConnected()) {
-                connect();
-            }
-            client.publish(topicName, bytes, qosLevel, false);
-        } catch (MqttException | JsonProcessingException ex) {
+            publish(codec.encode(message));
+        } catch (MqttException | IOException ex) {
             LOGGER.error("Failed to publish message to bus.", ex);
         }
     }
 
+    private void handleMessagesSent(List<EntityChangedMessage> messages) {
+        List<EntityChangedMessage> coalesced = coalesce(messages);
+        try {
+            if (coalesced.size() == 1) {
+                publish(codec.encode(coalesced.get(0)));
+            } else {
+                publish(codec.encode(coalesced));
+            }
+        } catch (MqttException | IOException ex) {
+            LOGGER.error("Failed to publish {} messages to bus.", coalesced.size(), ex);
+        }
+    }
+
+    private void publish(byte[] bytes) throws MqttException {
+        if (!client.isConnected()) {
+            connect();
+        }
+        client.publish(topicName, bytes, qosLevel, false);
+    }
+
+    /**
+     * Merges UPDATE messages for the same entity, that are not separated by a
+     * CREATE or DELETE message for that entity. The merged message takes the
+     * place of the last UPDATE, holds the entity of the last UPDATE, and the
+     * changed fields of all merged messages.
+     *
+     * @param messages The messages to coalesce.
+     * @return The coalesced messages, in order.
+     */
+    static List<EntityChangedMessage> coalesce(List<EntityChangedMessage> messages) {
+        if (messages.size() < 2) {
+            return messages;
+        }
+        EntityChangedMessage[] result = messages.toArray(new EntityChangedMessage[messages.size()]);
+        Map<List<Object>, Integer> lastUpdates = new HashMap<>();
+        int removed = 0;
+        for (int i = 0; i < result.length; i++) {
+            EntityChangedMessage message = result[i];
+            Entity entity = message.getEntity();
+            List<Object> key = Arrays.asList(message.getEntityType(), entity == null ? null : entity.getId());
+            if (message.getEventType() != EntityChangedMessage.Type.UPDATE || key.get(1) == null) {
+                lastUpdates.remove(key);
+                continue;
+            }
+            Integer previousIdx = lastUpdates.put(key, i);
+            if (previousIdx != null) {
+                result[i] = merge(result[previousIdx], message);
+                result[previousIdx] = null;
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            return messages;
+        }
+        List<EntityChangedMessage> coalesced = new ArrayList<>(result.length - removed);
+        for (EntityChangedMessage message : result) {
+            if (message != null) {
+                coalesced.add(message);
+            }
+        }
+        return coalesced;
+    }
+
+    private static EntityChangedMessage merge(EntityChangedMessage older, EntityChangedMessage newer) {
+        EntityChangedMessage merged = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntity(newer.getEntity());
+        for (Property field : older.getFields()) {
+            merged.addField(field);
+        }
+        for (Property field : newer.getFields()) {
+            merged.addField(field);
+        }
+        return merged;
+    }
+
     @Override
     public void connectionLost(Throwable cause) {
         LOGGER.warn("Connection to message bus lost.");
@@ -265,11 +359,11 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
 
     @Override
     public void messageArrived(String topic, MqttMessage mqttMessage) throws IOException {
-        String serialisedEcMessage = new String(mqttMessage.getPayload(), StringHelper.UTF8);
-        EntityChangedMessage ecMessage = parser.parseObject(EntityChangedMessage.class, serialisedEcMessage);
-        if (!recvQueue.offer(ecMessage)) {
-            LOGGER.error("Failed to add message to receive-queue. Increase {}{} (currently {}) to allow a bigger buffer, or increase {}{} (currently {}) to empty the buffer quicker.",
-                    PREFIX_BUS, TAG_RECV_QUEUE_SIZE, recvQueueSize, PREFIX_BUS, TAG_RECV_WORKER_COUNT, recvPoolSize);
+        for (EntityChangedMessage ecMessage : codec.decodeAll(mqttMessage.getPayload())) {
+            if (!recvQueue.offer(ecMessage)) {
+                LOGGER.error("Failed to add message to receive-queue. Increase {}{} (currently {}) to allow a bigger buffer, or increase {}{} (currently {}) to empty the buffer quicker.",
+                        PREFIX_BUS, TAG_RECV_QUEUE_SIZE, recvQueueSize, PREFIX_BUS, TAG_RECV_WORKER_COUNT, recvPoolSize);
+            }
         }
     }
 
@@ -23,9 +23,11 @@ import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.create.EntityCreateEvent;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.create.EntityCreateListener;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.create.ObservationBatchInserter;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.Subscription;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.SubscriptionEvent;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.SubscriptionFactory;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.SubscriptionIndex;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.SubscriptionListener;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
@@ -39,17 +41,17 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.MqttSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.UnknownVersionException;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Version;
 import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorHelper;
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue;
 import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,14 +64,15 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
     private static MqttManager instance;
     private static final Logger LOGGER = LoggerFactory.getLogger(MqttManager.class);
 
-    private final Map<EntityType, Map<Subscription, AtomicInteger>> subscriptions = new EnumMap<>(EntityType.class);
+    private final Map<EntityType, SubscriptionIndex> subscriptions = new EnumMap<>(EntityType.class);
     private final CoreSettings settings;
 
     private MqttServer server;
-    private BlockingQueue<EntityChangedMessage> entityChangedEventQueue;
+    private ProcessorQueue<EntityChangedMessage> entityChangedEventQueue;
     private ExecutorService entityChangedExecutorService;
-    private BlockingQueue<EntityCreateEvent> entityCreateEventQueue;
+    private ProcessorQueue<EntityCreateEvent> entityCreateEventQueue;
     private ExecutorService entityCreateExecutorService;
+    private ObservationBatchInserter observationBatchInserter;
     private boolean enabledMqtt = false;
     private boolean shutdown = false;
 
@@ -98,7 +101,7 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         }
         this.settings = settings;
         for (EntityType entityType : EntityType.values()) {
-            subscriptions.put(entityType, new ConcurrentHashMap<>());
+            subscriptions.put(entityType, new SubscriptionIndex(settings));
         }
         init();
     }
@@ -109,7 +112,7 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         if (mqttSettings.isEnableMqtt()) {
             enabledMqtt = true;
             shutdown = false;
-            entityChangedEventQueue = new ArrayBlockingQueue<>(mqttSettings.getSubscribeMessageQueueSize());
+            entityChangedEventQueue = new ProcessorQueue<>("Mqtt-EntityChangedProcessor", mqttSettings.getSubscribeMessageQueueSize(), mqttSettings.getSubscribeQueueOverflowPolicy());
             // start watching for EntityChangedEvents
             entityChangedExecutorService = ProcessorHelper.createProcessors(
                     mqttSettings.getSubscribeThreadPoolSize(),
@@ -117,12 +120,23 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
                     this::handleEntityChangedEvent,
                     "Mqtt-EntityChangedProcessor");
             // start watching for EntityCreateEvents
-            entityCreateEventQueue = new ArrayBlockingQueue<>(mqttSettings.getCreateMessageQueueSize());
-            entityCreateExecutorService = ProcessorHelper.createProcessors(
-                    mqttSettings.getCreateThreadPoolSize(),
-                    entityCreateEventQueue,
-                    this::handleEntityCreateEvent,
-                    "Mqtt-EntityCreateProcessor");
+            entityCreateEventQueue = new ProcessorQueue<>("Mqtt-EntityCreateProcessor", mqttSettings.getCreateMessageQueueSize(), mqttSettings.getCreateQueueOverflowPolicy());
+            if (mqttSettings.getCreateBatchSize() > 1) {
+                observationBatchInserter = new ObservationBatchInserter(settings);
+                entityCreateExecutorService = ProcessorHelper.createBatchProcessors(
+                        mqttSettings.getCreateThreadPoolSize(),
+                        entityCreateEventQueue,
+                        this::handleEntityCreateEvents,
+                        mqttSettings.getCreateBatchSize(),
+                        mqttSettings.getCreateBatchDelay(),
+                        "Mqtt-EntityCreateProcessor");
+            } else {
+                entityCreateExecutorService = ProcessorHelper.createProcessors(
+                        mqttSettings.getCreateThreadPoolSize(),
+                        entityCreateEventQueue,
+                        this::handleEntityCreateEvent,
+                        "Mqtt-EntityCreateProcessor");
+            }
             // start MQTT server
             server = MqttServerFactory.getInstance().get(settings);
             server.addSubscriptionListener(this);
@@ -132,9 +146,9 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         } else {
             enabledMqtt = false;
             entityChangedExecutorService = null;
-            entityChangedEventQueue = new ArrayBlockingQueue<>(1);
+            entityChangedEventQueue = null;
             entityCreateExecutorService = null;
-            entityCreateEventQueue = new ArrayBlockingQueue<>(1);
+            entityCreateEventQueue = null;
             server = null;
         }
     }
@@ -155,33 +169,62 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         }
         // check if there is any subscription, if not do not publish at all
         EntityType entityType = message.getEntityType();
-        if (!subscriptions.containsKey(entityType)) {
+        SubscriptionIndex index = subscriptions.get(entityType);
+        if (index == null || index.isEmpty()) {
             return;
         }
         // Send a complete entity through the bus, or just an entity-id?
         Entity<?> entity = message.getEntity();
         Set<Property> fields = message.getFields();
         try (PersistenceManager persistenceManager = PersistenceManagerFactory.getInstance().create()) {
-            // for each subscription on EntityType check match
-            for (Subscription subscription : subscriptions.get(entityType).keySet()) {
-                if (subscription.matches(persistenceManager, entity, fields)) {
-                    notifySubscription(subscription, entity);
-                }
+            // Subscriptions with the same format share the same payload.
+            Map<Object, byte[]> payloads = new HashMap<>();
+            for (Subscription subscription : index.findMatches(persistenceManager, entity, fields)) {
+                notifySubscription(subscription, entity, payloads);
             }
         } catch (Exception ex) {
             LOGGER.error("error handling MQTT subscriptions", ex);
         }
     }
 
-    private void notifySubscription(Subscription subscription, Entity entity) {
+    private void notifySubscription(Subscription subscription, Entity entity, Map<Object, byte[]> payloads) {
         try {
-            String payload = subscription.formatMessage(entity);
-            server.publish(subscription.getTopic(), payload.getBytes(StringHelper.UTF8), settings.getMqttSettings().getQosLevel());
+            Object formatKey = subscription.getFormatKey();
+            byte[] payload = payloads.get(formatKey);
+            if (payload == null) {
+                payload = subscription.formatMessage(entity).getBytes(StringHelper.UTF8);
+                payloads.put(formatKey, payload);
+            }
+            server.publish(subscription.getTopic(), payload, settings.getMqttSettings().getQosLevel());
         } catch (IOException ex) {
             LOGGER.error("publishing to MQTT on topic '{}' failed", subscription.getTopic(), ex);
         }
     }
 
+    /**
+     * Create the Observations of the given events in one transaction. Other
+     * events, and the events of a failed transaction, are handled one by one.
+     */
+    private void handleEntityCreateEvents(List<EntityCreateEvent> events) {
+        List<EntityCreateEvent> single = new ArrayList<>();
+        List<EntityCreateEvent> batch = new ArrayList<>();
+        for (EntityCreateEvent event : events) {
+            if (ObservationBatchInserter.isBatchable(event)) {
+                batch.add(event);
+            } else {
+                single.add(event);
+            }
+        }
+        if (batch.size() > 1) {
+            single.addAll(observationBatchInserter.insert(batch));
+        } else {
+            single.addAll(batch);
+        }
+        for (EntityCreateEvent event : single) {
+            handleEntityCreateEvent(event);
+        }
+    }
+
     private void handleEntityCreateEvent(EntityCreateEvent e) {
         String topic = e.getTopic();
         if (!topic.endsWith(EntityType.OBSERVATION.plural) && !topic.endsWith(EntityType.TASK.plural)) {
@@ -230,17 +273,11 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
             return;
         }
 
-        Map<Subscription, AtomicInteger> subscriptionsMap = subscriptions.get(subscription.getEntityType());
-        synchronized (subscriptionsMap) {
-            AtomicInteger clientCount = subscriptionsMap.get(subscription);
-            if (clientCount == null) {
-                clientCount = new AtomicInteger(1);
-                subscriptionsMap.put(subscription, clientCount);
-                LOGGER.debug("Created new subscription for topic {}.", subscription.getTopic());
-            } else {
-                int newCount = clientCount.incrementAndGet();
-                LOGGER.debug("Now {} subscriptions for topic {}.", newCount, subscription.getTopic());
-            }
+        int newCount = subscriptions.get(subscription.getEntityType()).addSubscription(subscription);
+        if (newCount == 1) {
+            LOGGER.debug("Created new subscription for topic {}.", subscription.getTopic());
+        } else {
+            LOGGER.debug("Now {} subscriptions for topic {}.", newCount, subscription.getTopic());
         }
     }
 
@@ -251,16 +288,11 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
             // Not a valid topic.
             return;
         }
-        final Map<Subscription, AtomicInteger> subscriptionsMap = subscriptions.get(subscription.getEntityType());
-        synchronized (subscriptionsMap) {
-            AtomicInteger clientCount = subscriptionsMap.get(subscription);
-            if (clientCount != null) {
-                int newCount = clientCount.decrementAndGet();
-                LOGGER.debug("Now {} subscriptions for topic {}.", newCount, subscription.getTopic());
-                if (newCount <= 0) {
-                    subscriptionsMap.remove(subscription);
-                    LOGGER.debug("Removed last subscription for topic {}.", subscription.getTopic());
-                }
+        int newCount = subscriptions.get(subscription.getEntityType()).removeSubscription(subscription);
+        if (newCount >= 0) {
+            LOGGER.debug("Now {} subscriptions for topic {}.", newCount, subscription.getTopic());
+            if (newCount == 0) {
+                LOGGER.debug("Removed last subscription for topic {}.", subscription.getTopic());
             }
         }
     }
@@ -270,6 +302,15 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         entityChanged(message);
     }
 
+    @Override
+    public boolean isEntityContentNeeded(EntityType entityType) {
+        if (shutdown || !enabledMqtt) {
+            return false;
+        }
+        SubscriptionIndex index = subscriptions.get(entityType);
+        return index != null && !index.isEmpty();
+    }
+
     @Override
     public void onEntityCreate(EntityCreateEvent e) {
         if (shutdown || !enabledMqtt) {
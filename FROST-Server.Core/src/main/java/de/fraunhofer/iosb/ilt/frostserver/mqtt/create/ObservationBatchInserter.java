@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.mqtt.create;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.EntityParser;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.MqttManager;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.UnknownVersionException;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Version;
+import de.fraunhofer.iosb.ilt.frostserver.util.CustomLinksHelper;
+import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the Observations of a batch of EntityCreateEvents in a single
+ * transaction, using {@link PersistenceManager#insertObservations(List)}.
+ *
+ * Events that can not be parsed or validated fail on their own. If the
+ * transaction as a whole fails, the events that were part of it are returned,
+ * so they can be created one by one, and a single bad message does not prevent
+ * the others from being stored.
+ *
+ * @author scf
+ */
+public class ObservationBatchInserter {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationBatchInserter.class);
+
+    private final CoreSettings settings;
+
+    public ObservationBatchInserter(CoreSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Check if the given event is one that can be handled in a batch.
+     *
+     * @param event The event to check.
+     * @return true if the event creates an Observation.
+     */
+    public static boolean isBatchable(EntityCreateEvent event) {
+        return event.getTopic().endsWith(EntityType.OBSERVATION.plural);
+    }
+
+    /**
+     * Create the Observations of the given events in one transaction.
+     *
+     * @param events The events to create the Observations of.
+     * @return The events that need to be created one by one, because the
+     * transaction failed.
+     */
+    public List<EntityCreateEvent> insert(List<EntityCreateEvent> events) {
+        List<EntityCreateEvent> inserted = new ArrayList<>();
+        List<Observation> observations = new ArrayList<>();
+        PersistenceManager pm = PersistenceManagerFactory.getInstance().create();
+        try {
+            EntityParser entityParser = new EntityParser(pm.getIdManager().getIdClass());
+            Map<String, PathElementEntitySet> validPaths = new HashMap<>();
+            for (EntityCreateEvent event : events) {
+                Observation observation = parse(pm, entityParser, validPaths, event);
+                if (observation != null) {
+                    inserted.add(event);
+                    observations.add(observation);
+                }
+            }
+            List<String> errors = pm.insertObservations(observations);
+            pm.commitAndClose();
+            for (int i = 0; i < errors.size(); i++) {
+                String error = errors.get(i);
+                if (error != null) {
+                    EntityCreateEvent event = inserted.get(i);
+                    LOGGER.error("Creating entity via MQTT failed (topic: {}, payload: {}, message: {})", event.getTopic(), event.getPayload(), error);
+                }
+            }
+            LOGGER.debug("Created {} of {} Observations via MQTT", observations.size() - countErrors(errors), events.size());
+            return new ArrayList<>();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Creating {} Observations via MQTT failed, retrying one by one: {}", observations.size(), ex.getMessage());
+            LOGGER.debug("Exception:", ex);
+            pm.rollbackAndClose();
+            return inserted;
+        }
+    }
+
+    /**
+     * Parse and validate the Observation of the given event.
+     *
+     * @return The parsed Observation, or null if the event is not valid.
+     */
+    private Observation parse(PersistenceManager pm, EntityParser entityParser, Map<String, PathElementEntitySet> validPaths, EntityCreateEvent event) {
+        String topic = event.getTopic();
+        try {
+            Version version = MqttManager.getVersionFromTopic(topic);
+            String url = topic.replaceFirst(version.urlPart, "");
+            String validKey = version.urlPart + url;
+            PathElementEntitySet mainSet = validPaths.get(validKey);
+            if (mainSet == null) {
+                ResourcePath path = PathParser.parsePath(pm.getIdManager(), settings.getServiceRootUrl(version), url);
+                if (!(path.getMainElement() instanceof PathElementEntitySet) || !pm.validatePath(path)) {
+                    LOGGER.error("Creating entity via MQTT failed (topic: {}): Nothing found.", topic);
+                    return null;
+                }
+                mainSet = (PathElementEntitySet) path.getMainElement();
+                validPaths.put(validKey, mainSet);
+            }
+            Observation observation = entityParser.parseObservation(event.getPayload());
+            observation.complete(mainSet);
+            CustomLinksHelper.cleanPropertiesMap(settings, observation);
+            return observation;
+        } catch (UnknownVersionException ex) {
+            LOGGER.info("received message on topic '{}' which contains no version info.", topic);
+        } catch (JsonParseException | JsonMappingException | IncompleteEntityException | IllegalArgumentException | IllegalStateException ex) {
+            LOGGER.error("Creating entity via MQTT failed (topic: {}, payload: {}, message: {})", topic, event.getPayload(), ex.getMessage());
+        } catch (IOException ex) {
+            LOGGER.error("Creating entity via MQTT failed (topic: {}, payload: {})", topic, event.getPayload(), ex);
+        }
+        return null;
+    }
+
+    private static int countErrors(List<String> errors) {
+        int count = 0;
+        for (String error : errors) {
+            if (error != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -37,6 +37,7 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.PathHelper;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +58,8 @@ public abstract class AbstractSubscription implements Subscription {
     protected EntityType entityType;
     protected Expression matchExpression = null;
     private Predicate<? super Entity> matcher;
+    protected List<NavigationPropertyMain> matchPath = Collections.emptyList();
+    protected Id matchId = null;
     protected ResourcePath path;
     protected CoreSettings settings;
 
@@ -82,10 +85,7 @@ public abstract class AbstractSubscription implements Subscription {
 
     @Override
     public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields) {
-        if (!newEntity.getEntityType().equals(entityType)) {
-            return false;
-        }
-        if (matcher != null && !matcher.test(newEntity)) {
+        if (!matchesEntity(newEntity, fields)) {
             return false;
         }
         if (matchExpression != null) {
@@ -97,6 +97,14 @@ public abstract class AbstractSubscription implements Subscription {
         return true;
     }
 
+    @Override
+    public boolean matchesEntity(Entity newEntity, Set<Property> fields) {
+        if (!newEntity.getEntityType().equals(entityType)) {
+            return false;
+        }
+        return matcher == null || matcher.test(newEntity);
+    }
+
     protected void generateFilter(int pathElementOffset) {
         EntityType lastType = getEntityType();
         List<Property> properties = new ArrayList<>();
@@ -128,6 +136,8 @@ public abstract class AbstractSubscription implements Subscription {
     }
 
     private void createMatcher(final NavigationPropertyMain navProp, Id id) {
+        matchPath = Collections.singletonList(navProp);
+        matchId = id;
         // We have a collectionSubscription of type one-to-many.
         // Create a (cheap) matcher instead of an (expensive) Expression
         matcher = (Entity t) -> {
@@ -141,6 +151,12 @@ public abstract class AbstractSubscription implements Subscription {
     }
 
     private void createMatchExpression(List<Property> properties, final PathElementEntity epe) {
+        List<NavigationPropertyMain> navPath = new ArrayList<>();
+        for (Property property : properties) {
+            navPath.add((NavigationPropertyMain) property);
+        }
+        matchPath = Collections.unmodifiableList(navPath);
+        matchId = epe.getId();
         properties.add(EntityProperty.ID);
         String epeId = epe.getId().getUrl();
         if (epeId.startsWith("'")) {
@@ -155,6 +171,16 @@ public abstract class AbstractSubscription implements Subscription {
         return entityType;
     }
 
+    @Override
+    public List<NavigationPropertyMain> getMatchPath() {
+        return matchPath;
+    }
+
+    @Override
+    public Id getMatchId() {
+        return matchId;
+    }
+
     @Override
     public String getTopic() {
         return topic;
@@ -167,6 +193,11 @@ public abstract class AbstractSubscription implements Subscription {
 
     public abstract String doFormatMessage(Entity entity) throws IOException;
 
+    @Override
+    public Object getFormatKey() {
+        return topic;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(topic, entityType);
@@ -29,6 +29,7 @@ import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestExcepti
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.Arrays;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -87,6 +88,11 @@ public class EntitySetSubscription extends AbstractSubscription {
         }
     }
 
+    @Override
+    public Object getFormatKey() {
+        return Arrays.asList(DEFAULT_FORMAT_NAME, path.getServiceRootUrl(), query);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), query);
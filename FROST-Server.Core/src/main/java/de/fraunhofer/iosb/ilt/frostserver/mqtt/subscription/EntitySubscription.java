@@ -23,13 +23,13 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
-import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -58,11 +58,16 @@ public class EntitySubscription extends AbstractSubscription {
         }
         entityType = ((PathElementEntity) path.getLastElement()).getEntityType();
         final int size = path.size();
+        Id id = null;
         if (size == 2 && path.get(0) instanceof PathElementEntitySet) {
-            Id id = ((PathElementEntity) path.getLastElement()).getId();
-            matcher = x -> x.getProperty(EntityProperty.ID).equals(id);
+            id = ((PathElementEntity) path.getLastElement()).getId();
+            final Id entityId = id;
+            matcher = x -> x.getProperty(EntityProperty.ID).equals(entityId);
         }
         generateFilter(1);
+        if (matchPath.isEmpty()) {
+            matchId = id;
+        }
     }
 
     private static synchronized void initClass(CoreSettings settings) {
@@ -72,11 +77,11 @@ public class EntitySubscription extends AbstractSubscription {
     }
 
     @Override
-    public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields) {
+    public boolean matchesEntity(Entity newEntity, Set<Property> fields) {
         if (matcher != null && !matcher.test(newEntity)) {
             return false;
         }
-        return super.matches(persistenceManager, newEntity, fields);
+        return super.matchesEntity(newEntity, fields);
     }
 
     @Override
@@ -88,6 +93,11 @@ public class EntitySubscription extends AbstractSubscription {
         }
     }
 
+    @Override
+    public Object getFormatKey() {
+        return Arrays.asList(DEFAULT_FORMAT_NAME, path.getServiceRootUrl(), emptyQuery);
+    }
+
     @Override
     public boolean equals(Object obj) {
         return super.equals(obj);
@@ -23,7 +23,6 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementProperty;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
-import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
@@ -54,15 +53,20 @@ public class PropertySubscription extends AbstractSubscription {
         final int size = path.size();
         entityType = ((PathElementEntity) path.get(size - 2)).getEntityType();
         property = ((PathElementProperty) path.get(size - 1)).getProperty();
+        Id id = null;
         if (path.getIdentifiedElement() != null) {
-            Id id = path.getIdentifiedElement().getId();
-            matcher = x -> x.getProperty(EntityProperty.ID).equals(id);
+            id = path.getIdentifiedElement().getId();
+            final Id entityId = id;
+            matcher = x -> x.getProperty(EntityProperty.ID).equals(entityId);
         }
         generateFilter(2);
+        if (matchPath.isEmpty()) {
+            matchId = id;
+        }
     }
 
     @Override
-    public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields) {
+    public boolean matchesEntity(Entity newEntity, Set<Property> fields) {
         if (matcher != null && !matcher.test(newEntity)) {
             return false;
         }
@@ -70,7 +74,7 @@ public class PropertySubscription extends AbstractSubscription {
             return false;
         }
 
-        return super.matches(persistenceManager, newEntity, fields);
+        return super.matchesEntity(newEntity, fields);
     }
 
     @Override
@@ -81,6 +85,11 @@ public class PropertySubscription extends AbstractSubscription {
         return EntityFormatter.writeEntity(entity);
     }
 
+    @Override
+    public Object getFormatKey() {
+        return property;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), property);
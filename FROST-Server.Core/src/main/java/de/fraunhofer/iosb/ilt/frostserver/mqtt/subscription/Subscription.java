@@ -19,9 +19,12 @@ package de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription;
 
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -39,6 +42,16 @@ public interface Subscription {
      */
     String formatMessage(Entity entity) throws IOException;
 
+    /**
+     * Get the key that identifies the message format of this Subscription.
+     * Subscriptions with equal format keys produce the same message for the
+     * same entity, so the message needs to be formatted only once for all of
+     * them.
+     *
+     * @return The key of the message format of this Subscription.
+     */
+    Object getFormatKey();
+
     /**
      * Get the type of entity that is of interest for this Subscription.
      *
@@ -63,4 +76,33 @@ public interface Subscription {
      */
     boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields);
 
+    /**
+     * Check the parts of {@link #matches(PersistenceManager, Entity, Set)}
+     * that can be checked without querying the database. The match path and
+     * match id are not checked.
+     *
+     * @param newEntity The entity to check.
+     * @param fields The fields of the entity that changed.
+     * @return true if the change may be of interest for the Subscription.
+     */
+    boolean matchesEntity(Entity newEntity, Set<Property> fields);
+
+    /**
+     * Get the navigation path from a changed entity to the entity this
+     * Subscription is bound to. For Observations(1)/Datastream/Thing/Locations
+     * this is Things/Datastreams/Observations. Empty if the Subscription is not
+     * bound to another entity.
+     *
+     * @return The navigation path from a changed entity to the bound entity.
+     */
+    List<NavigationPropertyMain> getMatchPath();
+
+    /**
+     * Get the id of the entity at the end of the match path, that a changed
+     * entity must be linked to.
+     *
+     * @return The id of the bound entity, or null if any entity matches.
+     */
+    Id getMatchId();
+
 }
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Subscriptions for one EntityType, indexed by the navigation path from a
+ * changed entity to the entity they are bound to, and the id of that entity.
+ *
+ * To find the Subscriptions that match a changed entity, the ids at the end of
+ * all registered navigation paths are resolved once, using at most one query,
+ * after which the Subscriptions are found by hash lookup. The cost per change
+ * depends on the number of distinct navigation paths and the number of
+ * matches, not on the number of Subscriptions.
+ *
+ * @author scf
+ */
+public class SubscriptionIndex {
+
+    private final CoreSettings settings;
+    private final Map<Subscription, AtomicInteger> clientCounts = new ConcurrentHashMap<>();
+    private final Map<List<NavigationPropertyMain>, PathRoutes> routes = new ConcurrentHashMap<>();
+
+    public SubscriptionIndex(CoreSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Add a client for the given Subscription.
+     *
+     * @param subscription The Subscription to add a client for.
+     * @return The number of clients of the Subscription, after adding.
+     */
+    public synchronized int addSubscription(Subscription subscription) {
+        AtomicInteger clientCount = clientCounts.get(subscription);
+        if (clientCount != null) {
+            return clientCount.incrementAndGet();
+        }
+        clientCounts.put(subscription, new AtomicInteger(1));
+        routes.computeIfAbsent(subscription.getMatchPath(), k -> new PathRoutes())
+                .add(subscription);
+        return 1;
+    }
+
+    /**
+     * Remove a client for the given Subscription. The Subscription is removed
+     * when its last client is removed.
+     *
+     * @param subscription The Subscription to remove a client for.
+     * @return The number of clients of the Subscription after removing, or -1
+     * if the Subscription was not known.
+     */
+    public synchronized int removeSubscription(Subscription subscription) {
+        AtomicInteger clientCount = clientCounts.get(subscription);
+        if (clientCount == null) {
+            return -1;
+        }
+        int newCount = clientCount.decrementAndGet();
+        if (newCount <= 0) {
+            clientCounts.remove(subscription);
+            List<NavigationPropertyMain> matchPath = subscription.getMatchPath();
+            PathRoutes pathRoutes = routes.get(matchPath);
+            if (pathRoutes != null && pathRoutes.remove(subscription)) {
+                routes.remove(matchPath);
+            }
+        }
+        return newCount;
+    }
+
+    public boolean isEmpty() {
+        return clientCounts.isEmpty();
+    }
+
+    public int size() {
+        return clientCounts.size();
+    }
+
+    /**
+     * Find the Subscriptions that the given changed entity is of interest for.
+     *
+     * @param persistenceManager The PersistenceManager to use for queries.
+     * @param entity The changed entity.
+     * @param fields The fields of the entity that changed.
+     * @return The matching Subscriptions.
+     */
+    public List<Subscription> findMatches(PersistenceManager persistenceManager, Entity<?> entity, Set<Property> fields) {
+        List<Subscription> result = new ArrayList<>();
+        List<List<NavigationPropertyMain>> loadPaths = new ArrayList<>();
+        for (Map.Entry<List<NavigationPropertyMain>, PathRoutes> entry : routes.entrySet()) {
+            List<NavigationPropertyMain> matchPath = entry.getKey();
+            PathRoutes pathRoutes = entry.getValue();
+            if (matchPath.isEmpty()) {
+                pathRoutes.addMatches(Collections.singleton(entity.getId()), entity, fields, result);
+            } else if (matchPath.size() == 1 && !matchPath.get(0).isEntitySet()) {
+                // The entity holds the id of its direct parent.
+                Object parent = entity.getProperty(matchPath.get(0));
+                if (parent instanceof Entity && ((Entity) parent).getId() != null) {
+                    pathRoutes.addMatches(Collections.singleton(((Entity) parent).getId()), entity, fields, result);
+                }
+            } else {
+                loadPaths.add(matchPath);
+            }
+        }
+        if (loadPaths.isEmpty()) {
+            return result;
+        }
+
+        Query query = new Query(settings);
+        for (List<NavigationPropertyMain> matchPath : loadPaths) {
+            addExpand(query, matchPath, 0);
+        }
+        query.setSelect(Collections.singletonList(EntityProperty.ID));
+        Object loaded = persistenceManager.get(entity.getPath(), query);
+        for (List<NavigationPropertyMain> matchPath : loadPaths) {
+            PathRoutes pathRoutes = routes.get(matchPath);
+            if (pathRoutes == null) {
+                continue;
+            }
+            Set<Id> ids = new HashSet<>();
+            if (collectIds(loaded, matchPath, 0, ids)) {
+                pathRoutes.addMatches(ids, entity, fields, result);
+            } else {
+                // Too many linked entities to load, check each Subscription.
+                for (Subscription subscription : pathRoutes.getAll()) {
+                    if (subscription.matches(persistenceManager, entity, fields)) {
+                        result.add(subscription);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addExpand(Query query, List<NavigationPropertyMain> matchPath, int index) {
+        if (index >= matchPath.size()) {
+            return;
+        }
+        NavigationPropertyMain navProp = matchPath.get(index);
+        Query subQuery = null;
+        for (Expand expand : query.getExpand()) {
+            if (expand.getPath() == navProp) {
+                subQuery = expand.getSubQuery();
+            }
+        }
+        if (subQuery == null) {
+            subQuery = new Query(settings);
+            subQuery.setSelect(Collections.singletonList(EntityProperty.ID));
+            if (navProp.isEntitySet()) {
+                subQuery.setTop(settings.getTopMax());
+            }
+            query.addExpand(new Expand(subQuery, navProp));
+        }
+        addExpand(subQuery, matchPath, index + 1);
+    }
+
+    /**
+     * Collect the ids of the entities at the end of the given path.
+     *
+     * @return false if not all linked entities were loaded.
+     */
+    private static boolean collectIds(Object current, List<NavigationPropertyMain> matchPath, int index, Set<Id> ids) {
+        if (current instanceof EntitySet) {
+            EntitySet<?> set = (EntitySet<?>) current;
+            if (set.getNextLink() != null) {
+                return false;
+            }
+            for (Entity<?> item : set) {
+                if (!collectIds(item, matchPath, index, ids)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (current instanceof Entity) {
+            Entity<?> item = (Entity<?>) current;
+            if (index == matchPath.size()) {
+                if (item.getId() != null) {
+                    ids.add(item.getId());
+                }
+                return true;
+            }
+            return collectIds(item.getProperty(matchPath.get(index)), matchPath, index + 1, ids);
+        }
+        return true;
+    }
+
+    /**
+     * The Subscriptions with the same navigation path, by the id they are
+     * bound to.
+     */
+    private static class PathRoutes {
+
+        private final Set<Subscription> anyId = ConcurrentHashMap.newKeySet();
+        private final Map<Id, Set<Subscription>> byId = new ConcurrentHashMap<>();
+
+        public void add(Subscription subscription) {
+            Id id = subscription.getMatchId();
+            if (id == null) {
+                anyId.add(subscription);
+            } else {
+                byId.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+            }
+        }
+
+        /**
+         * @return true if there are no more Subscriptions left.
+         */
+        public boolean remove(Subscription subscription) {
+            Id id = subscription.getMatchId();
+            if (id == null) {
+                anyId.remove(subscription);
+            } else {
+                Set<Subscription> subscriptions = byId.get(id);
+                if (subscriptions != null) {
+                    subscriptions.remove(subscription);
+                    if (subscriptions.isEmpty()) {
+                        byId.remove(id);
+                    }
+                }
+            }
+            return anyId.isEmpty() && byId.isEmpty();
+        }
+
+        public List<Subscription> getAll() {
+            List<Subscription> all = new ArrayList<>(anyId);
+            for (Set<Subscription> subscriptions : byId.values()) {
+                all.addAll(subscriptions);
+            }
+            return all;
+        }
+
+        public void addMatches(Set<Id> ids, Entity<?> entity, Set<Property> fields, List<Subscription> target) {
+            for (Subscription subscription : anyId) {
+                if (subscription.matchesEntity(entity, fields)) {
+                    target.add(subscription);
+                }
+            }
+            for (Id id : ids) {
+                Set<Subscription> subscriptions = byId.get(id);
+                if (subscriptions == null) {
+                    continue;
+                }
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.matchesEntity(entity, fields)) {
+                        target.add(subscription);
+                    }
+                }
+            }
+        }
+    }
+}
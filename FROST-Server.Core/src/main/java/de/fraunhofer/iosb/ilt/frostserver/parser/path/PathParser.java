@@ -27,6 +27,7 @@ import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManager;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import de.fraunhofer.iosb.ilt.frostserver.util.LruCache;
 import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -40,6 +41,13 @@ public class PathParser implements ParserVisitor {
      * The logger for this class.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(PathParser.class);
+    /**
+     * The syntax trees of recently parsed paths. The syntax trees are not
+     * changed by visiting them, so they can be shared between requests. The
+     * key is the url-decoded path as given. The path grammar does not skip
+     * whitespace, so there is nothing to normalise.
+     */
+    private static final LruCache<String, ASTStart> CACHE = new LruCache<String, ASTStart>(1000).registerMetrics("PathParser");
 
     private final IdManager idmanager;
 
@@ -83,10 +91,17 @@ public class PathParser implements ParserVisitor {
             return resourcePath;
         }
         LOGGER.debug("Parsing: {}", path);
-        InputStream is = new ByteArrayInputStream(path.getBytes(encoding));
-        Parser t = new Parser(is, StringHelper.UTF8.name());
+        boolean cacheable = StringHelper.UTF8.equals(encoding);
+        ASTStart start = cacheable ? CACHE.get(path) : null;
         try {
-            ASTStart start = t.Start();
+            if (start == null) {
+                InputStream is = new ByteArrayInputStream(path.getBytes(encoding));
+                Parser t = new Parser(is, StringHelper.UTF8.name());
+                start = t.Start();
+                if (cacheable) {
+                    CACHE.put(path, start);
+                }
+            }
             PathParser v = new PathParser(idmanager);
             start.jjtAccept(v, resourcePath);
         } catch (ParseException | TokenMgrError ex) {
@@ -97,6 +112,17 @@ public class PathParser implements ParserVisitor {
         return resourcePath;
     }
 
+    /**
+     * The cache of parsed paths, for setting the size and reading the hit and
+     * miss counts. These are also exposed over JMX, as
+     * "de.fraunhofer.iosb.ilt.frostserver:type=Cache,name=PathParser".
+     *
+     * @return The cache of parsed paths.
+     */
+    public static LruCache<String, ASTStart> getCache() {
+        return CACHE;
+    }
+
     public PathParser(IdManager idmanager) {
         this.idmanager = idmanager;
     }
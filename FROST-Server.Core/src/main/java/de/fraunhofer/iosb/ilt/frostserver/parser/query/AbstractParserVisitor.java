@@ -48,6 +48,11 @@ public abstract class AbstractParserVisitor implements ParserVisitor {
         return null;
     }
 
+    @Override
+    public Object visit(ASTSkipToken node, Object data) {
+        return null;
+    }
+
     @Override
     public Object visit(ASTOrderBys node, Object data) {
         return null;
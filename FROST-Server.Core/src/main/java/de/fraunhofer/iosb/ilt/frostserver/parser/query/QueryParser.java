@@ -26,6 +26,7 @@ import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
 import de.fraunhofer.iosb.ilt.frostserver.query.OrderBy;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.util.LruCache;
 import de.fraunhofer.iosb.ilt.frostserver.util.ParserHelper;
 import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import java.io.ByteArrayInputStream;
@@ -42,9 +43,15 @@ public class QueryParser extends AbstractParserVisitor {
      * The logger for this class.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryParser.class);
+    /**
+     * The syntax trees of recently parsed queries. The syntax trees are not
+     * changed by visiting them, so they can be shared between requests.
+     */
+    private static final LruCache<String, ASTStart> CACHE = new LruCache<String, ASTStart>(1000).registerMetrics("QueryParser");
 
     private static final String OP_TOP = "top";
     private static final String OP_SKIP = "skip";
+    private static final String OP_SKIP_TOKEN = "skiptoken";
     private static final String OP_COUNT = "count";
     private static final String OP_SELECT = "select";
     private static final String OP_EXPAND = "expand";
@@ -69,10 +76,18 @@ public class QueryParser extends AbstractParserVisitor {
             return new Query(settings);
         }
 
-        InputStream is = new ByteArrayInputStream(query.getBytes(encoding));
-        Parser t = new Parser(is, StringHelper.UTF8.name());
+        boolean cacheable = StringHelper.UTF8.equals(encoding);
+        String toParse = cacheable ? normalizeWhitespace(query) : query;
+        ASTStart n = cacheable ? CACHE.get(toParse) : null;
         try {
-            ASTStart n = t.Start();
+            if (n == null) {
+                InputStream is = new ByteArrayInputStream(toParse.getBytes(encoding));
+                Parser t = new Parser(is, StringHelper.UTF8.name());
+                n = t.Start();
+                if (cacheable) {
+                    CACHE.put(toParse, n);
+                }
+            }
             QueryParser v = new QueryParser(settings);
             return v.visit(n, null);
         } catch (ParseException | TokenMgrError | IllegalArgumentException ex) {
@@ -81,6 +96,50 @@ public class QueryParser extends AbstractParserVisitor {
         }
     }
 
+    /**
+     * Normalises the whitespace in the given, already url-decoded, query
+     * string, so that queries that only differ in whitespace share one cache
+     * entry. The grammar skips whitespace between tokens, so each run of
+     * whitespace outside of quoted literals is replaced by a single space,
+     * and leading and trailing whitespace is removed. The order of the query
+     * options is kept, since for repeated options the last one wins.
+     *
+     * @param query The url-decoded query string.
+     * @return The normalised query string.
+     */
+    static String normalizeWhitespace(String query) {
+        StringBuilder result = new StringBuilder(query.length());
+        boolean inLiteral = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (!inLiteral && (c == ' ' || c == '\t' || c == '\n' || c == '\r')) {
+                pendingSpace = result.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * The cache of parsed queries, for setting the size and reading the hit
+     * and miss counts. These are also exposed over JMX, as
+     * "de.fraunhofer.iosb.ilt.frostserver:type=Cache,name=QueryParser".
+     *
+     * @return The cache of parsed queries.
+     */
+    public static LruCache<String, ASTStart> getCache() {
+        return CACHE;
+    }
+
     @Override
     public Query visit(ASTStart node, Object data) {
         if (node.jjtGetNumChildren() != 1) {
@@ -113,6 +172,10 @@ public class QueryParser extends AbstractParserVisitor {
                 handleSkip(node, query);
                 break;
 
+            case OP_SKIP_TOKEN:
+                handleSkipToken(node, query);
+                break;
+
             case OP_COUNT:
                 handleCount(node, query);
                 break;
@@ -174,6 +237,11 @@ public class QueryParser extends AbstractParserVisitor {
         query.setSkip(Math.toIntExact((long) child.jjtGetValue()));
     }
 
+    private void handleSkipToken(ASTOption node, Query query) {
+        ASTSkipToken child = getChildOfType(node, 0, ASTSkipToken.class);
+        query.setSkipToken(child.getValue());
+    }
+
     private void handleTop(ASTOption node, Query query) {
         ASTValueNode child = getChildOfType(node, 0, ASTValueNode.class);
         int top = Math.toIntExact((long) child.jjtGetValue());
@@ -29,6 +29,7 @@ import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.service.ResponseCache;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.util.ArrayList;
@@ -56,8 +57,11 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
     }
 
     private Entity fetchEntity(EntityType entityType, Id id) {
-        Entity entity = get(entityType, id);
-        for (NavigationPropertyMain property : entityType.getNavigationEntities()) {
+        return exportNavigationEntities(get(entityType, id));
+    }
+
+    private static Entity exportNavigationEntities(Entity entity) {
+        for (NavigationPropertyMain property : entity.getEntityType().getNavigationEntities()) {
             Object parentObject = entity.getProperty(property);
             if (parentObject instanceof Entity) {
                 Entity parentEntity = (Entity) parentObject;
@@ -69,22 +73,48 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
 
     @Override
     public boolean insert(Entity entity) throws NoSuchEntityException, IncompleteEntityException {
-        boolean result = doInsert(entity);
-        if (result) {
-            Entity newEntity = fetchEntity(
-                    entity.getEntityType(),
-                    entity.getId());
-            changedEntities.add(
-                    new EntityChangedMessage()
-                            .setEventType(EntityChangedMessage.Type.CREATE)
-                            .setEntity(newEntity)
-            );
+        Entity newEntity;
+        if (MessageBusFactory.getMessageBus().isEntityContentNeeded(entity.getEntityType())) {
+            newEntity = doInsertAndFetch(entity);
+        } else if (doInsert(entity)) {
+            // Nobody uses more than the type and id of the entity.
+            newEntity = entity;
+        } else {
+            newEntity = null;
         }
-        return result;
+        if (newEntity == null) {
+            return false;
+        }
+        changedEntities.add(
+                new EntityChangedMessage()
+                        .setEventType(EntityChangedMessage.Type.CREATE)
+                        .setEntity(exportNavigationEntities(newEntity))
+        );
+        return true;
     }
 
     public abstract boolean doInsert(Entity entity) throws NoSuchEntityException, IncompleteEntityException;
 
+    /**
+     * Insert the given entity and return the entity as it is stored in the
+     * database, for the message about its creation. The default implementation
+     * loads the entity after inserting it. Implementations that can get the
+     * stored entity from the insert itself should override this method.
+     *
+     * @param entity The entity to insert.
+     * @return The entity as it is stored, or null if the entity was not
+     * inserted.
+     * @throws NoSuchEntityException If the entity depends on another entity
+     * that does not exist.
+     * @throws IncompleteEntityException If the entity is not complete.
+     */
+    protected Entity doInsertAndFetch(Entity entity) throws NoSuchEntityException, IncompleteEntityException {
+        if (!doInsert(entity)) {
+            return null;
+        }
+        return fetchEntity(entity.getEntityType(), entity.getId());
+    }
+
     @Override
     public boolean delete(PathElementEntity pathElement) throws NoSuchEntityException {
         Entity entity = getEntityByEntityPath(pathElement);
@@ -169,9 +199,11 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
     public abstract EntityChangedMessage doUpdate(PathElementEntity pathElement, JsonPatch patch) throws NoSuchEntityException, IncompleteEntityException;
 
     /**
-     * If there are changes to send, connect to bus and send them.
+     * If there are changes to send, invalidate the local response cache, then
+     * connect to bus and send them.
      */
     private void fireEntityChangeEvents() {
+        ResponseCache.changesCommitted(changedEntities);
         MessageBus messageBus = MessageBusFactory.getMessageBus();
         changedEntities.forEach(messageBus::sendMessage);
         clearEntityChangedEvents();
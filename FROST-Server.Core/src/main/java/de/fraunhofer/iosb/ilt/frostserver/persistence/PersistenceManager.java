@@ -19,6 +19,7 @@ package de.fraunhofer.iosb.ilt.frostserver.persistence;
 
 import com.github.fge.jsonpatch.JsonPatch;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
@@ -29,6 +30,7 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.LiquibaseUser;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -58,10 +60,48 @@ public interface PersistenceManager extends LiquibaseUser, AutoCloseable {
      */
     public boolean insert(Entity entity) throws NoSuchEntityException, IncompleteEntityException;
 
+    /**
+     * Insert the given Observations. Observations that can not be inserted do
+     * not stop the other Observations from being inserted. Implementations can
+     * check the linked (Multi)Datastreams and FeaturesOfInterest only once for
+     * all Observations, and insert the Observations in batches. The default
+     * implementation inserts the Observations one by one.
+     *
+     * @param observations The Observations to insert. The ids of the inserted
+     * Observations are set.
+     * @return For each Observation, null if it was inserted, or the reason it
+     * was not inserted.
+     */
+    public default List<String> insertObservations(List<Observation> observations) {
+        List<String> errors = new ArrayList<>(observations.size());
+        for (Observation observation : observations) {
+            try {
+                insert(observation);
+                errors.add(null);
+            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+                errors.add(exc.getMessage());
+            }
+        }
+        return errors;
+    }
+
     public Entity get(EntityType entityType, Id id);
 
     public Object get(ResourcePath path, Query query);
 
+    /**
+     * Like {@link #get(ResourcePath, Query)}, but an EntitySet result may load
+     * its entities from the database while it is being iterated. The
+     * PersistenceManager must not be closed before the result is fully used.
+     *
+     * @param path The path to fetch.
+     * @param query The query to apply.
+     * @return The result of the path and query.
+     */
+    public default Object getStreaming(ResourcePath path, Query query) {
+        return get(path, query);
+    }
+
     public default <T> T get(ResourcePath path, Query query, Class<T> clazz) {
         Object result = get(path, query);
         if (!clazz.isAssignableFrom(result.getClass())) {
@@ -21,7 +21,10 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.LiquibaseUtils;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +56,7 @@ public class PersistenceManagerFactory {
     private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceManagerFactory.class);
     private static PersistenceManagerFactory instance;
     private static boolean maybeUpdateDatabase = true;
+    private static final List<Runnable> SHUTDOWN_HOOKS = new ArrayList<>();
 
     public static synchronized void init(CoreSettings coreSettings) {
         if (instance == null) {
@@ -67,6 +71,39 @@ public class PersistenceManagerFactory {
         }
     }
 
+    /**
+     * Register a hook that is run when the persistence layer shuts down, for
+     * instance to write out pending changes or to close connection pools.
+     *
+     * @param hook The hook to run on shutdown.
+     */
+    public static void addShutdownHook(Runnable hook) {
+        synchronized (SHUTDOWN_HOOKS) {
+            SHUTDOWN_HOOKS.add(hook);
+        }
+    }
+
+    /**
+     * Run the registered shutdown hooks, in reverse order of registration, so
+     * that hooks that write pending changes run before the connection pools
+     * they use are closed. Each hook is only run once.
+     */
+    public static void shutdown() {
+        List<Runnable> hooks;
+        synchronized (SHUTDOWN_HOOKS) {
+            hooks = new ArrayList<>(SHUTDOWN_HOOKS);
+            SHUTDOWN_HOOKS.clear();
+        }
+        Collections.reverse(hooks);
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException ex) {
+                LOGGER.error("Exception running persistence shutdown hook.", ex);
+            }
+        }
+    }
+
     public static PersistenceManagerFactory getInstance() {
         if (instance == null) {
             throw new IllegalStateException("PersistanceManagerFactory is not initialized! Call init() before accessing the instance.");
@@ -43,6 +43,7 @@ public class Query {
     private final CoreSettings settings;
     private Optional<Integer> top;
     private Optional<Integer> skip;
+    private String skipToken;
     private Optional<Boolean> count;
     private Set<Property> select;
     private Expression filter;
@@ -107,6 +108,15 @@ public class Query {
         return dflt;
     }
 
+    /**
+     * The continuation token of a keyset-paginated request, or null.
+     *
+     * @return The continuation token, or null.
+     */
+    public String getSkipToken() {
+        return skipToken;
+    }
+
     public Optional<Boolean> getCount() {
         return count;
     }
@@ -159,6 +169,14 @@ public class Query {
         this.skip = Optional.of(skip);
     }
 
+    public void clearSkip() {
+        this.skip = Optional.empty();
+    }
+
+    public void setSkipToken(String skipToken) {
+        this.skipToken = skipToken;
+    }
+
     public void setCount(boolean count) {
         this.count = Optional.of(count);
     }
@@ -186,7 +204,7 @@ public class Query {
 
     @Override
     public int hashCode() {
-        return Objects.hash(top, skip, count, select, filter, format, expand, orderBy);
+        return Objects.hash(top, skip, skipToken, count, select, filter, format, expand, orderBy);
     }
 
     @Override
@@ -204,6 +222,7 @@ public class Query {
         return Objects.equals(this.count, other.count)
                 && Objects.equals(this.top, other.top)
                 && Objects.equals(this.skip, other.skip)
+                && Objects.equals(this.skipToken, other.skipToken)
                 && Objects.equals(this.select, other.select)
                 && Objects.equals(this.filter, other.filter)
                 && Objects.equals(this.format, other.format)
@@ -225,6 +244,8 @@ public class Query {
 
         addSkipToUrl(sb, separator);
 
+        addSkipTokenToUrl(sb, separator);
+
         addSelectToUrl(sb, separator);
 
         addFilterToUrl(sb, separator, inExpand);
@@ -261,6 +282,12 @@ public class Query {
         }
     }
 
+    private void addSkipTokenToUrl(StringBuilder sb, char separator) {
+        if (skipToken != null) {
+            sb.append(separator).append("$skiptoken=").append(skipToken);
+        }
+    }
+
     private void addTopToUrl(StringBuilder sb, char separator) {
         if (top.isPresent()) {
             sb.append(separator).append("$top=").append(top.get());
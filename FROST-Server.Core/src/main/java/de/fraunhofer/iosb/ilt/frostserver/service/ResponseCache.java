@@ -0,0 +1,412 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.InternalMessageBus;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBus;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageListener;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationProperty;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
+import de.fraunhofer.iosb.ilt.frostserver.query.OrderBy;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.Expression;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.Path;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.Function;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache for formatted GET responses. Only responses that exclusively involve
+ * the configured entity types are cached. Entries are removed when a change to
+ * one of the involved entity types is committed, or when they expire. Local
+ * changes invalidate the cache synchronously on commit, so that a client that
+ * reads its own write never gets a stale response. Changes made by other
+ * instances arrive over the message bus.
+ *
+ * Entries for a single, identified entity, like /Things(5), are only removed
+ * by changes to that entity. All other entries are removed by any change to
+ * any of the entity types they involve.
+ *
+ * @author scf
+ */
+public class ResponseCache implements MessageListener {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static ResponseCache instance;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final int maxEntrySize;
+    private final Set<EntityType> entityTypes = EnumSet.noneOf(EntityType.class);
+    private final Map<String, CachedResponse> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * Incremented for each invalidation, so that responses that were loaded
+     * while a change happened are not stored.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Initialise the cache, if it is enabled, and register it on the message
+     * bus if that bus connects several instances. The message bus must be
+     * initialised.
+     *
+     * @param settings The settings to use.
+     */
+    public static synchronized void init(CoreSettings settings) {
+        if (instance != null) {
+            return;
+        }
+        Settings httpSettings = settings.getHttpSettings();
+        int size = httpSettings.getInt(CoreSettings.TAG_RESPONSE_CACHE_SIZE, CoreSettings.class);
+        if (size <= 0) {
+            return;
+        }
+        instance = new ResponseCache(settings);
+        MessageBus messageBus = MessageBusFactory.getMessageBus();
+        if (!(messageBus instanceof InternalMessageBus)) {
+            // The internal bus only carries local changes, which are already
+            // invalidated on commit.
+            messageBus.addMessageListener(instance);
+        }
+    }
+
+    /**
+     * @return The cache, or null if the cache is not enabled.
+     */
+    public static ResponseCache getInstance() {
+        return instance;
+    }
+
+    ResponseCache(CoreSettings settings) {
+        Settings httpSettings = settings.getHttpSettings();
+        maxSize = httpSettings.getInt(CoreSettings.TAG_RESPONSE_CACHE_SIZE, CoreSettings.class);
+        ttlMillis = 1000L * httpSettings.getInt(CoreSettings.TAG_RESPONSE_CACHE_TTL, CoreSettings.class);
+        maxEntrySize = httpSettings.getInt(CoreSettings.TAG_RESPONSE_CACHE_MAX_ENTRY_SIZE, CoreSettings.class);
+        for (String name : httpSettings.get(CoreSettings.TAG_RESPONSE_CACHE_ENTITY_TYPES, CoreSettings.class).split(",")) {
+            EntityType type = EntityType.getEntityTypeForName(name.trim());
+            if (type == null) {
+                LOGGER.error("Unknown entity type in {}: {}", CoreSettings.TAG_RESPONSE_CACHE_ENTITY_TYPES, name);
+            } else {
+                entityTypes.add(type);
+            }
+        }
+        entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxSize;
+            }
+        };
+        LOGGER.info("Caching up to {} responses for {}", maxSize, entityTypes);
+    }
+
+    /**
+     * Create the key to cache the response to the given request under.
+     *
+     * @param request The request to create the key for.
+     * @return The key for the request.
+     */
+    public static String createKey(ServiceRequest request) {
+        return request.getVersion() + " " + request.getUrlPath() + "?" + request.getUrlQuery();
+    }
+
+    /**
+     * Find the entity types that the response to the given path and query
+     * depends on.
+     *
+     * @param path The path of the request.
+     * @param query The query of the request.
+     * @return The dependencies of the response, or null if the response can
+     * not be cached.
+     */
+    public Dependencies findDependencies(ResourcePath path, Query query) {
+        Dependencies dependencies = new Dependencies();
+        PathElementEntity identified = null;
+        for (int i = 0; i < path.size(); i++) {
+            PathElement element = path.get(i);
+            if (element instanceof PathElementEntity) {
+                identified = (PathElementEntity) element;
+                dependencies.types.add(identified.getEntityType());
+            } else if (element instanceof PathElementEntitySet) {
+                dependencies.types.add(((PathElementEntitySet) element).getEntityType());
+            }
+        }
+        if (dependencies.types.size() == 1 && identified != null && identified.getId() != null) {
+            // A single, identified entity only depends on changes of that entity.
+            dependencies.types.clear();
+            dependencies.boundType = identified.getEntityType();
+            dependencies.boundId = identified.getId();
+        }
+        if (!addDependencies(query, dependencies.types)) {
+            return null;
+        }
+        if (!entityTypes.containsAll(dependencies.types)) {
+            return null;
+        }
+        if (dependencies.boundType != null && !entityTypes.contains(dependencies.boundType)) {
+            return null;
+        }
+        return dependencies;
+    }
+
+    /**
+     * @return false if the query can not be cached.
+     */
+    private static boolean addDependencies(Query query, Set<EntityType> types) {
+        if (query == null) {
+            return true;
+        }
+        if (!addDependencies(query.getFilter(), types)) {
+            return false;
+        }
+        for (OrderBy orderBy : query.getOrderBy()) {
+            if (!addDependencies(orderBy.getExpression(), types)) {
+                return false;
+            }
+        }
+        for (Expand expand : query.getExpand()) {
+            NavigationProperty navProp = expand.getPath();
+            if (!(navProp instanceof NavigationPropertyMain)) {
+                return false;
+            }
+            types.add(navProp.getType());
+            if (!addDependencies(expand.getSubQuery(), types)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the expression can not be cached.
+     */
+    private static boolean addDependencies(Expression expression, Set<EntityType> types) {
+        if (expression instanceof Path) {
+            for (Property element : ((Path) expression).getElements()) {
+                if (element instanceof NavigationPropertyMain) {
+                    types.add(((NavigationPropertyMain) element).getType());
+                } else if (element instanceof NavigationProperty) {
+                    return false;
+                }
+            }
+        } else if (expression instanceof Function) {
+            for (Expression parameter : ((Function) expression).getParameters()) {
+                if (!addDependencies(parameter, types)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the cached response for the given key.
+     *
+     * @param key The key to get the cached response for.
+     * @return The cached response, or null if there is none.
+     */
+    public CachedResponse get(String key) {
+        CachedResponse cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && cached.expires < System.currentTimeMillis()) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    /**
+     * The current generation of the cache. This must be fetched before the
+     * response is loaded, and passed to
+     * {@link #put(String, Dependencies, long, String, String)}.
+     *
+     * @return The current generation.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Store a response, unless the cache has been invalidated since the given
+     * generation.
+     *
+     * @param key The key to store the response under.
+     * @param dependencies The dependencies of the response.
+     * @param loadGeneration The generation of the cache from before the
+     * response was loaded.
+     * @param result The formatted response.
+     * @param contentType The content type of the response.
+     */
+    public void put(String key, Dependencies dependencies, long loadGeneration, String result, String contentType) {
+        if (result == null || result.length() > maxEntrySize) {
+            return;
+        }
+        CachedResponse cached = new CachedResponse(dependencies, result, contentType, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            if (generation.get() == loadGeneration) {
+                entries.put(key, cached);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the local cache, if it is enabled, for the given committed
+     * changes. Called by the persistence manager right after a commit, before
+     * the changes are sent over the message bus.
+     *
+     * @param messages The changes that were committed.
+     */
+    public static void changesCommitted(List<EntityChangedMessage> messages) {
+        ResponseCache cache = instance;
+        if (cache == null) {
+            return;
+        }
+        for (EntityChangedMessage message : messages) {
+            cache.invalidate(message);
+        }
+    }
+
+    @Override
+    public void messageReceived(EntityChangedMessage message) {
+        invalidate(message);
+    }
+
+    /**
+     * Remove all entries that depend on the entity in the given message.
+     *
+     * @param message The message describing the change.
+     */
+    public void invalidate(EntityChangedMessage message) {
+        EntityType type = message.getEntityType();
+        if (!entityTypes.contains(type)) {
+            return;
+        }
+        Id id = message.getEntity() == null ? null : message.getEntity().getId();
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.values().removeIf(cached -> cached.dependsOn(type, id));
+        }
+    }
+
+    @Override
+    public boolean isEntityContentNeeded(EntityType entityType) {
+        return false;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The number of requests that were served from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of cacheable requests that were not in the cache.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The entity types and entity a response depends on.
+     */
+    public static class Dependencies {
+
+        private final Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        private EntityType boundType;
+        private Id boundId;
+
+        private boolean dependsOn(EntityType type, Id id) {
+            return types.contains(type)
+                    || (type == boundType && (id == null || id.equals(boundId)));
+        }
+    }
+
+    /**
+     * A formatted response, with its dependencies.
+     */
+    public static class CachedResponse {
+
+        private final Dependencies dependencies;
+        private final String result;
+        private final String contentType;
+        private final long expires;
+
+        private CachedResponse(Dependencies dependencies, String result, String contentType, long expires) {
+            this.dependencies = dependencies;
+            this.result = result;
+            this.contentType = contentType;
+            this.expires = expires;
+        }
+
+        private boolean dependsOn(EntityType type, Id id) {
+            return dependencies.dependsOn(type, id);
+        }
+
+        public String getResult() {
+            return result;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
@@ -53,6 +53,7 @@ import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityExcepti
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
@@ -113,6 +114,8 @@ public class Service implements AutoCloseable {
     public Service(CoreSettings settings) {
         this.settings = settings;
         PersistenceManagerFactory.init(settings);
+        PathParser.getCache().setMaxSize(settings.getParserCacheSize());
+        QueryParser.getCache().setMaxSize(settings.getParserCacheSize());
     }
 
     public String getRequestType(HttpMethod method, String path) {
@@ -331,7 +334,9 @@ public class Service implements AutoCloseable {
             }
             return errorResponse(response, 500, "Failed to execute query. See logs for details.");
         } finally {
-            maybeRollbackAndClose();
+            if (!response.isResultStreamed()) {
+                maybeRollbackAndClose();
+            }
         }
     }
 
@@ -355,13 +360,35 @@ public class Service implements AutoCloseable {
             return errorResponse(response, 400, ex.getMessage());
         }
 
+        ResponseCache cache = transactionActive ? null : ResponseCache.getInstance();
+        ResponseCache.Dependencies dependencies = cache == null ? null : cache.findDependencies(path, query);
+        String cacheKey = null;
+        long cacheGeneration = 0;
+        if (dependencies != null) {
+            cacheKey = ResponseCache.createKey(request);
+            ResponseCache.CachedResponse cached = cache.get(cacheKey);
+            if (cached != null) {
+                maybeCommitAndClose();
+                response.setResultFormatted(cached.getResult());
+                response.setContentType(cached.getContentType());
+                response.setCode(200);
+                return response;
+            }
+            cacheGeneration = cache.getGeneration();
+        }
+
         if (!pm.validatePath(path)) {
             maybeCommitAndClose();
             return errorResponse(response, 404, NOTHING_FOUND_RESPONSE);
         }
+        boolean streaming = !transactionActive && dependencies == null && settings.getPersistenceSettings().isStreamResults();
         T object;
         try {
-            object = (T) pm.get(path, query);
+            if (streaming) {
+                object = (T) pm.getStreaming(path, query);
+            } else {
+                object = (T) pm.get(path, query);
+            }
         } catch (UnsupportedOperationException e) {
             LOGGER.error("Unsupported operation.", e);
             pm.rollbackAndClose();
@@ -375,7 +402,9 @@ public class Service implements AutoCloseable {
             pm.rollbackAndClose();
             return errorResponse(response, 500, "Illegal result type: " + e.getMessage());
         }
-        maybeCommitAndClose();
+        if (object == null || !streaming) {
+            maybeCommitAndClose();
+        }
         if (object == null) {
             if (path.isValue() || path.isEntityProperty()) {
                 return successResponse(response, 204, "No Content");
@@ -384,13 +413,34 @@ public class Service implements AutoCloseable {
             }
         } else {
             response.setResult(object);
-            response.setResultFormatted(formatter.format(path, query, object, settings.isUseAbsoluteNavigationLinks()));
+            if (streaming) {
+                response.setResultWriter(out -> writeStreamedResult(formatter, path, query, object, out));
+            } else {
+                response.setResultFormatted(formatter.format(path, query, object, settings.isUseAbsoluteNavigationLinks()));
+                if (dependencies != null) {
+                    cache.put(cacheKey, dependencies, cacheGeneration, response.getResultFormatted(), formatter.getContentType());
+                }
+            }
             response.setContentType(formatter.getContentType());
             response.setCode(200);
             return response;
         }
     }
 
+    /**
+     * Formats a result that is still being read from the database, and closes
+     * the persistence manager when done.
+     */
+    private void writeStreamedResult(ResultFormatter formatter, ResourcePath path, Query query, Object result, OutputStream out) throws IOException {
+        try {
+            formatter.format(path, query, result, settings.isUseAbsoluteNavigationLinks(), out);
+        } catch (IOException | RuntimeException ex) {
+            maybeRollbackAndClose();
+            throw ex;
+        }
+        maybeCommitAndClose();
+    }
+
     private <T> ServiceResponse<T> executePost(ServiceRequest request) {
         ServiceResponse<T> response = new ServiceResponse<>();
         String urlPath = request.getUrlPath();
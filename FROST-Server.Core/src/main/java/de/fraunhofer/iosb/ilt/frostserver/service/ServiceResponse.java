@@ -17,8 +17,14 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -27,6 +33,8 @@ import java.util.Map;
  */
 public class ServiceResponse<T> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceResponse.class);
+
     /**
      * The non-formatted result.
      */
@@ -35,6 +43,11 @@ public class ServiceResponse<T> {
      * The formatted result.
      */
     private String resultFormatted;
+    /**
+     * Writes the formatted result to a stream, if it is not formatted in
+     * advance.
+     */
+    private ResultWriter resultWriter;
     /**
      * The content type of the formatted result.
      */
@@ -117,7 +130,22 @@ public class ServiceResponse<T> {
         return this;
     }
 
+    /**
+     * Get the formatted result. If the result is to be streamed, it is
+     * formatted now.
+     *
+     * @return The formatted result.
+     */
     public String getResultFormatted() {
+        if (resultFormatted == null && resultWriter != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                writeResult(out);
+            } catch (IOException ex) {
+                LOGGER.error("Failed to format response.", ex);
+            }
+            resultFormatted = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
         return resultFormatted;
     }
 
@@ -125,8 +153,55 @@ public class ServiceResponse<T> {
         this.resultFormatted = resultFormatted;
     }
 
+    /**
+     * Check if the formatted result is to be written directly to a stream,
+     * using {@link #writeResult(java.io.OutputStream)}.
+     *
+     * @return true if the result should be written using writeResult.
+     */
+    public boolean isResultStreamed() {
+        return resultFormatted == null && resultWriter != null;
+    }
+
+    /**
+     * Set the writer used to write the formatted result directly to a stream.
+     *
+     * @param resultWriter The writer that writes the formatted result.
+     */
+    public void setResultWriter(ResultWriter resultWriter) {
+        this.resultWriter = resultWriter;
+    }
+
+    /**
+     * Write the formatted result to the given stream. This can only be done
+     * once.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeResult(OutputStream out) throws IOException {
+        if (resultFormatted != null) {
+            out.write(resultFormatted.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (resultWriter == null) {
+            return;
+        }
+        ResultWriter writer = resultWriter;
+        resultWriter = null;
+        writer.write(out);
+    }
+
     public boolean isSuccessful() {
         return code >= 200 && code < 300;
     }
 
+    /**
+     * Writes a formatted result to a stream.
+     */
+    @FunctionalInterface
+    public static interface ResultWriter {
+
+        public void write(OutputStream out) throws IOException;
+    }
 }
@@ -72,6 +72,8 @@ public class CoreSettings implements ConfigDefaults {
     public static final String TAG_ENABLE_ACTUATION = "enableActuation";
     @DefaultValueBoolean(true)
     public static final String TAG_ENABLE_MULTIDATASTREAM = "enableMultiDatastream";
+    @DefaultValueInt(1000)
+    public static final String TAG_PARSER_CACHE_SIZE = "parserCacheSize";
 
     /**
      * Used when passing CoreSettings in a map.
@@ -95,6 +97,14 @@ public class CoreSettings implements ConfigDefaults {
     public static final String TAG_CORS_PREFLIGHT_MAXAGE = "cors.preflight.maxage";
     @DefaultValueBoolean(true)
     public static final String TAG_CORS_REQUEST_DECORATE = "cors.request.decorate";
+    @DefaultValueInt(0)
+    public static final String TAG_RESPONSE_CACHE_SIZE = "responseCache.size";
+    @DefaultValueInt(60)
+    public static final String TAG_RESPONSE_CACHE_TTL = "responseCache.ttl";
+    @DefaultValueInt(1_000_000)
+    public static final String TAG_RESPONSE_CACHE_MAX_ENTRY_SIZE = "responseCache.maxEntrySize";
+    @DefaultValue("Things,Locations,Sensors,ObservedProperties")
+    public static final String TAG_RESPONSE_CACHE_ENTITY_TYPES = "responseCache.entityTypes";
 
     // Auth Tags
     @DefaultValue("")
@@ -174,6 +184,10 @@ public class CoreSettings implements ConfigDefaults {
      * Flag indicating MultiDatastream should be enabled (entities not hidden).
      */
     private boolean enableMultiDatastream;
+    /**
+     * The number of parsed paths and queries to cache.
+     */
+    private int parserCacheSize = defaultValueInt(TAG_PARSER_CACHE_SIZE);
 
     /**
      * The set of enabled extensions that are defined in the standard.
@@ -270,6 +284,7 @@ public class CoreSettings implements ConfigDefaults {
         topDefault = settings.getInt(TAG_DEFAULT_TOP, getClass());
         topMax = settings.getInt(TAG_MAX_TOP, getClass());
         dataSizeMax = settings.getLong(TAG_MAX_DATASIZE, getClass());
+        parserCacheSize = settings.getInt(TAG_PARSER_CACHE_SIZE, getClass());
     }
 
     private void initChildSettings(Settings settings) {
@@ -384,6 +399,14 @@ public class CoreSettings implements ConfigDefaults {
         return enableMultiDatastream;
     }
 
+    /**
+     * @return The number of parsed paths and queries to cache, 0 to disable
+     * caching.
+     */
+    public int getParserCacheSize() {
+        return parserCacheSize;
+    }
+
     public String getTempPath() {
         return tempPath;
     }
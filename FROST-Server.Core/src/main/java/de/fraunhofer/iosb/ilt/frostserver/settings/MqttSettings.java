@@ -22,6 +22,7 @@ import static de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings.PREFIX_MQ
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueBoolean;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue.OverflowPolicy;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -62,6 +63,14 @@ public class MqttSettings implements ConfigDefaults {
     public static final String TAG_CREATE_MESSAGE_QUEUE_SIZE = "CreateMessageQueueSize";
     @DefaultValueInt(5)
     public static final String TAG_CREATE_THREAD_POOL_SIZE = "CreateThreadPoolSize";
+    @DefaultValue("DROP_NEWEST")
+    public static final String TAG_SUBSCRIBE_QUEUE_OVERFLOW_POLICY = "SubscribeQueueOverflowPolicy";
+    @DefaultValue("DROP_NEWEST")
+    public static final String TAG_CREATE_QUEUE_OVERFLOW_POLICY = "CreateQueueOverflowPolicy";
+    @DefaultValueInt(1)
+    public static final String TAG_CREATE_BATCH_SIZE = "CreateBatchSize";
+    @DefaultValueInt(5)
+    public static final String TAG_CREATE_BATCH_DELAY = "CreateBatchDelay";
     @DefaultValue("")
     public static final String TAG_EXPOSED_MQTT_ENDPOINTS = "exposedEndpoints";
 
@@ -138,6 +147,23 @@ public class MqttSettings implements ConfigDefaults {
      * Number of threads used to process ObservationCreateEvents.
      */
     private int createThreadPoolSize;
+    /**
+     * What to do with EntityChangedMessages when the subscribe queue is full.
+     */
+    private OverflowPolicy subscribeQueueOverflowPolicy;
+    /**
+     * What to do with create messages when the create queue is full.
+     */
+    private OverflowPolicy createQueueOverflowPolicy;
+    /**
+     * The maximum number of Observations created via MQTT in one transaction.
+     */
+    private int createBatchSize;
+    /**
+     * The maximum time, in milliseconds, to wait for more Observations to add
+     * to a batch.
+     */
+    private int createBatchDelay;
     /**
      * Extension point for implementation specific settings.
      */
@@ -162,6 +188,10 @@ public class MqttSettings implements ConfigDefaults {
         setSubscribeThreadPoolSize(customSettings.getInt(TAG_SUBSCRIBE_THREAD_POOL_SIZE, getClass()));
         setCreateMessageQueueSize(customSettings.getInt(TAG_CREATE_MESSAGE_QUEUE_SIZE, getClass()));
         setCreateThreadPoolSize(customSettings.getInt(TAG_CREATE_THREAD_POOL_SIZE, getClass()));
+        subscribeQueueOverflowPolicy = OverflowPolicy.fromString(customSettings.get(TAG_SUBSCRIBE_QUEUE_OVERFLOW_POLICY, getClass()));
+        createQueueOverflowPolicy = OverflowPolicy.fromString(customSettings.get(TAG_CREATE_QUEUE_OVERFLOW_POLICY, getClass()));
+        setCreateBatchSize(customSettings.getInt(TAG_CREATE_BATCH_SIZE, getClass()));
+        setCreateBatchDelay(customSettings.getInt(TAG_CREATE_BATCH_DELAY, getClass()));
         setQosLevel(customSettings.getInt(TAG_QOS, getClass()));
 
         if (enableMqtt) {
@@ -340,4 +370,34 @@ public class MqttSettings implements ConfigDefaults {
         this.createThreadPoolSize = createThreadPoolSize;
     }
 
+    public OverflowPolicy getSubscribeQueueOverflowPolicy() {
+        return subscribeQueueOverflowPolicy;
+    }
+
+    public OverflowPolicy getCreateQueueOverflowPolicy() {
+        return createQueueOverflowPolicy;
+    }
+
+    public int getCreateBatchSize() {
+        return createBatchSize;
+    }
+
+    public void setCreateBatchSize(int createBatchSize) {
+        if (createBatchSize < 1) {
+            throw new IllegalArgumentException(TAG_CREATE_BATCH_SIZE + MUST_BE_POSITIVE);
+        }
+        this.createBatchSize = createBatchSize;
+    }
+
+    public int getCreateBatchDelay() {
+        return createBatchDelay;
+    }
+
+    public void setCreateBatchDelay(int createBatchDelay) {
+        if (createBatchDelay < 0) {
+            throw new IllegalArgumentException(TAG_CREATE_BATCH_DELAY + " must be >= 0");
+        }
+        this.createBatchDelay = createBatchDelay;
+    }
+
 }
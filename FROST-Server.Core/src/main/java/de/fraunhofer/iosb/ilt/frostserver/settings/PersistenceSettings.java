@@ -42,6 +42,26 @@ public class PersistenceSettings implements ConfigDefaults {
     public static final String TAG_SLOW_QUERY_THRESHOLD = "slowQueryThreshold";
     @DefaultValueInt(0)
     public static final String TAG_QUERY_TIMEOUT = "queryTimeout";
+    @DefaultValueInt(0)
+    public static final String TAG_EXPAND_BATCH_SIZE = "expandBatchSize";
+    @DefaultValueInt(0)
+    public static final String TAG_STREAM_FETCH_SIZE = "streamFetchSize";
+    @DefaultValueBoolean(false)
+    public static final String TAG_KEYSET_PAGINATION = "keysetPagination";
+    @DefaultValueInt(0)
+    public static final String TAG_INSERT_BATCH_SIZE = "insertBatchSize";
+    @DefaultValueBoolean(false)
+    public static final String TAG_DEFER_DATASTREAM_TIMES = "deferDatastreamTimes";
+    @DefaultValueInt(1000)
+    public static final String TAG_DATASTREAM_TIMES_FLUSH_INTERVAL = "datastreamTimesFlushInterval";
+    @DefaultValueInt(10000)
+    public static final String TAG_GENERATED_FOI_CACHE_SIZE = "generatedFoiCacheSize";
+    @DefaultValueInt(10000)
+    public static final String TAG_EXISTENCE_CACHE_SIZE = "existenceCacheSize";
+    @DefaultValueInt(300)
+    public static final String TAG_EXISTENCE_CACHE_TTL = "existenceCacheTtl";
+    @DefaultValueBoolean(false)
+    public static final String TAG_COLUMNAR_OBSERVATIONS = "columnarObservations";
 
     /**
      * Fully-qualified class name of the PersistenceManager implementation class
@@ -66,6 +86,62 @@ public class PersistenceSettings implements ConfigDefaults {
      * Flag indicating a queryTimeout is set.
      */
     private boolean timeoutQueries;
+    /**
+     * The maximum number of parent entities to expand in one query.
+     */
+    private int expandBatchSize;
+    /**
+     * Flag indicating expands should be loaded in batches.
+     */
+    private boolean batchExpand;
+    /**
+     * The number of rows to fetch from the database at a time, when streaming
+     * results.
+     */
+    private int streamFetchSize;
+    /**
+     * Flag indicating results should be streamed to the client.
+     */
+    private boolean streamResults;
+    /**
+     * Flag indicating nextLinks should use a continuation token instead of
+     * $skip.
+     */
+    private boolean keysetPagination;
+    /**
+     * The maximum number of Observations to insert in one statement.
+     */
+    private int insertBatchSize;
+    /**
+     * Flag indicating Observations should be inserted in batches.
+     */
+    private boolean batchInsert;
+    /**
+     * Flag indicating the times of Datastreams should be updated by the
+     * server, instead of by a trigger for each Observation.
+     */
+    private boolean deferDatastreamTimes;
+    /**
+     * The interval for updating the times of Datastreams, in milliseconds.
+     */
+    private int datastreamTimesFlushInterval;
+    /**
+     * The number of (Multi)Datastreams to cache the generated
+     * FeatureOfInterest for.
+     */
+    private int generatedFoiCacheSize;
+    /**
+     * The number of ids per entity type to cache as existing.
+     */
+    private int existenceCacheSize;
+    /**
+     * The time ids are cached as existing, in seconds.
+     */
+    private int existenceCacheTtl;
+    /**
+     * Flag indicating Observation collections may be held in columns.
+     */
+    private boolean columnarObservations;
     /**
      * Extension point for implementation specific settings
      */
@@ -87,6 +163,19 @@ public class PersistenceSettings implements ConfigDefaults {
         logSlowQueries = slowQueryThreshold > 0;
         queryTimeout = settings.getInt(TAG_QUERY_TIMEOUT, getClass());
         timeoutQueries = queryTimeout > 0;
+        expandBatchSize = settings.getInt(TAG_EXPAND_BATCH_SIZE, getClass());
+        batchExpand = expandBatchSize > 0;
+        streamFetchSize = settings.getInt(TAG_STREAM_FETCH_SIZE, getClass());
+        streamResults = streamFetchSize > 0;
+        keysetPagination = settings.getBoolean(TAG_KEYSET_PAGINATION, getClass());
+        insertBatchSize = settings.getInt(TAG_INSERT_BATCH_SIZE, getClass());
+        batchInsert = insertBatchSize > 0;
+        deferDatastreamTimes = settings.getBoolean(TAG_DEFER_DATASTREAM_TIMES, getClass());
+        datastreamTimesFlushInterval = settings.getInt(TAG_DATASTREAM_TIMES_FLUSH_INTERVAL, getClass());
+        generatedFoiCacheSize = settings.getInt(TAG_GENERATED_FOI_CACHE_SIZE, getClass());
+        existenceCacheSize = settings.getInt(TAG_EXISTENCE_CACHE_SIZE, getClass());
+        existenceCacheTtl = settings.getInt(TAG_EXISTENCE_CACHE_TTL, getClass());
+        columnarObservations = settings.getBoolean(TAG_COLUMNAR_OBSERVATIONS, getClass());
         customSettings = settings;
     }
 
@@ -146,4 +235,139 @@ public class PersistenceSettings implements ConfigDefaults {
         return timeoutQueries;
     }
 
+    /**
+     * Get the maximum number of parent entities for which an expand is loaded
+     * in a single query.
+     *
+     * @return The maximum number of parent entities per expand query.
+     */
+    public int getExpandBatchSize() {
+        return expandBatchSize;
+    }
+
+    /**
+     * Flag indicating expands should be loaded in batches, instead of one
+     * query per parent entity.
+     *
+     * @return true if expands should be loaded in batches.
+     */
+    public boolean isBatchExpand() {
+        return batchExpand;
+    }
+
+    /**
+     * Get the number of rows to fetch from the database at a time, when
+     * streaming results.
+     *
+     * @return The number of rows to fetch at a time.
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    /**
+     * Flag indicating entity collections should be streamed from the database
+     * to the client, instead of being loaded completely before formatting.
+     *
+     * @return true if results should be streamed.
+     */
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    /**
+     * Flag indicating nextLinks should continue after the sort values of the
+     * last entity of a page, using a $skiptoken, instead of using $skip.
+     *
+     * @return true if keyset pagination should be used.
+     */
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Get the maximum number of Observations to insert in a single statement,
+     * when inserting many Observations at once.
+     *
+     * @return The maximum number of Observations per insert statement.
+     */
+    public int getInsertBatchSize() {
+        return insertBatchSize;
+    }
+
+    /**
+     * Flag indicating many Observations, like those posted to
+     * CreateObservations, should be inserted using multi-row statements.
+     *
+     * @return true if Observations should be inserted in batches.
+     */
+    public boolean isBatchInsert() {
+        return batchInsert;
+    }
+
+    /**
+     * Flag indicating the phenomenonTime, resultTime and observedArea of
+     * (Multi)Datastreams should be updated by the server, aggregated over all
+     * Observations inserted in a transaction, instead of by a database trigger
+     * for each inserted Observation.
+     *
+     * @return true if Datastream times should be updated by the server.
+     */
+    public boolean isDeferDatastreamTimes() {
+        return deferDatastreamTimes;
+    }
+
+    /**
+     * Get the interval in which the aggregated Datastream times are written to
+     * the database, in milliseconds. If 0 or less, they are written when the
+     * transaction that inserted the Observations is committed.
+     *
+     * @return The flush interval in milliseconds.
+     */
+    public int getDatastreamTimesFlushInterval() {
+        return datastreamTimesFlushInterval;
+    }
+
+    /**
+     * Get the number of (Multi)Datastreams to cache the id of the generated
+     * FeatureOfInterest for. If 0, the FeatureOfInterest is looked up for
+     * each Observation that is created without one.
+     *
+     * @return The size of the cache.
+     */
+    public int getGeneratedFoiCacheSize() {
+        return generatedFoiCacheSize;
+    }
+
+    /**
+     * Get the number of ids per entity type that are cached as existing, so
+     * that links to them do not need to be checked. If 0, links are checked
+     * each time.
+     *
+     * @return The size of the cache.
+     */
+    public int getExistenceCacheSize() {
+        return existenceCacheSize;
+    }
+
+    /**
+     * Get the time ids are cached as existing, in seconds.
+     *
+     * @return The time ids are cached as existing, in seconds.
+     */
+    public int getExistenceCacheTtl() {
+        return existenceCacheTtl;
+    }
+
+    /**
+     * Flag indicating collections of Observations that only select the id,
+     * times, result and (Multi)Datastream links should be read into columns,
+     * instead of into an Observation object per row.
+     *
+     * @return true if Observation collections may be held in columns.
+     */
+    public boolean isColumnarObservations() {
+        return columnarObservations;
+    }
+
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies, with fixed bucket bounds from 1 millisecond to 10
+ * seconds. Recording is lock-free.
+ *
+ * @author scf
+ */
+public class LatencyHistogram {
+
+    /**
+     * The upper bounds of the buckets, in milliseconds. The last bucket holds
+     * all latencies above the last bound.
+     */
+    private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BOUNDS_MILLIS[i]);
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        totalNanos.add(nanos);
+        count.increment();
+    }
+
+    /**
+     * The upper bounds of the buckets, in milliseconds. There is one more
+     * bucket than there are bounds, for the latencies above the last bound.
+     *
+     * @return The upper bounds of the buckets, in milliseconds.
+     */
+    public static long[] getBoundsMillis() {
+        return BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * The number of recorded latencies per bucket.
+     *
+     * @return The number of recorded latencies per bucket.
+     */
+    public long[] getCounts() {
+        long[] result = new long[counts.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * The mean of the recorded latencies.
+     *
+     * @return The mean of the recorded latencies in milliseconds, or 0 if
+     * nothing was recorded.
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        return totalNanos.sum() / (n * 1_000_000.0);
+    }
+
+    /**
+     * Estimate the given percentile, as the upper bound of the bucket it
+     * falls in.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the bucket of the percentile in
+     * milliseconds, Long.MAX_VALUE if it is in the last bucket, or 0 if
+     * nothing was recorded.
+     */
+    public long getPercentileMillis(double percentile) {
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return BOUNDS_MILLIS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+}
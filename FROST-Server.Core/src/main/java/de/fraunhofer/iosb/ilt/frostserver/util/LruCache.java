@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread safe, bounded cache that evicts the least recently used entry when
+ * it is full. Keeps track of the number of hits and misses, which can be
+ * exposed over JMX with {@link #registerMetrics(java.lang.String)}.
+ *
+ * @author scf
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class LruCache<K, V> implements LruCacheMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LruCache.class.getName());
+    private static final String JMX_DOMAIN = "de.fraunhofer.iosb.ilt.frostserver";
+
+    private final Map<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int maxSize;
+    private String name;
+
+    /**
+     * @param maxSize The maximum number of entries to keep. If 0, nothing is
+     * cached.
+     */
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the value for the given key, and count the hit or miss.
+     *
+     * @param key The key to get the value for.
+     * @return The cached value, or null if there is none.
+     */
+    public V get(K key) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        V value;
+        synchronized (entries) {
+            value = entries.get(key);
+        }
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (maxSize <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change the maximum number of entries to keep. If the cache holds more
+     * entries, the least recently used entries are removed.
+     *
+     * @param maxSize The maximum number of entries to keep. If 0, nothing is
+     * cached.
+     */
+    public void setMaxSize(int maxSize) {
+        if (this.maxSize == maxSize) {
+            return;
+        }
+        synchronized (entries) {
+            this.maxSize = maxSize;
+            while (entries.size() > Math.max(0, maxSize)) {
+                K eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+            }
+        }
+    }
+
+    /**
+     * @return The number of lookups that found a value.
+     */
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that did not find a value.
+     */
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Expose the size, hits and misses of this cache over JMX, as
+     * "de.fraunhofer.iosb.ilt.frostserver:type=Cache,name=[name]". A cache
+     * that is already registered is not registered again.
+     *
+     * @param name The name to register the cache with.
+     * @return this.
+     */
+    public LruCache<K, V> registerMetrics(String name) {
+        this.name = name;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Cache,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+            }
+        } catch (JMException | RuntimeException ex) {
+            LOGGER.debug("Could not register metrics of cache {}", name, ex);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + size() + "/" + maxSize + ", hits: " + hits.get() + ", misses: " + misses.get();
+    }
+
+}
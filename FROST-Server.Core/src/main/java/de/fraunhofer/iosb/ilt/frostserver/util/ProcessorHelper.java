@@ -17,12 +17,14 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.util;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,17 +41,40 @@ public class ProcessorHelper {
     private ProcessorHelper() {
     }
 
-    public static <T> ExecutorService createProcessors(int threadCount, BlockingQueue<T> queue, Consumer<T> consumer, String name) {
+    public static <T> ExecutorService createProcessors(int threadCount, ProcessorQueue<T> queue, Consumer<T> consumer, String name) {
+        return createProcessors(threadCount, name, () -> new Processor<>(queue, consumer, threadCount, name));
+    }
+
+    /**
+     * Create processors that take items from the queue in batches. A batch is
+     * handed to the consumer when it holds maxBatchSize items, or when
+     * maxDelay milliseconds have passed since the first item of the batch was
+     * taken, whichever comes first.
+     *
+     * @param <T> The type of the items.
+     * @param threadCount The number of processor threads.
+     * @param queue The queue to take the items from.
+     * @param consumer The consumer of the batches.
+     * @param maxBatchSize The maximum number of items in a batch.
+     * @param maxDelay The maximum time, in milliseconds, to wait for more
+     * items.
+     * @param name The name of the processor threads.
+     * @return The ExecutorService running the processors.
+     */
+    public static <T> ExecutorService createBatchProcessors(int threadCount, ProcessorQueue<T> queue, Consumer<List<T>> consumer, int maxBatchSize, long maxDelay, String name) {
+        return createProcessors(threadCount, name, () -> new BatchProcessor<>(queue, consumer, maxBatchSize, maxDelay, name));
+    }
+
+    private static ExecutorService createProcessors(int threadCount, String name, Supplier<Runnable> processorFactory) {
         ThreadFactory factory = new BasicThreadFactory.Builder().namingPattern(name + "-%d").build();
         ExecutorService result = Executors.newFixedThreadPool(threadCount, factory);
         for (int i = 0; i < threadCount; i++) {
-
-            result.submit(new Processor(queue, consumer, name));
+            result.submit(processorFactory.get());
         }
         return result;
     }
 
-    public static void shutdownProcessors(ExecutorService executorService, BlockingQueue<?> queue, long timeout, TimeUnit timeUnit) {
+    public static void shutdownProcessors(ExecutorService executorService, ProcessorQueue<?> queue, long timeout, TimeUnit timeUnit) {
         if (executorService != null) {
             executorService.shutdown();
             long timeoutInMillis = timeUnit.toMillis(timeout);
@@ -71,16 +96,26 @@ public class ProcessorHelper {
                 Thread.currentThread().interrupt();
             }
         }
+        if (queue != null) {
+            LOGGER.info("Stopped {}", queue);
+            queue.close();
+        }
     }
 
+    /**
+     * Takes items from the queue and hands them to the consumer one by one. A
+     * processor takes at most its share of the queued items at once, so that
+     * a burst is spread over all processors.
+     */
     private static class Processor<T> implements Runnable {
 
         private static final Logger LOGGER = LoggerFactory.getLogger(Processor.class);
-        private final BlockingQueue<T> queue;
+        private final ProcessorQueue<T> queue;
         private final Consumer<T> consumer;
+        private final int processorCount;
         private final String name;
 
-        private Processor(BlockingQueue<T> queue, Consumer<T> consumer, String name) {
+        private Processor(ProcessorQueue<T> queue, Consumer<T> consumer, int processorCount, String name) {
             if (queue == null) {
                 throw new IllegalArgumentException("queue must be non-null");
             }
@@ -94,25 +129,109 @@ public class ProcessorHelper {
             }
             this.queue = queue;
             this.consumer = consumer;
+            this.processorCount = Math.max(1, processorCount);
         }
 
         @Override
         public void run() {
             LOGGER.debug("starting {}-Thread", name);
+            List<T> events = new ArrayList<>();
             while (!Thread.currentThread().isInterrupted()) {
-                T event;
                 try {
-                    event = queue.take();
-                    consumer.accept(event);
+                    queue.take(events, 1);
+                    // The share of the queue, including the item just taken.
+                    int share = (queue.size() + 1) / processorCount;
+                    if (share > 1) {
+                        queue.drainTo(events, share - 1);
+                    }
                 } catch (InterruptedException ex) {
                     LOGGER.trace("{} interrupted", name, ex);
                     Thread.currentThread().interrupt();
                     break;
+                }
+                for (T event : events) {
+                    try {
+                        consumer.accept(event);
+                    } catch (Exception ex) {
+                        LOGGER.warn("Exception while executing {}", name, ex);
+                    }
+                }
+                events.clear();
+            }
+            LOGGER.debug("exiting {}-Thread", name);
+        }
+    }
+
+    /**
+     * Takes items from the queue in batches, and hands the batches to the
+     * consumer.
+     */
+    private static class BatchProcessor<T> implements Runnable {
+
+        private static final Logger LOGGER = LoggerFactory.getLogger(BatchProcessor.class);
+        private final ProcessorQueue<T> queue;
+        private final Consumer<List<T>> consumer;
+        private final int maxBatchSize;
+        private final long maxDelayNanos;
+        private final String name;
+
+        private BatchProcessor(ProcessorQueue<T> queue, Consumer<List<T>> consumer, int maxBatchSize, long maxDelay, String name) {
+            if (queue == null) {
+                throw new IllegalArgumentException("queue must be non-null");
+            }
+            if (consumer == null) {
+                throw new IllegalArgumentException("handler must be non-null");
+            }
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize must be > 0");
+            }
+            this.queue = queue;
+            this.consumer = consumer;
+            this.maxBatchSize = maxBatchSize;
+            this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            LOGGER.debug("starting {}-Thread", name);
+            while (!Thread.currentThread().isInterrupted()) {
+                List<T> batch = new ArrayList<>();
+                try {
+                    queue.take(batch, maxBatchSize);
+                    fill(batch);
+                } catch (InterruptedException ex) {
+                    LOGGER.trace("{} interrupted", name, ex);
+                    Thread.currentThread().interrupt();
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                try {
+                    consumer.accept(batch);
                 } catch (Exception ex) {
                     LOGGER.warn("Exception while executing {}", name, ex);
                 }
             }
             LOGGER.debug("exiting {}-Thread", name);
         }
+
+        private void fill(List<T> batch) throws InterruptedException {
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            }
+        }
     }
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue that hands work items to processor threads. What happens
+ * when the queue is full is determined by the {@link OverflowPolicy}.
+ * Processors can take several items at once, to reduce contention on the queue.
+ *
+ * The queue keeps metrics about its depth, the number of dropped items and the
+ * time items wait in the queue, until they are taken by a processor. These are registered as an MXBean with the name
+ * of the queue, until the queue is closed.
+ *
+ * @author scf
+ * @param <T> The type of the items in the queue.
+ */
+public class ProcessorQueue<T> implements ProcessorQueueMXBean, AutoCloseable {
+
+    /**
+     * What to do with a new item when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until there is space in the queue. This slows down the producer.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest item in the queue to make space for the new item.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the new item.
+         */
+        DROP_NEWEST;
+
+        /**
+         * Find the policy with the given name, ignoring case.
+         *
+         * @param name The name of the policy.
+         * @return The policy with the given name, or DROP_NEWEST if there is
+         * no policy with the given name.
+         */
+        public static OverflowPolicy fromString(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException ex) {
+                LOGGER.warn("Unknown overflow policy '{}', using {}.", name, DROP_NEWEST);
+                return DROP_NEWEST;
+            }
+        }
+    }
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorQueue.class);
+    private static final String JMX_DOMAIN = "de.fraunhofer.iosb.ilt.frostserver";
+
+    private final String name;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<Item<T>> queue;
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder taken = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private ObjectName objectName;
+
+    public ProcessorQueue(String name, int capacity, OverflowPolicy overflowPolicy) {
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        register();
+    }
+
+    /**
+     * Add an item to the queue, applying the overflow policy if the queue is
+     * full.
+     *
+     * @param item The item to add.
+     * @return false if the new item was dropped.
+     */
+    public boolean offer(T item) {
+        offered.increment();
+        Item<T> entry = new Item<>(item);
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(entry);
+                    return true;
+                } catch (InterruptedException ex) {
+                    LOGGER.trace("Interrupted while waiting for space in queue {}", name, ex);
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return false;
+                }
+
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                        LOGGER.debug("Queue {} is full, dropped the oldest item.", name);
+                    }
+                }
+                return true;
+
+            default:
+                if (queue.offer(entry)) {
+                    return true;
+                }
+                dropped.increment();
+                return false;
+        }
+    }
+
+    /**
+     * Take items from the queue, waiting for the first item if the queue is
+     * empty.
+     *
+     * @param target The list to add the items to.
+     * @param maxItems The maximum number of items to take.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void take(List<T> target, int maxItems) throws InterruptedException {
+        target.add(unwrap(queue.take()));
+        if (maxItems > 1) {
+            drainTo(target, maxItems - 1);
+        }
+    }
+
+    /**
+     * Take an item from the queue, waiting up to the given time if the queue
+     * is empty.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return The item, or null if the time passed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Item<T> item = queue.poll(timeout, unit);
+        if (item == null) {
+            return null;
+        }
+        return unwrap(item);
+    }
+
+    /**
+     * Take the available items from the queue, without waiting.
+     *
+     * @param target The list to add the items to.
+     * @param maxItems The maximum number of items to take.
+     * @return The number of items taken.
+     */
+    public int drainTo(List<T> target, int maxItems) {
+        List<Item<T>> items = new ArrayList<>();
+        int count = queue.drainTo(items, maxItems);
+        for (Item<T> item : items) {
+            target.add(unwrap(item));
+        }
+        return count;
+    }
+
+    private T unwrap(Item<T> item) {
+        queueWait.record(System.nanoTime() - item.created);
+        taken.increment();
+        return item.value;
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName newName = new ObjectName(JMX_DOMAIN + ":type=ProcessorQueue,name=" + ObjectName.quote(name));
+            try {
+                server.registerMBean(this, newName);
+            } catch (InstanceAlreadyExistsException ex) {
+                // A queue with the same name was replaced.
+                server.unregisterMBean(newName);
+                server.registerMBean(this, newName);
+            }
+            objectName = newName;
+        } catch (JMException | RuntimeException ex) {
+            LOGGER.debug("Could not register metrics of queue {}", name, ex);
+        }
+    }
+
+    /**
+     * Stop exposing the metrics of this queue.
+     */
+    @Override
+    public void close() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException | RuntimeException ex) {
+            LOGGER.debug("Could not unregister metrics of queue {}", name, ex);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return overflowPolicy.name();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public long getOfferedCount() {
+        return offered.sum();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getTakenCount() {
+        return taken.sum();
+    }
+
+    @Override
+    public long[] getQueueWaitBoundsMillis() {
+        return LatencyHistogram.getBoundsMillis();
+    }
+
+    @Override
+    public long[] getQueueWaitCounts() {
+        return queueWait.getCounts();
+    }
+
+    @Override
+    public double getQueueWaitMeanMillis() {
+        return queueWait.getMeanMillis();
+    }
+
+    @Override
+    public long getQueueWait99Millis() {
+        return queueWait.getPercentileMillis(99);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": depth " + getQueueDepth() + "/" + capacity
+                + ", offered " + getOfferedCount()
+                + ", dropped " + getDroppedCount()
+                + ", taken " + getTakenCount()
+                + ", mean wait " + String.format(Locale.ROOT, "%.2f", getQueueWaitMeanMillis()) + "ms";
+    }
+
+    private static class Item<T> {
+
+        private final T value;
+        private final long created = System.nanoTime();
+
+        public Item(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+/**
+ * The metrics of a {@link ProcessorQueue}, as exposed over JMX.
+ *
+ * @author scf
+ */
+public interface ProcessorQueueMXBean {
+
+    public String getName();
+
+    public String getOverflowPolicy();
+
+    public int getCapacity();
+
+    public int getQueueDepth();
+
+    public long getOfferedCount();
+
+    public long getDroppedCount();
+
+    public long getTakenCount();
+
+    /**
+     * The upper bounds of the queue wait histogram buckets, in milliseconds.
+     *
+     * @return The upper bounds of the buckets.
+     */
+    public long[] getQueueWaitBoundsMillis();
+
+    /**
+     * The number of items per bucket of time spent waiting in the queue.
+     *
+     * @return The number of items per bucket.
+     */
+    public long[] getQueueWaitCounts();
+
+    public double getQueueWaitMeanMillis();
+
+    public long getQueueWait99Millis();
+}
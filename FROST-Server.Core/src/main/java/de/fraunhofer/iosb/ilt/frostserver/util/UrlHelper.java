@@ -23,6 +23,7 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 /**
@@ -36,15 +37,48 @@ public class UrlHelper {
     }
 
     public static String generateNextLink(ResourcePath path, Query query) {
+        return generateNextLink(path, query, query.getTopOrDefault());
+    }
+
+    /**
+     * Generate a next link, for a page that contained the given number of
+     * results. This can be less than $top if loading was aborted early, for
+     * instance due to size constraints.
+     *
+     * @param path The path of the current page.
+     * @param query The query of the current page.
+     * @param resultCount The number of results in the current page.
+     * @return The next link.
+     */
+    public static String generateNextLink(ResourcePath path, Query query, int resultCount) {
         int oldSkip = query.getSkip(0);
-        int top = query.getTopOrDefault();
-        int newSkip = oldSkip + top;
+        int newSkip = oldSkip + resultCount;
         query.setSkip(newSkip);
         String nextLink = path.toString() + "?" + query.toString(false);
         query.setSkip(oldSkip);
         return nextLink;
     }
 
+    /**
+     * Generate a next link that continues after the last entity of the
+     * current page, using the given continuation token instead of $skip.
+     *
+     * @param path The path of the current page.
+     * @param query The query of the current page.
+     * @param skipToken The continuation token for the next page.
+     * @return The next link.
+     */
+    public static String generateNextLink(ResourcePath path, Query query, String skipToken) {
+        Optional<Integer> oldSkip = query.getSkip();
+        String oldSkipToken = query.getSkipToken();
+        query.clearSkip();
+        query.setSkipToken(skipToken);
+        String nextLink = path.toString() + "?" + query.toString(false);
+        query.setSkipToken(oldSkipToken);
+        oldSkip.ifPresent(query::setSkip);
+        return nextLink;
+    }
+
     public static String generateSelfLink(String serviceRootUrl, EntityType entityType, Object id) {
         return new StringBuilder(serviceRootUrl)
                 .append('/')
@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -72,6 +73,28 @@ public class VisibilityHelper {
         applyVisibility(entitySet, path, v, useAbsoluteNavigationLinks);
     }
 
+    /**
+     * Create a function that applies the visibility to single entities of the
+     * given type. Used for sets of which the entities are not all available at
+     * the same time.
+     *
+     * @param entityType The type of the entities.
+     * @param path The path of the request.
+     * @param query The query of the request.
+     * @param useAbsoluteNavigationLinks Flag indicating absolute navigation
+     * links should be used.
+     * @return A function applying the visibility to an entity.
+     */
+    public Consumer<Entity<?>> createVisibilityApplier(EntityType entityType, ResourcePath path, Query query, boolean useAbsoluteNavigationLinks) {
+        if (path.isRef()) {
+            Set<Property> select = query.getSelect();
+            select.clear();
+            select.add(EntityProperty.SELFLINK);
+        }
+        Visibility v = createVisibility(entityType, query, true);
+        return e -> applyVisibility(e, path, v, useAbsoluteNavigationLinks);
+    }
+
     private void applyVisibility(Entity<?> e, ResourcePath path, Visibility v, boolean useAbsoluteNavigationLinks) {
         if (e.getId() != null) {
             e.setSelfLink(UrlHelper.generateSelfLink(path, e));
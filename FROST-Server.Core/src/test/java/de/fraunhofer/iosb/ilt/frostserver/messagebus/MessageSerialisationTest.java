@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.messagebus;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.EntityParser;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
@@ -32,7 +33,11 @@ import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.util.TestHelper;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 /**
@@ -135,4 +140,97 @@ public class MessageSerialisationTest {
         assertEquals(message, deserialisedMessage);
     }
 
+    private EntityChangedMessage createObservationMessage(int parameterCount) {
+        EntityChangedMessage message = new EntityChangedMessage();
+        Observation entity = new Observation()
+                .setId(new IdLong(123456))
+                .setResult(12345)
+                .setDatastream(new Datastream().setId(new IdLong(12)));
+        for (int i = 0; i < parameterCount; i++) {
+            entity.addParameter("param" + i, "value " + i);
+        }
+        entity.setResultTime(new TimeInstant(null));
+        message.setEntity(entity);
+        setExports(entity);
+        return message;
+    }
+
+    @Test
+    public void codecJson() throws IOException {
+        EntityChangedMessage message = createObservationMessage(1);
+        BusMessageCodec codec = new BusMessageCodec(IdLong.class, BusMessageCodec.CODEC_JSON, 0);
+        byte[] encoded = codec.encode(message);
+        assertEquals('{', encoded[0]);
+        assertEquals(message, codec.decode(encoded));
+
+        // Messages from older versions are pretty-printed JSON.
+        byte[] legacy = EntityFormatter.getObjectMapper().writeValueAsBytes(message);
+        assertEquals(message, codec.decode(legacy));
+    }
+
+    @Test
+    public void codecJsonCompressed() throws IOException {
+        BusMessageCodec codec = new BusMessageCodec(IdLong.class, BusMessageCodec.CODEC_JSON, 200);
+        EntityChangedMessage small = createObservationMessage(0);
+        assertEquals('{', codec.encode(small)[0]);
+
+        EntityChangedMessage large = createObservationMessage(50);
+        byte[] encoded = codec.encode(large);
+        assertEquals(BusMessageCodec.FORMAT_JSON | BusMessageCodec.FLAG_DEFLATE, encoded[0]);
+        byte[] plain = new BusMessageCodec(IdLong.class, BusMessageCodec.CODEC_JSON, 0).encode(large);
+        assertTrue(encoded.length < plain.length);
+        assertEquals(large, codec.decode(encoded));
+    }
+
+    @Test
+    public void codecBinary() throws IOException {
+        // Any JsonFactory can be used, the default factory stands in for a binary one.
+        BusMessageCodec codec = new BusMessageCodec(IdLong.class, JsonFactory.class.getName(), 200);
+        BusMessageCodec jsonCodec = new BusMessageCodec(IdLong.class, BusMessageCodec.CODEC_JSON, 0);
+        EntityChangedMessage small = createObservationMessage(0);
+        byte[] encoded = codec.encode(small);
+        assertEquals(BusMessageCodec.FORMAT_BINARY, encoded[0]);
+        assertEquals(small, codec.decode(encoded));
+
+        EntityChangedMessage large = createObservationMessage(50);
+        encoded = codec.encode(large);
+        assertEquals(BusMessageCodec.FORMAT_BINARY | BusMessageCodec.FLAG_DEFLATE, encoded[0]);
+        assertEquals(large, codec.decode(encoded));
+
+        // JSON is always understood.
+        assertEquals(small, codec.decode(jsonCodec.encode(small)));
+        try {
+            jsonCodec.decode(encoded);
+            Assert.fail("Binary message should not be decoded without a binary codec.");
+        } catch (IOException exc) {
+            // This should happen.
+        }
+    }
+
+    @Test
+    public void codecEnvelope() throws IOException {
+        List<EntityChangedMessage> messages = Arrays.asList(
+                createObservationMessage(1),
+                createObservationMessage(2),
+                createObservationMessage(50));
+        BusMessageCodec codec = new BusMessageCodec(IdLong.class, BusMessageCodec.CODEC_JSON, 0);
+        byte[] encoded = codec.encode(messages);
+        assertEquals(BusMessageCodec.FORMAT_JSON | BusMessageCodec.FLAG_ENVELOPE, encoded[0]);
+        assertEquals(messages, codec.decodeAll(encoded));
+        try {
+            codec.decode(encoded);
+            Assert.fail("Envelope should not be decoded as a single message.");
+        } catch (IOException exc) {
+            // This should happen.
+        }
+
+        BusMessageCodec compressingCodec = new BusMessageCodec(IdLong.class, JsonFactory.class.getName(), 200);
+        encoded = compressingCodec.encode(messages);
+        assertEquals(BusMessageCodec.FORMAT_BINARY | BusMessageCodec.FLAG_ENVELOPE | BusMessageCodec.FLAG_DEFLATE, encoded[0]);
+        assertEquals(messages, compressingCodec.decodeAll(encoded));
+
+        // Single messages decode to a list of one.
+        assertEquals(messages.subList(0, 1), codec.decodeAll(codec.encode(messages.get(0))));
+    }
+
 }
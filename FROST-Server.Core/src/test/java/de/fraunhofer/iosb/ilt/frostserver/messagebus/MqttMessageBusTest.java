@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.messagebus;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class MqttMessageBusTest {
+
+    private static EntityChangedMessage message(EntityChangedMessage.Type type, long id, String name, EntityProperty... fields) {
+        EntityChangedMessage message = new EntityChangedMessage()
+                .setEventType(type)
+                .setEntity(new Thing(new IdLong(id)).setName(name));
+        for (EntityProperty field : fields) {
+            message.addEpField(field);
+        }
+        return message;
+    }
+
+    @Test
+    public void testCoalesceUpdates() {
+        EntityChangedMessage update1 = message(EntityChangedMessage.Type.UPDATE, 1, "a", EntityProperty.NAME);
+        EntityChangedMessage update2 = message(EntityChangedMessage.Type.UPDATE, 2, "b", EntityProperty.NAME);
+        EntityChangedMessage update3 = message(EntityChangedMessage.Type.UPDATE, 1, "c", EntityProperty.DESCRIPTION);
+        List<EntityChangedMessage> result = MqttMessageBus.coalesce(Arrays.asList(update1, update2, update3));
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(update2, result.get(0));
+        EntityChangedMessage merged = result.get(1);
+        Assert.assertEquals(EntityChangedMessage.Type.UPDATE, merged.getEventType());
+        Assert.assertEquals(update3.getEntity(), merged.getEntity());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(EntityProperty.NAME, EntityProperty.DESCRIPTION)), merged.getEpFields());
+    }
+
+    @Test
+    public void testCoalesceKeepsCreateAndDelete() {
+        List<EntityChangedMessage> messages = Arrays.asList(
+                message(EntityChangedMessage.Type.UPDATE, 1, "a", EntityProperty.NAME),
+                message(EntityChangedMessage.Type.DELETE, 1, "a"),
+                message(EntityChangedMessage.Type.CREATE, 1, "b"),
+                message(EntityChangedMessage.Type.UPDATE, 1, "c", EntityProperty.NAME));
+        Assert.assertEquals(messages, MqttMessageBus.coalesce(messages));
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class SubscriptionIndexTest {
+
+    private static CoreSettings settings;
+
+    @BeforeClass
+    public static void initClass() {
+        settings = new CoreSettings();
+    }
+
+    private static Subscription createSubscription(String topic) {
+        int queryStart = topic.indexOf('?');
+        String pathString = queryStart < 0 ? topic : topic.substring(0, queryStart);
+        ResourcePath path = PathParser.parsePath(new IdManagerLong(), "", "/" + pathString);
+        path.compress();
+        if (path.getLastElement() instanceof PathElementEntitySet) {
+            return new EntitySetSubscription(settings, "v1.0/" + topic, path);
+        }
+        if (path.getLastElement() instanceof PathElementEntity) {
+            return new EntitySubscription(settings, "v1.0/" + topic, path);
+        }
+        return new PropertySubscription("v1.0/" + topic, path, settings);
+    }
+
+    private static Set<String> topics(List<Subscription> subscriptions) {
+        return subscriptions.stream().map(Subscription::getTopic).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testParentRoutes() {
+        SubscriptionIndex index = new SubscriptionIndex(settings);
+        for (String topic : Arrays.asList("Observations", "Observations(1)", "Observations(2)", "Datastreams(3)/Observations", "Datastreams(4)/Observations")) {
+            index.addSubscription(createSubscription(topic));
+        }
+        Observation observation = new Observation(new IdLong(1L));
+        observation.setDatastream(new Datastream(new IdLong(3L)));
+
+        // No queries are needed, so no PersistenceManager is needed.
+        List<Subscription> matches = index.findMatches(null, observation, null);
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList("v1.0/Observations", "v1.0/Observations(1)", "v1.0/Datastreams(3)/Observations")),
+                topics(matches));
+    }
+
+    @Test
+    public void testQueriedRoutes() {
+        SubscriptionIndex index = new SubscriptionIndex(settings);
+        for (String topic : Arrays.asList("Locations(2)/Things", "Locations(3)/Things", "Locations(4)/Things")) {
+            index.addSubscription(createSubscription(topic));
+        }
+        Thing thing = new Thing(new IdLong(1L));
+        thing.setLocations(new EntitySetImpl<>(EntityType.LOCATION, Arrays.asList(
+                new Location(new IdLong(2L)),
+                new Location(new IdLong(4L)))));
+
+        AtomicInteger queries = new AtomicInteger();
+        PersistenceManager pm = (PersistenceManager) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[]{PersistenceManager.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("get") && args.length == 2) {
+                        queries.incrementAndGet();
+                        return thing;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        List<Subscription> matches = index.findMatches(pm, thing, null);
+        Assert.assertEquals(1, queries.get());
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList("v1.0/Locations(2)/Things", "v1.0/Locations(4)/Things")),
+                topics(matches));
+    }
+
+    @Test
+    public void testRemove() {
+        SubscriptionIndex index = new SubscriptionIndex(settings);
+        Assert.assertEquals(1, index.addSubscription(createSubscription("Datastreams(3)/Observations")));
+        Assert.assertEquals(2, index.addSubscription(createSubscription("Datastreams(3)/Observations")));
+        Assert.assertEquals(1, index.removeSubscription(createSubscription("Datastreams(3)/Observations")));
+        Assert.assertFalse(index.isEmpty());
+        Assert.assertEquals(0, index.removeSubscription(createSubscription("Datastreams(3)/Observations")));
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertEquals(-1, index.removeSubscription(createSubscription("Datastreams(3)/Observations")));
+
+        Observation observation = new Observation(new IdLong(1L));
+        observation.setDatastream(new Datastream(new IdLong(3L)));
+        Assert.assertTrue(index.findMatches(null, observation, null).isEmpty());
+    }
+
+    @Test
+    public void testFormatKeys() {
+        Object fullKey = createSubscription("Observations").getFormatKey();
+        Assert.assertEquals(fullKey, createSubscription("Observations(1)").getFormatKey());
+        Assert.assertEquals(fullKey, createSubscription("Datastreams(3)/Observations").getFormatKey());
+
+        Object selectKey = createSubscription("Observations?$select=result").getFormatKey();
+        Assert.assertNotEquals(fullKey, selectKey);
+        Assert.assertEquals(selectKey, createSubscription("Datastreams(3)/Observations?$select=result").getFormatKey());
+
+        Object propertyKey = createSubscription("Observations(1)/result").getFormatKey();
+        Assert.assertNotEquals(selectKey, propertyKey);
+        Assert.assertEquals(propertyKey, createSubscription("Observations(2)/result").getFormatKey());
+    }
+
+}
@@ -47,8 +47,12 @@ import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.math.Round;
 import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.temporal.Overlaps;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigUtils;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.HashSet;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Assert;
@@ -96,6 +100,19 @@ public class QueryParserTest {
         Assert.assertEquals(10, result.getSkip(11));
     }
 
+    @Test
+    public void testSkipToken() {
+        Query expResult = new Query(settings);
+        Assert.assertNull(expResult.getSkipToken());
+        expResult.setSkipToken("WyIyMDIwIiwiNDIiXQ");
+
+        String query = "$skiptoken=WyIyMDIwIiwiNDIiXQ";
+        Query result = QueryParser.parseQuery(query, settings);
+        Assert.assertEquals(expResult, result);
+        Assert.assertEquals("WyIyMDIwIiwiNDIiXQ", result.getSkipToken());
+        Assert.assertEquals(query, result.toString(false));
+    }
+
     @Test
     public void testCount() {
         Query expResult = new Query(settings);
@@ -649,4 +666,42 @@ public class QueryParserTest {
         Query result = QueryParser.parseQuery(query, settings);
         Assert.assertEquals(expResult, result);
     }
+
+    @Test
+    public void testCachedParse() {
+        String query = "$filter=Datastream/id eq 1 and result gt 5&$orderby=phenomenonTime desc&$expand=Datastream($select=name)";
+        Query first = QueryParser.parseQuery(query, settings);
+        long hits = QueryParser.getCache().getHits();
+        Query second = QueryParser.parseQuery(query, settings);
+        Assert.assertEquals(hits + 1, QueryParser.getCache().getHits());
+        Assert.assertEquals(first, second);
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(first.getFilter(), second.getFilter());
+    }
+
+    @Test
+    public void testCachedParseWhitespace() {
+        String query = "$filter=name eq 'a  b' and result gt 5&$top=10";
+        Query first = QueryParser.parseQuery(query, settings);
+        long hits = QueryParser.getCache().getHits();
+        Query second = QueryParser.parseQuery("  $filter=name  eq 'a  b'\tand result gt 5&$top=10 ", settings);
+        Assert.assertEquals(hits + 1, QueryParser.getCache().getHits());
+        Assert.assertEquals(first, second);
+
+        Query other = QueryParser.parseQuery("$filter=name eq 'a b' and result gt 5&$top=10", settings);
+        Assert.assertEquals(hits + 1, QueryParser.getCache().getHits());
+        Assert.assertNotEquals(first, other);
+    }
+
+    @Test
+    public void testCacheMetrics() throws JMException {
+        String query = "$filter=result gt 7&$top=3";
+        QueryParser.parseQuery(query, settings);
+        QueryParser.parseQuery(query, settings);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("de.fraunhofer.iosb.ilt.frostserver:type=Cache,name=" + ObjectName.quote("QueryParser"));
+        Assert.assertEquals(QueryParser.getCache().getHits(), server.getAttribute(name, "Hits"));
+        Assert.assertEquals(QueryParser.getCache().getMisses(), server.getAttribute(name, "Misses"));
+        Assert.assertEquals(QueryParser.getCache().size(), server.getAttribute(name, "Size"));
+    }
 }
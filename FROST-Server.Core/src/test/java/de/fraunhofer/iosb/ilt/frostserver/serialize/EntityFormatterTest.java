@@ -27,12 +27,14 @@ import de.fraunhofer.iosb.ilt.frostserver.model.HistoricalLocation;
 import de.fraunhofer.iosb.ilt.frostserver.model.Location;
 import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.ObservedProperty;
 import de.fraunhofer.iosb.ilt.frostserver.model.Sensor;
 import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetStreaming;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.UnitOfMeasurement;
@@ -40,10 +42,15 @@ import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
 import de.fraunhofer.iosb.ilt.frostserver.util.TestHelper;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -228,6 +235,38 @@ public class EntityFormatterTest {
         Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeEntityCollection(things)));
     }
 
+    @Test
+    public void writeStreamedCollection() throws IOException {
+        EntitySet<Thing> things = new EntitySetImpl<>(EntityType.THING);
+        List<Thing> source = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Thing entity = new Thing()
+                    .setId(new IdLong(i))
+                    .setSelfLink("http://example.org/v1.0/Things(" + i + ")")
+                    .setLocations(new EntitySetImpl(EntityType.LOCATION, "Things(" + i + ")/Locations"))
+                    .setName("Thing " + i)
+                    .setDescription("This thing is an oven.")
+                    .addProperty("owner", "John Doe");
+            things.add(entity);
+            source.add(entity);
+        }
+        things.setCount(10);
+        things.setNextLink("http://example.org/v1.0/Things?$skip=3");
+        String expResult = EntityFormatter.writeEntityCollection(things);
+
+        EntitySetStreaming<Thing> streamed = new EntitySetStreaming<>(EntityType.THING, source.iterator());
+        streamed.setCount(10);
+        List<Entity<?>> processed = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityFormatter.writeEntityStream(out, streamed, e -> {
+            processed.add(e);
+            streamed.setNextLink("http://example.org/v1.0/Things?$skip=3");
+        });
+        Assert.assertEquals(3, processed.size());
+        Assert.assertFalse(streamed.isStreamable());
+        Assert.assertTrue(jsonEqual(expResult, new String(out.toByteArray(), StandardCharsets.UTF_8)));
+    }
+
     @Test
     public void writeThingWithExpandedDatastream1() throws IOException {
         String expResult
@@ -420,7 +459,7 @@ public class EntityFormatterTest {
                 .setSelfLink("http://example.org/v1.0/HistoricalLocations(1)")
                 .setLocations(new EntitySetImpl(EntityType.LOCATION, "HistoricalLocations(1)/Locations").setExportObject(false))
                 .setThing(new Thing().setNavigationLink("HistoricalLocations(1)/Thing").setExportObject(false))
-                .setTime(TestHelper.createTimeInstant(2015, 01, 25, 12, 0, 0, DateTimeZone.forOffsetHours(-7), DateTimeZone.UTC));
+                .setTime(TestHelper.createTimeInstant(2015, 01, 25, 12, 0, 0, DateTimeZone.forOffsetHours(-7)));
         Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeEntity(entity)));
     }
 
@@ -724,6 +763,129 @@ public class EntityFormatterTest {
         Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeEntity(entity)));
     }
 
+    @Test
+    public void writeObservationPrimitiveDoubleResult() throws IOException {
+        String expResult
+                = "{\n"
+                + "	\"@iot.id\": 1,\n"
+                + "	\"@iot.selfLink\": \"http://example.org/v1.0/Observations(1)\",\n"
+                + "	\"FeatureOfInterest@iot.navigationLink\": \"Observations(1)/FeatureOfInterest\",\n"
+                + "	\"Datastream@iot.navigationLink\":\"Observations(1)/Datastream\",\n"
+                + "	\"phenomenonTime\": \"2014-12-31T11:59:59.000Z\",\n"
+                + "	\"resultTime\": \"2014-12-31T19:59:59.000Z\",\n"
+                + "	\"result\": 70.4\n"
+                + "}";
+        Observation entity = new Observation()
+                .setId(new IdLong(1))
+                .setSelfLink("http://example.org/v1.0/Observations(1)")
+                .setFeatureOfInterest(new FeatureOfInterest().setNavigationLink("Observations(1)/FeatureOfInterest").setExportObject(false))
+                .setDatastream(new Datastream().setNavigationLink("Observations(1)/Datastream").setExportObject(false))
+                .setPhenomenonTime(TestHelper.createTimeInstantUTC(2014, 12, 31, 11, 59, 59))
+                .setResultTime(TestHelper.createTimeInstantUTC(2014, 12, 31, 19, 59, 59))
+                .setResultDouble(70.4);
+        Assert.assertEquals(Observation.PrimitiveResult.DOUBLE, entity.getResultPrimitive());
+        Assert.assertEquals(70.4, entity.getResult());
+        Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeEntity(entity)));
+    }
+
+    @Test
+    public void writeObservationPrimitiveLongResult() throws IOException {
+        String expResult
+                = "{\n"
+                + "	\"@iot.id\": 1,\n"
+                + "	\"@iot.selfLink\": \"http://example.org/v1.0/Observations(1)\",\n"
+                + "	\"FeatureOfInterest@iot.navigationLink\": \"Observations(1)/FeatureOfInterest\",\n"
+                + "	\"Datastream@iot.navigationLink\":\"Observations(1)/Datastream\",\n"
+                + "	\"phenomenonTime\": \"2014-12-31T11:59:59.000Z\",\n"
+                + "	\"resultTime\": \"2014-12-31T19:59:59.000Z\",\n"
+                + "	\"result\": 42\n"
+                + "}";
+        Observation entity = new Observation()
+                .setId(new IdLong(1))
+                .setSelfLink("http://example.org/v1.0/Observations(1)")
+                .setFeatureOfInterest(new FeatureOfInterest().setNavigationLink("Observations(1)/FeatureOfInterest").setExportObject(false))
+                .setDatastream(new Datastream().setNavigationLink("Observations(1)/Datastream").setExportObject(false))
+                .setPhenomenonTime(TestHelper.createTimeInstantUTC(2014, 12, 31, 11, 59, 59))
+                .setResultTime(TestHelper.createTimeInstantUTC(2014, 12, 31, 19, 59, 59))
+                .setResultLong(42);
+        Assert.assertEquals(42L, entity.getResult());
+        Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeEntity(entity)));
+        entity.setResult("42");
+        Assert.assertEquals(Observation.PrimitiveResult.NONE, entity.getResultPrimitive());
+        Assert.assertEquals("42", entity.getResult());
+    }
+
+    @Test
+    public void writeObservationsColumnar() throws IOException {
+        String expResult
+                = "{\n"
+                + "	\"@iot.count\": 4,\n"
+                + "	\"value\": [\n"
+                + "		{\n"
+                + "			\"@iot.id\": 1,\n"
+                + "			\"phenomenonTime\": \"2014-12-31T11:59:59.000Z\",\n"
+                + "			\"resultTime\": \"2014-12-31T19:59:59.000Z\",\n"
+                + "			\"result\": 70.4\n"
+                + "		},\n"
+                + "		{\n"
+                + "			\"@iot.id\": 2,\n"
+                + "			\"phenomenonTime\": \"2014-12-31T11:59:59.000Z/2014-12-31T19:59:59.000Z\",\n"
+                + "			\"resultTime\": null,\n"
+                + "			\"result\": 42\n"
+                + "		},\n"
+                + "		{\n"
+                + "			\"@iot.id\": 3,\n"
+                + "			\"phenomenonTime\": null,\n"
+                + "			\"resultTime\": null,\n"
+                + "			\"result\": \"seventy\"\n"
+                + "		},\n"
+                + "		{\n"
+                + "			\"@iot.id\": 4,\n"
+                + "			\"phenomenonTime\": \"2014-12-31T11:59:59.000Z\",\n"
+                + "			\"resultTime\": null,\n"
+                + "			\"result\": null\n"
+                + "		}\n"
+                + "	]\n"
+                + "}";
+        long time1 = Instant.parse("2014-12-31T11:59:59Z").toEpochMilli() * 1000;
+        long time2 = Instant.parse("2014-12-31T19:59:59Z").toEpochMilli() * 1000;
+        Set<Property> select = new HashSet<>(Arrays.asList(EntityProperty.ID, EntityProperty.PHENOMENONTIME, EntityProperty.RESULTTIME, EntityProperty.RESULT));
+        Assert.assertTrue(ObservationSetColumnar.supports(select));
+        ObservationSetColumnar columns = new ObservationSetColumnar(select);
+        int row = columns.addRow();
+        columns.setId(row, 1);
+        columns.setPhenomenonTime(row, time1, time1);
+        columns.setResultTime(row, time2);
+        columns.setResultDouble(row, 70.4);
+        row = columns.addRow();
+        columns.setId(row, 2);
+        columns.setPhenomenonTime(row, time1, time2);
+        columns.setResultLong(row, 42);
+        row = columns.addRow();
+        columns.setId(row, 3);
+        columns.setResultObject(row, "seventy");
+        row = columns.addRow();
+        columns.setId(row, 4);
+        columns.setPhenomenonTime(row, time1, time1);
+        columns.setCount(4);
+        Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeEntityCollection(columns)));
+        Assert.assertTrue(columns.isColumnar());
+
+        List<Observation> observations = columns.asList();
+        Assert.assertFalse(columns.isColumnar());
+        Assert.assertEquals(4, observations.size());
+        Assert.assertEquals(new IdLong(2), observations.get(1).getId());
+        Assert.assertEquals(42L, observations.get(1).getResult());
+        Assert.assertEquals(TestHelper.createTimeInstantUTC(2014, 12, 31, 19, 59, 59), observations.get(0).getResultTime());
+        Assert.assertEquals("seventy", observations.get(2).getResult());
+    }
+
+    @Test
+    public void writeObservationsColumnarNotSupported() {
+        Assert.assertFalse(ObservationSetColumnar.supports(new HashSet<>()));
+        Assert.assertFalse(ObservationSetColumnar.supports(new HashSet<>(Arrays.asList(EntityProperty.RESULT, EntityProperty.PARAMETERS))));
+    }
+
     @Test
     public void writeObservationWithEmptyResultTime() throws IOException {
         String expResult
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResponseCacheTest {
+
+    private static CoreSettings settings;
+    private ResponseCache cache;
+
+    @BeforeClass
+    public static void initClass() {
+        settings = new CoreSettings();
+        settings.getHttpSettings().set(CoreSettings.TAG_RESPONSE_CACHE_SIZE, "10");
+    }
+
+    @Before
+    public void init() {
+        cache = new ResponseCache(settings);
+    }
+
+    private ResponseCache.Dependencies dependencies(String path, String query) {
+        return cache.findDependencies(
+                PathParser.parsePath(new IdManagerLong(), "", path),
+                QueryParser.parseQuery(query, settings));
+    }
+
+    private void put(String key, String path, String query) {
+        cache.put(key, dependencies(path, query), cache.getGeneration(), key, "application/json");
+    }
+
+    private static EntityChangedMessage changed(Entity entity) {
+        return new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntity(entity);
+    }
+
+    @Test
+    public void testCacheable() {
+        Assert.assertNotNull(dependencies("/Things", null));
+        Assert.assertNotNull(dependencies("/Things(1)", "$expand=Locations"));
+        Assert.assertNotNull(dependencies("/Things", "$filter=Locations/name eq 'x'"));
+        Assert.assertNull(dependencies("/Observations", null));
+        Assert.assertNull(dependencies("/Things(1)/Datastreams", null));
+        Assert.assertNull(dependencies("/Things", "$expand=Datastreams"));
+        Assert.assertNull(dependencies("/Things", "$filter=Datastreams/Observations/result gt 5"));
+        Assert.assertNull(dependencies("/Things", "$orderby=Datastreams/name"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        put("thing1", "/Things(1)", null);
+        put("thing2", "/Things(2)", null);
+        put("things", "/Things", null);
+        put("thing2locations", "/Things(2)", "$expand=Locations");
+        Assert.assertEquals(4, cache.size());
+
+        cache.messageReceived(changed(new Observation(new IdLong(1L))));
+        Assert.assertEquals(4, cache.size());
+
+        cache.messageReceived(changed(new Thing(new IdLong(1L))));
+        Assert.assertNull(cache.get("thing1"));
+        Assert.assertNull(cache.get("things"));
+        Assert.assertNotNull(cache.get("thing2"));
+        Assert.assertNotNull(cache.get("thing2locations"));
+
+        cache.messageReceived(changed(new Location(new IdLong(3L))));
+        Assert.assertNotNull(cache.get("thing2"));
+        Assert.assertNull(cache.get("thing2locations"));
+        Assert.assertEquals(3, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testChangeWhileLoading() {
+        long generation = cache.getGeneration();
+        cache.messageReceived(changed(new Thing(new IdLong(1L))));
+        cache.put("things", dependencies("/Things", null), generation, "[]", "application/json");
+        Assert.assertNull(cache.get("things"));
+    }
+
+}
@@ -3,11 +3,16 @@ package de.fraunhofer.iosb.ilt.frostserver.settings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigUtils;
 import de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_CODEC;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_COMPRESSION_THRESHOLD;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_MAX_IN_FLIGHT;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_MQTT_BROKER;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_QOS_LEVEL;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_QUEUE_OVERFLOW_POLICY;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_RECV_QUEUE_SIZE;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_RECV_WORKER_COUNT;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_BATCH_DELAY;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_BATCH_SIZE;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_QUEUE_SIZE;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_WORKER_COUNT;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_TOPIC_NAME;
@@ -57,6 +62,11 @@ public class ConfigDefaultsTest {
         // Test valid string properties
         assertEquals("tcp://127.0.0.1:1884", b.defaultValue(TAG_MQTT_BROKER));
         assertEquals("FROST-Bus", b.defaultValue(TAG_TOPIC_NAME));
+        assertEquals("DROP_NEWEST", b.defaultValue(TAG_QUEUE_OVERFLOW_POLICY));
+        assertEquals("JSON", b.defaultValue(TAG_CODEC));
+        assertEquals(0, b.defaultValueInt(TAG_COMPRESSION_THRESHOLD));
+        assertEquals(1, b.defaultValueInt(TAG_SEND_BATCH_SIZE));
+        assertEquals(5, b.defaultValueInt(TAG_SEND_BATCH_DELAY));
 
         // Test valid boolean properties
         CoreSettings c = new CoreSettings();
@@ -105,6 +115,11 @@ public class ConfigDefaultsTest {
         tags.add(TAG_MAX_IN_FLIGHT);
         tags.add(TAG_MQTT_BROKER);
         tags.add(TAG_TOPIC_NAME);
+        tags.add(TAG_QUEUE_OVERFLOW_POLICY);
+        tags.add(TAG_CODEC);
+        tags.add(TAG_COMPRESSION_THRESHOLD);
+        tags.add(TAG_SEND_BATCH_SIZE);
+        tags.add(TAG_SEND_BATCH_DELAY);
         assertTrue(tags.equals(b.configTags()));
 
         // Test configDefaults
@@ -132,6 +147,11 @@ public class ConfigDefaultsTest {
         // Test valid string properties
         assertEquals("tcp://127.0.0.1:1884", ConfigUtils.getDefaultValue(c, TAG_MQTT_BROKER));
         assertEquals("FROST-Bus", ConfigUtils.getDefaultValue(c, TAG_TOPIC_NAME));
+        assertEquals("DROP_NEWEST", ConfigUtils.getDefaultValue(c, TAG_QUEUE_OVERFLOW_POLICY));
+        assertEquals("JSON", ConfigUtils.getDefaultValue(c, TAG_CODEC));
+        assertEquals(0, ConfigUtils.getDefaultValueInt(c, TAG_COMPRESSION_THRESHOLD));
+        assertEquals(1, ConfigUtils.getDefaultValueInt(c, TAG_SEND_BATCH_SIZE));
+        assertEquals(5, ConfigUtils.getDefaultValueInt(c, TAG_SEND_BATCH_DELAY));
         // Test valid boolean properties
         assertEquals(true, ConfigUtils.getDefaultValueBoolean(CoreSettings.class, CoreSettings.TAG_USE_ABSOLUTE_NAVIGATION_LINKS));
         assertEquals(false, ConfigUtils.getDefaultValueBoolean(CoreSettings.class, CoreSettings.TAG_AUTH_ALLOW_ANON_READ));
@@ -177,6 +197,11 @@ public class ConfigDefaultsTest {
         tags.add(TAG_MAX_IN_FLIGHT);
         tags.add(TAG_MQTT_BROKER);
         tags.add(TAG_TOPIC_NAME);
+        tags.add(TAG_QUEUE_OVERFLOW_POLICY);
+        tags.add(TAG_CODEC);
+        tags.add(TAG_COMPRESSION_THRESHOLD);
+        tags.add(TAG_SEND_BATCH_SIZE);
+        tags.add(TAG_SEND_BATCH_DELAY);
         assertTrue(tags.equals(ConfigUtils.getConfigTags(c)));
         // Test configDefaults
         Map<String, String> configDefaults = ConfigUtils.getConfigDefaults(c);
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ProcessorHelperTest {
+
+    @Test
+    public void testBatchProcessors() throws InterruptedException {
+        ProcessorQueue<Integer> queue = new ProcessorQueue<>("Test", 100, ProcessorQueue.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 25; i++) {
+            queue.offer(i);
+        }
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(25);
+        ExecutorService executor = ProcessorHelper.createBatchProcessors(1, queue, batch -> {
+            batches.add(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                done.countDown();
+            }
+        }, 10, 50, "Test");
+        try {
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            ProcessorHelper.shutdownProcessors(executor, queue, 1, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(10, batches.get(0).size());
+        Assert.assertEquals(10, batches.get(1).size());
+        Assert.assertEquals(5, batches.get(2).size());
+        Assert.assertEquals(Integer.valueOf(0), batches.get(0).get(0));
+        Assert.assertEquals(Integer.valueOf(24), batches.get(2).get(4));
+    }
+
+}
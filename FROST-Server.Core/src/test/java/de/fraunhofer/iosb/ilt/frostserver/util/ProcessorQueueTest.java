@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorQueue.OverflowPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ProcessorQueueTest {
+
+    private static List<Integer> fillAndDrain(ProcessorQueue<Integer> queue) throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        List<Integer> result = new ArrayList<>();
+        queue.take(result, 10);
+        return result;
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        try (ProcessorQueue<Integer> queue = new ProcessorQueue<>("TestDropNewest", 3, OverflowPolicy.DROP_NEWEST)) {
+            Assert.assertEquals(Arrays.asList(0, 1, 2), fillAndDrain(queue));
+            Assert.assertEquals(5, queue.getOfferedCount());
+            Assert.assertEquals(2, queue.getDroppedCount());
+            Assert.assertEquals(3, queue.getTakenCount());
+            Assert.assertEquals(0, queue.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        try (ProcessorQueue<Integer> queue = new ProcessorQueue<>("TestDropOldest", 3, OverflowPolicy.DROP_OLDEST)) {
+            Assert.assertEquals(Arrays.asList(2, 3, 4), fillAndDrain(queue));
+            Assert.assertEquals(2, queue.getDroppedCount());
+            Assert.assertEquals(3, queue.getTakenCount());
+        }
+    }
+
+    @Test
+    public void testQueueWait() throws InterruptedException {
+        try (ProcessorQueue<Integer> queue = new ProcessorQueue<>("TestQueueWait", 3, OverflowPolicy.BLOCK)) {
+            queue.offer(1);
+            List<Integer> result = new ArrayList<>();
+            queue.take(result, 10);
+            long[] counts = queue.getQueueWaitCounts();
+            Assert.assertEquals(queue.getQueueWaitBoundsMillis().length + 1, counts.length);
+            Assert.assertEquals(1, Arrays.stream(counts).sum());
+        }
+    }
+
+    @Test
+    public void testPolicyFromString() {
+        Assert.assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.fromString(" block"));
+        Assert.assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.fromString("DROP_OLDEST"));
+        Assert.assertEquals(OverflowPolicy.DROP_NEWEST, OverflowPolicy.fromString("spill"));
+    }
+
+}
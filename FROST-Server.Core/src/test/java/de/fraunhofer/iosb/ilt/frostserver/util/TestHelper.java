@@ -95,12 +95,12 @@ public class TestHelper {
         return result;
     }
 
-    public static TimeInstant createTimeInstant(int year, int month, int day, int hour, int minute, int second, DateTimeZone timeZoneInput, DateTimeZone timeZoneOutput) {
-        return TimeInstant.create(new DateTime(year, month, day, hour, minute, second, timeZoneInput).getMillis(), timeZoneOutput);
+    public static TimeInstant createTimeInstant(int year, int month, int day, int hour, int minute, int second, DateTimeZone timeZone) {
+        return TimeInstant.create(new DateTime(year, month, day, hour, minute, second, timeZone).getMillis());
     }
 
     public static TimeInstant createTimeInstantUTC(int year, int month, int day, int hour, int minute, int second) {
-        return createTimeInstant(year, month, day, hour, minute, second, DateTimeZone.UTC, DateTimeZone.UTC);
+        return createTimeInstant(year, month, day, hour, minute, second, DateTimeZone.UTC);
     }
 
     public static TimeInstant createTimeInstant(int year, int month, int day, int hour, int minute, int second) {
@@ -111,8 +111,7 @@ public class TestHelper {
             int year2, int month2, int day2, int hour2, int minute2, int second2, DateTimeZone timeZone) {
         return TimeInterval.create(
                 new DateTime(year1, month1, day1, hour1, minute1, second1, timeZone).getMillis(),
-                new DateTime(year2, month2, day2, hour2, minute2, second2, timeZone).getMillis(),
-                timeZone);
+                new DateTime(year2, month2, day2, hour2, minute2, second2, timeZone).getMillis());
     }
 
 }
@@ -19,6 +19,7 @@ package de.fraunhofer.iosb.ilt.frostserver.http.common;
 
 import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
+import de.fraunhofer.iosb.ilt.frostserver.service.ResponseCache;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import static de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings.TAG_CORE_SETTINGS;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
@@ -83,6 +84,7 @@ public abstract class AbstractContextListener implements ServletContextListener
 
             PersistenceManagerFactory.init(coreSettings);
             MessageBusFactory.init(coreSettings);
+            ResponseCache.init(coreSettings);
 
             setupAuthFilter(context, coreSettings);
         }
@@ -92,6 +94,7 @@ public abstract class AbstractContextListener implements ServletContextListener
     public void contextDestroyed(ServletContextEvent sce) {
         LOGGER.info("Context destroyed, shutting down threads...");
         MessageBusFactory.getMessageBus().stop();
+        PersistenceManagerFactory.shutdown();
         try {
             Thread.sleep(5000L);
         } catch (InterruptedException ex) {
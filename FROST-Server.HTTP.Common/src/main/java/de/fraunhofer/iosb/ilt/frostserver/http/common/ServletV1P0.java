@@ -156,7 +156,12 @@ public class ServletV1P0 extends HttpServlet {
         httpResponse.setStatus(serviceResponse.getCode());
         serviceResponse.getHeaders().entrySet().forEach(x -> httpResponse.setHeader(x.getKey(), x.getValue()));
         try {
-            if (serviceResponse.getCode() >= 200
+            if (serviceResponse.isSuccessful() && serviceResponse.isResultStreamed()) {
+                httpResponse.setContentType(serviceResponse.getContentType());
+                httpResponse.setCharacterEncoding(ENCODING);
+                serviceResponse.writeResult(httpResponse.getOutputStream());
+
+            } else if (serviceResponse.getCode() >= 200
                     && serviceResponse.getCode() < 300
                     && serviceResponse.getResultFormatted() != null
                     && !serviceResponse.getResultFormatted().isEmpty()) {
@@ -27,6 +27,7 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.MqttSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueBoolean;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import io.moquette.BrokerConstants;
@@ -41,6 +42,10 @@ import io.moquette.server.Server;
 import io.moquette.server.config.IConfig;
 import io.moquette.server.config.MemoryConfig;
 import io.moquette.spi.impl.subscriptions.Subscription;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -71,6 +76,8 @@ public class MoquetteMqttServer implements MqttServer, ConfigDefaults {
     public static final String TAG_WEBSOCKET_PORT = "WebsocketPort";
     @DefaultValueInt(50)
     public static final String TAG_MAX_IN_FLIGHT = "maxInFlight";
+    @DefaultValueBoolean(false)
+    public static final String TAG_PUBLISH_USING_CLIENT = "publishUsingClient";
     @DefaultValue("io.moquette.persistence.mapdb.MapDBPersistentStore")
     public static final String STORAGE_CLASS_NAME = BrokerConstants.STORAGE_CLASS_NAME;
     @DefaultValue("")
@@ -111,7 +118,9 @@ public class MoquetteMqttServer implements MqttServer, ConfigDefaults {
 
     @Override
     public void publish(String topic, byte[] payload, int qos) {
-        if (mqttBroker != null && client != null) {
+        if (mqttBroker != null && client == null) {
+            publishInternal(topic, payload, qos);
+        } else if (mqttBroker != null) {
             if (!client.isConnected()) {
                 LOGGER.warn("MQTT client is not connected while trying to publish.");
                 try {
@@ -130,6 +139,25 @@ public class MoquetteMqttServer implements MqttServer, ConfigDefaults {
         }
     }
 
+    /**
+     * Publish the message by handing it directly to the broker, without going
+     * through a network connection.
+     */
+    private void publishInternal(String topic, byte[] payload, int qos) {
+        MqttPublishMessage message = MqttMessageBuilders.publish()
+                .topicName(topic)
+                .retained(false)
+                .qos(MqttQoS.valueOf(qos))
+                .payload(Unpooled.wrappedBuffer(payload))
+                .build();
+        try {
+            LOGGER.trace("    FROST -> Moquette on {}", topic);
+            mqttBroker.internalPublish(message, frostClientId);
+        } catch (RuntimeException ex) {
+            LOGGER.error("publish on topic '{}' failed.", topic, ex);
+        }
+    }
+
     @Override
     public void addSubscriptionListener(SubscriptionListener listener) {
         subscriptionListeners.add(SubscriptionListener.class, listener);
@@ -205,22 +233,11 @@ public class MoquetteMqttServer implements MqttServer, ConfigDefaults {
 
         AuthWrapper authWrapper = createAuthWrapper();
 
-        int maxInFlight = customSettings.getInt(TAG_MAX_IN_FLIGHT, getClass());
         try {
             mqttBroker.startServer(config, userHandlers, null, authWrapper, authWrapper);
-            String broker = "tcp://" + mqttSettings.getInternalHost() + ":" + mqttSettings.getPort();
-
-            client = new MqttClient(broker, frostClientId, new MemoryPersistence());
-            MqttConnectOptions connOpts = new MqttConnectOptions();
-            connOpts.setCleanSession(true);
-            connOpts.setAutomaticReconnect(true);
-            connOpts.setKeepAliveInterval(30);
-            connOpts.setConnectionTimeout(30);
-            connOpts.setMaxInflight(maxInFlight);
-            LOGGER.info("paho-client connecting to broker: {}", broker);
-
-            client.connect(connOpts);
-            LOGGER.info("paho-client connected to broker");
+            if (customSettings.getBoolean(TAG_PUBLISH_USING_CLIENT, getClass())) {
+                connectClient(mqttSettings);
+            }
         } catch (MqttException ex) {
             LOGGER.error("Could not create MQTT Client.", ex);
         } catch (IOException ex) {
@@ -229,6 +246,23 @@ public class MoquetteMqttServer implements MqttServer, ConfigDefaults {
         fetchOldSubscriptions();
     }
 
+    private void connectClient(MqttSettings mqttSettings) throws MqttException {
+        int maxInFlight = mqttSettings.getCustomSettings().getInt(TAG_MAX_IN_FLIGHT, getClass());
+        String broker = "tcp://" + mqttSettings.getInternalHost() + ":" + mqttSettings.getPort();
+
+        client = new MqttClient(broker, frostClientId, new MemoryPersistence());
+        MqttConnectOptions connOpts = new MqttConnectOptions();
+        connOpts.setCleanSession(true);
+        connOpts.setAutomaticReconnect(true);
+        connOpts.setKeepAliveInterval(30);
+        connOpts.setConnectionTimeout(30);
+        connOpts.setMaxInflight(maxInFlight);
+        LOGGER.info("paho-client connecting to broker: {}", broker);
+
+        client.connect(connOpts);
+        LOGGER.info("paho-client connected to broker");
+    }
+
     private AuthWrapper createAuthWrapper() {
         Settings authSettings = settings.getAuthSettings();
         String authProviderClassName = authSettings.get(CoreSettings.TAG_AUTH_PROVIDER, "");
@@ -77,6 +77,7 @@ public class FrostMqttServer {
         LOGGER.info("Shutting down threads...");
         MqttManager.shutdown();
         MessageBusFactory.getMessageBus().stop();
+        PersistenceManagerFactory.shutdown();
         try {
             Thread.sleep(3000L);
         } catch (InterruptedException ex) {
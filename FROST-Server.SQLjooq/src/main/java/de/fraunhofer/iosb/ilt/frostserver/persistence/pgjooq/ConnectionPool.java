@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.util.LatencyHistogram;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A named {@link ConnectionSource} that measures how long it takes to acquire
+ * connections, and exposes the state of the pool over JMX, as
+ * "de.fraunhofer.iosb.ilt.frostserver:type=ConnectionPool,name=[name]".
+ *
+ * @author scf
+ */
+public class ConnectionPool implements ConnectionPoolMXBean, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class.getName());
+    private static final String JMX_DOMAIN = "de.fraunhofer.iosb.ilt.frostserver";
+
+    private final String name;
+    private final ConnectionSource source;
+    private final LatencyHistogram acquireTimes = new LatencyHistogram();
+    private final AtomicLong failed = new AtomicLong();
+    private ObjectName objectName;
+
+    public ConnectionPool(String name, ConnectionSource source) {
+        this.name = name;
+        this.source = source;
+        register();
+    }
+
+    /**
+     * Get a connection from the pool, recording the time it took.
+     *
+     * @return A connection from the pool.
+     * @throws SQLException If no connection could be acquired.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = source.getConnection();
+            acquireTimes.record(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException | RuntimeException ex) {
+            failed.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    public ConnectionSource getSource() {
+        return source;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getProvider() {
+        return source.getClass().getName();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return source.getNumActive();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return source.getNumIdle();
+    }
+
+    @Override
+    public int getWaitingCount() {
+        return source.getNumWaiting();
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return source.getMaxTotal();
+    }
+
+    @Override
+    public long getAcquiredCount() {
+        return acquireTimes.getCount();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public long[] getAcquireBoundsMillis() {
+        return LatencyHistogram.getBoundsMillis();
+    }
+
+    @Override
+    public long[] getAcquireCounts() {
+        return acquireTimes.getCounts();
+    }
+
+    @Override
+    public double getAcquireMeanMillis() {
+        return acquireTimes.getMeanMillis();
+    }
+
+    @Override
+    public long getAcquire99Millis() {
+        return acquireTimes.getPercentileMillis(99);
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName newName = new ObjectName(JMX_DOMAIN + ":type=ConnectionPool,name=" + ObjectName.quote(name));
+            server.registerMBean(this, newName);
+            objectName = newName;
+        } catch (InstanceAlreadyExistsException ex) {
+            // Another application in the same JVM uses the same pool name.
+            LOGGER.info("Not exposing metrics of connection pool {}, the name is already in use.", name);
+        } catch (JMException | RuntimeException ex) {
+            LOGGER.debug("Could not register metrics of connection pool {}", name, ex);
+        }
+    }
+
+    /**
+     * Stop exposing the metrics of this pool, and close the pool.
+     */
+    @Override
+    public void close() {
+        source.close();
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException | RuntimeException ex) {
+            LOGGER.debug("Could not unregister metrics of connection pool {}", name, ex);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": active " + getActiveCount() + "/" + getMaxTotal()
+                + ", idle " + getIdleCount()
+                + ", waiting " + getWaitingCount()
+                + ", acquired " + getAcquiredCount()
+                + ", mean " + getAcquireMeanMillis() + "ms";
+    }
+
+}
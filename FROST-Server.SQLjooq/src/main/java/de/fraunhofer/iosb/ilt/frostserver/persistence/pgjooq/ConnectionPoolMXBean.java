@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+/**
+ * The metrics of a {@link ConnectionPool}, as exposed over JMX.
+ *
+ * @author scf
+ */
+public interface ConnectionPoolMXBean {
+
+    public String getName();
+
+    public String getProvider();
+
+    public int getActiveCount();
+
+    public int getIdleCount();
+
+    public int getWaitingCount();
+
+    public int getMaxTotal();
+
+    public long getAcquiredCount();
+
+    public long getFailedCount();
+
+    /**
+     * The upper bounds of the acquire time histogram buckets, in
+     * milliseconds.
+     *
+     * @return The upper bounds of the buckets.
+     */
+    public long[] getAcquireBoundsMillis();
+
+    /**
+     * The number of acquired connections per bucket of time spent waiting
+     * for the connection.
+     *
+     * @return The number of connections per bucket.
+     */
+    public long[] getAcquireCounts();
+
+    public double getAcquireMeanMillis();
+
+    public long getAcquire99Millis();
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A source of database connections, usually a connection pool. Alternative
+ * pool implementations can be configured with the setting
+ * {@link ConnectionUtils#TAG_DB_PROVIDER}, they must have a public constructor
+ * that takes the
+ * {@link de.fraunhofer.iosb.ilt.frostserver.settings.Settings} of the
+ * persistence manager.
+ *
+ * @author scf
+ */
+public interface ConnectionSource {
+
+    public Connection getConnection() throws SQLException;
+
+    /**
+     * @return The number of connections that are in use, or -1 if unknown.
+     */
+    public default int getNumActive() {
+        return -1;
+    }
+
+    /**
+     * @return The number of connections that are idle in the pool, or -1 if
+     * unknown.
+     */
+    public default int getNumIdle() {
+        return -1;
+    }
+
+    /**
+     * @return The number of threads waiting for a connection, or -1 if
+     * unknown.
+     */
+    public default int getNumWaiting() {
+        return -1;
+    }
+
+    /**
+     * @return The maximum number of connections in the pool, or -1 if
+     * unknown.
+     */
+    public default int getMaxTotal() {
+        return -1;
+    }
+
+    /**
+     * Close the pool, and all the connections it holds.
+     */
+    public default void close() {
+        // Nothing to close by default.
+    }
+}
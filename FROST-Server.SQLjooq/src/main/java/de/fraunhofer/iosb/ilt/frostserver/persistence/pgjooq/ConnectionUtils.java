@@ -17,14 +17,18 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
 
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueBoolean;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
+import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -61,13 +65,30 @@ public class ConnectionUtils implements ConfigDefaults {
     public static final String TAG_DB_MAXCONN = "db.conn.max";
     public static final String TAG_DB_MAXIDLE = "db.conn.idle.max";
     public static final String TAG_DB_MINIDLE = "db.conn.idle.min";
+    public static final String TAG_DB_MAXWAIT = "db.conn.maxWait";
+    public static final String TAG_DB_PREPARE_THRESHOLD = "db.conn.prepareThreshold";
+
+    @DefaultValue("")
+    public static final String TAG_DB_PROVIDER = "db.conn.provider";
+    @DefaultValueInt(0)
+    public static final String TAG_DB_STATEMENT_CACHE = "db.conn.statementCacheSize";
+    @DefaultValueBoolean(false)
+    public static final String TAG_DB_REWRITE_BATCHED_INSERTS = "db.conn.reWriteBatchedInserts";
+    /**
+     * Connections that are not returned to the pool within this many seconds
+     * are considered abandoned, and are closed. This includes connections
+     * that are legitimately held for a long time, like for a long running
+     * streaming response.
+     */
+    @DefaultValueInt(0)
+    public static final String TAG_DB_REMOVE_ABANDONED_TIMEOUT = "db.conn.removeAbandonedTimeout";
 
     /**
      * The logger for this class.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionUtils.class);
 
-    private static final Map<String, ConnectionSource> EXISTING_POOLS = new HashMap<>();
+    private static final Map<String, ConnectionPool> EXISTING_POOLS = new ConcurrentHashMap<>();
 
     private ConnectionUtils() {
         // Utility class, should not be instantiated.
@@ -89,25 +110,51 @@ public class ConnectionUtils implements ConfigDefaults {
      * @throws SQLException when there is a problem.
      */
     public static Connection getPoolingConnection(String name, Settings settings) throws SQLException {
-        ConnectionSource source = EXISTING_POOLS.get(name);
-        if (source == null) {
-            source = createPoolingConnection(name, settings);
+        return EXISTING_POOLS.computeIfAbsent(name, n -> {
+            ConnectionPool pool = createPool(n, settings);
+            PersistenceManagerFactory.addShutdownHook(() -> closePool(n));
+            return pool;
+        }).getConnection();
+    }
+
+    /**
+     * Close the pool with the given name, if it exists.
+     *
+     * @param name The name of the pool to close.
+     */
+    public static void closePool(String name) {
+        ConnectionPool pool = EXISTING_POOLS.remove(name);
+        if (pool != null) {
+            LOGGER.info("Closing connection pool {}.", name);
+            pool.close();
         }
-        return source.getConnection();
     }
 
-    private static ConnectionSource createPoolingConnection(String name, Settings settings) {
-        synchronized (EXISTING_POOLS) {
-            ConnectionSource source = EXISTING_POOLS.get(name);
-            if (source == null) {
-                if (!settings.get(TAG_DB_URL, ConnectionUtils.class).isEmpty()) {
-                    source = setupBasicDataSource(settings);
-                } else {
-                    source = setupDataSource(settings);
-                }
-                EXISTING_POOLS.put(name, source);
+    static ConnectionPool createPool(String name, Settings settings) {
+        String provider = settings.get(TAG_DB_PROVIDER, ConnectionUtils.class);
+        ConnectionSource source;
+        if (!provider.isEmpty()) {
+            source = setupProvider(provider, settings);
+        } else if (!settings.get(TAG_DB_URL, ConnectionUtils.class).isEmpty()) {
+            source = setupBasicDataSource(settings);
+        } else {
+            source = setupDataSource(settings);
+        }
+        return new ConnectionPool(name, source);
+    }
+
+    private static ConnectionSource setupProvider(String provider, Settings settings) {
+        LOGGER.info("Setting up {} for database connections.", provider);
+        try {
+            Class<?> providerClass = Class.forName(provider);
+            if (!ConnectionSource.class.isAssignableFrom(providerClass)) {
+                throw new IllegalArgumentException("Class " + provider + " set in '" + TAG_DB_PROVIDER + "' does not implement " + ConnectionSource.class.getName());
             }
-            return source;
+            return (ConnectionSource) providerClass.getConstructor(Settings.class).newInstance(settings);
+        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException exc) {
+            throw new IllegalArgumentException("Failed to create connection provider " + provider, exc);
+        } catch (InvocationTargetException exc) {
+            throw new IllegalArgumentException("Failed to create connection provider " + provider, exc.getCause());
         }
     }
 
@@ -119,13 +166,34 @@ public class ConnectionUtils implements ConfigDefaults {
         }
         try {
             Class.forName(driver);
-            BasicDataSource ds = new BasicDataSource();
+            MeasuredBasicDataSource ds = new MeasuredBasicDataSource();
             ds.setUrl(settings.get(TAG_DB_URL, ConnectionUtils.class));
             ds.setUsername(settings.get(TAG_DB_USERNAME, ConnectionUtils.class));
             ds.setPassword(settings.get(TAG_DB_PASSWRD, ConnectionUtils.class));
             ds.setMaxIdle(settings.getInt(TAG_DB_MAXIDLE, ds.getMaxIdle()));
             ds.setMaxTotal(settings.getInt(TAG_DB_MAXCONN, ds.getMaxTotal()));
             ds.setMinIdle(settings.getInt(TAG_DB_MINIDLE, ds.getMinIdle()));
+            ds.setMaxWaitMillis(settings.getLong(TAG_DB_MAXWAIT, ds.getMaxWaitMillis()));
+            int statementCacheSize = settings.getInt(TAG_DB_STATEMENT_CACHE, ConnectionUtils.class);
+            if (statementCacheSize > 0) {
+                ds.setPoolPreparedStatements(true);
+                ds.setMaxOpenPreparedStatements(statementCacheSize);
+            }
+            if (settings.getBoolean(TAG_DB_REWRITE_BATCHED_INSERTS, ConnectionUtils.class)) {
+                ds.addConnectionProperty("reWriteBatchedInserts", "true");
+            }
+            if (settings.containsName(TAG_DB_PREPARE_THRESHOLD)) {
+                ds.addConnectionProperty("prepareThreshold", Integer.toString(settings.getInt(TAG_DB_PREPARE_THRESHOLD, 5)));
+            }
+            int abandonedTimeout = settings.getInt(TAG_DB_REMOVE_ABANDONED_TIMEOUT, ConnectionUtils.class);
+            if (abandonedTimeout > 0) {
+                // Connections held longer than this are closed, and logged with the stack trace of where they were borrowed.
+                ds.setRemoveAbandonedOnBorrow(true);
+                ds.setRemoveAbandonedOnMaintenance(true);
+                ds.setRemoveAbandonedTimeout(abandonedTimeout);
+                ds.setLogAbandoned(true);
+                ds.setTimeBetweenEvictionRunsMillis(Math.max(1000L, abandonedTimeout * 500L));
+            }
             return new ConnectionSourceBasicDataSource(ds);
         } catch (ClassNotFoundException exc) {
             throw new IllegalArgumentException(exc);
@@ -174,11 +242,6 @@ public class ConnectionUtils implements ConfigDefaults {
         driver.registerPool(name, connectionPool);
     }
 
-    private static interface ConnectionSource {
-
-        public Connection getConnection() throws SQLException;
-    }
-
     private static class ConnectionSourceDataSource implements ConnectionSource {
 
         private final DataSource ds;
@@ -193,19 +256,67 @@ public class ConnectionUtils implements ConfigDefaults {
         }
     }
 
-    private static class ConnectionSourceBasicDataSource implements ConnectionSource {
+    static class ConnectionSourceBasicDataSource implements ConnectionSource {
 
-        private final BasicDataSource dataSource;
+        private final MeasuredBasicDataSource dataSource;
 
-        public ConnectionSourceBasicDataSource(BasicDataSource dataSource) {
+        public ConnectionSourceBasicDataSource(MeasuredBasicDataSource dataSource) {
             this.dataSource = dataSource;
         }
 
+        BasicDataSource getDataSource() {
+            return dataSource;
+        }
+
         @Override
         public Connection getConnection() throws SQLException {
             return dataSource.getConnection();
         }
 
+        @Override
+        public int getNumActive() {
+            return dataSource.getNumActive();
+        }
+
+        @Override
+        public int getNumIdle() {
+            return dataSource.getNumIdle();
+        }
+
+        @Override
+        public int getNumWaiting() {
+            return dataSource.getNumWaiters();
+        }
+
+        @Override
+        public int getMaxTotal() {
+            return dataSource.getMaxTotal();
+        }
+
+        @Override
+        public void close() {
+            try {
+                dataSource.close();
+            } catch (SQLException ex) {
+                LOGGER.warn("Exception closing connection pool.", ex);
+            }
+        }
+
+    }
+
+    /**
+     * A BasicDataSource that exposes the number of threads waiting for a
+     * connection.
+     */
+    private static class MeasuredBasicDataSource extends BasicDataSource {
+
+        public int getNumWaiters() {
+            GenericObjectPool<?> pool = getConnectionPool();
+            if (pool == null) {
+                return 0;
+            }
+            return pool.getNumWaiters();
+        }
     }
 
     public static class ConnectionWrapper implements Provider<Connection> {
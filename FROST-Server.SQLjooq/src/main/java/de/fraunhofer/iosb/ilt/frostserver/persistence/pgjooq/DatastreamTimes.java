@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableDatastreams;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableFeatures;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableMultiDatastreams;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollection;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.geolatte.geom.Geometry;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The phenomenonTime, resultTime and observedArea changes of Datastreams and
+ * MultiDatastreams, aggregated over a number of inserted Observations. Instead
+ * of updating a Datastream for each Observation, as the insert trigger does,
+ * each Datastream is updated once with the aggregated values.
+ *
+ * This class is not thread safe.
+ *
+ * @author scf
+ * @param <J> The type of the ID fields.
+ */
+public class DatastreamTimes<J extends Comparable> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatastreamTimes.class.getName());
+
+    private final Map<J, Times<J>> datastreams = new HashMap<>();
+    private final Map<J, Times<J>> multiDatastreams = new HashMap<>();
+
+    /**
+     * Register an inserted Observation.
+     *
+     * @param datastreamId The id of the Datastream of the Observation, or
+     * null.
+     * @param multiDatastreamId The id of the MultiDatastream of the
+     * Observation, or null.
+     * @param featureId The id of the FeatureOfInterest of the Observation.
+     * @param phenomenonTimeStart The start of the phenomenonTime.
+     * @param phenomenonTimeEnd The end of the phenomenonTime, or null.
+     * @param resultTime The resultTime, or null.
+     */
+    public void addObservation(J datastreamId, J multiDatastreamId, J featureId, OffsetDateTime phenomenonTimeStart, OffsetDateTime phenomenonTimeEnd, OffsetDateTime resultTime) {
+        OffsetDateTime phenomenonTimeLast = phenomenonTimeEnd == null ? phenomenonTimeStart : phenomenonTimeEnd;
+        if (datastreamId != null) {
+            datastreams.computeIfAbsent(datastreamId, k -> new Times<>())
+                    .add(featureId, phenomenonTimeStart, phenomenonTimeLast, resultTime, resultTime);
+        }
+        if (multiDatastreamId != null) {
+            multiDatastreams.computeIfAbsent(multiDatastreamId, k -> new Times<>())
+                    .add(featureId, phenomenonTimeStart, phenomenonTimeLast, resultTime, resultTime);
+        }
+    }
+
+    /**
+     * Add all changes registered in the given DatastreamTimes to this one.
+     *
+     * @param other The DatastreamTimes to add the changes of.
+     */
+    public void addAll(DatastreamTimes<J> other) {
+        merge(datastreams, other.datastreams);
+        merge(multiDatastreams, other.multiDatastreams);
+    }
+
+    private static <J> void merge(Map<J, Times<J>> target, Map<J, Times<J>> source) {
+        for (Map.Entry<J, Times<J>> entry : source.entrySet()) {
+            Times<J> times = entry.getValue();
+            Times<J> targetTimes = target.computeIfAbsent(entry.getKey(), k -> new Times<>());
+            targetTimes.features.addAll(times.features);
+            targetTimes.add(null, times.phenomenonTimeStart, times.phenomenonTimeEnd, times.resultTimeStart, times.resultTimeEnd);
+        }
+    }
+
+    public boolean isEmpty() {
+        return datastreams.isEmpty() && multiDatastreams.isEmpty();
+    }
+
+    public int size() {
+        return datastreams.size() + multiDatastreams.size();
+    }
+
+    public void clear() {
+        datastreams.clear();
+        multiDatastreams.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "Datastreams " + datastreams.keySet() + ", MultiDatastreams " + multiDatastreams.keySet();
+    }
+
+    /**
+     * Write the aggregated changes to the database, using one update statement
+     * per (Multi)Datastream. This does not commit.
+     *
+     * @param dslContext The DSLContext to use.
+     * @param tables The tables to update.
+     */
+    public void write(DSLContext dslContext, TableCollection<J> tables) {
+        AbstractTableFeatures<J> tf = tables.getTableFeatures();
+        AbstractTableDatastreams<J> td = tables.getTableDatastreams();
+        for (Map.Entry<J, Times<J>> entry : datastreams.entrySet()) {
+            Map<Field, Object> update = createUpdate(entry.getValue(), td.colPhenomenonTimeStart, td.colPhenomenonTimeEnd, td.colResultTimeStart, td.colResultTimeEnd, td.colObservedArea, tf);
+            dslContext.update(td)
+                    .set(update)
+                    .where(td.getId().eq(entry.getKey()))
+                    .execute();
+        }
+        AbstractTableMultiDatastreams<J> tmd = tables.getTableMultiDatastreams();
+        for (Map.Entry<J, Times<J>> entry : multiDatastreams.entrySet()) {
+            Map<Field, Object> update = createUpdate(entry.getValue(), tmd.colPhenomenonTimeStart, tmd.colPhenomenonTimeEnd, tmd.colResultTimeStart, tmd.colResultTimeEnd, tmd.colObservedArea, tf);
+            dslContext.update(tmd)
+                    .set(update)
+                    .where(tmd.getId().eq(entry.getKey()))
+                    .execute();
+        }
+        LOGGER.debug("Updated times of {} Datastreams and {} MultiDatastreams.", datastreams.size(), multiDatastreams.size());
+    }
+
+    private static <J extends Comparable> Map<Field, Object> createUpdate(
+            Times<J> times,
+            Field<OffsetDateTime> colPhenomenonTimeStart,
+            Field<OffsetDateTime> colPhenomenonTimeEnd,
+            Field<OffsetDateTime> colResultTimeStart,
+            Field<OffsetDateTime> colResultTimeEnd,
+            Field<Geometry> colObservedArea,
+            AbstractTableFeatures<J> tableFeatures) {
+        Map<Field, Object> update = new HashMap<>();
+        least(update, colPhenomenonTimeStart, times.phenomenonTimeStart);
+        greatest(update, colPhenomenonTimeEnd, times.phenomenonTimeEnd);
+        least(update, colResultTimeStart, times.resultTimeStart);
+        greatest(update, colResultTimeEnd, times.resultTimeEnd);
+        if (!times.features.isEmpty()) {
+            Field<Geometry> featureArea = DSL.select(DSL.field("ST_Collect({0})", colObservedArea.getDataType(), tableFeatures.colGeom))
+                    .from(tableFeatures)
+                    .where(tableFeatures.getId().in(times.features))
+                    .asField();
+            update.put(colObservedArea, DSL.field("ST_ConvexHull(ST_Collect({0}, {1}))", colObservedArea.getDataType(), colObservedArea, featureArea));
+        }
+        return update;
+    }
+
+    /**
+     * Sets the field to the lower of the current and the given value. Postgres
+     * ignores nulls in least().
+     */
+    private static void least(Map<Field, Object> update, Field<OffsetDateTime> field, OffsetDateTime value) {
+        if (value != null) {
+            update.put(field, DSL.least(field, DSL.val(value, field)));
+        }
+    }
+
+    /**
+     * Sets the field to the higher of the current and the given value.
+     * Postgres ignores nulls in greatest().
+     */
+    private static void greatest(Map<Field, Object> update, Field<OffsetDateTime> field, OffsetDateTime value) {
+        if (value != null) {
+            update.put(field, DSL.greatest(field, DSL.val(value, field)));
+        }
+    }
+
+    /**
+     * The aggregated changes for one (Multi)Datastream.
+     */
+    private static class Times<J> {
+
+        private OffsetDateTime phenomenonTimeStart;
+        private OffsetDateTime phenomenonTimeEnd;
+        private OffsetDateTime resultTimeStart;
+        private OffsetDateTime resultTimeEnd;
+        private final Set<J> features = new HashSet<>();
+
+        public void add(J featureId, OffsetDateTime phenStart, OffsetDateTime phenEnd, OffsetDateTime resultStart, OffsetDateTime resultEnd) {
+            if (featureId != null) {
+                features.add(featureId);
+            }
+            phenomenonTimeStart = min(phenomenonTimeStart, phenStart);
+            phenomenonTimeEnd = max(phenomenonTimeEnd, phenEnd);
+            resultTimeStart = min(resultTimeStart, resultStart);
+            resultTimeEnd = max(resultTimeEnd, resultEnd);
+        }
+
+        private static OffsetDateTime min(OffsetDateTime current, OffsetDateTime value) {
+            if (current == null || (value != null && value.isBefore(current))) {
+                return value;
+            }
+            return current;
+        }
+
+        private static OffsetDateTime max(OffsetDateTime current, OffsetDateTime value) {
+            if (current == null || (value != null && value.isAfter(current))) {
+                return value;
+            }
+            return current;
+        }
+    }
+}
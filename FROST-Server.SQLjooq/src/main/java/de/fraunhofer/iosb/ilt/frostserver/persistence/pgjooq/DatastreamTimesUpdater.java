@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollection;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the Datastream time changes of committed transactions, and writes
+ * them to the database in a fixed interval, using a separate connection. All
+ * changes to one Datastream within the interval result in a single update.
+ *
+ * When writing fails, the changes are retried with an increasing delay, up to
+ * {@link #MAX_ATTEMPTS} times, after which they are logged and dropped. On
+ * shutdown of the persistence layer, the pending changes are written one last
+ * time.
+ *
+ * @author scf
+ * @param <J> The type of the ID fields.
+ */
+public class DatastreamTimesUpdater<J extends Comparable> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatastreamTimesUpdater.class.getName());
+    private static final String SOURCE_NAME = "FROST-Source";
+    /**
+     * The number of times a change is tried before it is dropped.
+     */
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private static final Map<TableCollection<?>, DatastreamTimesUpdater<?>> INSTANCES = new HashMap<>();
+
+    private final Settings customSettings;
+    private final TableCollection<J> tables;
+    private final long interval;
+    private final ScheduledExecutorService executor;
+    private DatastreamTimes<J> pending = new DatastreamTimes<>();
+    /**
+     * The changes that failed to be written, and are retried in the next
+     * write. Only accessed by the thread that writes.
+     */
+    private DatastreamTimes<J> failed;
+    private int failedAttempts;
+    private long nextAttempt;
+
+    private DatastreamTimesUpdater(Settings customSettings, TableCollection<J> tables, long interval) {
+        this.customSettings = customSettings;
+        this.tables = tables;
+        this.interval = interval;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DatastreamTimesUpdater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the updater for the given tables, creating it if needed. New
+     * updaters are shut down when the persistence layer shuts down.
+     *
+     * @param <J> The type of the ID fields.
+     * @param customSettings The settings to use for connecting to the
+     * database.
+     * @param tables The tables to update.
+     * @param interval The interval to update the database in, in
+     * milliseconds.
+     * @return The updater for the given tables.
+     */
+    public static synchronized <J extends Comparable> DatastreamTimesUpdater<J> getInstance(Settings customSettings, TableCollection<J> tables, long interval) {
+        if (INSTANCES.isEmpty()) {
+            PersistenceManagerFactory.addShutdownHook(DatastreamTimesUpdater::shutdownAll);
+        }
+        return (DatastreamTimesUpdater<J>) INSTANCES.computeIfAbsent(tables, t -> new DatastreamTimesUpdater<>(customSettings, tables, interval));
+    }
+
+    /**
+     * Stop all updaters, after writing their pending changes.
+     */
+    public static void shutdownAll() {
+        List<DatastreamTimesUpdater<?>> updaters;
+        synchronized (DatastreamTimesUpdater.class) {
+            updaters = new ArrayList<>(INSTANCES.values());
+            INSTANCES.clear();
+        }
+        for (DatastreamTimesUpdater<?> updater : updaters) {
+            updater.shutdown();
+        }
+    }
+
+    /**
+     * Add the changes of a committed transaction. They are written to the
+     * database in the next update.
+     *
+     * @param times The changes to add.
+     */
+    public synchronized void addAll(DatastreamTimes<J> times) {
+        pending.addAll(times);
+    }
+
+    /**
+     * Stop the background writer and write the pending changes.
+     */
+    private void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("DatastreamTimesUpdater did not stop in time.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.warn("Interrupted while waiting for the DatastreamTimesUpdater to stop.", ex);
+            Thread.currentThread().interrupt();
+        }
+        if (!write() && failed != null) {
+            drop("the server is shutting down");
+        }
+    }
+
+    private void flush() {
+        if (failed != null && System.currentTimeMillis() < nextAttempt) {
+            return;
+        }
+        if (!write() && failed != null) {
+            if (failedAttempts >= MAX_ATTEMPTS) {
+                drop(failedAttempts + " attempts failed");
+            } else {
+                nextAttempt = System.currentTimeMillis() + (interval << failedAttempts);
+            }
+        }
+    }
+
+    /**
+     * Write the pending and failed changes.
+     *
+     * @return true if there was nothing to write, or the write succeeded.
+     */
+    private boolean write() {
+        DatastreamTimes<J> toWrite;
+        synchronized (this) {
+            if (pending.isEmpty() && failed == null) {
+                return true;
+            }
+            toWrite = pending;
+            pending = new DatastreamTimes<>();
+        }
+        if (failed != null) {
+            toWrite.addAll(failed);
+        }
+        try (Connection connection = ConnectionUtils.getConnection(SOURCE_NAME, customSettings)) {
+            try {
+                toWrite.write(DSL.using(connection, SQLDialect.POSTGRES), tables);
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException | RuntimeException ex) {
+            failed = toWrite;
+            failedAttempts++;
+            LOGGER.error("Failed to update the times of {} (Multi)Datastreams, attempt {} of {}.", toWrite.size(), failedAttempts, MAX_ATTEMPTS, ex);
+            return false;
+        }
+        failed = null;
+        failedAttempts = 0;
+        return true;
+    }
+
+    private void drop(String reason) {
+        LOGGER.error("Dropping the time updates of {} (Multi)Datastreams, {}: {}", failed.size(), reason, failed);
+        failed = null;
+        failedAttempts = 0;
+    }
+
+}
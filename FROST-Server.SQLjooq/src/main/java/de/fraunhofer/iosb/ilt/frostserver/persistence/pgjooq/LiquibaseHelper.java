@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.Map;
 import liquibase.Contexts;
 import liquibase.Liquibase;
 import liquibase.database.Database;
@@ -47,10 +49,23 @@ public class LiquibaseHelper {
     }
 
     public static String checkForUpgrades(Connection connection, String liquibaseChangelogFilename) {
+        return checkForUpgrades(connection, liquibaseChangelogFilename, Collections.emptyMap());
+    }
+
+    /**
+     * Check which changes would be made to the database, using the given
+     * changelog parameters.
+     *
+     * @param connection The connection to use.
+     * @param liquibaseChangelogFilename The changelog file to use.
+     * @param params The changelog parameters.
+     * @return The SQL that would be executed.
+     */
+    public static String checkForUpgrades(Connection connection, String liquibaseChangelogFilename, Map<String, Object> params) {
         StringWriter out = new StringWriter();
         try {
             Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
-            runLiquibaseCheck(liquibaseChangelogFilename, database, out);
+            runLiquibaseCheck(liquibaseChangelogFilename, params, database, out);
         } catch (DatabaseException ex) {
             outputError(ex, out, "Failed to initialise database");
         }
@@ -58,9 +73,25 @@ public class LiquibaseHelper {
     }
 
     public static boolean doUpgrades(Connection connection, String liquibaseChangelogFilename, Writer out) throws UpgradeFailedException, IOException {
+        return doUpgrades(connection, liquibaseChangelogFilename, Collections.emptyMap(), out);
+    }
+
+    /**
+     * Apply the changes in the given changelog to the database, using the
+     * given changelog parameters.
+     *
+     * @param connection The connection to use.
+     * @param liquibaseChangelogFilename The changelog file to use.
+     * @param params The changelog parameters.
+     * @param out The writer to write errors to.
+     * @return true if the upgrade was successful.
+     * @throws UpgradeFailedException when the upgrade fails.
+     * @throws IOException when writing to out fails.
+     */
+    public static boolean doUpgrades(Connection connection, String liquibaseChangelogFilename, Map<String, Object> params, Writer out) throws UpgradeFailedException, IOException {
         try {
             Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
-            runLiquibaseUpdate(liquibaseChangelogFilename, database, out);
+            runLiquibaseUpdate(liquibaseChangelogFilename, params, database, out);
         } catch (DatabaseException ex) {
             outputError(ex, out, "Failed to initialise database");
             return false;
@@ -68,8 +99,9 @@ public class LiquibaseHelper {
         return true;
     }
 
-    private static void runLiquibaseCheck(String liquibaseChangelogFilename, Database database, StringWriter out) {
+    private static void runLiquibaseCheck(String liquibaseChangelogFilename, Map<String, Object> params, Database database, StringWriter out) {
         try (Liquibase liquibase = new Liquibase(liquibaseChangelogFilename, new ClassLoaderResourceAccessor(), database)) {
+            setParameters(liquibase, params);
             liquibase.update(new Contexts(), out);
         } catch (LiquibaseException ex) {
             outputError(ex, out, "Failed to upgrade database");
@@ -78,8 +110,9 @@ public class LiquibaseHelper {
         }
     }
 
-    private static void runLiquibaseUpdate(String liquibaseChangelogFilename, Database database, Writer out) throws UpgradeFailedException, IOException {
+    private static void runLiquibaseUpdate(String liquibaseChangelogFilename, Map<String, Object> params, Database database, Writer out) throws UpgradeFailedException, IOException {
         try (Liquibase liquibase = new Liquibase(liquibaseChangelogFilename, new ClassLoaderResourceAccessor(), database)) {
+            setParameters(liquibase, params);
             liquibase.update(new Contexts());
         } catch (LiquibaseException ex) {
             outputError(ex, out, "Failed to upgrade database");
@@ -89,6 +122,12 @@ public class LiquibaseHelper {
         }
     }
 
+    private static void setParameters(Liquibase liquibase, Map<String, Object> params) {
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            liquibase.setChangeLogParameter(entry.getKey(), entry.getValue());
+        }
+    }
+
     private static void outputError(final Exception exception, final StringWriter out, final String message) {
         try {
             outputError(exception, (Writer) out, message);
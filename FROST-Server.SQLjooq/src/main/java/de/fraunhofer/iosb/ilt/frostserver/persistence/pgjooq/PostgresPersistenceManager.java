@@ -24,6 +24,7 @@ import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.EntityParser;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
@@ -34,9 +35,12 @@ import de.fraunhofer.iosb.ilt.frostserver.persistence.AbstractPersistenceManager
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.ConnectionUtils.ConnectionWrapper;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.EntityFactories;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.EntityFactory;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.MessageBusCache;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.ObservationFactory;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import static de.fraunhofer.iosb.ilt.frostserver.util.Constants.UTC;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
@@ -49,7 +53,11 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.jooq.DSLContext;
 import org.jooq.Delete;
 import org.jooq.Record;
@@ -74,10 +82,26 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
     public static final OffsetDateTime DATETIME_MIN = OffsetDateTime.ofInstant(DATETIME_MIN_INSTANT, UTC);
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PostgresPersistenceManager.class.getName());
+    private static final String LIQUIBASE_PARAM_DEFER_DATASTREAM_TIMES = "deferDatastreamTimes";
 
     private CoreSettings settings;
     private ConnectionWrapper connectionProvider;
     private DSLContext dslContext;
+    /**
+     * The Datastream time changes of the current transaction, if Datastream
+     * times are updated by the server.
+     */
+    private DatastreamTimes<J> datastreamTimes;
+    /**
+     * Flag indicating the current transaction created, changed or deleted
+     * entities other than Observations. If so, the caches of database state
+     * are not used until the transaction ends.
+     */
+    private boolean entitiesChanged;
+    /**
+     * The caches that must be cleared when the current transaction commits.
+     */
+    private final Set<MessageBusCache> cachesToClear = new HashSet<>();
 
     @Override
     public void init(CoreSettings settings) {
@@ -110,6 +134,49 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         return connectionProvider;
     }
 
+    /**
+     * Get the collector for the Datastream time changes of the current
+     * transaction.
+     *
+     * @return The collector for Datastream time changes, or null if the
+     * Datastream times are updated by the database trigger.
+     */
+    public DatastreamTimes<J> getDatastreamTimes() {
+        if (datastreamTimes == null && settings.getPersistenceSettings().isDeferDatastreamTimes()) {
+            datastreamTimes = new DatastreamTimes<>();
+        }
+        return datastreamTimes;
+    }
+
+    /**
+     * Check if the current transaction created, changed or deleted entities
+     * other than Observations. If so, the caches of database state in the
+     * EntityFactories must not be used until the transaction ends, since they
+     * may not match what the transaction sees, and the transaction may still
+     * be rolled back.
+     *
+     * @return true if entities other than Observations were changed.
+     */
+    public boolean isEntitiesChanged() {
+        return entitiesChanged;
+    }
+
+    private void registerChange(EntityType type, EntityChangedMessage.Type change) {
+        if (type != EntityType.OBSERVATION) {
+            entitiesChanged = true;
+        }
+        for (MessageBusCache cache : getEntityFactories().getCaches()) {
+            if (cache.isAffectedBy(type, change)) {
+                cachesToClear.add(cache);
+            }
+        }
+    }
+
+    private void clearChanges() {
+        entitiesChanged = false;
+        cachesToClear.clear();
+    }
+
     @Override
     public boolean validatePath(ResourcePath path) {
         PathElement element = path.getIdentifiedElement();
@@ -180,6 +247,15 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
 
     @Override
     public Object get(ResourcePath path, Query query) {
+        return get(path, query, false);
+    }
+
+    @Override
+    public Object getStreaming(ResourcePath path, Query query) {
+        return get(path, query, true);
+    }
+
+    private Object get(ResourcePath path, Query query, boolean streaming) {
         PathElement lastElement = path.getLastElement();
         if (!(lastElement instanceof PathElementEntity) && !(lastElement instanceof PathElementEntitySet)) {
             if (!query.getExpand().isEmpty()) {
@@ -196,7 +272,8 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
                 .forPath(path)
                 .usingQuery(query);
 
-        ResultBuilder<J> entityCreator = new ResultBuilder<>(this, path, query, psb);
+        ResultBuilder<J> entityCreator = new ResultBuilder<>(this, path, query, psb)
+                .setStreaming(streaming);
         lastElement.visit(entityCreator);
         Object entity = entityCreator.getEntity();
 
@@ -218,10 +295,42 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
     public boolean doInsert(Entity entity) throws NoSuchEntityException, IncompleteEntityException {
         EntityFactories<J> ef = getEntityFactories();
         EntityFactory<Entity, J> factory = ef.getFactoryFor(entity.getEntityType());
+        registerChange(entity.getEntityType(), EntityChangedMessage.Type.CREATE);
         factory.insert(this, entity);
         return true;
     }
 
+    @Override
+    protected Entity doInsertAndFetch(Entity entity) throws NoSuchEntityException, IncompleteEntityException {
+        EntityFactories<J> ef = getEntityFactories();
+        EntityFactory<Entity, J> factory = ef.getFactoryFor(entity.getEntityType());
+        registerChange(entity.getEntityType(), EntityChangedMessage.Type.CREATE);
+        Entity stored = factory.insertAndReturn(this, entity);
+        if (stored == null) {
+            return get(entity.getEntityType(), entity.getId());
+        }
+        return stored;
+    }
+
+    @Override
+    public List<String> insertObservations(List<Observation> observations) {
+        PersistenceSettings persistenceSettings = settings.getPersistenceSettings();
+        if (!persistenceSettings.isBatchInsert()) {
+            return super.insertObservations(observations);
+        }
+        ObservationFactory<J> factory = (ObservationFactory<J>) getEntityFactories().<Observation>getFactoryFor(EntityType.OBSERVATION);
+        List<String> errors = factory.insert(this, observations, persistenceSettings.getInsertBatchSize());
+        for (int i = 0; i < observations.size(); i++) {
+            if (errors.get(i) == null) {
+                getEntityChangedMessages().add(
+                        new EntityChangedMessage()
+                                .setEventType(EntityChangedMessage.Type.CREATE)
+                                .setEntity(observations.get(i)));
+            }
+        }
+        return errors;
+    }
+
     @Override
     public EntityChangedMessage doUpdate(PathElementEntity pathElement, Entity entity) throws NoSuchEntityException, IncompleteEntityException {
         EntityFactories<J> ef = getEntityFactories();
@@ -233,6 +342,7 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         }
 
         EntityFactory<Entity, J> factory = ef.getFactoryFor(entity.getEntityType());
+        registerChange(entity.getEntityType(), EntityChangedMessage.Type.UPDATE);
         return factory.update(this, entity, id);
     }
 
@@ -274,6 +384,7 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         }
         EntityFactories<J> ef = getEntityFactories();
         EntityFactory<Entity, J> factory = ef.getFactoryFor(entityType);
+        registerChange(entityType, EntityChangedMessage.Type.UPDATE);
         factory.update(this, newEntity, (J) id.getValue());
 
         message.setEntity(newEntity);
@@ -286,12 +397,14 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         EntityFactories<J> ef = getEntityFactories();
         EntityType type = pathElement.getEntityType();
         EntityFactory<Entity, J> factory = ef.getFactoryFor(type);
+        registerChange(type, EntityChangedMessage.Type.DELETE);
         factory.delete(this, (J) pathElement.getId().getValue());
         return true;
     }
 
     @Override
     public void doDelete(ResourcePath path, Query query) {
+        registerChange(path.getMainElementType(), EntityChangedMessage.Type.DELETE);
         query.setSelect(Arrays.asList(EntityProperty.ID));
         QueryBuilder<J> psb = new QueryBuilder<>(this, settings, getPropertyResolver())
                 .forPath(path)
@@ -305,16 +418,49 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
 
     @Override
     protected boolean doCommit() {
-        return connectionProvider.doCommit();
+        boolean committed = commitWithDatastreamTimes();
+        for (MessageBusCache cache : cachesToClear) {
+            cache.clear();
+        }
+        clearChanges();
+        return committed;
+    }
+
+    private boolean commitWithDatastreamTimes() {
+        if (datastreamTimes == null || datastreamTimes.isEmpty()) {
+            return connectionProvider.doCommit();
+        }
+        PersistenceSettings persistenceSettings = settings.getPersistenceSettings();
+        int flushInterval = persistenceSettings.getDatastreamTimesFlushInterval();
+        if (flushInterval <= 0) {
+            datastreamTimes.write(getDslContext(), getEntityFactories().tableCollection);
+            datastreamTimes.clear();
+            return connectionProvider.doCommit();
+        }
+        boolean committed = connectionProvider.doCommit();
+        if (committed) {
+            DatastreamTimesUpdater.getInstance(persistenceSettings.getCustomSettings(), getEntityFactories().tableCollection, flushInterval)
+                    .addAll(datastreamTimes);
+        }
+        datastreamTimes.clear();
+        return committed;
     }
 
     @Override
     protected boolean doRollback() {
+        clearChanges();
+        if (datastreamTimes != null) {
+            datastreamTimes.clear();
+        }
         return connectionProvider.doRollback();
     }
 
     @Override
     protected boolean doClose() {
+        clearChanges();
+        if (datastreamTimes != null) {
+            datastreamTimes.clear();
+        }
         return connectionProvider.doClose();
     }
 
@@ -324,7 +470,7 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
             Settings customSettings = settings.getPersistenceSettings().getCustomSettings();
             Connection connection = ConnectionUtils.getConnection("FROST-Source", customSettings);
             String liquibaseChangelogFilename = getLiquibaseChangelogFilename();
-            return LiquibaseHelper.checkForUpgrades(connection, liquibaseChangelogFilename);
+            return LiquibaseHelper.checkForUpgrades(connection, liquibaseChangelogFilename, createLiquibaseParameters());
         } catch (SQLException ex) {
             LOGGER.error("Could not initialise database.", ex);
             return "Failed to initialise database:\n"
@@ -347,7 +493,13 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
             return false;
         }
         String liquibaseChangelogFilename = getLiquibaseChangelogFilename();
-        return LiquibaseHelper.doUpgrades(connection, liquibaseChangelogFilename, out);
+        return LiquibaseHelper.doUpgrades(connection, liquibaseChangelogFilename, createLiquibaseParameters(), out);
+    }
+
+    private Map<String, Object> createLiquibaseParameters() {
+        Map<String, Object> params = new HashMap<>();
+        params.put(LIQUIBASE_PARAM_DEFER_DATASTREAM_TIMES, Boolean.toString(settings.getPersistenceSettings().isDeferDatastreamTimes()));
+        return params;
     }
 
 }
@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
@@ -38,11 +39,20 @@ import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.query.expression.Expression;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import org.jooq.AggregateFunction;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Delete;
 import org.jooq.DeleteConditionStep;
@@ -50,13 +60,17 @@ import org.jooq.Field;
 import org.jooq.OrderField;
 import org.jooq.Record;
 import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.ResultQuery;
 import org.jooq.SelectConditionStep;
+import org.jooq.SelectForUpdateStep;
 import org.jooq.SelectSeekStepN;
 import org.jooq.SelectSelectStep;
-import org.jooq.SelectWithTiesAfterOffsetStep;
+import org.jooq.Table;
 import org.jooq.conf.ParamType;
+import org.jooq.exception.DataTypeException;
 import org.jooq.impl.DSL;
+import org.jooq.tools.Convert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,6 +95,18 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
      */
     public static final String ALIAS_PREFIX = "e";
 
+    /**
+     * The name of the column holding the id of the parent entity, in batch
+     * queries.
+     */
+    public static final String BATCH_PARENT_ID = "batch_parent_id";
+    /**
+     * The name of the column holding the row number within the parent entity,
+     * in batch queries.
+     */
+    public static final String BATCH_ROW_NUMBER = "batch_row_nr";
+    private static final String BATCH_TABLE_ALIAS = "batch";
+
     private final PostgresPersistenceManager<J> pm;
     private final CoreSettings coreSettings;
     private final PersistenceSettings settings;
@@ -98,8 +124,13 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
     private EntityType requestedEntityType;
     private Id requestedId;
 
+    private boolean forBatch = false;
+    private Collection<J> batchIds;
+    private TableRef<J> batchRef;
+
     private boolean forUpdate = false;
     private boolean single = false;
+    private boolean keyset = false;
     private boolean parsed = false;
 
     private final QueryState<J> queryState = new QueryState<>();
@@ -125,10 +156,20 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
             addOrderPropertiesToSelected();
             selectStep = dslContext.selectDistinct(queryState.getSqlSelectFields());
         } else {
+            if (keyset) {
+                // The sort values of the last row are needed for the skipToken.
+                addOrderPropertiesToSelected();
+            }
             selectStep = dslContext.select(queryState.getSqlSelectFields());
         }
+        Condition where = queryState.getSqlWhere();
+        if (keyset && staQuery.getSkipToken() != null) {
+            Object[] seekValues = parseSkipToken(staQuery.getSkipToken());
+            Utils.SortSelectFields sortFields = queryState.getSqlSortFields();
+            where = where.and(createSeekCondition(sortFields.getSqlSortSelectFields(), sortFields.getSqlSortTypes(), seekValues));
+        }
         SelectConditionStep<Record> whereStep = selectStep.from(queryState.getSqlFrom())
-                .where(queryState.getSqlWhere());
+                .where(where);
 
         final List<OrderField> sortFields = queryState.getSqlSortFields().getSqlSortFields();
         SelectSeekStepN<Record> orderByStep = whereStep.orderBy(sortFields.toArray(new OrderField[sortFields.size()]));
@@ -139,11 +180,13 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
             count = 2;
         } else if (staQuery != null) {
             count = staQuery.getTopOrDefault() + 1;
-            skip = staQuery.getSkip(0);
+            if (!keyset || staQuery.getSkipToken() == null) {
+                skip = staQuery.getSkip(0);
+            }
         } else {
             count = 1;
         }
-        SelectWithTiesAfterOffsetStep<Record> limit = orderByStep.limit(skip, count);
+        SelectForUpdateStep<Record> limit = orderByStep.limit(skip, count);
 
         if (forUpdate) {
             return limit.forUpdate();
@@ -180,6 +223,236 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         return query;
     }
 
+    /**
+     * Checks if the nextLink of the query can use a skipToken, instead of
+     * $skip. This is the case if keyset pagination is enabled, and all sort
+     * values can be stored in a skipToken.
+     *
+     * @return true if createSkipToken can be used.
+     */
+    public boolean isKeysetPossible() {
+        gatherData();
+        if (!keyset) {
+            return false;
+        }
+        for (Field field : queryState.getSqlSortFields().getSqlSortSelectFields()) {
+            if (!isKeysetType(field.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isKeysetType(Class<?> type) {
+        return Number.class.isAssignableFrom(type)
+                || String.class.equals(type)
+                || Boolean.class.equals(type)
+                || UUID.class.equals(type)
+                || OffsetDateTime.class.equals(type)
+                || Timestamp.class.equals(type);
+    }
+
+    /**
+     * Create a skipToken, holding the sort values of the given record. The
+     * next page will start after this record.
+     *
+     * @param record The last record of the current page.
+     * @return The skipToken, or null if it could not be created.
+     */
+    public String createSkipToken(Record record) {
+        List<Field> fields = queryState.getSqlSortFields().getSqlSortSelectFields();
+        List<String> values = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            Object value = record.get(field);
+            values.add(value == null ? null : Convert.convert(value, String.class));
+        }
+        try {
+            byte[] json = SimpleJsonMapper.getSimpleObjectMapper().writeValueAsBytes(values);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException ex) {
+            LOGGER.error("Failed to create skipToken.", ex);
+            return null;
+        }
+    }
+
+    private Object[] parseSkipToken(String skipToken) {
+        List<Field> fields = queryState.getSqlSortFields().getSqlSortSelectFields();
+        String[] values;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(skipToken);
+            values = SimpleJsonMapper.getSimpleObjectMapper().readValue(json, String[].class);
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid $skiptoken.", ex);
+        }
+        if (values.length != fields.size()) {
+            throw new IllegalArgumentException("The $skiptoken does not match the $orderby of the request.");
+        }
+        Object[] result = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                try {
+                    result[i] = fields.get(i).getDataType().convert(values[i]);
+                } catch (DataTypeException ex) {
+                    throw new IllegalArgumentException("Invalid $skiptoken.", ex);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the condition selecting the rows that sort after the given sort
+     * values. PostgreSQL sorts NULL values as larger than any other value, so
+     * a plain row-value comparison, like jOOQ seek() generates, would skip
+     * all rows with a NULL sort value. Fields that are declared NOT NULL do
+     * not get the extra NULL checks.
+     *
+     * @param fields The sort fields.
+     * @param types The sort direction for each of the sort fields.
+     * @param values The sort values of the last row of the previous page.
+     * @return The condition selecting the rows of the following pages.
+     */
+    static Condition createSeekCondition(List<Field> fields, List<OrderBy.OrderType> types, Object[] values) {
+        List<Condition> alternatives = new ArrayList<>();
+        Condition equalSoFar = DSL.noCondition();
+        for (int i = 0; i < values.length; i++) {
+            Field field = fields.get(i);
+            Object value = values[i];
+            boolean ascending = types.get(i) == OrderBy.OrderType.ASCENDING;
+            if (value == null) {
+                if (!ascending) {
+                    alternatives.add(equalSoFar.and(field.isNotNull()));
+                }
+                equalSoFar = equalSoFar.and(field.isNull());
+            } else {
+                if (!ascending) {
+                    alternatives.add(equalSoFar.and(field.lt(value)));
+                } else if (field.getDataType().nullable()) {
+                    alternatives.add(equalSoFar.and(field.gt(value).or(field.isNull())));
+                } else {
+                    alternatives.add(equalSoFar.and(field.gt(value)));
+                }
+                equalSoFar = equalSoFar.and(field.eq(value));
+            }
+        }
+        if (alternatives.isEmpty()) {
+            return DSL.falseCondition();
+        }
+        return DSL.or(alternatives);
+    }
+
+    /**
+     * Checks if the configured batch can be loaded in a single query. This is
+     * not the case when the filter requires a DISTINCT, since the paging per
+     * parent can not be combined with DISTINCT.
+     *
+     * @return true if buildBatchSelect can be used.
+     */
+    public boolean isBatchPossible() {
+        gatherData();
+        return batchRef == mainTable || !queryState.isDistinctRequired();
+    }
+
+    /**
+     * Build a select query for a batch of parent entities, configured using
+     * forBatch. If the path has only one element, the ids are those of the
+     * requested entities themselves, and all are returned. Otherwise the ids
+     * are those of the first element in the path, and $top and $skip are
+     * applied per parent entity. In that case each row also contains the id of
+     * the parent in the field {@link #BATCH_PARENT_ID} and the index of the
+     * row within the parent in the field {@link #BATCH_ROW_NUMBER}. At most
+     * $top + 1 rows are returned per parent, so the caller can detect if there
+     * are more.
+     *
+     * @return the batch select query.
+     */
+    public ResultQuery<Record> buildBatchSelect() {
+        if (!forBatch) {
+            throw new IllegalStateException("QueryBuilder not configured for batch use.");
+        }
+        gatherData();
+
+        if (queryState.getSqlSelectFields() == null) {
+            queryState.setSqlSelectFields(new HashSet<>());
+        }
+
+        DSLContext dslContext = pm.getDslContext();
+        final List<OrderField> sortFields = queryState.getSqlSortFields().getSqlSortFields();
+        final OrderField[] sortArray = sortFields.toArray(new OrderField[sortFields.size()]);
+        ResultQuery<Record> query;
+        if (batchRef == mainTable) {
+            SelectSelectStep<Record> selectStep;
+            if (queryState.isDistinctRequired()) {
+                addOrderPropertiesToSelected();
+                selectStep = dslContext.selectDistinct(queryState.getSqlSelectFields());
+            } else {
+                selectStep = dslContext.select(queryState.getSqlSelectFields());
+            }
+            query = selectStep.from(queryState.getSqlFrom())
+                    .where(queryState.getSqlWhere())
+                    .orderBy(sortArray);
+        } else {
+            Field<J> parentId = batchRef.getTable().getId();
+            Field<Integer> rowNumber;
+            if (sortArray.length == 0) {
+                rowNumber = DSL.rowNumber().over().partitionBy(parentId);
+            } else {
+                rowNumber = DSL.rowNumber().over().partitionBy(parentId).orderBy(sortArray);
+            }
+            Set<Field> fields = new HashSet<>(queryState.getSqlSelectFields());
+            fields.add(parentId.as(BATCH_PARENT_ID));
+            fields.add(rowNumber.as(BATCH_ROW_NUMBER));
+            Table<Record> ranked = dslContext.select(fields)
+                    .from(queryState.getSqlFrom())
+                    .where(queryState.getSqlWhere())
+                    .asTable(BATCH_TABLE_ALIAS);
+
+            int skip = staQuery.getSkip(0);
+            int top = staQuery.getTopOrDefault();
+            Field<Integer> rankedRowNumber = ranked.field(BATCH_ROW_NUMBER, Integer.class);
+            query = dslContext.select(ranked.fields())
+                    .from(ranked)
+                    .where(rankedRowNumber.gt(skip).and(rankedRowNumber.le(skip + top + 1)))
+                    .orderBy(ranked.field(BATCH_PARENT_ID), rankedRowNumber);
+        }
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(GENERATED_SQL, query.getSQL(ParamType.INDEXED));
+        }
+        return query;
+    }
+
+    /**
+     * Build a query that counts the entities for each parent in the batch,
+     * configured using forBatch.
+     *
+     * @return the count query, returning the parent id and the count.
+     */
+    public ResultQuery<Record2<J, Integer>> buildBatchCount() {
+        if (!forBatch) {
+            throw new IllegalStateException("QueryBuilder not configured for batch use.");
+        }
+        gatherData();
+
+        DSLContext dslContext = pm.getDslContext();
+        Field<J> parentId = batchRef.getTable().getId();
+        AggregateFunction<Integer> count;
+        if (queryState.isDistinctRequired()) {
+            count = DSL.countDistinct(queryState.getSqlMainIdField());
+        } else {
+            count = DSL.count(queryState.getSqlMainIdField());
+        }
+        ResultQuery<Record2<J, Integer>> query = dslContext.select(parentId, count)
+                .from(queryState.getSqlFrom())
+                .where(queryState.getSqlWhere())
+                .groupBy(parentId);
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(GENERATED_SQL, query.getSQL(ParamType.INDEXED));
+        }
+        return query;
+    }
+
     public Delete buildDelete(PathElementEntitySet set) {
         gatherData();
 
@@ -224,6 +497,20 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         return this;
     }
 
+    /**
+     * Limit the query to the given ids of the first element of the path. This
+     * makes it possible to load an expand for many parent entities at once.
+     * Must be combined with forPath.
+     *
+     * @param ids The ids of the entities of the first path element.
+     * @return this.
+     */
+    public QueryBuilder<J> forBatch(Collection<J> ids) {
+        forBatch = true;
+        batchIds = ids;
+        return this;
+    }
+
     public QueryBuilder<J> forUpdate(boolean forUpdate) {
         this.forUpdate = forUpdate;
         return this;
@@ -246,11 +533,16 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
             if (forTypeAndId) {
                 parseTypeAndId();
             }
+            if (forBatch) {
+                parseBatch();
+            }
 
             // Joins created when generating the path should not be merged with
             // joins generated for the filter or orderby.
             mainTable.clearJoins();
 
+            keyset = settings.isKeysetPagination() && staQuery != null && !single && !forBatch;
+
             parseFilter(staQuery);
             parseOrder(staQuery, settings);
         }
@@ -269,6 +561,18 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         single = true;
     }
 
+    private void parseBatch() {
+        if (!forPath) {
+            throw new IllegalStateException("Batch queries must be used with a path.");
+        }
+        // After parsing the path, lastPath points to the first element.
+        batchRef = lastPath;
+        queryState.setSqlWhere(queryState.getSqlWhere().and(batchRef.getTable().getId().in(batchIds)));
+        // Following the path from one parent can not produce duplicates, and
+        // the results are partitioned by parent.
+        queryState.setDistinctRequired(false);
+    }
+
     private void findSelectedProperties(Query query) {
         selectedProperties = new HashSet<>();
         if (query == null) {
@@ -277,6 +581,10 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         for (Property property : query.getSelect()) {
             selectedProperties.add(property);
         }
+        if (forBatch && !selectedProperties.isEmpty()) {
+            // Batch results are matched to their parents using the ID.
+            selectedProperties.add(EntityProperty.ID);
+        }
         if (!query.getExpand().isEmpty() && !selectedProperties.isEmpty()) {
             // If we expand, and there is a $select, make sure we load the ID and the navigation properties.
             // If no $select, then we already load everything.
@@ -303,6 +611,22 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
             if (settings.getAlwaysOrderbyId()) {
                 queryState.getSqlSortFields().add(queryState.getSqlMainIdField(), OrderBy.OrderType.ASCENDING);
             }
+            if (keyset) {
+                addIdAsLastSortField();
+            }
+        }
+    }
+
+    /**
+     * Keyset pagination needs a unique sort order, so the id must be the last
+     * sort field.
+     */
+    private void addIdAsLastSortField() {
+        Utils.SortSelectFields sortFields = queryState.getSqlSortFields();
+        List<Field> fields = sortFields.getSqlSortSelectFields();
+        Field<J> idField = queryState.getSqlMainIdField();
+        if (fields.isEmpty() || !idField.equals(fields.get(fields.size() - 1))) {
+            sortFields.add(idField, OrderBy.OrderType.ASCENDING);
         }
     }
 
@@ -19,8 +19,12 @@ package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetStreaming;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.NavigableElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementArrayIndex;
@@ -31,18 +35,28 @@ import de.fraunhofer.iosb.ilt.frostserver.path.PathElementProperty;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePathVisitor;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.EntityFactory;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.ObservationFactory;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyCustom;
 import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.UrlHelper;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import org.jooq.Cursor;
 import org.jooq.Record;
 import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.Result;
 import org.jooq.ResultQuery;
 import org.jooq.conf.ParamType;
@@ -68,6 +82,11 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
     private final Query staQuery;
     private final QueryBuilder<J> sqlQueryBuilder;
     private final ResultQuery<Record> sqlQuery;
+    /**
+     * Flag indicating a top-level EntitySet should be streamed from the
+     * database, instead of loaded completely.
+     */
+    private boolean streaming;
 
     private Object resultObject;
     /**
@@ -93,6 +112,19 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
         this.persistenceSettings = pm.getCoreSettings().getPersistenceSettings();
     }
 
+    /**
+     * Set if a top-level EntitySet should be read from the database while it
+     * is being iterated, instead of loaded completely. The caller must keep
+     * the connection open until the EntitySet is consumed.
+     *
+     * @param streaming true if a top-level EntitySet should be streamed.
+     * @return this.
+     */
+    public ResultBuilder<J> setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
     public Object getEntity() {
         return resultObject;
     }
@@ -124,10 +156,230 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
         if (entity == null) {
             throw new IllegalStateException("Failed to create an entity from result set.");
         }
-        expandEntity(entity, staQuery);
+        expandEntities(Collections.singletonList(entity), staQuery);
         resultObject = entity;
     }
 
+    private void expandEntities(List<? extends Entity> entities, Query query) {
+        if (query == null || entities.isEmpty()) {
+            return;
+        }
+        if (!persistenceSettings.isBatchExpand()) {
+            for (Entity entity : entities) {
+                expandEntity(entity, query);
+            }
+            return;
+        }
+        for (Expand expand : query.getExpand()) {
+            addExpandToEntities(entities, expand, query);
+        }
+    }
+
+    /**
+     * Loads the given expand for all given entities, using one query per
+     * batch of entities, instead of one query per entity.
+     *
+     * @param entities The entities to expand.
+     * @param expand The expand to load.
+     * @param query The query containing the expand.
+     */
+    private void addExpandToEntities(List<? extends Entity> entities, Expand expand, Query query) {
+        NavigationProperty firstNp = expand.getPath();
+        if (firstNp instanceof NavigationPropertyCustom) {
+            // Custom links are resolved one entity at a time.
+            for (Entity entity : entities) {
+                addExpandToEntity(entity, expand, query);
+            }
+            return;
+        }
+
+        Query subQuery = expand.getSubQuery();
+        if (subQuery == null) {
+            subQuery = new Query(query.getSettings());
+        }
+
+        List<Entity> toLoad = new ArrayList<>();
+        List<Entity> expanded = new ArrayList<>();
+        for (Entity entity : entities) {
+            Object existing = entity.getProperty(firstNp);
+            if (existing instanceof EntitySet && ((EntitySet) existing).isExportObject()) {
+                expanded.addAll((EntitySet) existing);
+            } else if (existing instanceof Entity && ((Entity) existing).isExportObject()) {
+                expanded.add((Entity) existing);
+            } else {
+                toLoad.add(entity);
+            }
+        }
+
+        if (firstNp.isEntitySet()) {
+            loadEntitySets(toLoad, firstNp, subQuery, expanded);
+        } else {
+            loadEntities(toLoad, firstNp, subQuery, expanded);
+        }
+        expandEntities(expanded, subQuery);
+    }
+
+    /**
+     * Loads the entities linked to the given parents through the given
+     * (non-set) navigation property. The parents hold stubs with the ids of
+     * the entities to load.
+     */
+    private void loadEntities(List<Entity> parents, NavigationProperty np, Query subQuery, List<Entity> expanded) {
+        Map<J, List<Entity>> parentsByTargetId = new LinkedHashMap<>();
+        for (Entity parent : parents) {
+            Object target = parent.getProperty(np);
+            if (target instanceof Entity && ((Entity) target).getId() != null) {
+                J targetId = (J) ((Entity) target).getId().getValue();
+                parentsByTargetId.computeIfAbsent(targetId, k -> new ArrayList<>()).add(parent);
+            }
+        }
+        if (parentsByTargetId.isEmpty()) {
+            return;
+        }
+
+        EntityFactory<? extends Entity, J> factory = pm.getEntityFactories().getFactoryFor(np.getType());
+        for (List<J> batch : splitInBatches(parentsByTargetId.keySet())) {
+            ResourcePath ePath = new ResourcePath(path.getServiceRootUrl(), null);
+            ePath.addPathElement(new PathElementEntitySet(np.getType(), null), true, false);
+            QueryBuilder<J> batchQueryBuilder = createBatchQueryBuilder(ePath, subQuery, batch);
+            try (Cursor<Record> results = timeQuery(batchQueryBuilder.buildBatchSelect())) {
+                for (Record record : results) {
+                    Entity first = factory.create(record, subQuery, new DataSize());
+                    List<Entity> targetParents = parentsByTargetId.remove((J) first.getId().getValue());
+                    if (targetParents == null) {
+                        continue;
+                    }
+                    // Each parent gets its own instance, since navigation links
+                    // are set on the child, relative to the parent.
+                    for (Entity parent : targetParents) {
+                        Entity target = first;
+                        if (parent != targetParents.get(0)) {
+                            target = factory.create(record, subQuery, new DataSize());
+                        }
+                        parent.setProperty(np, target);
+                        expanded.add(target);
+                    }
+                }
+            }
+        }
+        // Parents with a target that did not match the filter.
+        for (List<Entity> targetParents : parentsByTargetId.values()) {
+            for (Entity parent : targetParents) {
+                parent.setProperty(np, null);
+            }
+        }
+    }
+
+    /**
+     * Loads the entity sets linked to the given parents through the given
+     * set-navigation property, applying $top, $skip and $count per parent.
+     */
+    private void loadEntitySets(List<Entity> parents, NavigationProperty np, Query subQuery, List<Entity> expanded) {
+        if (parents.isEmpty()) {
+            return;
+        }
+        EntityType parentType = parents.get(0).getEntityType();
+        Map<J, List<Entity>> parentsById = new LinkedHashMap<>();
+        for (Entity parent : parents) {
+            parentsById.computeIfAbsent((J) parent.getId().getValue(), k -> new ArrayList<>()).add(parent);
+        }
+
+        for (List<J> batch : splitInBatches(parentsById.keySet())) {
+            ResourcePath ePath = createExpandPath(parentType, null, np);
+            QueryBuilder<J> batchQueryBuilder = createBatchQueryBuilder(ePath, subQuery, batch);
+            if (!batchQueryBuilder.isBatchPossible()) {
+                LOGGER.debug("Can not batch expand of {}, loading per entity.", np);
+                for (J parentId : batch) {
+                    for (Entity parent : parentsById.get(parentId)) {
+                        createExpandedElement(parent, np, subQuery);
+                    }
+                }
+                continue;
+            }
+            Map<J, BatchedSet> sets = new HashMap<>();
+            for (J parentId : batch) {
+                sets.put(parentId, new BatchedSet(parentsById.get(parentId), np));
+            }
+            loadBatchedSets(batchQueryBuilder, sets, subQuery, expanded);
+            if (subQuery.isCountOrDefault()) {
+                loadBatchedCounts(createBatchQueryBuilder(ePath, subQuery, batch), sets);
+            }
+            for (BatchedSet set : sets.values()) {
+                set.finish(subQuery);
+            }
+        }
+    }
+
+    private void loadBatchedSets(QueryBuilder<J> batchQueryBuilder, Map<J, BatchedSet> sets, Query subQuery, List<Entity> expanded) {
+        EntityFactory<? extends Entity, J> factory = null;
+        final int top = subQuery.getTopOrDefault();
+        final long maxDataSize = pm.getCoreSettings().getDataSizeMax();
+        try (Cursor<Record> results = timeQuery(batchQueryBuilder.buildBatchSelect())) {
+            for (Record record : results) {
+                BatchedSet set = sets.get((J) record.get(QueryBuilder.BATCH_PARENT_ID));
+                if (set == null) {
+                    continue;
+                }
+                if (set.full) {
+                    set.hasMore = true;
+                    continue;
+                }
+                if (factory == null) {
+                    factory = pm.getEntityFactories().getFactoryFor(set.type);
+                }
+                DataSize size = set.dataSize;
+                for (EntitySet entitySet : set.entitySets) {
+                    Entity entity = factory.create(record, subQuery, size);
+                    entitySet.add(entity);
+                    expanded.add(entity);
+                    size = new DataSize();
+                }
+                set.count++;
+                set.full = set.count >= top || set.dataSize.getDataSize() > maxDataSize;
+            }
+        }
+    }
+
+    private void loadBatchedCounts(QueryBuilder<J> batchQueryBuilder, Map<J, BatchedSet> sets) {
+        try (Cursor<Record2<J, Integer>> results = timeQuery(batchQueryBuilder.buildBatchCount())) {
+            for (Record2<J, Integer> record : results) {
+                BatchedSet set = sets.get(record.component1());
+                if (set != null) {
+                    set.total = record.component2();
+                }
+            }
+        }
+        for (BatchedSet set : sets.values()) {
+            for (EntitySet entitySet : set.entitySets) {
+                entitySet.setCount(set.total);
+            }
+        }
+    }
+
+    private QueryBuilder<J> createBatchQueryBuilder(ResourcePath ePath, Query subQuery, List<J> batch) {
+        return new QueryBuilder<>(pm, pm.getCoreSettings(), pm.getPropertyResolver())
+                .forPath(ePath)
+                .forBatch(batch)
+                .usingQuery(subQuery);
+    }
+
+    private List<List<J>> splitInBatches(Collection<J> ids) {
+        int batchSize = persistenceSettings.getExpandBatchSize();
+        List<List<J>> batches = new ArrayList<>();
+        List<J> batch = new ArrayList<>();
+        for (J id : ids) {
+            batch.add(id);
+            if (batch.size() >= batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
     private void expandEntity(Entity entity, Query query) {
         if (query == null) {
             return;
@@ -180,8 +432,14 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
     }
 
     private void createExpandedElement(Entity entity, NavigationProperty firstNp, Query subQuery) {
-        PathElement parentCollection = new PathElementEntitySet(entity.getEntityType(), null);
-        PathElement parent = new PathElementEntity(entity.getId(), entity.getEntityType(), parentCollection);
+        ResourcePath ePath = createExpandPath(entity.getEntityType(), entity.getId(), firstNp);
+        Object child = pm.get(ePath, subQuery);
+        entity.setProperty(firstNp, child);
+    }
+
+    private ResourcePath createExpandPath(EntityType parentType, Id parentId, NavigationProperty firstNp) {
+        PathElement parentCollection = new PathElementEntitySet(parentType, null);
+        PathElement parent = new PathElementEntity(parentId, parentType, parentCollection);
         ResourcePath ePath = new ResourcePath(path.getServiceRootUrl(), null);
         ePath.addPathElement(parentCollection, false, false);
         ePath.addPathElement(parent, false, true);
@@ -192,8 +450,7 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
             PathElementEntity childPe = new PathElementEntity(null, firstNp.getType(), parent);
             ePath.addPathElement(childPe, true, false);
         }
-        Object child = pm.get(ePath, subQuery);
-        entity.setProperty(firstNp, child);
+        return ePath;
     }
 
     private void expandEntitySet(EntitySet entitySet, Query subQuery) {
@@ -231,34 +488,64 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
 
     @Override
     public void visit(PathElementEntitySet element) {
+        EntityType type = element.getEntityType();
+        EntityFactory factory = pm.getEntityFactories().getFactoryFor(type);
+        if (streaming) {
+            streamEntitySet(type, factory);
+            return;
+        }
+        if (type == EntityType.OBSERVATION && persistenceSettings.isColumnarObservations() && !path.isRef()) {
+            ObservationFactory<J> observationFactory = pm.getEntityFactories().observationFactory;
+            if (observationFactory.supportsColumns(staQuery)) {
+                readColumns(observationFactory);
+                return;
+            }
+        }
         try (Cursor<Record> results = timeQuery(sqlQuery)) {
-            EntityFactory factory;
-            factory = pm.getEntityFactories().getFactoryFor(element.getEntityType());
-            EntitySet<? extends Entity> entitySet = pm.getEntityFactories()
-                    .createSetFromRecords(factory, results, staQuery, pm.getCoreSettings().getDataSizeMax());
-
-            if (entitySet == null) {
-                throw new IllegalStateException("Empty set!");
+            EntitySet entitySet = new EntitySetImpl(type);
+            PageReader reader = new PageReader(results, factory, Integer.MAX_VALUE);
+            reader.target = entitySet;
+            while (reader.hasNext()) {
+                entitySet.add(reader.next());
             }
-
             fetchAndAddCount(entitySet);
+            resultObject = entitySet;
+        }
+    }
 
-            int entityCount = entitySet.size();
-            boolean hasMore = results.hasNext();
-            if (entityCount < staQuery.getTopOrDefault() && hasMore) {
-                // The loading was aborted, probably due to size constraints.
-                staQuery.setTop(entityCount);
-            }
-            if (hasMore) {
-                entitySet.setNextLink(UrlHelper.generateNextLink(path, staQuery));
-            }
-            for (Entity e : entitySet) {
-                expandEntity(e, staQuery);
-            }
+    /**
+     * Reads the Observations into an ObservationSetColumnar, without creating
+     * an Observation for each row.
+     *
+     * @param factory The factory to read the rows with.
+     */
+    private void readColumns(ObservationFactory<J> factory) {
+        try (Cursor<Record> results = timeQuery(sqlQuery)) {
+            ObservationSetColumnar entitySet = new ObservationSetColumnar(staQuery.getSelect());
+            PageReader reader = new PageReader(results, factory);
+            reader.readColumns(entitySet);
+            fetchAndAddCount(entitySet);
             resultObject = entitySet;
         }
     }
 
+    /**
+     * Creates an EntitySet that reads its entities from the open cursor while
+     * it is being iterated. Expands are loaded per chunk of entities.
+     *
+     * @param type The type of the entities in the set.
+     * @param factory The factory to create the entities with.
+     */
+    private void streamEntitySet(EntityType type, EntityFactory factory) {
+        sqlQuery.fetchSize(persistenceSettings.getStreamFetchSize());
+        Cursor<Record> results = timeQuery(sqlQuery);
+        PageReader reader = new PageReader(results, factory, Math.max(1, persistenceSettings.getExpandBatchSize()));
+        EntitySetStreaming entitySet = new EntitySetStreaming(type, reader);
+        reader.target = entitySet;
+        fetchAndAddCount(entitySet);
+        resultObject = entitySet;
+    }
+
     private void fetchAndAddCount(EntitySet<? extends Entity> entitySet) {
         if (staQuery.isCountOrDefault()) {
             ResultQuery<Record1<Integer>> countQuery = sqlQueryBuilder.buildCount();
@@ -334,4 +621,177 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
         entityName = null;
     }
 
+    /**
+     * The state of the expanded sets of all parents with the same id, while
+     * loading a batch.
+     */
+    private class BatchedSet {
+
+        private final List<Entity> parents;
+        private final List<EntitySet> entitySets = new ArrayList<>();
+        private final NavigationProperty np;
+        private final EntityType type;
+        private final DataSize dataSize = new DataSize();
+        private int count = 0;
+        private long total = 0;
+        private boolean full = false;
+        private boolean hasMore = false;
+
+        public BatchedSet(List<Entity> parents, NavigationProperty np) {
+            this.parents = parents;
+            this.np = np;
+            this.type = np.getType();
+            for (Entity parent : parents) {
+                EntitySet entitySet = new EntitySetImpl(type);
+                parent.setProperty(np, entitySet);
+                entitySets.add(entitySet);
+            }
+        }
+
+        public void finish(Query subQuery) {
+            if (!hasMore) {
+                return;
+            }
+            for (int i = 0; i < parents.size(); i++) {
+                Entity parent = parents.get(i);
+                ResourcePath ePath = createExpandPath(parent.getEntityType(), parent.getId(), np);
+                entitySets.get(i).setNextLink(UrlHelper.generateNextLink(ePath, subQuery, count));
+            }
+        }
+    }
+
+    /**
+     * Reads the entities of a page from an open cursor, in chunks. Expands are
+     * loaded for each chunk, before the entities of the chunk are handed out.
+     * Applies the $top and dataSizeMax limits and sets the nextLink on the
+     * target set when the page is done.
+     */
+    private class PageReader implements Iterator<Entity> {
+
+        private final Cursor<Record> cursor;
+        private final EntityFactory factory;
+        private final ObservationFactory<J> columnFactory;
+        private final Deque<Entity> chunk = new ArrayDeque<>();
+        private final DataSize dataSize = new DataSize();
+        private final int top;
+        private final int chunkSize;
+        private final long maxDataSize;
+        private EntitySet target;
+        private Record lastRecord;
+        private int count = 0;
+        private boolean done = false;
+
+        public PageReader(Cursor<Record> cursor, EntityFactory factory, int chunkSize) {
+            this(cursor, factory, null, chunkSize);
+        }
+
+        /**
+         * Creates a reader that reads the rows into columns, with
+         * {@link #readColumns(ObservationSetColumnar)}, instead of creating
+         * entities.
+         *
+         * @param cursor The cursor to read the rows from.
+         * @param columnFactory The factory to read the rows with.
+         */
+        public PageReader(Cursor<Record> cursor, ObservationFactory<J> columnFactory) {
+            this(cursor, null, columnFactory, Integer.MAX_VALUE);
+        }
+
+        private PageReader(Cursor<Record> cursor, EntityFactory factory, ObservationFactory<J> columnFactory, int chunkSize) {
+            this.cursor = cursor;
+            this.factory = factory;
+            this.columnFactory = columnFactory;
+            this.chunkSize = chunkSize;
+            this.top = staQuery.getTopOrDefault();
+            this.maxDataSize = pm.getCoreSettings().getDataSizeMax();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (chunk.isEmpty() && !done) {
+                readChunk();
+            }
+            return !chunk.isEmpty();
+        }
+
+        @Override
+        public Entity next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more entities.");
+            }
+            return chunk.removeFirst();
+        }
+
+        private void readChunk() {
+            List<Entity> entities = new ArrayList<>();
+            boolean limitReached = false;
+            while (entities.size() < chunkSize && cursor.hasNext()) {
+                lastRecord = cursor.fetchNext();
+                entities.add(factory.create(lastRecord, staQuery, dataSize));
+                count++;
+                if (count >= top) {
+                    limitReached = true;
+                    break;
+                }
+                if (dataSize.getDataSize() > maxDataSize) {
+                    LOGGER.debug("Size limit reached: {} > {}.", dataSize.getDataSize(), maxDataSize);
+                    limitReached = true;
+                    break;
+                }
+            }
+            if (limitReached || !cursor.hasNext()) {
+                finish(limitReached && cursor.hasNext());
+            }
+            expandEntities(entities, staQuery);
+            chunk.addAll(entities);
+        }
+
+        /**
+         * Reads all rows of the page into the given columns. Only for readers
+         * created for column reads.
+         *
+         * @param columns The set to add the rows to.
+         */
+        public void readColumns(ObservationSetColumnar columns) {
+            target = columns;
+            boolean limitReached = false;
+            while (cursor.hasNext()) {
+                lastRecord = cursor.fetchNext();
+                columnFactory.addToColumns(lastRecord, columns, dataSize);
+                count++;
+                if (count >= top) {
+                    limitReached = true;
+                    break;
+                }
+                if (dataSize.getDataSize() > maxDataSize) {
+                    LOGGER.debug("Size limit reached: {} > {}.", dataSize.getDataSize(), maxDataSize);
+                    limitReached = true;
+                    break;
+                }
+            }
+            finish(limitReached && cursor.hasNext());
+        }
+
+        private void finish(boolean hasMore) {
+            done = true;
+            cursor.close();
+            if (!hasMore) {
+                return;
+            }
+            String skipToken = null;
+            if (sqlQueryBuilder.isKeysetPossible()) {
+                skipToken = sqlQueryBuilder.createSkipToken(lastRecord);
+            }
+            if (skipToken != null) {
+                target.setNextLink(UrlHelper.generateNextLink(path, staQuery, skipToken));
+                return;
+            }
+            if (count < top) {
+                // The loading was aborted, probably due to size constraints.
+                staQuery.setTop(count);
+            }
+            target.setNextLink(UrlHelper.generateNextLink(path, staQuery));
+        }
+
+    }
 }
@@ -76,7 +76,7 @@ public class Utils {
         if (timeEnd.isBefore(timeStart)) {
             return null;
         } else {
-            return TimeInterval.create(timeStart.toInstant().toEpochMilli(), timeEnd.toInstant().toEpochMilli());
+            return TimeInterval.create(toEpochMillis(timeStart), toEpochMillis(timeEnd));
         }
     }
 
@@ -84,7 +84,18 @@ public class Utils {
         if (time == null) {
             return new TimeInstant(null);
         }
-        return TimeInstant.create(time.toInstant().toEpochMilli());
+        return TimeInstant.create(toEpochMillis(time));
+    }
+
+    /**
+     * Converts the given time to epoch milliseconds, without creating an
+     * intermediate Instant.
+     *
+     * @param time The time to convert.
+     * @return The epoch milliseconds.
+     */
+    public static long toEpochMillis(OffsetDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(), 1000L), time.getNano() / 1_000_000);
     }
 
     public static TimeValue valueFromTimes(OffsetDateTime timeStart, OffsetDateTime timeEnd) {
@@ -189,6 +200,7 @@ public class Utils {
 
         private final List<OrderField> sqlSortFields = new ArrayList<>();
         private final List<Field> sqlSortSelectFields = new ArrayList<>();
+        private final List<OrderBy.OrderType> sqlSortTypes = new ArrayList<>();
 
         public void add(Field field, OrderBy.OrderType type) {
             if (type == OrderBy.OrderType.ASCENDING) {
@@ -197,6 +209,7 @@ public class Utils {
                 sqlSortFields.add(field.desc());
             }
             sqlSortSelectFields.add(field);
+            sqlSortTypes.add(type);
         }
 
         public List<OrderField> getSqlSortFields() {
@@ -206,5 +219,9 @@ public class Utils {
         public List<Field> getSqlSortSelectFields() {
             return sqlSortSelectFields;
         }
+
+        public List<OrderBy.OrderType> getSqlSortTypes() {
+            return sqlSortTypes;
+        }
     }
 }
@@ -55,13 +55,14 @@ import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTabl
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.StaMainTable;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollection;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
 import static de.fraunhofer.iosb.ilt.frostserver.util.Constants.UTC;
 import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.io.IOException;
-import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -71,7 +72,6 @@ import org.geojson.GeoJsonObject;
 import org.geojson.jackson.CrsType;
 import org.geolatte.common.dataformats.json.jackson.JsonException;
 import org.geolatte.geom.Geometry;
-import org.joda.time.Interval;
 import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -128,6 +128,16 @@ public class EntityFactories<J extends Comparable> {
     public final ObservationFactory<J> observationFactory;
     public final ObservedPropertyFactory<J> observedPropertyFactory;
 
+    /**
+     * The ids of the FeaturesOfInterest generated for (Multi)Datastreams.
+     */
+    public final GeneratedFeatureCache<J> generatedFeatureCache = new GeneratedFeatureCache<>();
+    /**
+     * The ids of entities known to exist.
+     */
+    public final ExistenceCache<J> existenceCache = new ExistenceCache<>();
+    private final List<MessageBusCache> caches = Arrays.asList(generatedFeatureCache, existenceCache);
+
     private final Map<EntityType, EntityFactory<? extends Entity, J>> factoryPerEntity = new EnumMap<>(EntityType.class);
 
     public EntityFactories(IdManager idManager, TableCollection<J> tableCollection) {
@@ -334,6 +344,18 @@ public class EntityFactories<J extends Comparable> {
 
     public FeatureOfInterest generateFeatureOfInterest(PostgresPersistenceManager<J> pm, Id datastreamId, boolean isMultiDatastream) throws NoSuchEntityException, IncompleteEntityException {
         J dsId = (J) datastreamId.getValue();
+        boolean useCache = !pm.isEntitiesChanged();
+        long cacheGeneration = 0;
+        if (useCache) {
+            generatedFeatureCache.configure(pm.getCoreSettings().getPersistenceSettings().getGeneratedFoiCacheSize());
+            J cachedId = generatedFeatureCache.get(dsId, isMultiDatastream);
+            if (cachedId != null) {
+                FeatureOfInterest foi = new FeatureOfInterest();
+                foi.setId(idFromObject(cachedId));
+                return foi;
+            }
+            cacheGeneration = generatedFeatureCache.getGeneration();
+        }
         DSLContext dslContext = pm.getDslContext();
         AbstractTableLocations<J> ql = tableCollection.getTableLocations();
         AbstractTableThingsLocations<J> qtl = tableCollection.getTableThingsLocations();
@@ -378,6 +400,9 @@ public class EntityFactories<J extends Comparable> {
         if (genFoiId != null) {
             foi = new FeatureOfInterest();
             foi.setId(idFromObject(genFoiId));
+            if (useCache) {
+                generatedFeatureCache.put(dsId, isMultiDatastream, genFoiId, cacheGeneration);
+            }
         } else if (locationId != null) {
             SelectConditionStep<Record3<J, String, String>> query2 = dslContext.select(ql.getId(), ql.colEncodingType, ql.colLocation)
                     .from(ql)
@@ -457,8 +482,42 @@ public class EntityFactories<J extends Comparable> {
         pm.insert(e);
     }
 
+    /**
+     * The caches of database state, that must be cleared when the
+     * PersistenceManager commits changes they are affected by.
+     *
+     * @return The caches of database state.
+     */
+    public List<MessageBusCache> getCaches() {
+        return caches;
+    }
+
+    /**
+     * Check if the ExistenceCache can be used by the given PersistenceManager,
+     * and configure it.
+     *
+     * @param pm The PersistenceManager to check.
+     * @return true if the ExistenceCache can be used.
+     */
+    public boolean useExistenceCache(PostgresPersistenceManager<J> pm) {
+        if (pm.isEntitiesChanged()) {
+            return false;
+        }
+        PersistenceSettings persistenceSettings = pm.getCoreSettings().getPersistenceSettings();
+        existenceCache.configure(persistenceSettings.getExistenceCacheSize(), persistenceSettings.getExistenceCacheTtl());
+        return true;
+    }
+
     public boolean entityExists(PostgresPersistenceManager<J> pm, EntityType type, Id entityId) {
         J id = (J) entityId.getValue();
+        boolean useCache = useExistenceCache(pm);
+        long cacheGeneration = 0;
+        if (useCache) {
+            if (existenceCache.isKnown(type, id)) {
+                return true;
+            }
+            cacheGeneration = existenceCache.getGeneration();
+        }
         StaMainTable<J> table = tableCollection.getTablesByType().get(type);
 
         DSLContext dslContext = pm.getDslContext();
@@ -472,6 +531,9 @@ public class EntityFactories<J extends Comparable> {
         if (count > 1) {
             LOGGER.error("More than one instance of {} with id {}.", type, id);
         }
+        if (useCache && count > 0) {
+            existenceCache.putKnown(type, id, cacheGeneration);
+        }
         return count > 0;
 
     }
@@ -505,9 +567,8 @@ public class EntityFactories<J extends Comparable> {
         if (time == null) {
             return;
         }
-        Interval interval = time.getInterval();
-        clause.put(startField, OffsetDateTime.ofInstant(Instant.ofEpochMilli(interval.getStartMillis()), UTC));
-        clause.put(endField, OffsetDateTime.ofInstant(Instant.ofEpochMilli(interval.getEndMillis()), UTC));
+        clause.put(startField, OffsetDateTime.ofInstant(time.getStart(), UTC));
+        clause.put(endField, OffsetDateTime.ofInstant(time.getEnd(), UTC));
     }
 
     /**
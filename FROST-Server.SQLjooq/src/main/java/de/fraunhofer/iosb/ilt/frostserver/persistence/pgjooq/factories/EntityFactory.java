@@ -61,6 +61,25 @@ public interface EntityFactory<T extends Entity, J extends Comparable> {
      */
     public boolean insert(PostgresPersistenceManager<J> pm, T entity) throws NoSuchEntityException, IncompleteEntityException;
 
+    /**
+     * Insert the given entity into the database as a new entity, and return
+     * the entity as it is stored, created from the row returned by the insert.
+     * The default implementation only inserts the entity and returns null, in
+     * which case the stored entity has to be loaded from the database.
+     *
+     * @param pm The persistenceManager to use to access the database.
+     * @param entity The entity to insert into the database.
+     * @return The entity as it is stored, or null if it has to be loaded.
+     * @throws NoSuchEntityException If the entity depends on another entity
+     * that does not exist.
+     * @throws IncompleteEntityException If the entity is not complete and can
+     * thus not be inserted.
+     */
+    public default T insertAndReturn(PostgresPersistenceManager<J> pm, T entity) throws NoSuchEntityException, IncompleteEntityException {
+        insert(pm, entity);
+        return null;
+    }
+
     /**
      * Update the given entity in the database.
      *
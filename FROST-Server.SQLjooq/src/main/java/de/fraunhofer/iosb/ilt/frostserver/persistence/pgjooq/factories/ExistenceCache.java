@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.util.LruCache;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Caches the ids of entities that are known to exist, and the number of
+ * ObservedProperties of MultiDatastreams, so that inserting an Observation for
+ * a known (Multi)Datastream does not need extra queries.
+ *
+ * Entries expire after a configurable time. Since only existence is cached,
+ * the cache is only cleared when entities are deleted, or when
+ * MultiDatastreams are changed. Observations are never cached: they are
+ * deleted far more often than other entities, and clearing the cache on each
+ * of those deletes would make it useless.
+ *
+ * @author scf
+ * @param <J> The type of the ID fields.
+ */
+public class ExistenceCache<J> extends MessageBusCache {
+
+    private final Map<EntityType, LruCache<J, Long>> existing = new EnumMap<>(EntityType.class);
+    private final LruCache<J, CachedCount> observedPropertyCounts = new LruCache<>(0);
+    private volatile long ttlMillis;
+
+    public ExistenceCache() {
+        for (EntityType type : EntityType.values()) {
+            if (type != EntityType.OBSERVATION) {
+                existing.put(type, new LruCache<>(0));
+            }
+        }
+    }
+
+    @Override
+    public boolean isAffectedBy(EntityType type, EntityChangedMessage.Type change) {
+        if (change == EntityChangedMessage.Type.DELETE) {
+            // Deletes can cascade to entities of other types. Observations are
+            // not cached, and deleting them does not cascade.
+            return type != EntityType.OBSERVATION;
+        }
+        return change == EntityChangedMessage.Type.UPDATE && type == EntityType.MULTIDATASTREAM;
+    }
+
+    /**
+     * Set the maximum number of ids to cache per entity type and the time the
+     * entries are valid, and start listening on the message bus, if it is
+     * available. As long as the message bus is not available, nothing is
+     * cached.
+     *
+     * @param maxSize The maximum number of ids per entity type.
+     * @param ttlSeconds The time entries are valid, in seconds.
+     */
+    public void configure(int maxSize, int ttlSeconds) {
+        if (!startListening()) {
+            return;
+        }
+        ttlMillis = ttlSeconds * 1000L;
+        for (LruCache<J, Long> cache : existing.values()) {
+            cache.setMaxSize(maxSize);
+        }
+        observedPropertyCounts.setMaxSize(maxSize);
+    }
+
+    /**
+     * Check if the entity with the given type and id is known to exist.
+     *
+     * @param type The type of the entity.
+     * @param id The id of the entity.
+     * @return true if the entity is known to exist, false if it is not known.
+     */
+    public boolean isKnown(EntityType type, J id) {
+        LruCache<J, Long> cache = existing.get(type);
+        if (cache == null) {
+            return false;
+        }
+        Long expires = cache.get(id);
+        return expires != null && expires > System.currentTimeMillis();
+    }
+
+    /**
+     * Register that the entity with the given type and id exists, unless the
+     * cache was cleared since the given generation.
+     *
+     * @param type The type of the entity.
+     * @param id The id of the entity.
+     * @param loadGeneration The generation of the cache from before the
+     * existence was checked.
+     */
+    public synchronized void putKnown(EntityType type, J id, long loadGeneration) {
+        LruCache<J, Long> cache = existing.get(type);
+        if (cache != null && isCurrent(loadGeneration)) {
+            cache.put(id, System.currentTimeMillis() + ttlMillis);
+        }
+    }
+
+    /**
+     * Get the number of ObservedProperties of the given MultiDatastream.
+     *
+     * @param multiDatastreamId The id of the MultiDatastream.
+     * @return The number of ObservedProperties, or null if it is not known.
+     */
+    public Integer getObservedPropertyCount(J multiDatastreamId) {
+        CachedCount cached = observedPropertyCounts.get(multiDatastreamId);
+        if (cached == null || cached.expires <= System.currentTimeMillis()) {
+            return null;
+        }
+        return cached.count;
+    }
+
+    /**
+     * Store the number of ObservedProperties of the given MultiDatastream,
+     * unless the cache was cleared since the given generation.
+     *
+     * @param multiDatastreamId The id of the MultiDatastream.
+     * @param count The number of ObservedProperties.
+     * @param loadGeneration The generation of the cache from before the count
+     * was loaded.
+     */
+    public synchronized void putObservedPropertyCount(J multiDatastreamId, int count, long loadGeneration) {
+        if (isCurrent(loadGeneration)) {
+            observedPropertyCounts.put(multiDatastreamId, new CachedCount(count, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    @Override
+    protected void doClear() {
+        for (LruCache<J, Long> cache : existing.values()) {
+            cache.clear();
+        }
+        observedPropertyCounts.clear();
+    }
+
+    private static class CachedCount {
+
+        private final int count;
+        private final long expires;
+
+        public CachedCount(int count, long expires) {
+            this.count = count;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.util.LruCache;
+
+/**
+ * Caches the id of the FeatureOfInterest generated from the Location of the
+ * Thing of a (Multi)Datastream, so that Observations created without a
+ * FeatureOfInterest do not need to look it up.
+ *
+ * The cache is cleared when the link between (Multi)Datastreams and generated
+ * FeaturesOfInterest may have changed: by the PersistenceManager when it
+ * commits such a change, and by the messages on the message bus, for changes
+ * made by other instances.
+ *
+ * @author scf
+ * @param <J> The type of the ID fields.
+ */
+public class GeneratedFeatureCache<J> extends MessageBusCache {
+
+    private final LruCache<J, J> datastreamFeatures = new LruCache<>(0);
+    private final LruCache<J, J> multiDatastreamFeatures = new LruCache<>(0);
+
+    @Override
+    public boolean isAffectedBy(EntityType type, EntityChangedMessage.Type change) {
+        switch (type) {
+            case LOCATION:
+            case HISTORICALLOCATION:
+                return true;
+
+            case THING:
+            case DATASTREAM:
+            case MULTIDATASTREAM:
+            case FEATUREOFINTEREST:
+                // New entities of these types do not change existing links.
+                return change != EntityChangedMessage.Type.CREATE;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Set the maximum number of (Multi)Datastreams to cache the
+     * FeatureOfInterest for, and start listening on the message bus, if it is
+     * available. As long as the message bus is not available, nothing is
+     * cached.
+     *
+     * @param maxSize The maximum number of entries per cache.
+     */
+    public void configure(int maxSize) {
+        if (!startListening()) {
+            return;
+        }
+        datastreamFeatures.setMaxSize(maxSize);
+        multiDatastreamFeatures.setMaxSize(maxSize);
+    }
+
+    /**
+     * Get the id of the generated FeatureOfInterest of the given
+     * (Multi)Datastream.
+     *
+     * @param streamId The id of the (Multi)Datastream.
+     * @param isMultiDatastream Flag indicating the id is that of a
+     * MultiDatastream.
+     * @return The id of the generated FeatureOfInterest, or null if it is not
+     * cached.
+     */
+    public J get(J streamId, boolean isMultiDatastream) {
+        return getCache(isMultiDatastream).get(streamId);
+    }
+
+    /**
+     * Store the id of the generated FeatureOfInterest of the given
+     * (Multi)Datastream, unless the cache was cleared since the given
+     * generation.
+     *
+     * @param streamId The id of the (Multi)Datastream.
+     * @param isMultiDatastream Flag indicating the id is that of a
+     * MultiDatastream.
+     * @param featureId The id of the generated FeatureOfInterest.
+     * @param loadGeneration The generation of the cache from before the
+     * FeatureOfInterest was looked up.
+     */
+    public synchronized void put(J streamId, boolean isMultiDatastream, J featureId, long loadGeneration) {
+        if (isCurrent(loadGeneration)) {
+            getCache(isMultiDatastream).put(streamId, featureId);
+        }
+    }
+
+    @Override
+    protected void doClear() {
+        datastreamFeatures.clear();
+        multiDatastreamFeatures.clear();
+    }
+
+    private LruCache<J, J> getCache(boolean isMultiDatastream) {
+        return isMultiDatastream ? multiDatastreamFeatures : datastreamFeatures;
+    }
+
+}
@@ -39,10 +39,8 @@ import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollect
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
-import static de.fraunhofer.iosb.ilt.frostserver.util.Constants.UTC;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
-import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.HashMap;
@@ -92,7 +90,7 @@ public class HistoricalLocationFactory<J extends Comparable> implements EntityFa
         entityFactories.entityExistsOrCreate(pm, t);
         J thingId = (J) h.getThing().getId().getValue();
 
-        OffsetDateTime newTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(h.getTime().getDateTime().getMillis()), UTC);
+        OffsetDateTime newTime = h.getTime().getOffsetDateTime();
 
         DSLContext dslContext = pm.getDslContext();
 
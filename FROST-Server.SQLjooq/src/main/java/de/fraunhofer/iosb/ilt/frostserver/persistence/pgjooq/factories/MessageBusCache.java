@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageListener;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for caches of database state that are cleared when relevant
+ * EntityChangedMessages arrive over the message bus. Since the message bus
+ * also carries the changes made by other instances, the caches stay valid when
+ * multiple instances share a database.
+ *
+ * Values must be stored with the generation of the cache from before they
+ * were loaded, so that values loaded while the cache was cleared are not
+ * stored.
+ *
+ * @author scf
+ */
+public abstract class MessageBusCache implements MessageListener {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageBusCache.class);
+
+    /**
+     * Incremented each time the cache is cleared.
+     */
+    private long generation;
+    private volatile boolean listening;
+
+    /**
+     * Start listening on the message bus, if it is available. As long as the
+     * message bus is not available, the cache must not be used.
+     *
+     * @return true if the cache is listening on the message bus.
+     */
+    protected boolean startListening() {
+        if (listening) {
+            return true;
+        }
+        synchronized (this) {
+            if (!listening) {
+                try {
+                    MessageBusFactory.getMessageBus().addMessageListener(this);
+                    listening = true;
+                } catch (IllegalStateException ex) {
+                    LOGGER.trace("Message bus not available yet.", ex);
+                }
+            }
+            return listening;
+        }
+    }
+
+    /**
+     * Check if a change of the given type to an entity of the given type
+     * requires the cache to be cleared.
+     *
+     * @param type The type of the changed entity.
+     * @param change The type of change.
+     * @return true if the cache must be cleared.
+     */
+    public abstract boolean isAffectedBy(EntityType type, EntityChangedMessage.Type change);
+
+    /**
+     * Remove all cached values.
+     */
+    protected abstract void doClear();
+
+    /**
+     * The current generation of the cache. This must be fetched before a value
+     * is loaded from the database.
+     *
+     * @return The current generation.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Check if the cache was not cleared since the given generation. Must be
+     * called while holding the lock on this cache.
+     *
+     * @param loadGeneration The generation from before a value was loaded.
+     * @return true if the cache was not cleared since the given generation.
+     */
+    protected boolean isCurrent(long loadGeneration) {
+        return generation == loadGeneration;
+    }
+
+    public synchronized void clear() {
+        generation++;
+        doClear();
+    }
+
+    @Override
+    public boolean isEntityContentNeeded(EntityType entityType) {
+        return false;
+    }
+
+    @Override
+    public void messageReceived(EntityChangedMessage message) {
+        if (message.getEntityType() != null && isAffectedBy(message.getEntityType(), message.getEventType())) {
+            clear();
+        }
+    }
+
+}
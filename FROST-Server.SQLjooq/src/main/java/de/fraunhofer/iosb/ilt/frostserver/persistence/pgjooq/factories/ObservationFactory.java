@@ -23,10 +23,14 @@ import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.FeatureOfInterest;
 import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation.PrimitiveResult;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.DataSize;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.DatastreamTimes;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.PostgresPersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.ResultType;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.Utils;
@@ -44,15 +48,23 @@ import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityExcepti
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertSetMoreStep;
+import org.jooq.InsertValuesStepN;
 import org.jooq.Record;
-import org.jooq.Record1;
+import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -122,6 +134,191 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         return entity;
     }
 
+    /**
+     * Reads a numeric result and hands it to the setter for the narrowest type
+     * that holds it exactly. Only when the stored text can not be held in a
+     * primitive is it parsed into a BigDecimal.
+     *
+     * @param tuple The record to read the result from.
+     * @param longSetter The setter for results that fit a long.
+     * @param doubleSetter The setter for results that fit a double.
+     * @param objectSetter The setter for all other results.
+     */
+    private void readNumberResultFromDb(Record tuple, LongConsumer longSetter, DoubleConsumer doubleSetter, Consumer<Object> objectSetter) {
+        String text = getFieldOrNull(tuple, table.colResultString);
+        Double number = getFieldOrNull(tuple, table.colResultNumber);
+        readNumberResult(text, number, longSetter, doubleSetter, objectSetter);
+    }
+
+    /**
+     * Hands the given numeric result to the setter for the narrowest type that
+     * holds it exactly.
+     *
+     * @param text The number as it was stored.
+     * @param number The number as double, as it was stored.
+     * @param longSetter The setter for results that fit a long.
+     * @param doubleSetter The setter for results that fit a double.
+     * @param objectSetter The setter for all other results.
+     */
+    static void readNumberResult(String text, Double number, LongConsumer longSetter, DoubleConsumer doubleSetter, Consumer<Object> objectSetter) {
+        switch (classifyNumber(text, number)) {
+            case LONG:
+                longSetter.accept(Long.parseLong(text));
+                return;
+
+            case DOUBLE:
+                doubleSetter.accept(number);
+                return;
+
+            default:
+                try {
+                    objectSetter.accept(new BigDecimal(text));
+                } catch (NumberFormatException | NullPointerException e) {
+                    // It was not a Number? Use the double value.
+                    objectSetter.accept(number);
+                }
+        }
+    }
+
+    /**
+     * Checks if the given number text can be held in a primitive without
+     * changing the output. Integers of up to 18 digits fit a long. Plain
+     * decimals with up to 15 significant digits go into a double, but only
+     * if {@link Observation#formatResultDouble(double)} writes the double
+     * exactly as the text, the way the BigDecimal would be written. So
+     * 12345678.5, 0.0001 and 1.50 stay BigDecimals. Anything else, including
+     * exponent notation, needs a BigDecimal.
+     *
+     * @param text The number as it was stored.
+     * @param number The number as double, as it was stored.
+     * @return The primitive that can hold the number exactly, or NONE.
+     */
+    static PrimitiveResult classifyNumber(String text, Double number) {
+        if (text == null || text.isEmpty()) {
+            return PrimitiveResult.NONE;
+        }
+        int length = text.length();
+        int start = text.charAt(0) == '-' ? 1 : 0;
+        int digits = 0;
+        int significant = 0;
+        boolean leading = true;
+        boolean point = false;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                if (point) {
+                    return PrimitiveResult.NONE;
+                }
+                point = true;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (leading && c == '0') {
+                    continue;
+                }
+                leading = false;
+                significant++;
+            } else {
+                return PrimitiveResult.NONE;
+            }
+        }
+        if (digits == 0 || text.charAt(length - 1) == '.') {
+            return PrimitiveResult.NONE;
+        }
+        if (!point) {
+            return digits <= 18 ? PrimitiveResult.LONG : PrimitiveResult.NONE;
+        }
+        if (significant > 15 || number == null || start == 1 && number == 0) {
+            // Negative zero is written as 0.0 by BigDecimal.
+            return PrimitiveResult.NONE;
+        }
+        return Observation.formatResultDouble(number).equals(text) ? PrimitiveResult.DOUBLE : PrimitiveResult.NONE;
+    }
+
+    /**
+     * Checks if the Observations requested by the given query can be read
+     * into an {@link ObservationSetColumnar}.
+     *
+     * @param query The query to check.
+     * @return true if the query can be answered with columns.
+     */
+    public boolean supportsColumns(Query query) {
+        if (query == null || !query.getExpand().isEmpty()) {
+            return false;
+        }
+        Set<Property> select = query.getSelect();
+        if (!ObservationSetColumnar.supports(select)) {
+            return false;
+        }
+        return !select.contains(EntityProperty.ID) || table.getId().getType() == Long.class;
+    }
+
+    /**
+     * Adds the selected values of the given record as a new row to the given
+     * set, without creating an Observation.
+     *
+     * @param tuple The record to read.
+     * @param columns The set to add the row to.
+     * @param dataSize The data size tracker to update.
+     */
+    public void addToColumns(Record tuple, ObservationSetColumnar columns, DataSize dataSize) {
+        int row = columns.addRow();
+        if (columns.hasId()) {
+            J id = getFieldOrNull(tuple, table.getId());
+            if (id != null) {
+                columns.setId(row, (Long) id);
+            }
+        }
+        if (columns.hasPhenomenonTime()) {
+            OffsetDateTime pTimeStart = getFieldOrNull(tuple, table.colPhenomenonTimeStart);
+            OffsetDateTime pTimeEnd = getFieldOrNull(tuple, table.colPhenomenonTimeEnd);
+            if (pTimeStart != null) {
+                long start = toEpochMicros(pTimeStart);
+                long end = pTimeEnd == null ? start : toEpochMicros(pTimeEnd);
+                if (end >= start) {
+                    columns.setPhenomenonTime(row, start, end);
+                }
+            }
+        }
+        if (columns.hasResultTime()) {
+            OffsetDateTime resultTime = getFieldOrNull(tuple, table.colResultTime);
+            if (resultTime != null) {
+                columns.setResultTime(row, toEpochMicros(resultTime));
+            }
+        }
+        if (columns.hasResult()) {
+            addResultToColumns(tuple, columns, row, dataSize);
+        }
+        if (columns.hasStreams()) {
+            J dsId = getFieldOrNull(tuple, table.getDatastreamId());
+            J mDsId = getFieldOrNull(tuple, table.getMultiDatastreamId());
+            if (dsId != null) {
+                columns.setDatastream(row, entityFactories.idFromObject(dsId));
+            } else if (mDsId != null) {
+                columns.setMultiDatastream(row, entityFactories.idFromObject(mDsId));
+            }
+        }
+    }
+
+    private void addResultToColumns(Record tuple, ObservationSetColumnar columns, int row, DataSize dataSize) {
+        Short resultTypeOrd = getFieldOrNull(tuple, table.colResultType);
+        if (resultTypeOrd == null) {
+            return;
+        }
+        ResultType resultType = ResultType.fromSqlValue(resultTypeOrd);
+        if (resultType != ResultType.NUMBER) {
+            columns.setResultObject(row, readResultObjectFromDb(tuple, resultType, dataSize));
+            return;
+        }
+        readNumberResultFromDb(tuple,
+                value -> columns.setResultLong(row, value),
+                value -> columns.setResultDouble(row, value),
+                value -> columns.setResultObject(row, value));
+    }
+
+    private static long toEpochMicros(OffsetDateTime time) {
+        return time.toEpochSecond() * 1_000_000L + time.getNano() / 1_000;
+    }
+
     private void readResultQuality(Set<Property> select, Record tuple, DataSize dataSize, Observation entity) {
         if (select.isEmpty() || select.contains(EntityProperty.RESULTQUALITY)) {
             String resultQuality = getFieldOrNull(tuple, table.colResultQuality);
@@ -137,50 +334,218 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         Short resultTypeOrd = getFieldOrNull(tuple, table.colResultType);
         if (resultTypeOrd != null) {
             ResultType resultType = ResultType.fromSqlValue(resultTypeOrd);
-            switch (resultType) {
-                case BOOLEAN:
-                    entity.setResult(getFieldOrNull(tuple, table.colResultBoolean));
-                    break;
-
-                case NUMBER:
-                    try {
-                        entity.setResult(new BigDecimal(getFieldOrNull(tuple, table.colResultString)));
-                    } catch (NumberFormatException | NullPointerException e) {
-                        // It was not a Number? Use the double value.
-                        entity.setResult(getFieldOrNull(tuple, table.colResultNumber));
-                    }
-                    break;
-
-                case OBJECT_ARRAY:
-                    String jsonData = getFieldOrNull(tuple, table.colResultJson);
-                    dataSize.increase(jsonData == null ? 0 : jsonData.length());
-                    entity.setResult(Utils.jsonToTree(jsonData));
-                    break;
-
-                case STRING:
-                    String stringData = getFieldOrNull(tuple, table.colResultString);
-                    dataSize.increase(stringData == null ? 0 : stringData.length());
-                    entity.setResult(stringData);
-                    break;
-
-                default:
-                    LOGGER.error("Unhandled result type: {}", resultType);
-                    throw new IllegalStateException("Unhandled resultType: " + resultType);
+            if (resultType == ResultType.NUMBER) {
+                readNumberResultFromDb(tuple, entity::setResultLong, entity::setResultDouble, entity::setResult);
+            } else {
+                entity.setResult(readResultObjectFromDb(tuple, resultType, dataSize));
             }
         }
     }
 
+    private Object readResultObjectFromDb(Record tuple, ResultType resultType, DataSize dataSize) {
+        switch (resultType) {
+            case BOOLEAN:
+                return getFieldOrNull(tuple, table.colResultBoolean);
+
+            case OBJECT_ARRAY:
+                String jsonData = getFieldOrNull(tuple, table.colResultJson);
+                dataSize.increase(jsonData == null ? 0 : jsonData.length());
+                return Utils.jsonToTree(jsonData);
+
+            case STRING:
+                String stringData = getFieldOrNull(tuple, table.colResultString);
+                dataSize.increase(stringData == null ? 0 : stringData.length());
+                return stringData;
+
+            default:
+                LOGGER.error("Unhandled result type: {}", resultType);
+                throw new IllegalStateException("Unhandled resultType: " + resultType);
+        }
+    }
+
     @Override
     public boolean insert(PostgresPersistenceManager<J> pm, Observation newObservation) throws NoSuchEntityException, IncompleteEntityException {
+        insert(pm, newObservation, false);
+        return true;
+    }
+
+    @Override
+    public Observation insertAndReturn(PostgresPersistenceManager<J> pm, Observation newObservation) throws NoSuchEntityException, IncompleteEntityException {
+        return insert(pm, newObservation, true);
+    }
+
+    /**
+     * Insert the given Observation.
+     *
+     * @param returnStored Flag indicating the stored Observation should be
+     * created from the row returned by the insert.
+     * @return The stored Observation, or null if returnStored is false.
+     */
+    private Observation insert(PostgresPersistenceManager<J> pm, Observation newObservation, boolean returnStored) throws NoSuchEntityException, IncompleteEntityException {
+        Map<Field, Object> insert = createInsertRecord(pm, newObservation, new LinkCache());
+        entityFactories.insertUserDefinedId(pm, insert, table.getId(), newObservation);
+
+        DSLContext dslContext = pm.getDslContext();
+        InsertSetMoreStep<Record> insertStep = dslContext.insertInto(table)
+                .set(insert);
+        Record result = (returnStored ? insertStep.returning() : insertStep.returning(table.getId()))
+                .fetchOne();
+        J generatedId = result.get(table.getId());
+        LOGGER.debug("Inserted Observation. Created id = {}.", generatedId);
+        newObservation.setId(entityFactories.idFromObject(generatedId));
+        registerDatastreamTimes(pm, insert);
+        if (returnStored) {
+            return create(result, null, new DataSize());
+        }
+        return null;
+    }
+
+    /**
+     * Insert the given Observations, using multi-row insert statements. The
+     * linked (Multi)Datastreams and FeaturesOfInterest are only checked once,
+     * and a generated FeatureOfInterest is only looked up once per
+     * (Multi)Datastream. Ids that are not supplied by the client are generated
+     * before inserting, using the default of the id column, so that each
+     * Observation is inserted with a known id. After inserting, the ids of the
+     * Observations are set, and the linked entities are replaced by entities
+     * that only have an id.
+     *
+     * @param pm The PersistenceManager to use.
+     * @param observations The Observations to insert.
+     * @param batchSize The maximum number of Observations per statement.
+     * @return For each Observation, null if it was inserted, or the reason it
+     * was not inserted.
+     */
+    public List<String> insert(PostgresPersistenceManager<J> pm, List<Observation> observations, int batchSize) {
+        List<String> errors = new ArrayList<>(Collections.nCopies(observations.size(), (String) null));
+        LinkCache links = new LinkCache();
+        List<Map<Field, Object>> records = new ArrayList<>();
+        List<Observation> batch = new ArrayList<>();
+        for (int i = 0; i < observations.size(); i++) {
+            Observation newObservation = observations.get(i);
+            try {
+                Map<Field, Object> insert = createInsertRecord(pm, newObservation, links);
+                entityFactories.insertUserDefinedId(pm, insert, table.getId(), newObservation);
+                records.add(insert);
+                batch.add(newObservation);
+            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+                LOGGER.debug("Failed to create Observation", exc);
+                errors.set(i, exc.getMessage());
+            }
+            if (records.size() >= batchSize) {
+                insertBatch(pm, records, batch);
+                records.clear();
+                batch.clear();
+            }
+        }
+        if (!records.isEmpty()) {
+            insertBatch(pm, records, batch);
+        }
+        return errors;
+    }
+
+    private void insertBatch(PostgresPersistenceManager<J> pm, List<Map<Field, Object>> records, List<Observation> observations) {
+        // A multi-row insert does not guarantee the order of the returned ids.
+        generateIds(pm, records);
+        // Not all records set the same fields, the others get their default.
+        Set<Field> fieldSet = new LinkedHashSet<>();
+        for (Map<Field, Object> insert : records) {
+            fieldSet.addAll(insert.keySet());
+        }
+        List<Field<?>> fields = new ArrayList<>();
+        for (Field field : fieldSet) {
+            fields.add(field);
+        }
+
+        InsertValuesStepN<?> insertStep = pm.getDslContext().insertInto(table, fields);
+        for (Map<Field, Object> insert : records) {
+            List<Field<?>> values = new ArrayList<>(fields.size());
+            for (Field field : fieldSet) {
+                if (insert.containsKey(field)) {
+                    values.add(DSL.val(insert.get(field), field));
+                } else {
+                    values.add(DSL.defaultValue(field));
+                }
+            }
+            insertStep = insertStep.values(values);
+        }
+        int count = insertStep.execute();
+        LOGGER.debug("Inserted {} Observations.", count);
+
+        for (int i = 0; i < observations.size(); i++) {
+            Observation newObservation = observations.get(i);
+            Map<Field, Object> insert = records.get(i);
+            newObservation.setId(entityFactories.idFromObject((J) insert.get(table.getId())));
+            newObservation.setDatastream(exportStub(entityFactories.datastreamFromId((J) insert.get(table.getDatastreamId()))));
+            newObservation.setMultiDatastream(exportStub(entityFactories.multiDatastreamFromId((J) insert.get(table.getMultiDatastreamId()))));
+            newObservation.setFeatureOfInterest(exportStub(entityFactories.featureOfInterestFromId((J) insert.get(table.getFeatureId()))));
+            registerDatastreamTimes(pm, insert);
+        }
+    }
+
+    /**
+     * Set a generated id on all records that do not have a client-supplied id.
+     * The ids come from the id generator of the table, so each Observation
+     * knows its id before the insert, independent of the order in which the
+     * database returns the inserted rows.
+     */
+    private void generateIds(PostgresPersistenceManager<J> pm, List<Map<Field, Object>> records) {
+        int count = 0;
+        for (Map<Field, Object> insert : records) {
+            if (!insert.containsKey(table.getId())) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        List<J> ids = pm.getDslContext()
+                .select(table.getIdGenerator())
+                .from(DSL.table("generate_series(1, {0})", DSL.val(count)))
+                .fetch(0, table.getId().getType());
+        int next = 0;
+        for (Map<Field, Object> insert : records) {
+            if (!insert.containsKey(table.getId())) {
+                insert.put(table.getId(), ids.get(next++));
+            }
+        }
+    }
+
+    /**
+     * If the times of Datastreams are maintained by the server, register the
+     * times of the inserted Observation.
+     */
+    private void registerDatastreamTimes(PostgresPersistenceManager<J> pm, Map<Field, Object> insert) {
+        DatastreamTimes<J> datastreamTimes = pm.getDatastreamTimes();
+        if (datastreamTimes == null) {
+            return;
+        }
+        datastreamTimes.addObservation(
+                (J) insert.get(table.getDatastreamId()),
+                (J) insert.get(table.getMultiDatastreamId()),
+                (J) insert.get(table.getFeatureId()),
+                (OffsetDateTime) insert.get(table.colPhenomenonTimeStart),
+                (OffsetDateTime) insert.get(table.colPhenomenonTimeEnd),
+                (OffsetDateTime) insert.get(table.colResultTime));
+    }
+
+    private static <T extends Entity> T exportStub(T entity) {
+        if (entity != null) {
+            entity.setExportObject(true);
+        }
+        return entity;
+    }
+
+    private Map<Field, Object> createInsertRecord(PostgresPersistenceManager<J> pm, Observation newObservation, LinkCache links) throws NoSuchEntityException, IncompleteEntityException {
         Datastream ds = newObservation.getDatastream();
         MultiDatastream mds = newObservation.getMultiDatastream();
         Id streamId;
         boolean newIsMultiDatastream = false;
         if (ds != null) {
-            entityFactories.entityExistsOrCreate(pm, ds);
+            entityExistsOrCreate(pm, ds, links.datastreams);
             streamId = ds.getId();
         } else if (mds != null) {
-            entityFactories.entityExistsOrCreate(pm, mds);
+            entityExistsOrCreate(pm, mds, links.multiDatastreams);
             streamId = mds.getId();
             newIsMultiDatastream = true;
         } else {
@@ -189,9 +554,14 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
 
         FeatureOfInterest f = newObservation.getFeatureOfInterest();
         if (f == null) {
-            f = entityFactories.generateFeatureOfInterest(pm, streamId, newIsMultiDatastream);
+            Map<Id, FeatureOfInterest> generated = newIsMultiDatastream ? links.multiDatastreamFeatures : links.datastreamFeatures;
+            f = generated.get(streamId);
+            if (f == null) {
+                f = entityFactories.generateFeatureOfInterest(pm, streamId, newIsMultiDatastream);
+                generated.put(streamId, f);
+            }
         } else {
-            entityFactories.entityExistsOrCreate(pm, f);
+            entityExistsOrCreate(pm, f, links.features);
         }
 
         Map<Field, Object> insert = new HashMap<>();
@@ -206,30 +576,28 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         TimeValue phenomenonTime = newObservation.getPhenomenonTime();
         if (phenomenonTime == null) {
             phenomenonTime = TimeInstant.now();
+            newObservation.setPhenomenonTime(phenomenonTime);
         }
         EntityFactories.insertTimeValue(insert, table.colPhenomenonTimeStart, table.colPhenomenonTimeEnd, phenomenonTime);
         EntityFactories.insertTimeInstant(insert, table.colResultTime, newObservation.getResultTime());
         EntityFactories.insertTimeInterval(insert, table.colValidTimeStart, table.colValidTimeEnd, newObservation.getValidTime());
 
-        handleResult(newObservation, newIsMultiDatastream, pm, insert);
+        handleResult(newObservation, newIsMultiDatastream, pm, insert, links);
 
         if (newObservation.getResultQuality() != null) {
             insert.put(table.colResultQuality, EntityFactories.objectToJson(newObservation.getResultQuality()));
         }
         insert.put(table.colParameters, EntityFactories.objectToJson(newObservation.getParameters()));
         insert.put(table.getFeatureId(), f.getId().getValue());
+        return insert;
+    }
 
-        entityFactories.insertUserDefinedId(pm, insert, table.getId(), newObservation);
-
-        DSLContext dslContext = pm.getDslContext();
-        Record1<J> result = dslContext.insertInto(table)
-                .set(insert)
-                .returningResult(table.getId())
-                .fetchOne();
-        J generatedId = result.component1();
-        LOGGER.debug("Inserted Observation. Created id = {}.", generatedId);
-        newObservation.setId(entityFactories.idFromObject(generatedId));
-        return true;
+    private void entityExistsOrCreate(PostgresPersistenceManager<J> pm, Entity entity, Set<Id> known) throws NoSuchEntityException, IncompleteEntityException {
+        if (entity != null && entity.getId() != null && known.contains(entity.getId())) {
+            return;
+        }
+        entityFactories.entityExistsOrCreate(pm, entity);
+        known.add(entity.getId());
     }
 
     @Override
@@ -265,7 +633,7 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         }
 
         if (newObservation.isSetResult()) {
-            handleResult(newObservation, newIsMultiDatastream, pm, update);
+            handleResult(newObservation, newIsMultiDatastream, pm, update, new LinkCache());
             message.addField(EntityProperty.RESULT);
         }
 
@@ -298,7 +666,30 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         return message;
     }
 
-    private void handleResult(Observation newObservation, boolean newIsMultiDatastream, PostgresPersistenceManager<J> pm, Map<Field, Object> record) {
+    private int getObservedPropertyCount(PostgresPersistenceManager<J> pm, J mdsId) {
+        ExistenceCache<J> existenceCache = entityFactories.existenceCache;
+        boolean useCache = entityFactories.useExistenceCache(pm);
+        long cacheGeneration = 0;
+        if (useCache) {
+            Integer count = existenceCache.getObservedPropertyCount(mdsId);
+            if (count != null) {
+                return count;
+            }
+            cacheGeneration = existenceCache.getGeneration();
+        }
+        AbstractTableMultiDatastreamsObsProperties<J> tableMdsOps = tableCollection.getTableMultiDatastreamsObsProperties();
+        int count = pm.getDslContext()
+                .selectCount()
+                .from(tableMdsOps)
+                .where(tableMdsOps.getMultiDatastreamId().eq(mdsId))
+                .fetchOne().component1();
+        if (useCache) {
+            existenceCache.putObservedPropertyCount(mdsId, count, cacheGeneration);
+        }
+        return count;
+    }
+
+    private void handleResult(Observation newObservation, boolean newIsMultiDatastream, PostgresPersistenceManager<J> pm, Map<Field, Object> record, LinkCache links) {
         Object result = newObservation.getResult();
         if (newIsMultiDatastream) {
             if (!(result instanceof List)) {
@@ -306,13 +697,7 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
             }
             List list = (List) result;
             MultiDatastream mds = newObservation.getMultiDatastream();
-            J mdsId = (J) mds.getId().getValue();
-            AbstractTableMultiDatastreamsObsProperties<J> tableMdsOps = tableCollection.getTableMultiDatastreamsObsProperties();
-            Integer count = pm.getDslContext()
-                    .selectCount()
-                    .from(tableMdsOps)
-                    .where(tableMdsOps.getMultiDatastreamId().eq(mdsId))
-                    .fetchOne().component1();
+            Integer count = links.observedPropertyCounts.computeIfAbsent(mds.getId(), mdsId -> getObservedPropertyCount(pm, (J) mdsId.getValue()));
             if (count != list.size()) {
                 throw new IllegalArgumentException("Size of result array (" + list.size() + ") must match number of observed properties (" + count + ") in the MultiDatastream.");
             }
@@ -408,4 +793,18 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         return table.getId();
     }
 
+    /**
+     * The linked entities that were already checked, while inserting multiple
+     * Observations.
+     */
+    private static class LinkCache {
+
+        private final Set<Id> datastreams = new HashSet<>();
+        private final Set<Id> multiDatastreams = new HashSet<>();
+        private final Set<Id> features = new HashSet<>();
+        private final Map<Id, FeatureOfInterest> datastreamFeatures = new HashMap<>();
+        private final Map<Id, FeatureOfInterest> multiDatastreamFeatures = new HashMap<>();
+        private final Map<Id, Integer> observedPropertyCounts = new HashMap<>();
+    }
+
 }
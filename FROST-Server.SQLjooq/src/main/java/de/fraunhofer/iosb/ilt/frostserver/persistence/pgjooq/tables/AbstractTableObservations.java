@@ -120,6 +120,15 @@ public abstract class AbstractTableObservations<J extends Comparable> extends St
 
     public abstract TableField<Record, J> getMultiDatastreamId();
 
+    /**
+     * The SQL expression that generates a new id for this table, the same way
+     * the default of the id column does. Used to fetch the ids of
+     * batch-inserted Observations before inserting them.
+     *
+     * @return The expression that generates a new id.
+     */
+    public abstract Field<J> getIdGenerator();
+
     @Override
     public abstract AbstractTableObservations<J> as(Name as);
 
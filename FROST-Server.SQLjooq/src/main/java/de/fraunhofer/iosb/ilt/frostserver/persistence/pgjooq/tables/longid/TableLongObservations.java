@@ -1,6 +1,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.longid;
 
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableObservations;
+import org.jooq.Field;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.TableField;
@@ -81,6 +82,11 @@ public class TableLongObservations extends AbstractTableObservations<Long> {
         return colMultiDatastreamId;
     }
 
+    @Override
+    public Field<Long> getIdGenerator() {
+        return DSL.field("nextval(pg_get_serial_sequence('\"OBSERVATIONS\"', 'ID'))", SQLDataType.BIGINT);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,6 +1,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.stringid;
 
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableObservations;
+import org.jooq.Field;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.TableField;
@@ -81,6 +82,11 @@ public class TableStringObservations extends AbstractTableObservations<String> {
         return colMultiDatastreamId;
     }
 
+    @Override
+    public Field<String> getIdGenerator() {
+        return DSL.field("uuid_generate_v1mc()", SQLDataType.VARCHAR);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -2,6 +2,7 @@ package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.uuidid;
 
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableObservations;
 import java.util.UUID;
+import org.jooq.Field;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.TableField;
@@ -82,6 +83,11 @@ public class TableUuidObservations extends AbstractTableObservations<UUID> {
         return colMultiDatastreamId;
     }
 
+    @Override
+    public Field<UUID> getIdGenerator() {
+        return DSL.field("uuid_generate_v1mc()", SQLDataType.UUID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ConnectionUtilsTest {
+
+    private static Settings basicSettings() {
+        Settings settings = new Settings();
+        settings.set(ConnectionUtils.TAG_DB_DRIVER, "org.postgresql.Driver");
+        settings.set(ConnectionUtils.TAG_DB_URL, "jdbc:postgresql://localhost:5432/sensorthings");
+        return settings;
+    }
+
+    private static BasicDataSource dataSource(ConnectionPool pool) {
+        Assert.assertTrue(pool.getSource() instanceof ConnectionUtils.ConnectionSourceBasicDataSource);
+        return ((ConnectionUtils.ConnectionSourceBasicDataSource) pool.getSource()).getDataSource();
+    }
+
+    @Test
+    public void testBasicDataSourceSettings() {
+        Settings settings = basicSettings();
+        settings.set(ConnectionUtils.TAG_DB_MAXCONN, "7");
+        settings.set(ConnectionUtils.TAG_DB_STATEMENT_CACHE, "20");
+        try (ConnectionPool pool = ConnectionUtils.createPool("testBasicDataSourceSettings", settings)) {
+            BasicDataSource ds = dataSource(pool);
+            Assert.assertEquals(7, ds.getMaxTotal());
+            Assert.assertEquals(7, pool.getMaxTotal());
+            Assert.assertTrue(ds.isPoolPreparedStatements());
+            Assert.assertEquals(20, ds.getMaxOpenPreparedStatements());
+            Assert.assertFalse(ds.getRemoveAbandonedOnBorrow());
+            Assert.assertFalse(ds.getRemoveAbandonedOnMaintenance());
+        }
+    }
+
+    @Test
+    public void testRemoveAbandonedTimeout() {
+        Settings settings = basicSettings();
+        settings.set(ConnectionUtils.TAG_DB_REMOVE_ABANDONED_TIMEOUT, "60");
+        try (ConnectionPool pool = ConnectionUtils.createPool("testRemoveAbandonedTimeout", settings)) {
+            BasicDataSource ds = dataSource(pool);
+            Assert.assertTrue(ds.getRemoveAbandonedOnBorrow());
+            Assert.assertTrue(ds.getRemoveAbandonedOnMaintenance());
+            Assert.assertEquals(60, ds.getRemoveAbandonedTimeout());
+            Assert.assertTrue(ds.getLogAbandoned());
+            Assert.assertEquals(30000L, ds.getTimeBetweenEvictionRunsMillis());
+        }
+    }
+
+    @Test
+    public void testProviderClosedOnShutdown() throws SQLException {
+        Settings settings = new Settings();
+        settings.set(ConnectionUtils.TAG_DB_PROVIDER, TestSource.class.getName());
+        ConnectionUtils.getPoolingConnection("testProviderClosedOnShutdown", settings);
+        Assert.assertEquals(1, TestSource.created);
+        Assert.assertEquals(1, TestSource.connections);
+
+        ConnectionUtils.getPoolingConnection("testProviderClosedOnShutdown", settings);
+        Assert.assertEquals(1, TestSource.created);
+        Assert.assertEquals(2, TestSource.connections);
+        Assert.assertEquals(0, TestSource.closed);
+
+        PersistenceManagerFactory.shutdown();
+        Assert.assertEquals(1, TestSource.closed);
+
+        ConnectionUtils.getPoolingConnection("testProviderClosedOnShutdown", settings);
+        Assert.assertEquals(2, TestSource.created);
+        ConnectionUtils.closePool("testProviderClosedOnShutdown");
+        Assert.assertEquals(2, TestSource.closed);
+    }
+
+    public static class TestSource implements ConnectionSource {
+
+        private static int created;
+        private static int connections;
+        private static int closed;
+
+        public TestSource(Settings settings) {
+            created++;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections++;
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closed++;
+        }
+    }
+}
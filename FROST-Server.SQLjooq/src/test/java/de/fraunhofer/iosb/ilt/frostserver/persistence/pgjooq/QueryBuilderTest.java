@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.query.OrderBy.OrderType;
+import java.util.Arrays;
+import java.util.List;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class QueryBuilderTest {
+
+    private static final DSLContext DSL_CONTEXT = DSL.using(SQLDialect.POSTGRES);
+    private static final Field<Integer> NULLABLE = DSL.field(DSL.name("RESULT"), SQLDataType.INTEGER);
+    private static final Field<Long> ID = DSL.field(DSL.name("ID"), SQLDataType.BIGINT.nullable(false));
+    private static final List<Field> FIELDS = Arrays.asList(NULLABLE, ID);
+
+    private static String render(Condition condition) {
+        return DSL_CONTEXT.renderInlined(condition);
+    }
+
+    private static String seek(OrderType type, Integer value, long id) {
+        return render(QueryBuilder.createSeekCondition(FIELDS, Arrays.asList(type, OrderType.ASCENDING), new Object[]{value, id}));
+    }
+
+    @Test
+    public void testSeekAscendingIncludesNulls() {
+        // NULLs sort last, so they must be on the pages after any value.
+        Assert.assertEquals(
+                render(NULLABLE.gt(5).or(NULLABLE.isNull())
+                        .or(NULLABLE.eq(5).and(ID.gt(7L)))),
+                seek(OrderType.ASCENDING, 5, 7));
+    }
+
+    @Test
+    public void testSeekAscendingInNulls() {
+        // Once in the NULL range, only the remaining NULL rows follow.
+        Assert.assertEquals(
+                render(NULLABLE.isNull().and(ID.gt(7L))),
+                seek(OrderType.ASCENDING, null, 7));
+    }
+
+    @Test
+    public void testSeekDescendingExcludesNulls() {
+        // NULLs sort first when descending, so they are on earlier pages.
+        Assert.assertEquals(
+                render(NULLABLE.lt(5).or(NULLABLE.eq(5).and(ID.gt(7L)))),
+                seek(OrderType.DESCENDING, 5, 7));
+    }
+
+    @Test
+    public void testSeekDescendingInNulls() {
+        // After the last NULL row, all non-NULL rows follow.
+        Assert.assertEquals(
+                render(NULLABLE.isNotNull().or(NULLABLE.isNull().and(ID.gt(7L)))),
+                seek(OrderType.DESCENDING, null, 7));
+    }
+
+    @Test
+    public void testSeekNotNullField() {
+        Assert.assertEquals(
+                render(ID.gt(7L)),
+                render(QueryBuilder.createSeekCondition(Arrays.asList(ID), Arrays.asList(OrderType.ASCENDING), new Object[]{7L})));
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ExistenceCacheTest {
+
+    @BeforeClass
+    public static void initMessageBus() {
+        MessageBusFactory.init(new CoreSettings());
+    }
+
+    private static ExistenceCache<Long> createCache() {
+        ExistenceCache<Long> cache = new ExistenceCache<>();
+        cache.configure(100, 300);
+        return cache;
+    }
+
+    private static void register(ExistenceCache<Long> cache, EntityType type, long id) {
+        cache.putKnown(type, id, cache.getGeneration());
+    }
+
+    @Test
+    public void testObservationsNotCached() {
+        ExistenceCache<Long> cache = createCache();
+        register(cache, EntityType.OBSERVATION, 1);
+        Assert.assertFalse(cache.isKnown(EntityType.OBSERVATION, 1L));
+    }
+
+    @Test
+    public void testDeleteThenUpdate() {
+        ExistenceCache<Long> cache = createCache();
+        register(cache, EntityType.DATASTREAM, 1);
+        Assert.assertTrue(cache.isKnown(EntityType.DATASTREAM, 1L));
+
+        // A delete of a Datastream, as registered by the local transaction or
+        // received over the bus, must evict it before the next update.
+        Assert.assertTrue(cache.isAffectedBy(EntityType.DATASTREAM, EntityChangedMessage.Type.DELETE));
+        cache.messageReceived(new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.DELETE)
+                .setEntityType(EntityType.DATASTREAM));
+        Assert.assertFalse(cache.isKnown(EntityType.DATASTREAM, 1L));
+    }
+
+    @Test
+    public void testStaleLoadNotStored() {
+        ExistenceCache<Long> cache = createCache();
+        long generation = cache.getGeneration();
+        cache.clear();
+        cache.putKnown(EntityType.THING, 1L, generation);
+        Assert.assertFalse(cache.isKnown(EntityType.THING, 1L));
+    }
+
+}
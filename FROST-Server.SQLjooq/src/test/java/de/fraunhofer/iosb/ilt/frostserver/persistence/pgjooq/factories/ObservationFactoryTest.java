@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories;
+
+import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation.PrimitiveResult;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ObservationFactoryTest {
+
+    private static final String[] NUMBERS = {
+        "42", "-7", "70.4", "-3.25", "12.0", "0.001", "1234567.5",
+        "12345678.5", "0.0001", "1.50", "-0.0", "007.5", "1E3", "0.1234567890123456"
+    };
+
+    private static final Pattern RESULT_TEXT = Pattern.compile("\"result\"\\s*:\\s*([^,}\\s]+)");
+
+    private static PrimitiveResult classify(String text) {
+        return ObservationFactory.classifyNumber(text, Double.valueOf(text));
+    }
+
+    private static Observation readObservation(String text) {
+        Observation observation = new Observation();
+        ObservationFactory.readNumberResult(text, Double.valueOf(text), observation::setResultLong, observation::setResultDouble, observation::setResult);
+        return observation;
+    }
+
+    @Test
+    public void testClassifyNumber() {
+        Assert.assertEquals(PrimitiveResult.LONG, classify("42"));
+        Assert.assertEquals(PrimitiveResult.DOUBLE, classify("70.4"));
+        Assert.assertEquals(PrimitiveResult.DOUBLE, classify("0.001"));
+        Assert.assertEquals(PrimitiveResult.DOUBLE, classify("1234567.5"));
+        Assert.assertEquals(PrimitiveResult.NONE, classify("12345678.5"));
+        Assert.assertEquals(PrimitiveResult.NONE, classify("0.0001"));
+        Assert.assertEquals(PrimitiveResult.NONE, classify("1.50"));
+        Assert.assertEquals(PrimitiveResult.NONE, classify("-0.0"));
+        Assert.assertEquals(PrimitiveResult.NONE, classify("1E3"));
+        Assert.assertEquals(PrimitiveResult.NONE, ObservationFactory.classifyNumber("1.5", null));
+    }
+
+    @Test
+    public void testNumbersWrittenAsStored() throws IOException {
+        for (String text : NUMBERS) {
+            String expected = EntityFormatter.writeEntity(new Observation().setResult(new BigDecimal(text)));
+            Assert.assertEquals(text, expected, EntityFormatter.writeEntity(readObservation(text)));
+        }
+        Assert.assertTrue(EntityFormatter.writeEntity(readObservation("12345678.5")).contains("12345678.5"));
+        Assert.assertTrue(EntityFormatter.writeEntity(readObservation("0.0001")).contains("0.0001"));
+    }
+
+    @Test
+    public void testColumnsWrittenAsObservations() throws IOException {
+        Set<Property> select = new HashSet<>(Arrays.asList(EntityProperty.ID, EntityProperty.RESULT));
+        ObservationSetColumnar columns = new ObservationSetColumnar(select);
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < NUMBERS.length; i++) {
+            String text = NUMBERS[i];
+            int row = columns.addRow();
+            columns.setId(row, i);
+            ObservationFactory.readNumberResult(
+                    text,
+                    Double.valueOf(text),
+                    value -> columns.setResultLong(row, value),
+                    value -> columns.setResultDouble(row, value),
+                    value -> columns.setResultObject(row, value));
+            observations.add(readObservation(text).setId(new IdLong(i)));
+        }
+        String fromColumns = EntityFormatter.writeEntityCollection(columns);
+        Assert.assertTrue(columns.isColumnar());
+        String fromObservations = EntityFormatter.writeEntityCollection(new EntitySetImpl<>(EntityType.OBSERVATION, observations));
+        List<String> expected = resultTexts(fromObservations);
+        Assert.assertEquals(NUMBERS.length, expected.size());
+        Assert.assertEquals(expected, resultTexts(fromColumns));
+    }
+
+    /**
+     * The results, as written, of all Observations in the given json. The
+     * columns write the properties in a different order, so the documents
+     * can not be compared as a whole.
+     */
+    private static List<String> resultTexts(String json) {
+        List<String> results = new ArrayList<>();
+        Matcher matcher = RESULT_TEXT.matcher(json);
+        while (matcher.find()) {
+            results.add(matcher.group(1));
+        }
+        return results;
+    }
+
+}
@@ -35,12 +35,14 @@ import de.fraunhofer.iosb.ilt.statests.c03filtering.DateTimeTests;
 import de.fraunhofer.iosb.ilt.statests.c03filtering.FilterTests;
 import de.fraunhofer.iosb.ilt.statests.c03filtering.GeoTests;
 import de.fraunhofer.iosb.ilt.statests.c03filtering.JsonPropertiesTests;
+import de.fraunhofer.iosb.ilt.statests.c03filtering.KeysetPagingTests;
 import de.fraunhofer.iosb.ilt.statests.c05multidatastream.MultiDatastreamTests;
 import de.fraunhofer.iosb.ilt.statests.c06dataarrays.DataArrayTests;
 import de.fraunhofer.iosb.ilt.statests.c07mqttcreate.Capability7Tests;
 import de.fraunhofer.iosb.ilt.statests.c08mqttsubscribe.Capability8Tests;
 import de.fraunhofer.iosb.ilt.statests.f01auth.BasicAuthAnonReadTests;
 import de.fraunhofer.iosb.ilt.statests.f01auth.BasicAuthTests;
+import de.fraunhofer.iosb.ilt.statests.load.LoadTestSettings;
 import de.fraunhofer.iosb.ilt.statests.util.HTTPMethods;
 import de.fraunhofer.iosb.ilt.statests.util.HTTPMethods.HttpResponse;
 import java.io.IOException;
@@ -85,6 +87,7 @@ import org.testcontainers.containers.GenericContainer;
     FilterTests.class,
     GeoTests.class,
     JsonPropertiesTests.class,
+    KeysetPagingTests.class,
     MultiDatastreamTests.class,
     DataArrayTests.class,
     Capability7Tests.class,
@@ -116,15 +119,24 @@ public class TestSuite {
     private final Map<Properties, ServerSettings> serverSettings = new HashMap<>();
     private String pgConnectUrl;
     @Rule
-    public GenericContainer pgServer = new GenericContainer<>("postgis/postgis:11-2.5-alpine")
-            .withEnv("POSTGRES_DB", VAL_PG_DB)
-            .withEnv("POSTGRES_USER", VAL_PG_USER)
-            .withEnv("POSTGRES_PASSWORD", VAL_PG_PASS)
-            .withExposedPorts(5432);
+    public GenericContainer pgServer = createPgServer();
 
     @Rule
     public GenericContainer mqttBus = new GenericContainer<>("eclipse-mosquitto").withExposedPorts(1883);
 
+    private static GenericContainer createPgServer() {
+        GenericContainer server = new GenericContainer<>("postgis/postgis:11-2.5-alpine")
+                .withEnv("POSTGRES_DB", VAL_PG_DB)
+                .withEnv("POSTGRES_USER", VAL_PG_USER)
+                .withEnv("POSTGRES_PASSWORD", VAL_PG_PASS)
+                .withExposedPorts(5432);
+        if (LoadTestSettings.isEnabled()) {
+            // Lets the load tests count the executed statements.
+            server.withCommand("postgres", "-c", "shared_preload_libraries=pg_stat_statements");
+        }
+        return server;
+    }
+
     public static TestSuite getInstance() {
         // Create a new instance if none exists. This only happens when running
         // tests outside of the test suite.
@@ -353,4 +353,47 @@ public class AdditionalTests extends AbstractTestClass {
 
         Assert.assertNotEquals(foiGenerated1, foiGenerated2);
     }
+
+    /**
+     * Checks that entities that were deleted can not be updated, also when
+     * they were recently used, and thus known to the caches of the server.
+     *
+     * @throws ServiceFailureException if the service connection fails.
+     */
+    @Test
+    public void testDeleteThenUpdate() throws ServiceFailureException {
+        LOGGER.info("  testDeleteThenUpdate");
+        EntityUtils.deleteAll(service);
+
+        Thing thing1 = new Thing("Thing 1", "The first thing.");
+        Sensor sensor1 = new Sensor("Test Thermometre", "Test Sensor", "None", "-");
+        ObservedProperty obsProp1 = new ObservedProperty("Temperature", "http://example.org", "-");
+        Datastream datastream1 = new Datastream("Ds 1, Thing 1", "The datastream of Thing 1", "http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement", new UnitOfMeasurement("Degrees Celcius", "°C", "http://qudt.org/vocab/unit#DegreeCelsius"));
+        datastream1.setThing(thing1);
+        datastream1.setSensor(sensor1);
+        datastream1.setObservedProperty(obsProp1);
+        service.create(datastream1);
+
+        Observation obs1 = new Observation(1.0, datastream1);
+        service.create(obs1);
+
+        String urlObs = serverSettings.getServiceUrl(version) + "/Observations(" + obs1.getId().getUrl() + ")";
+        String urlDs = serverSettings.getServiceUrl(version) + "/Datastreams(" + datastream1.getId().getUrl() + ")";
+
+        // Use both entities, so they are known to exist.
+        HTTPMethods.HttpResponse response = HTTPMethods.doPatch(urlObs, "{\"result\": 2}");
+        Assert.assertEquals("Patch should return 200 Ok for url " + urlObs, 200, response.code);
+        response = HTTPMethods.doPatch(urlDs, "{\"name\": \"Ds 1, changed\"}");
+        Assert.assertEquals("Patch should return 200 Ok for url " + urlDs, 200, response.code);
+
+        response = HTTPMethods.doDelete(urlObs);
+        Assert.assertEquals("Delete should return 200 Ok for url " + urlObs, 200, response.code);
+        response = HTTPMethods.doPatch(urlObs, "{\"result\": 3}");
+        Assert.assertEquals("Patch should return 404 Not Found for url " + urlObs, 404, response.code);
+
+        response = HTTPMethods.doDelete(urlDs);
+        Assert.assertEquals("Delete should return 200 Ok for url " + urlDs, 200, response.code);
+        response = HTTPMethods.doPatch(urlDs, "{\"name\": \"Ds 1, deleted\"}");
+        Assert.assertEquals("Patch should return 404 Not Found for url " + urlDs, 404, response.code);
+    }
 }
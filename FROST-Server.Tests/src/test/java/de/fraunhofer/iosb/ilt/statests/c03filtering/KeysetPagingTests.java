@@ -0,0 +1,144 @@
+package de.fraunhofer.iosb.ilt.statests.c03filtering;
+
+import de.fraunhofer.iosb.ilt.sta.ServiceFailureException;
+import de.fraunhofer.iosb.ilt.sta.model.Datastream;
+import de.fraunhofer.iosb.ilt.sta.model.Observation;
+import de.fraunhofer.iosb.ilt.sta.model.ObservedProperty;
+import de.fraunhofer.iosb.ilt.sta.model.Sensor;
+import de.fraunhofer.iosb.ilt.sta.model.Thing;
+import de.fraunhofer.iosb.ilt.sta.model.ext.EntityList;
+import de.fraunhofer.iosb.ilt.sta.model.ext.UnitOfMeasurement;
+import de.fraunhofer.iosb.ilt.statests.AbstractTestClass;
+import de.fraunhofer.iosb.ilt.statests.ServerVersion;
+import de.fraunhofer.iosb.ilt.statests.util.EntityUtils;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests paging with $skiptoken, when the sort values contain NULLs.
+ *
+ * @author scf
+ */
+public class KeysetPagingTests extends AbstractTestClass {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeysetPagingTests.class);
+
+    private static final Properties SERVER_PROPERTIES = new Properties();
+
+    static {
+        SERVER_PROPERTIES.put("persistence.keysetPagination", "true");
+    }
+
+    private static final List<Observation> OBSERVATIONS = new ArrayList<>();
+
+    public KeysetPagingTests(ServerVersion version) {
+        super(version, SERVER_PROPERTIES);
+    }
+
+    @Override
+    protected void setUpVersion() throws ServiceFailureException, URISyntaxException {
+        LOGGER.info("Setting up for version {}.", version.urlPart);
+        createEntities();
+    }
+
+    @Override
+    protected void tearDownVersion() throws ServiceFailureException {
+        cleanup();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        LOGGER.info("Tearing down.");
+        try {
+            cleanup();
+        } catch (ServiceFailureException ex) {
+            LOGGER.error("Failed to clean database.", ex);
+        }
+    }
+
+    private static void createEntities() throws ServiceFailureException, URISyntaxException {
+        Thing thing = new Thing("Thing 1", "The first thing.");
+        Sensor sensor = new Sensor("Sensor 1", "The first sensor.", "text", "Some metadata.");
+        ObservedProperty obsProp = new ObservedProperty("Temperature", new URI("http://ucom.org/temperature"), "The temperature of the thing.");
+        Datastream datastream = new Datastream("Datastream 1", "The temperature of thing 1, sensor 1.", "someType", new UnitOfMeasurement("degree celcius", "°C", "ucum:T"));
+        datastream.setThing(thing);
+        datastream.setSensor(sensor);
+        datastream.setObservedProperty(obsProp);
+        service.create(datastream);
+
+        ZonedDateTime start = ZonedDateTime.parse("2016-01-01T06:00:00.000Z");
+        for (int i = 0; i < 7; i++) {
+            Observation o = new Observation(i, datastream);
+            o.setPhenomenonTimeFrom(start.plusHours(i));
+            // Every other Observation has no resultTime.
+            if (i % 2 == 0) {
+                o.setResultTime(start.plusHours(i));
+            }
+            service.create(o);
+            OBSERVATIONS.add(o);
+        }
+    }
+
+    private static void cleanup() throws ServiceFailureException {
+        EntityUtils.deleteAll(service);
+        OBSERVATIONS.clear();
+    }
+
+    private static List<Object> fetchAllIds(String orderBy) throws ServiceFailureException {
+        EntityList<Observation> list = service.observations().query()
+                .orderBy(orderBy)
+                .top(2)
+                .list();
+        List<Object> ids = new ArrayList<>();
+        for (Iterator<Observation> it = list.fullIterator(); it.hasNext();) {
+            ids.add(it.next().getId().getValue());
+        }
+        return ids;
+    }
+
+    private static List<Object> idsOf(int... indices) {
+        List<Object> ids = new ArrayList<>();
+        for (int index : indices) {
+            ids.add(OBSERVATIONS.get(index).getId().getValue());
+        }
+        return ids;
+    }
+
+    /**
+     * PostgreSQL sorts NULLs last when ascending, so the Observations without
+     * resultTime must be on the last pages.
+     *
+     * @throws ServiceFailureException if the service connection fails.
+     */
+    @Test
+    public void testPagingAscendingWithNulls() throws ServiceFailureException {
+        List<Object> expected = idsOf(0, 2, 4, 6, 1, 3, 5);
+        Assert.assertEquals(expected, fetchAllIds("resultTime asc, id asc"));
+    }
+
+    /**
+     * PostgreSQL sorts NULLs first when descending, so the Observations
+     * without resultTime must be on the first pages.
+     *
+     * @throws ServiceFailureException if the service connection fails.
+     */
+    @Test
+    public void testPagingDescendingWithNulls() throws ServiceFailureException {
+        List<Object> expected = idsOf(1, 3, 5, 6, 4, 2, 0);
+        Assert.assertEquals(expected, fetchAllIds("resultTime desc, id asc"));
+    }
+
+}
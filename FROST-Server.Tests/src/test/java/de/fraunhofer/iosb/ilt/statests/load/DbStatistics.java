@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the activity counters of the database, to count the statements and
+ * transactions a load test causes. Statement counts need the
+ * pg_stat_statements extension, if it is not available only the transaction
+ * and row counters are reported.
+ *
+ * @author scf
+ */
+public class DbStatistics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DbStatistics.class);
+    private static final String[] DATABASE_COUNTERS = {
+        "xact_commit", "xact_rollback", "tup_returned", "tup_fetched", "tup_inserted", "tup_updated", "tup_deleted"
+    };
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private boolean statementsAvailable;
+    private Map<String, Long> before = new HashMap<>();
+
+    public DbStatistics(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Reset the statement counters and remember the current transaction and
+     * row counters.
+     */
+    public void start() {
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+                Statement statement = connection.createStatement()) {
+            try {
+                statement.execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+                statement.execute("SELECT pg_stat_statements_reset()");
+                statementsAvailable = true;
+            } catch (SQLException ex) {
+                LOGGER.warn("pg_stat_statements is not available, statements are not counted: {}", ex.getMessage());
+            }
+            before = readDatabaseCounters(statement);
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to read database statistics.", ex);
+        }
+    }
+
+    /**
+     * Read the counters since {@link #start()}.
+     *
+     * @return The number of statements per command, and the number of
+     * transactions and rows.
+     */
+    public Map<String, Long> collect() {
+        Map<String, Long> result = new HashMap<>();
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+                Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, Long> entry : readDatabaseCounters(statement).entrySet()) {
+                result.put(entry.getKey(), entry.getValue() - before.getOrDefault(entry.getKey(), 0L));
+            }
+            if (statementsAvailable) {
+                result.putAll(readStatementCounters(statement));
+            }
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to read database statistics.", ex);
+        }
+        return result;
+    }
+
+    private static Map<String, Long> readDatabaseCounters(Statement statement) throws SQLException {
+        Map<String, Long> counters = new HashMap<>();
+        String sql = "SELECT " + String.join(", ", DATABASE_COUNTERS) + " FROM pg_stat_database WHERE datname = current_database()";
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                for (String counter : DATABASE_COUNTERS) {
+                    counters.put(counter, resultSet.getLong(counter));
+                }
+            }
+        }
+        return counters;
+    }
+
+    private static Map<String, Long> readStatementCounters(Statement statement) throws SQLException {
+        Map<String, Long> counters = new HashMap<>();
+        long total = 0;
+        String sql = "SELECT lower(split_part(ltrim(query), ' ', 1)) AS command, sum(calls) AS calls"
+                + " FROM pg_stat_statements"
+                + " WHERE dbid = (SELECT oid FROM pg_database WHERE datname = current_database())"
+                + " GROUP BY 1";
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                long calls = resultSet.getLong("calls");
+                counters.put("statements_" + resultSet.getString("command"), calls);
+                total += calls;
+            }
+        }
+        counters.put("statements", total);
+        return counters;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+
+/**
+ * The latencies per request type of a load test. Latencies are only recorded
+ * while the measurement runs, so the warm-up does not count.
+ *
+ * @author scf
+ */
+public class LoadReport {
+
+    public static final String HTTP_POST_OBSERVATION = "httpPostObservation";
+    public static final String HTTP_GET_OBSERVATIONS = "httpGetObservations";
+    public static final String HTTP_GET_THINGS = "httpGetThings";
+    public static final String MQTT_CREATE_OBSERVATION = "mqttCreateObservation";
+    public static final String MQTT_DELIVERY = "mqttDelivery";
+
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+    private long startNanos;
+    private long endNanos;
+    private Map<String, Long> dbStatistics = new TreeMap<>();
+
+    public void start() {
+        startNanos = System.nanoTime();
+        measuring = true;
+    }
+
+    public void stop() {
+        measuring = false;
+        endNanos = System.nanoTime();
+    }
+
+    public boolean isMeasuring() {
+        return measuring;
+    }
+
+    public LatencyStats getStats(String type) {
+        return stats.computeIfAbsent(type, t -> new LatencyStats());
+    }
+
+    /**
+     * Record the latency of a successful request, if the measurement is
+     * running.
+     *
+     * @param type The type of the request.
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(String type, long nanos) {
+        if (measuring) {
+            getStats(type).record(nanos);
+        }
+    }
+
+    /**
+     * Record a failed request, if the measurement is running.
+     *
+     * @param type The type of the request.
+     */
+    public void error(String type) {
+        if (measuring) {
+            getStats(type).error();
+        }
+    }
+
+    public void setDbStatistics(Map<String, Long> dbStatistics) {
+        this.dbStatistics = new TreeMap<>(dbStatistics);
+    }
+
+    public double getSeconds() {
+        return (endNanos - startNanos) / 1e9;
+    }
+
+    public Map<String, Object> toMap(LoadTestSettings settings) {
+        double seconds = getSeconds();
+        Map<String, Object> requests = new TreeMap<>();
+        for (Map.Entry<String, LatencyStats> entry : stats.entrySet()) {
+            requests.put(entry.getKey(), entry.getValue().summarise(seconds));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", settings.toString());
+        result.put("seconds", seconds);
+        result.put("requests", requests);
+        result.put("database", dbStatistics);
+        return result;
+    }
+
+    public void log(Logger logger, LoadTestSettings settings) {
+        double seconds = getSeconds();
+        logger.info("Load test of {}s with {}", String.format("%.1f", seconds), settings);
+        logger.info(String.format("%-22s %9s %7s %9s %9s %9s %9s %9s", "request", "count", "errors", "per sec", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, LatencyStats> entry : new TreeMap<>(stats).entrySet()) {
+            Map<String, Object> summary = entry.getValue().summarise(seconds);
+            logger.info(String.format("%-22s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f",
+                    entry.getKey(),
+                    summary.get("count"),
+                    summary.get("errors"),
+                    summary.get("throughput"),
+                    summary.get("p50"),
+                    summary.get("p99"),
+                    summary.get("p999"),
+                    summary.get("max")));
+        }
+        for (Map.Entry<String, Long> entry : dbStatistics.entrySet()) {
+            logger.info("database {}: {}", entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void write(File file, LoadTestSettings settings) throws IOException {
+        file.getParentFile().mkdirs();
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file, toMap(settings));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+/**
+ * The size and duration of a load test, read from system properties, for
+ * instance: -Dloadtest=true -Dloadtest.writers=8 -Dloadtest.duration=120
+ *
+ * @author scf
+ */
+public class LoadTestSettings {
+
+    /**
+     * The system property that enables the load tests.
+     */
+    public static final String KEY_ENABLED = "loadtest";
+    public static final String PREFIX = "loadtest.";
+
+    /**
+     * @return true if the load tests are enabled.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(KEY_ENABLED);
+    }
+
+    /**
+     * The number of threads POSTing Observations over HTTP.
+     */
+    public final int writers = getInt("writers", 4);
+    /**
+     * The number of threads doing filtered GET requests with $expand.
+     */
+    public final int dashboards = getInt("dashboards", 2);
+    /**
+     * The number of MQTT clients subscribed to the Observations of a
+     * Datastream.
+     */
+    public final int subscribers = getInt("subscribers", 4);
+    /**
+     * The number of MQTT clients creating Observations.
+     */
+    public final int publishers = getInt("publishers", 2);
+    /**
+     * The number of Datastreams the Observations are spread over.
+     */
+    public final int datastreams = getInt("datastreams", 10);
+    /**
+     * The time in seconds that is measured.
+     */
+    public final int duration = getInt("duration", 60);
+    /**
+     * The time in seconds before the measurement starts.
+     */
+    public final int warmup = getInt("warmup", 10);
+    /**
+     * The time in milliseconds each HTTP and MQTT worker waits between
+     * requests.
+     */
+    public final int thinkTime = getInt("thinkTime", 0);
+
+    private static int getInt(String name, int deflt) {
+        return Integer.getInteger(PREFIX + name, deflt);
+    }
+
+    @Override
+    public String toString() {
+        return "writers: " + writers
+                + ", dashboards: " + dashboards
+                + ", subscribers: " + subscribers
+                + ", publishers: " + publishers
+                + ", datastreams: " + datastreams
+                + ", duration: " + duration + "s"
+                + ", warmup: " + warmup + "s"
+                + ", thinkTime: " + thinkTime + "ms";
+    }
+}
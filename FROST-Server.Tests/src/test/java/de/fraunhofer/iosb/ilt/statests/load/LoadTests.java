@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.fraunhofer.iosb.ilt.statests.ServerSettings;
+import de.fraunhofer.iosb.ilt.statests.ServerVersion;
+import de.fraunhofer.iosb.ilt.statests.TestSuite;
+import de.fraunhofer.iosb.ilt.statests.util.EntityHelper;
+import de.fraunhofer.iosb.ilt.statests.util.HTTPMethods;
+import de.fraunhofer.iosb.ilt.statests.util.Utils;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives a mixed workload against a server started by the {@link TestSuite}:
+ * HTTP writers POSTing Observations, dashboards doing filtered GETs with
+ * $expand, MQTT subscribers on the Observations of Datastreams and MQTT
+ * publishers creating Observations. Reports the throughput and latency
+ * percentiles per request type, the MQTT delivery latency and the database
+ * statement counts, and writes them to target/loadtest/.
+ *
+ * Only runs when the system property loadtest is true, see
+ * {@link LoadTestSettings} for the other settings.
+ *
+ * @author scf
+ */
+public class LoadTests {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTests.class);
+    private static final ServerVersion VERSION = ServerVersion.v_1_0;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /**
+     * The Observation parameter holding the System.nanoTime() at which the
+     * Observation was sent, to measure the MQTT delivery latency.
+     */
+    private static final String PARAM_SENT = "loadTestSent";
+
+    private static final List<Object> DATASTREAM_IDS = new ArrayList<>();
+    private static LoadTestSettings settings;
+    private static ServerSettings serverSettings;
+    private static String serviceUrl;
+    private static Object thingId;
+
+    private final LoadReport report = new LoadReport();
+    private final AtomicLong counter = new AtomicLong();
+    private volatile boolean running = true;
+
+    @BeforeClass
+    public static void setUp() throws IOException, InterruptedException {
+        Assume.assumeTrue("Load tests only run with -Dloadtest=true", LoadTestSettings.isEnabled());
+        settings = new LoadTestSettings();
+        LOGGER.info("Setting up load test with {}", settings);
+        serverSettings = TestSuite.getInstance().getServerSettings(null);
+        serviceUrl = serverSettings.getServiceUrl(VERSION);
+        createEntities();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (serviceUrl != null) {
+            LOGGER.info("Tearing down.");
+            new EntityHelper(serviceUrl).deleteEverything();
+        }
+        DATASTREAM_IDS.clear();
+        serverSettings = null;
+        serviceUrl = null;
+        thingId = null;
+    }
+
+    private static void createEntities() throws IOException {
+        ObjectNode thing = MAPPER.createObjectNode();
+        thing.put("name", "Load Test Thing");
+        thing.put("description", "The Thing of the load test.");
+        ObjectNode location = thing.putArray("Locations").addObject();
+        location.put("name", "Load Test Location");
+        location.put("description", "The Location of the load test Thing.");
+        location.put("encodingType", "application/vnd.geo+json");
+        location.set("location", MAPPER.readTree("{\"type\":\"Point\",\"coordinates\":[8.42,49.01]}"));
+        ArrayNode datastreams = thing.putArray("Datastreams");
+        for (int i = 0; i < settings.datastreams; i++) {
+            ObjectNode datastream = datastreams.addObject();
+            datastream.put("name", "Load Test Datastream " + i);
+            datastream.put("description", "Datastream " + i + " of the load test.");
+            datastream.put("observationType", "http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement");
+            datastream.set("unitOfMeasurement", MAPPER.readTree("{\"name\":\"Count\",\"symbol\":\"#\",\"definition\":\"ucum:1\"}"));
+            ObjectNode sensor = datastream.putObject("Sensor");
+            sensor.put("name", "Load Test Sensor " + i);
+            sensor.put("description", "Sensor " + i + " of the load test.");
+            sensor.put("encodingType", "text/plain");
+            sensor.put("metadata", "none");
+            ObjectNode obsProp = datastream.putObject("ObservedProperty");
+            obsProp.put("name", "Load Test Property " + i);
+            obsProp.put("definition", "http://example.org/load/" + i);
+            obsProp.put("description", "ObservedProperty " + i + " of the load test.");
+        }
+        HTTPMethods.HttpResponse response = HTTPMethods.doPost(serviceUrl + "/Things", thing.toString());
+        Assert.assertEquals("Failed to create the load test Thing.", 201, response.code);
+        thingId = HTTPMethods.idFromSelfLink(response.response);
+
+        response = HTTPMethods.doGet(serviceUrl + "/Things(" + Utils.quoteIdForUrl(thingId) + ")/Datastreams?%24select=id&%24top=" + settings.datastreams);
+        Assert.assertEquals("Failed to read the load test Datastreams.", 200, response.code);
+        for (JsonNode datastream : MAPPER.readTree(response.response).get("value")) {
+            JsonNode id = datastream.get("@iot.id");
+            DATASTREAM_IDS.add(id.isNumber() ? (Object) id.asLong() : id.asText());
+        }
+    }
+
+    @Test
+    public void testMixedWorkload() throws InterruptedException, IOException, MqttException {
+        int httpThreads = Math.max(1, settings.writers + settings.dashboards);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<MqttClient> mqttClients = new ArrayList<>();
+        DbStatistics dbStatistics = new DbStatistics(
+                TestSuite.getInstance().getPgConnectUrl(),
+                TestSuite.VAL_PG_USER,
+                TestSuite.VAL_PG_PASS);
+        try (CloseableHttpClient httpClient = HttpClients.custom()
+                .setMaxConnTotal(httpThreads)
+                .setMaxConnPerRoute(httpThreads)
+                .build()) {
+            for (int i = 0; i < settings.subscribers; i++) {
+                mqttClients.add(startSubscriber(i));
+            }
+            for (int i = 0; i < settings.writers; i++) {
+                executor.submit(() -> runHttpWriter(httpClient));
+            }
+            for (int i = 0; i < settings.dashboards; i++) {
+                executor.submit(() -> runDashboard(httpClient));
+            }
+            for (int i = 0; i < settings.publishers; i++) {
+                MqttClient publisher = connect("loadtest-pub-" + i);
+                mqttClients.add(publisher);
+                executor.submit(() -> runMqttPublisher(publisher));
+            }
+
+            LOGGER.info("Warming up for {}s...", settings.warmup);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(settings.warmup));
+            dbStatistics.start();
+            report.start();
+            LOGGER.info("Measuring for {}s...", settings.duration);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(settings.duration));
+            report.stop();
+            running = false;
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } finally {
+            running = false;
+            executor.shutdownNow();
+            for (MqttClient client : mqttClients) {
+                disconnect(client);
+            }
+        }
+        // The statistics collector of PostgreSQL reports with a delay.
+        Thread.sleep(1000);
+        report.setDbStatistics(dbStatistics.collect());
+
+        report.log(LOGGER, settings);
+        File file = new File("target/loadtest/loadtest-" + System.currentTimeMillis() + ".json");
+        report.write(file, settings);
+        LOGGER.info("Report written to {}", file.getAbsolutePath());
+
+        if (settings.writers > 0) {
+            Assert.assertTrue("No Observations were created over HTTP.", report.getStats(LoadReport.HTTP_POST_OBSERVATION).getCount() > 0);
+        }
+        if (settings.subscribers > 0 && settings.writers + settings.publishers > 0) {
+            Assert.assertTrue("No Observations were received over MQTT.", report.getStats(LoadReport.MQTT_DELIVERY).getCount() > 0);
+        }
+    }
+
+    private void runHttpWriter(CloseableHttpClient httpClient) {
+        while (running) {
+            HttpPost post = new HttpPost(serviceUrl + "/Datastreams(" + Utils.quoteIdForUrl(randomDatastreamId()) + ")/Observations");
+            post.setEntity(new StringEntity(createObservation(), ContentType.APPLICATION_JSON));
+            execute(httpClient, post, 201, LoadReport.HTTP_POST_OBSERVATION);
+            think();
+        }
+    }
+
+    private void runDashboard(CloseableHttpClient httpClient) {
+        boolean observations = true;
+        while (running) {
+            if (observations) {
+                String url = serviceUrl + "/Datastreams(" + Utils.quoteIdForUrl(randomDatastreamId()) + ")/Observations"
+                        + "?$filter=" + encode("result gt 50")
+                        + "&$orderby=" + encode("phenomenonTime desc")
+                        + "&$top=20"
+                        + "&$expand=" + encode("FeatureOfInterest($select=name)");
+                execute(httpClient, new HttpGet(url), 200, LoadReport.HTTP_GET_OBSERVATIONS);
+            } else {
+                String url = serviceUrl + "/Things(" + Utils.quoteIdForUrl(thingId) + ")"
+                        + "?$expand=" + encode("Datastreams($select=id,name;$expand=Observations($top=1;$orderby=phenomenonTime desc))");
+                execute(httpClient, new HttpGet(url), 200, LoadReport.HTTP_GET_THINGS);
+            }
+            observations = !observations;
+            think();
+        }
+    }
+
+    private void runMqttPublisher(MqttClient publisher) {
+        while (running) {
+            String topic = VERSION.urlPart + "/Datastreams(" + Utils.quoteIdForUrl(randomDatastreamId()) + ")/Observations";
+            byte[] payload = createObservation().getBytes(StandardCharsets.UTF_8);
+            long start = System.nanoTime();
+            try {
+                publisher.publish(topic, payload, 1, false);
+                report.record(LoadReport.MQTT_CREATE_OBSERVATION, System.nanoTime() - start);
+            } catch (MqttException ex) {
+                report.error(LoadReport.MQTT_CREATE_OBSERVATION);
+                LOGGER.debug("Failed to publish.", ex);
+            }
+            think();
+        }
+    }
+
+    private MqttClient startSubscriber(int number) throws MqttException {
+        MqttClient client = connect("loadtest-sub-" + number);
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                LOGGER.warn("Subscriber {} lost its connection.", number, cause);
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                long received = System.nanoTime();
+                try {
+                    JsonNode sent = MAPPER.readTree(message.getPayload()).path("parameters").path(PARAM_SENT);
+                    if (sent.isNumber()) {
+                        report.record(LoadReport.MQTT_DELIVERY, received - sent.asLong());
+                    }
+                } catch (IOException ex) {
+                    report.error(LoadReport.MQTT_DELIVERY);
+                    LOGGER.debug("Failed to parse message.", ex);
+                }
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+                // Subscribers do not publish.
+            }
+        });
+        Object datastreamId = DATASTREAM_IDS.get(number % DATASTREAM_IDS.size());
+        client.subscribe(VERSION.urlPart + "/Datastreams(" + Utils.quoteIdForUrl(datastreamId) + ")/Observations", 0);
+        return client;
+    }
+
+    private MqttClient connect(String name) throws MqttException {
+        MqttClient client = new MqttClient(serverSettings.getMqttUrl(), name + "-" + UUID.randomUUID(), new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setMaxInflight(1000);
+        client.connect(options);
+        return client;
+    }
+
+    private static void disconnect(MqttClient client) {
+        try {
+            if (client.isConnected()) {
+                client.disconnect();
+            }
+            client.close();
+        } catch (MqttException ex) {
+            LOGGER.debug("Failed to close MQTT client.", ex);
+        }
+    }
+
+    private void execute(CloseableHttpClient httpClient, HttpUriRequest request, int expectedCode, String type) {
+        long start = System.nanoTime();
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            EntityUtils.consume(response.getEntity());
+            if (response.getStatusLine().getStatusCode() == expectedCode) {
+                report.record(type, System.nanoTime() - start);
+            } else {
+                report.error(type);
+                LOGGER.debug("{} returned {}", request.getURI(), response.getStatusLine());
+            }
+        } catch (IOException ex) {
+            report.error(type);
+            LOGGER.debug("{} failed.", request.getURI(), ex);
+        }
+    }
+
+    private String createObservation() {
+        ObjectNode observation = MAPPER.createObjectNode();
+        observation.put("phenomenonTime", Instant.now().toString());
+        observation.put("result", counter.incrementAndGet() % 100);
+        observation.putObject("parameters").put(PARAM_SENT, System.nanoTime());
+        return observation.toString();
+    }
+
+    private static Object randomDatastreamId() {
+        return DATASTREAM_IDS.get(ThreadLocalRandom.current().nextInt(DATASTREAM_IDS.size()));
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void think() {
+        if (settings.thinkTime <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(settings.thinkTime);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+/**
+ * Formats and parses ISO 8601 date-times from and to epoch milliseconds,
+ * without going through a date-time library. Formatting writes into a given
+ * char array and does not allocate. Parsing only handles the extended form
+ * with an explicit offset, like 2015-04-13T00:00:05.123+02:00, and signals
+ * all other input with {@link #NOT_PARSED}, so callers can fall back to a
+ * full parser.
+ *
+ * @author scf
+ */
+public class IsoTimeHelper {
+
+    /**
+     * The maximum number of characters written for a single instant.
+     */
+    public static final int MAX_INSTANT_LENGTH = 32;
+    /**
+     * The maximum number of characters written for an interval.
+     */
+    public static final int MAX_INTERVAL_LENGTH = 2 * MAX_INSTANT_LENGTH + 1;
+    /**
+     * Returned by the parse methods if the input is not in the supported
+     * form.
+     */
+    public static final long NOT_PARSED = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int MILLIS_PER_HOUR = 3_600_000;
+    private static final int MILLIS_PER_MINUTE = 60_000;
+    private static final int MILLIS_PER_SECOND = 1_000;
+    private static final int DAYS_PER_ERA = 146_097;
+    /**
+     * The number of days from 0000-03-01 to 1970-01-01.
+     */
+    private static final int DAYS_0000_TO_1970 = 719_468;
+
+    private IsoTimeHelper() {
+        // Utility class, not to be instantiated.
+    }
+
+    /**
+     * Formats the given epoch milliseconds as an ISO 8601 String, with
+     * millisecond precision, in UTC.
+     *
+     * @param epochMillis The epoch milliseconds.
+     * @return The ISO 8601 String.
+     */
+    public static String formatMillis(long epochMillis) {
+        char[] buffer = new char[MAX_INSTANT_LENGTH];
+        int length = writeMillis(epochMillis, buffer, 0);
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Formats the given interval as an ISO 8601 String, with millisecond
+     * precision, in UTC.
+     *
+     * @param startMillis The start of the interval, in epoch milliseconds.
+     * @param endMillis The end of the interval, in epoch milliseconds.
+     * @return The ISO 8601 String.
+     */
+    public static String formatMillis(long startMillis, long endMillis) {
+        char[] buffer = new char[MAX_INTERVAL_LENGTH];
+        int length = writeMillis(startMillis, endMillis, buffer, 0);
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Writes the given interval as ISO 8601 into the given buffer, with
+     * millisecond precision, in UTC. The buffer must have at least
+     * {@link #MAX_INTERVAL_LENGTH} characters available after the offset.
+     *
+     * @param startMillis The start of the interval, in epoch milliseconds.
+     * @param endMillis The end of the interval, in epoch milliseconds.
+     * @param buffer The buffer to write into.
+     * @param offset The position in the buffer to start writing at.
+     * @return The position in the buffer after the last written character.
+     */
+    public static int writeMillis(long startMillis, long endMillis, char[] buffer, int offset) {
+        int pos = writeMillis(startMillis, buffer, offset);
+        buffer[pos++] = '/';
+        return writeMillis(endMillis, buffer, pos);
+    }
+
+    /**
+     * Writes the given epoch milliseconds as ISO 8601 into the given buffer,
+     * with millisecond precision, in UTC. The buffer must have at least
+     * {@link #MAX_INSTANT_LENGTH} characters available after the offset.
+     *
+     * @param epochMillis The epoch milliseconds.
+     * @param buffer The buffer to write into.
+     * @param offset The position in the buffer to start writing at.
+     * @return The position in the buffer after the last written character.
+     */
+    public static int writeMillis(long epochMillis, char[] buffer, int offset) {
+        long epochDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        // Civil date from days, with years starting on the first of March.
+        long shifted = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        int dayOfEra = (int) (shifted - era * DAYS_PER_ERA);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+
+        int pos = writeYear(year, buffer, offset);
+        buffer[pos++] = '-';
+        pos = writeTwoDigits(month, buffer, pos);
+        buffer[pos++] = '-';
+        pos = writeTwoDigits(day, buffer, pos);
+        buffer[pos++] = 'T';
+        pos = writeTwoDigits(millisOfDay / MILLIS_PER_HOUR, buffer, pos);
+        buffer[pos++] = ':';
+        pos = writeTwoDigits(millisOfDay / MILLIS_PER_MINUTE % 60, buffer, pos);
+        buffer[pos++] = ':';
+        pos = writeTwoDigits(millisOfDay / MILLIS_PER_SECOND % 60, buffer, pos);
+        buffer[pos++] = '.';
+        int millis = millisOfDay % MILLIS_PER_SECOND;
+        buffer[pos++] = (char) ('0' + millis / 100);
+        pos = writeTwoDigits(millis % 100, buffer, pos);
+        buffer[pos++] = 'Z';
+        return pos;
+    }
+
+    private static int writeYear(long year, char[] buffer, int offset) {
+        int pos = offset;
+        if (year < 0) {
+            buffer[pos++] = '-';
+            year = -year;
+        }
+        if (year < 10_000) {
+            int value = (int) year;
+            pos = writeTwoDigits(value / 100, buffer, pos);
+            return writeTwoDigits(value % 100, buffer, pos);
+        }
+        int digits = 0;
+        for (long rest = year; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + year % 10);
+            year /= 10;
+        }
+        return end;
+    }
+
+    private static int writeTwoDigits(int value, char[] buffer, int pos) {
+        buffer[pos] = (char) ('0' + value / 10);
+        buffer[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    /**
+     * Parses the given ISO 8601 String into epoch milliseconds. Only the
+     * extended form with a four-digit year, at least hours and minutes, and
+     * an offset of Z or ±hh:mm is supported. Fractions of seconds beyond
+     * milliseconds are truncated.
+     *
+     * @param text The text to parse.
+     * @return The epoch milliseconds, or {@link #NOT_PARSED} if the text is
+     * not in the supported form.
+     */
+    public static long parseMillis(CharSequence text) {
+        return parseMillis(text, 0, text.length());
+    }
+
+    /**
+     * Parses the given part of the text into epoch milliseconds. See
+     * {@link #parseMillis(java.lang.CharSequence)}.
+     *
+     * @param text The text to parse.
+     * @param start The position of the first character to parse.
+     * @param end The position after the last character to parse.
+     * @return The epoch milliseconds, or {@link #NOT_PARSED} if the text is
+     * not in the supported form.
+     */
+    public static long parseMillis(CharSequence text, int start, int end) {
+        // yyyy-MM-ddTHH:mm is the shortest form, followed by at least a Z.
+        if (end - start < 17) {
+            return NOT_PARSED;
+        }
+        int year = parseDigits(text, start, 4);
+        int month = parseDigits(text, start + 5, 2);
+        int day = parseDigits(text, start + 8, 2);
+        int hour = parseDigits(text, start + 11, 2);
+        int minute = parseDigits(text, start + 14, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || text.charAt(start + 4) != '-'
+                || text.charAt(start + 7) != '-'
+                || text.charAt(start + 10) != 'T'
+                || text.charAt(start + 13) != ':') {
+            return NOT_PARSED;
+        }
+        int pos = start + 16;
+        int second = 0;
+        int millis = 0;
+        if (text.charAt(pos) == ':') {
+            if (end - pos < 4) {
+                return NOT_PARSED;
+            }
+            second = parseDigits(text, pos + 1, 2);
+            if (second < 0 || second > 59) {
+                return NOT_PARSED;
+            }
+            pos += 3;
+            if (text.charAt(pos) == '.') {
+                pos++;
+                int fractionStart = pos;
+                int factor = 100;
+                while (pos < end && isDigit(text.charAt(pos))) {
+                    millis += factor * (text.charAt(pos) - '0');
+                    factor /= 10;
+                    pos++;
+                }
+                if (pos == fractionStart || pos - fractionStart > 9) {
+                    return NOT_PARSED;
+                }
+            }
+        }
+        int offsetMillis = parseOffsetMillis(text, pos, end);
+        if (offsetMillis == Integer.MIN_VALUE) {
+            return NOT_PARSED;
+        }
+        long epochDay = epochDay(year, month, day);
+        return epochDay * MILLIS_PER_DAY
+                + hour * MILLIS_PER_HOUR
+                + minute * MILLIS_PER_MINUTE
+                + second * MILLIS_PER_SECOND
+                + millis
+                - offsetMillis;
+    }
+
+    private static int parseOffsetMillis(CharSequence text, int pos, int end) {
+        if (pos >= end) {
+            return Integer.MIN_VALUE;
+        }
+        char sign = text.charAt(pos);
+        if (sign == 'Z') {
+            return pos + 1 == end ? 0 : Integer.MIN_VALUE;
+        }
+        if ((sign != '+' && sign != '-') || end - pos != 6 || text.charAt(pos + 3) != ':') {
+            return Integer.MIN_VALUE;
+        }
+        int hours = parseDigits(text, pos + 1, 2);
+        int minutes = parseDigits(text, pos + 4, 2);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int offset = hours * MILLIS_PER_HOUR + minutes * MILLIS_PER_MINUTE;
+        return sign == '-' ? -offset : offset;
+    }
+
+    /**
+     * Parses a fixed number of digits.
+     *
+     * @return The value, or -1 if not all characters are digits.
+     */
+    private static int parseDigits(CharSequence text, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 for the given date, with years starting on the
+     * first of March.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long shiftedYear = month <= 2 ? year - 1L : year;
+        long era = Math.floorDiv(shiftedYear, 400);
+        int yearOfEra = (int) (shiftedYear - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class IsoTimeHelperTest {
+
+    private static final DateTimeFormatter REFERENCE = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSX").withZone(ZoneOffset.UTC);
+
+    @Test
+    public void testFormatMillis() {
+        Assert.assertEquals("1970-01-01T00:00:00.000Z", IsoTimeHelper.formatMillis(0));
+        Assert.assertEquals("1969-12-31T23:59:59.999Z", IsoTimeHelper.formatMillis(-1));
+        Assert.assertEquals("2015-04-13T00:00:05.000Z", IsoTimeHelper.formatMillis(1428883205000L));
+        Assert.assertEquals("2000-02-29T12:34:56.789Z", IsoTimeHelper.formatMillis(951827696789L));
+        Assert.assertEquals("0000-01-01T00:00:00.000Z", IsoTimeHelper.formatMillis(-62167219200000L));
+        Assert.assertEquals("-0001-12-31T23:59:59.999Z", IsoTimeHelper.formatMillis(-62167219200001L));
+        Assert.assertEquals("10000-01-01T00:00:00.000Z", IsoTimeHelper.formatMillis(253402300800000L));
+        Assert.assertEquals(
+                "2014-03-01T13:00:00.000Z/2015-05-11T15:30:00.000Z",
+                IsoTimeHelper.formatMillis(1393678800000L, 1431358200000L));
+    }
+
+    @Test
+    public void testFormatMillisRandom() {
+        Random random = new Random(42);
+        long min = Instant.parse("0000-01-01T00:00:00Z").toEpochMilli();
+        long max = Instant.parse("9999-12-31T23:59:59.999Z").toEpochMilli();
+        for (int i = 0; i < 100_000; i++) {
+            long millis = min + (long) (random.nextDouble() * (max - min));
+            String expected = REFERENCE.format(Instant.ofEpochMilli(millis));
+            Assert.assertEquals(expected, IsoTimeHelper.formatMillis(millis));
+            Assert.assertEquals(millis, IsoTimeHelper.parseMillis(expected));
+        }
+    }
+
+    @Test
+    public void testWriteMillisAtOffset() {
+        char[] buffer = new char[IsoTimeHelper.MAX_INSTANT_LENGTH + 2];
+        buffer[0] = '"';
+        int end = IsoTimeHelper.writeMillis(0, buffer, 1);
+        buffer[end++] = '"';
+        Assert.assertEquals("\"1970-01-01T00:00:00.000Z\"", new String(buffer, 0, end));
+    }
+
+    @Test
+    public void testParseMillis() {
+        Assert.assertEquals(1428883205000L, IsoTimeHelper.parseMillis("2015-04-13T00:00:05Z"));
+        Assert.assertEquals(1428883205123L, IsoTimeHelper.parseMillis("2015-04-13T00:00:05.123Z"));
+        Assert.assertEquals(1428883205100L, IsoTimeHelper.parseMillis("2015-04-13T00:00:05.1Z"));
+        Assert.assertEquals(1428883205123L, IsoTimeHelper.parseMillis("2015-04-13T00:00:05.123456789Z"));
+        Assert.assertEquals(1428883200000L, IsoTimeHelper.parseMillis("2015-04-13T00:00Z"));
+        Assert.assertEquals(1428883205000L, IsoTimeHelper.parseMillis("2015-04-13T02:00:05+02:00"));
+        Assert.assertEquals(1428883205000L, IsoTimeHelper.parseMillis("2015-04-12T16:30:05-07:30"));
+        Assert.assertEquals(1428883205000L, IsoTimeHelper.parseMillis("x2015-04-13T00:00:05Zx", 1, 21));
+    }
+
+    @Test
+    public void testParseMillisNotSupported() {
+        String[] inputs = {
+            "",
+            "2015-04-13",
+            "2015-04-13T00:00:05",
+            "2015-04-13T00:00:05+0200",
+            "2015-04-13t00:00:05Z",
+            "2015-04-13T00:00:05,123Z",
+            "2015-04-13T00:00:05.Z",
+            "2015-04-13T24:00:00Z",
+            "2015-02-29T00:00:00Z",
+            "2015-13-01T00:00:00Z",
+            "+2015-04-13T00:00:05Z",
+            "2015-04-13T00:00:05Zx",
+            "2015-04-13T00:00:05.1234567890Z"
+        };
+        for (String input : inputs) {
+            Assert.assertEquals(input, IsoTimeHelper.NOT_PARSED, IsoTimeHelper.parseMillis(input));
+        }
+    }
+
+}
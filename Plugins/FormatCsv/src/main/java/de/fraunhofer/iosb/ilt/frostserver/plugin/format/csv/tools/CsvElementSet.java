@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.plugin.format.csv.tools;
 
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
@@ -124,6 +125,10 @@ public class CsvElementSet {
         if (entitySet == null) {
             return;
         }
+        if (entitySet instanceof ObservationSetColumnar && canWriteColumns((ObservationSetColumnar) entitySet)) {
+            writeColumns(collector, (ObservationSetColumnar) entitySet);
+            return;
+        }
         List<? extends Entity> list = entitySet.asList();
         for (Entity e : list) {
             for (CsvEntityEntry element : elements) {
@@ -133,6 +138,28 @@ public class CsvElementSet {
         }
     }
 
+    private boolean canWriteColumns(ObservationSetColumnar columns) {
+        if (!columns.isColumnar()) {
+            return false;
+        }
+        for (CsvEntityEntry element : elements) {
+            if (!(element instanceof CsvEntityProperty)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeColumns(CsvRowCollector collector, ObservationSetColumnar columns) throws IOException {
+        int rowCount = columns.getRowCount();
+        for (int row = 0; row < rowCount; row++) {
+            for (CsvEntityEntry element : elements) {
+                ((CsvEntityProperty) element).writeData(collector, columns, row);
+            }
+            collector.flush();
+        }
+    }
+
     private static class NavigationPropertyFollowerDefault implements NavigationPropertyFollower {
 
         private final NavigationProperty property;
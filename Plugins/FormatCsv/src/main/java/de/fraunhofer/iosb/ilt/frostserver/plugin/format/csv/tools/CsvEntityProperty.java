@@ -17,6 +17,8 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.plugin.format.csv.tools;
 
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
 
@@ -52,4 +54,44 @@ public class CsvEntityProperty implements CsvEntityEntry {
         collector.collectEntry(columnIndex, property.getFrom(source));
     }
 
+    /**
+     * Collect data for CSV data rows, directly from the columns of an
+     * ObservationSetColumnar.
+     *
+     * @param collector The collector to collect the data in.
+     * @param columns The columns to collect the data from.
+     * @param row The row in the columns to collect the data from.
+     */
+    public void writeData(CsvRowCollector collector, ObservationSetColumnar columns, int row) {
+        collector.collectEntry(columnIndex, getFrom(columns, row));
+    }
+
+    private Object getFrom(ObservationSetColumnar columns, int row) {
+        switch (property) {
+            case ID:
+                return Long.toString(columns.getId(row));
+
+            case PHENOMENONTIME:
+                return columns.formatPhenomenonTime(row);
+
+            case RESULTTIME:
+                return columns.formatResultTime(row);
+
+            case RESULT:
+                switch (columns.getResultType(row)) {
+                    case DOUBLE:
+                        return Observation.formatResultDouble(columns.getResultDouble(row));
+
+                    case LONG:
+                        return Long.toString(columns.getResultLong(row));
+
+                    default:
+                        return columns.getResultObject(row);
+                }
+
+            default:
+                return null;
+        }
+    }
+
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.ResultFormatterDataArray.VisibleComponents;
+import de.fraunhofer.iosb.ilt.frostserver.util.IsoTimeHelper;
+import de.fraunhofer.iosb.ilt.frostserver.util.UrlHelper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A DataArrayValue that writes its rows directly from the columns of an
+ * ObservationSetColumnar, instead of from a list of values per row.
+ *
+ * @author scf
+ */
+public class DataArrayValueColumnar extends DataArrayValue {
+
+    private final ObservationSetColumnar columns;
+    private final VisibleComponents visComps;
+    private int[] rows = new int[16];
+    private int rowCount;
+
+    public DataArrayValueColumnar(ResourcePath path, ObservationSetColumnar columns, int streamCode, VisibleComponents visComps, List<String> components) {
+        this.columns = columns;
+        this.visComps = visComps;
+        setComponents(components);
+        if (ObservationSetColumnar.isMultiDatastreamCode(streamCode)) {
+            MultiDatastream mds = (MultiDatastream) columns.createStream(streamCode);
+            mds.setNavigationLink(UrlHelper.generateSelfLink(path, mds));
+            setMultiDatastream(mds);
+        } else {
+            Datastream ds = (Datastream) columns.createStream(streamCode);
+            ds.setNavigationLink(UrlHelper.generateSelfLink(path, ds));
+            setDatastream(ds);
+        }
+    }
+
+    /**
+     * Add the given row of the columns to this DataArray.
+     *
+     * @param row The index of the row in the columns.
+     */
+    public void addRow(int row) {
+        if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, rowCount * 2);
+        }
+        rows[rowCount++] = row;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Write the rows of this DataArray as JSON array of arrays.
+     *
+     * @param gen The generator to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeDataArray(JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        char[] buffer = new char[IsoTimeHelper.MAX_INTERVAL_LENGTH];
+        for (int i = 0; i < rowCount; i++) {
+            int row = rows[i];
+            gen.writeStartArray();
+            if (visComps.id) {
+                gen.writeNumber(columns.getId(row));
+            }
+            if (visComps.phenomenonTime) {
+                writeTimeOrNull(buffer, columns.writePhenomenonTime(row, buffer), gen);
+            }
+            if (visComps.result) {
+                writeResult(row, gen);
+            }
+            if (visComps.resultTime) {
+                writeTimeOrNull(buffer, columns.writeResultTime(row, buffer), gen);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeResult(int row, JsonGenerator gen) throws IOException {
+        switch (columns.getResultType(row)) {
+            case DOUBLE:
+                gen.writeNumber(Observation.formatResultDouble(columns.getResultDouble(row)));
+                break;
+
+            case LONG:
+                gen.writeNumber(columns.getResultLong(row));
+                break;
+
+            default:
+                gen.writeObject(columns.getResultObject(row));
+        }
+    }
+
+    private static void writeTimeOrNull(char[] buffer, int length, JsonGenerator gen) throws IOException {
+        if (length < 0) {
+            gen.writeNull();
+        } else {
+            gen.writeString(buffer, 0, length);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.ResultFormatterDataArray.VisibleComponents;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DataArrayValue that writes its rows directly from the Observations,
+ * instead of from a list of values per row, so primitive results are not
+ * boxed.
+ *
+ * @author scf
+ */
+public class DataArrayValueObservations extends DataArrayValue {
+
+    private final VisibleComponents visComps;
+    private final List<Observation> observations = new ArrayList<>();
+
+    public DataArrayValueObservations(ResourcePath path, Observation observation, VisibleComponents visComps, List<String> components) {
+        super(path, observation, components);
+        this.visComps = visComps;
+    }
+
+    /**
+     * Add the given Observation to this DataArray.
+     *
+     * @param observation The Observation to add.
+     */
+    public void addObservation(Observation observation) {
+        observations.add(observation);
+    }
+
+    public int getRowCount() {
+        return observations.size();
+    }
+
+    /**
+     * Write the rows of this DataArray as JSON array of arrays.
+     *
+     * @param gen The generator to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeDataArray(JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        for (Observation o : observations) {
+            gen.writeStartArray();
+            if (visComps.id) {
+                gen.writeObject(o.getId().getValue());
+            }
+            if (visComps.phenomenonTime) {
+                gen.writeObject(o.getPhenomenonTime());
+            }
+            if (visComps.result) {
+                writeResult(o, gen);
+            }
+            if (visComps.resultTime) {
+                gen.writeObject(o.getResultTime());
+            }
+            if (visComps.resultQuality) {
+                gen.writeObject(o.getResultQuality());
+            }
+            if (visComps.validTime) {
+                gen.writeObject(o.getValidTime());
+            }
+            if (visComps.parameters) {
+                gen.writeObject(o.getParameters());
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeResult(Observation o, JsonGenerator gen) throws IOException {
+        switch (o.getResultPrimitive()) {
+            case DOUBLE:
+                gen.writeNumber(Observation.formatResultDouble(o.getResultDouble()));
+                break;
+
+            case LONG:
+                gen.writeNumber(o.getResultLong());
+                break;
+
+            default:
+                gen.writeObject(o.getResult());
+        }
+    }
+
+}
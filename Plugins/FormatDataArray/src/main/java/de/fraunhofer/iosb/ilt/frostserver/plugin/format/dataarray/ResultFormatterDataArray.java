@@ -21,6 +21,7 @@ import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
@@ -148,32 +149,6 @@ public class ResultFormatterDataArray implements ResultFormatter {
             }
             return components;
         }
-
-        public List<Object> fromObservation(Observation o) {
-            List<Object> value = new ArrayList<>();
-            if (id) {
-                value.add(o.getId().getValue());
-            }
-            if (phenomenonTime) {
-                value.add(o.getPhenomenonTime());
-            }
-            if (result) {
-                value.add(o.getResult());
-            }
-            if (resultTime) {
-                value.add(o.getResultTime());
-            }
-            if (resultQuality) {
-                value.add(o.getResultQuality());
-            }
-            if (validTime) {
-                value.add(o.getValidTime());
-            }
-            if (parameters) {
-                value.add(o.getParameters());
-            }
-            return value;
-        }
     }
 
     public String formatDataArray(ResourcePath path, Query query, EntitySet<Observation> entitySet) throws IOException {
@@ -185,14 +160,18 @@ public class ResultFormatterDataArray implements ResultFormatter {
         }
         List<String> components = visComps.getComponents();
 
-        Map<String, DataArrayValue> dataArraySet = new LinkedHashMap<>();
+        if (entitySet instanceof ObservationSetColumnar && ((ObservationSetColumnar) entitySet).isColumnar()) {
+            return formatColumns(path, (ObservationSetColumnar) entitySet, visComps, components);
+        }
+
+        Map<String, DataArrayValueObservations> dataArraySet = new LinkedHashMap<>();
         for (Observation obs : entitySet) {
             String dataArrayId = DataArrayValue.dataArrayIdFor(obs);
-            DataArrayValue dataArray = dataArraySet.computeIfAbsent(
+            DataArrayValueObservations dataArray = dataArraySet.computeIfAbsent(
                     dataArrayId,
-                    k -> new DataArrayValue(path, obs, components)
+                    k -> new DataArrayValueObservations(path, obs, visComps, components)
             );
-            dataArray.getDataArray().add(visComps.fromObservation(obs));
+            dataArray.addObservation(obs);
         }
 
         DataArrayResult result = new DataArrayResult();
@@ -207,4 +186,36 @@ public class ResultFormatterDataArray implements ResultFormatter {
         return EntityFormatter.writeObject(result);
     }
 
+    /**
+     * Creates the dataArrays directly from the columns of the given set,
+     * without creating an Observation for each row.
+     */
+    private String formatColumns(ResourcePath path, ObservationSetColumnar columns, VisibleComponents visComps, List<String> components) throws IOException {
+        List<DataArrayValueColumnar> byCode = new ArrayList<>();
+        DataArrayResult result = new DataArrayResult();
+        List<DataArrayValue> values = result.getValue();
+        int rowCount = columns.getRowCount();
+        for (int row = 0; row < rowCount; row++) {
+            int code = columns.getStreamCode(row);
+            if (code < 0) {
+                continue;
+            }
+            while (byCode.size() <= code) {
+                byCode.add(null);
+            }
+            DataArrayValueColumnar dataArray = byCode.get(code);
+            if (dataArray == null) {
+                dataArray = new DataArrayValueColumnar(path, columns, code, visComps, components);
+                byCode.set(code, dataArray);
+                values.add(dataArray);
+            }
+            dataArray.addRow(row);
+        }
+
+        result.setCount(columns.getCount());
+        result.setNextLink(columns.getNextLink());
+
+        return EntityFormatter.writeObject(result);
+    }
+
 }
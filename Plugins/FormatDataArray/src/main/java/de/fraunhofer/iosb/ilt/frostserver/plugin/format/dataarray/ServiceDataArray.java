@@ -31,9 +31,7 @@ import de.fraunhofer.iosb.ilt.frostserver.service.ServiceResponse;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.ArrayValueHandlers;
 import de.fraunhofer.iosb.ilt.frostserver.util.UrlHelper;
-import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestException;
-import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -107,6 +105,8 @@ public class ServiceDataArray {
 
     private void handleDataArrayItems(String serviceRootUrl, List<ArrayValueHandlers.ArrayValueHandler> handlers, DataArrayValue daValue, Datastream datastream, MultiDatastream multiDatastream, PersistenceManager pm, List<String> selfLinks) {
         int compCount = handlers.size();
+        List<Observation> observations = new ArrayList<>();
+        List<Integer> linkIndices = new ArrayList<>();
         for (List<Object> entry : daValue.getDataArray()) {
             try {
                 Observation observation = new Observation();
@@ -115,14 +115,26 @@ public class ServiceDataArray {
                 for (int i = 0; i < compCount; i++) {
                     handlers.get(i).handle(entry.get(i), observation);
                 }
-
-                pm.insert(observation);
-                String selfLink = UrlHelper.generateSelfLink(serviceRootUrl, observation);
-                selfLinks.add(selfLink);
-            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+                observations.add(observation);
+                linkIndices.add(selfLinks.size());
+                selfLinks.add(null);
+            } catch (IllegalArgumentException exc) {
                 LOGGER.debug("Failed to create entity", exc);
                 selfLinks.add("error " + exc.getMessage());
             }
         }
+
+        List<String> errors = pm.insertObservations(observations);
+        for (int i = 0; i < observations.size(); i++) {
+            String error = errors.get(i);
+            String selfLink;
+            if (error == null) {
+                selfLink = UrlHelper.generateSelfLink(serviceRootUrl, observations.get(i));
+            } else {
+                LOGGER.debug("Failed to create entity: {}", error);
+                selfLink = "error " + error;
+            }
+            selfLinks.set(linkIndices.get(i), selfLink);
+        }
     }
 }
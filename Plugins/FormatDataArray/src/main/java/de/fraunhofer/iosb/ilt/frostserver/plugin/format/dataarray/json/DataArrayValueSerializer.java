@@ -23,6 +23,8 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
 import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.DataArrayValue;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.DataArrayValueColumnar;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.DataArrayValueObservations;
 import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_COUNT;
 import static de.fraunhofer.iosb.ilt.frostserver.property.SpecialNames.AT_IOT_NAVIGATION_LINK;
 import java.io.IOException;
@@ -49,6 +51,22 @@ public class DataArrayValueSerializer extends JsonSerializer<DataArrayValue> {
             gen.writeStringField(MULTI_DATASTREAM_IOT_NAVIGATION_LINK, multiDatastream.getNavigationLink());
         }
         gen.writeObjectField("components", value.getComponents());
+        if (value instanceof DataArrayValueColumnar) {
+            DataArrayValueColumnar columnar = (DataArrayValueColumnar) value;
+            gen.writeNumberField(DATAARRAY_IOT_COUNT, columnar.getRowCount());
+            gen.writeFieldName("dataArray");
+            columnar.writeDataArray(gen);
+            gen.writeEndObject();
+            return;
+        }
+        if (value instanceof DataArrayValueObservations) {
+            DataArrayValueObservations observations = (DataArrayValueObservations) value;
+            gen.writeNumberField(DATAARRAY_IOT_COUNT, observations.getRowCount());
+            gen.writeFieldName("dataArray");
+            observations.writeDataArray(gen);
+            gen.writeEndObject();
+            return;
+        }
         int count = value.getDataArray().size();
         if (count >= 0) {
             gen.writeNumberField(DATAARRAY_IOT_COUNT, count);
@@ -60,6 +78,12 @@ public class DataArrayValueSerializer extends JsonSerializer<DataArrayValue> {
 
     @Override
     public boolean isEmpty(SerializerProvider provider, DataArrayValue value) {
+        if (value instanceof DataArrayValueColumnar) {
+            return ((DataArrayValueColumnar) value).getRowCount() == 0;
+        }
+        if (value instanceof DataArrayValueObservations) {
+            return ((DataArrayValueObservations) value).getRowCount() == 0;
+        }
         return (value == null || value.getDataArray().isEmpty());
     }
 
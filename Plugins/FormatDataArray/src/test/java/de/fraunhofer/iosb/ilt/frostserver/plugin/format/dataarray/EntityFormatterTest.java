@@ -21,7 +21,17 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.EntityFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservationSetColumnar;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityProperty;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -86,6 +96,49 @@ public class EntityFormatterTest {
         Assert.assertTrue(jsonEqual(expResult, EntityFormatter.writeObject(source)));
     }
 
+    @Test
+    public void writeObservationDataArrayColumnar() throws IOException {
+        ResourcePath path = new ResourcePath("http://example.org/v1.0", "/Observations");
+        Query query = new Query(new CoreSettings());
+        query.getSelect().addAll(Arrays.asList(EntityProperty.ID, EntityProperty.PHENOMENONTIME, EntityProperty.RESULT));
+        query.getSelect().addAll(Arrays.asList(NavigationPropertyMain.DATASTREAM, NavigationPropertyMain.MULTIDATASTREAM));
+
+        ObservationSetColumnar columns = createColumns(query);
+        columns.setCount(108);
+        columns.setNextLink("nextLinkHere");
+        ObservationSetColumnar materialised = createColumns(query);
+        EntitySetImpl<Observation> objects = new EntitySetImpl<>(EntityType.OBSERVATION, materialised.asList());
+        objects.setCount(108);
+        objects.setNextLink("nextLinkHere");
+
+        ResultFormatterDataArray formatter = new ResultFormatterDataArray();
+        String fromColumns = formatter.formatDataArray(path, query, columns);
+        Assert.assertTrue(columns.isColumnar());
+        String fromObjects = formatter.formatDataArray(path, query, objects);
+        Assert.assertTrue(jsonEqual(fromObjects, fromColumns));
+    }
+
+    private ObservationSetColumnar createColumns(Query query) {
+        long time = 1293099600000000L;
+        ObservationSetColumnar columns = new ObservationSetColumnar(query.getSelect());
+        for (int i = 0; i < 6; i++) {
+            int row = columns.addRow();
+            columns.setId(row, 444 + i);
+            columns.setPhenomenonTime(row, time + i * 60000000L, time + i * 60000000L);
+            if (i % 2 == 0) {
+                columns.setResultLong(row, i);
+            } else {
+                columns.setResultDouble(row, i + 0.5);
+            }
+            if (i < 4) {
+                columns.setDatastream(row, new IdLong(1 + i % 2));
+            } else {
+                columns.setMultiDatastream(row, new IdLong(1));
+            }
+        }
+        return columns;
+    }
+
     private String createDataJson() {
         String expResult = "{\n"
                 + "    \"@iot.count\": 108,\n"